@@ -1,59 +1,36 @@
 package com;
 
-import javax.interceptor.AroundInvoke;
 import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Stream;
 
 public class ChainableInvocationContext implements InvocationContext {
 
     private final InvocationContext context;
 
-    private final Object[] interceptors; // @Interceptor class instances
+    private final MethodHandle[] aroundInvokes; // the bound @AroundInvoke methods of the @Interceptor class instances
 
     private final int length;
 
-    private final Map<Object, Method> indexedAroundInvokeMethods;  //将Intercepter对象和它所对应的 AroundInvoke 方法对应起来
-
     private int pos; // position
 
     public ChainableInvocationContext(InvocationContext context, Object... interceptors) {
-        this.context = context;
-        this.interceptors = interceptors;
-        this.length = interceptors.length;
-        this.indexedAroundInvokeMethods = initInvokeMethod();
-        this.pos = 0;
-    }
-
-    private Map<Object, Method> initInvokeMethod() {
-        Map<Object, Method> objectMethodHashMap = new HashMap<>();
-        for (int i = 0; i < length; i++) {
-
-            Object interceptor = interceptors[i];
-            Optional<Method> optionalMethod = findAroundInvokeMethod(interceptor);
-            optionalMethod.ifPresent(method -> {
-                objectMethodHashMap.put(interceptor, method);
-            });
-        }
-        return objectMethodHashMap;
+        this(context, InterceptorChain.of(interceptors));
     }
 
-    // 用@AroundInvoke 来修饰的方法 一般我们这里的一个interceptor类中只有一个exec方法
-    private Optional<Method> findAroundInvokeMethod(Object interceptor) {
-        return Stream.of(interceptor.getClass().getMethods()).filter(method -> {
-            int mods = method.getModifiers();
-            return method.isAnnotationPresent(AroundInvoke.class) && method.getParameterCount() == 1 //只有一个参数并且参数是InvocationContext
-                    && InvocationContext.class.isAssignableFrom(method.getParameterTypes()[0])
-                    && !Modifier.isStatic(mods);
-        }).findFirst();
+    /**
+     * @param chain the interceptors resolved once at the creation of the proxy
+     */
+    public ChainableInvocationContext(InvocationContext context, InterceptorChain chain) {
+        this.context = context;
+        this.aroundInvokes = chain.getAroundInvokes();
+        this.length = aroundInvokes.length;
+        this.pos = 0;
     }
 
-
     @Override
     public Object getTarget() {
         return context.getTarget();
@@ -92,10 +69,13 @@ public class ChainableInvocationContext implements InvocationContext {
     @Override
     public Object proceed() throws Exception {
         if (pos < length) {
-            Object object = interceptors[pos];
-            Method method = indexedAroundInvokeMethods.get(object);
-            pos = pos + 1;
-            return method.invoke(object, this);
+            try {
+                return (Object) aroundInvokes[pos++].invokeExact((InvocationContext) this);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
         } else {
             return context.proceed();
         }
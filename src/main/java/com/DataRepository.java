@@ -2,14 +2,17 @@ package com;
 
 import javax.cache.annotation.CachePut;
 import javax.cache.annotation.CacheRemove;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
 
 public interface DataRepository {
 
     @CachePut(cacheName = "simpleCache")
-    boolean create(String name, Object value);
+    boolean create(String name, @CacheValue Object value);
 
     @CacheRemove(cacheName = "simpleCache")
     boolean remove(String name);
 
+    @CacheResult(cacheName = "simpleCache")
     Object get(String name);
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/**
+ * How the invocations of a method of a proxy are intercepted, computed once at the creation of the proxy : the
+ * compiled invoker of the target method and the chain of the interceptors which apply to the method.
+ * <p>
+ * The methods which no interceptor applies to, e.g. the methods without cache annotation, bypass the chain : the
+ * target is invoked without creating any {@link javax.interceptor.InvocationContext}.
+ */
+final class InterceptionPlan {
+
+    private final Object target;
+
+    private final Method method;
+
+    /**
+     * The invoker of the method on the target, of type (Object[])Object
+     */
+    private final MethodHandle invoker;
+
+    private final InterceptorChain chain;
+
+    InterceptionPlan(Object target, Method method, Object... interceptors) {
+        this.target = target;
+        this.method = method;
+        this.invoker = InterceptorChain.invoker(target, method);
+        this.chain = InterceptorChain.of(method, interceptors);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public InterceptorChain getChain() {
+        return chain;
+    }
+
+    Object invoke(Object[] args) throws Throwable {
+        if (chain.isEmpty()) {
+            return (Object) invoker.invokeExact(args);
+        }
+        JavaInterfaceInvocationContext context = new JavaInterfaceInvocationContext(target, method, invoker, args);
+        return new ChainableInvocationContext(context, chain).proceed();
+    }
+}
@@ -0,0 +1,149 @@
+package com;
+
+import com.interceptor.AnnotatedInterceptor;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * The interceptors of a proxy, compiled once into the {@link MethodHandle}s of their {@link AroundInvoke @AroundInvoke}
+ * methods, so that a call walks an array instead of reflecting over the interceptors.
+ * <p>
+ * The {@link AroundInvoke @AroundInvoke} method is resolved once per interceptor class, and bound to every interceptor
+ * instance. The chain of a method only keeps the {@link AnnotatedInterceptor annotated interceptors} which apply to it,
+ * bound to what they resolved for it.
+ */
+public final class InterceptorChain {
+
+    /**
+     * The type of the bound handles
+     */
+    static final MethodType AROUND_INVOKE_TYPE = MethodType.methodType(Object.class, InvocationContext.class);
+
+    private static final ClassValue<Optional<MethodHandle>> aroundInvokeMethods =
+            new ClassValue<Optional<MethodHandle>>() {
+                @Override
+                protected Optional<MethodHandle> computeValue(Class<?> type) {
+                    return findAroundInvokeMethod(type).map(InterceptorChain::unreflect);
+                }
+            };
+
+    private static final InterceptorChain EMPTY = new InterceptorChain(new MethodHandle[0]);
+
+    private final MethodHandle[] aroundInvokes;
+
+    private InterceptorChain(MethodHandle[] aroundInvokes) {
+        this.aroundInvokes = aroundInvokes;
+    }
+
+    /**
+     * @param interceptors the @Interceptor class instances, in the order of the chain
+     * @throws IllegalArgumentException if an interceptor has no {@link AroundInvoke @AroundInvoke} method
+     */
+    public static InterceptorChain of(Object... interceptors) throws IllegalArgumentException {
+        if (interceptors == null || interceptors.length == 0) {
+            return EMPTY;
+        }
+        MethodHandle[] aroundInvokes = new MethodHandle[interceptors.length];
+        for (int i = 0; i < interceptors.length; i++) {
+            Object interceptor = interceptors[i];
+            MethodHandle aroundInvoke = aroundInvokeMethods.get(interceptor.getClass()).orElseThrow(() ->
+                    new IllegalArgumentException(format("The Interceptor class[%s] has no @AroundInvoke method",
+                            interceptor.getClass().getName())));
+            aroundInvokes[i] = aroundInvoke.bindTo(interceptor);
+        }
+        return new InterceptorChain(aroundInvokes);
+    }
+
+    /**
+     * @param method       the method of the proxied interface
+     * @param interceptors the @Interceptor class instances, in the order of the chain
+     * @return the chain of the interceptors which apply to the method, empty if none applies
+     * @throws IllegalArgumentException if an interceptor has no {@link AroundInvoke @AroundInvoke} method
+     */
+    public static InterceptorChain of(Method method, Object... interceptors) throws IllegalArgumentException {
+        if (interceptors == null || interceptors.length == 0) {
+            return EMPTY;
+        }
+        MethodHandle[] aroundInvokes = new MethodHandle[interceptors.length];
+        int length = 0;
+        for (Object interceptor : interceptors) {
+            MethodHandle aroundInvoke = interceptor instanceof AnnotatedInterceptor ?
+                    ((AnnotatedInterceptor<?>) interceptor).bind(method) : of(interceptor).aroundInvokes[0];
+            if (aroundInvoke != null) {
+                aroundInvokes[length++] = aroundInvoke;
+            }
+        }
+        return length == 0 ? EMPTY : new InterceptorChain(Arrays.copyOf(aroundInvokes, length));
+    }
+
+    // 用@AroundInvoke 来修饰的方法 一般我们这里的一个interceptor类中只有一个exec方法
+    private static Optional<Method> findAroundInvokeMethod(Class<?> type) {
+        return Stream.of(type.getMethods()).filter(method -> {
+            int mods = method.getModifiers();
+            return method.isAnnotationPresent(AroundInvoke.class) && method.getParameterCount() == 1 //只有一个参数并且参数是InvocationContext
+                    && InvocationContext.class.isAssignableFrom(method.getParameterTypes()[0])
+                    && !Modifier.isStatic(mods);
+        }).findFirst();
+    }
+
+    /**
+     * @return the handle of type (Object, InvocationContext)Object
+     */
+    private static MethodHandle unreflect(Method method) {
+        try {
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            return MethodHandles.lookup().unreflect(method)
+                    .asType(AROUND_INVOKE_TYPE.insertParameterTypes(0, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(format("The @AroundInvoke method[%s] is not accessible", method), e);
+        }
+    }
+
+    /**
+     * Compile the invoker of the method on the target, of type (Object[])Object.
+     *
+     * @param target the target object
+     * @param method the method of an interface implemented by the target
+     */
+    static MethodHandle invoker(Object target, Method method) {
+        try {
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            return MethodHandles.lookup().unreflect(method)
+                    .bindTo(target)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(format("The method[%s] is not accessible", method), e);
+        }
+    }
+
+    /**
+     * @return the bound handles of type (InvocationContext)Object, which must not be modified
+     */
+    MethodHandle[] getAroundInvokes() {
+        return aroundInvokes;
+    }
+
+    public int size() {
+        return aroundInvokes.length;
+    }
+
+    public boolean isEmpty() {
+        return aroundInvokes.length == 0;
+    }
+}
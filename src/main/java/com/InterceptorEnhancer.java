@@ -3,18 +3,30 @@ package com;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InterceptorEnhancer {
 
     public <T> Object enhanceJDKProxy(T obj, Object... interceptores) {
+        Class<?>[] interfaces = obj.getClass().getInterfaces();
+        // plan every method once, every call only walks the interceptors which apply to the method
+        Map<Method, InterceptionPlan> plans = new ConcurrentHashMap<>();
+        for (Class<?> type : interfaces) {
+            for (Method method : type.getMethods()) {
+                plans.put(method, new InterceptionPlan(obj, method, interceptores));
+            }
+        }
         return (T) Proxy.newProxyInstance(this.getClass().getClassLoader(),
-                obj.getClass().getInterfaces(),
+                interfaces,
                 new InvocationHandler() {
                     @Override
                     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                        JavaInterfaceInvocationContext context = new JavaInterfaceInvocationContext(obj, method, args);
-                        ChainableInvocationContext chainContext = new ChainableInvocationContext(context, interceptores);
-                        return chainContext.proceed();
+                        InterceptionPlan plan = plans.get(method);
+                        if (plan == null) { // the methods of Object aren't declared by the interfaces
+                            plan = plans.computeIfAbsent(method, m -> new InterceptionPlan(obj, m, interceptores));
+                        }
+                        return plan.invoke(args);
                     }
                 });
     }
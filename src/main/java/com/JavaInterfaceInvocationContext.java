@@ -1,8 +1,10 @@
 package com;
 
 import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,13 +17,22 @@ public class JavaInterfaceInvocationContext implements InvocationContext {
 
     private Object[] params;
 
-    private final Map<String, Object> contextData;
+    /**
+     * The compiled invoker of the method on the target, of type (Object[])Object, or null to invoke by reflection
+     */
+    private final MethodHandle invoker;
+
+    private Map<String, Object> contextData;
 
     public JavaInterfaceInvocationContext(Object target, Method method, Object... params) {
+        this(target, method, null, params);
+    }
+
+    public JavaInterfaceInvocationContext(Object target, Method method, MethodHandle invoker, Object... params) {
         this.target = target;
         this.method = method;
+        this.invoker = invoker;
         this.params = params;
-        this.contextData = new HashMap<>();
     }
 
     @Override
@@ -56,11 +67,23 @@ public class JavaInterfaceInvocationContext implements InvocationContext {
 
     @Override
     public Map<String, Object> getContextData() {
+        if (contextData == null) { // most of the invocations never use it
+            contextData = new HashMap<>();
+        }
         return contextData;
     }
 
     @Override
     public Object proceed() throws Exception {
-        return method.invoke(target, params);
+        if (invoker == null) {
+            return method.invoke(target, params);
+        }
+        try {
+            return (Object) invoker.invokeExact(params);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
     }
 }
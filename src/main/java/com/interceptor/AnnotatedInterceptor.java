@@ -4,6 +4,9 @@ import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -14,6 +17,18 @@ public abstract class AnnotatedInterceptor<A extends Annotation> {
 
     private static final Class<? extends Annotation> INTERCEPTOR_ANNOTATION_TYPE = Interceptor.class;
 
+    private static final MethodHandle PROCEED;
+
+    static {
+        try {
+            PROCEED = MethodHandles.lookup().findVirtual(Invocation.class, "proceed",
+                    MethodType.methodType(Object.class, InvocationContext.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<A> annotationType;
 
     /**
      * @throws IllegalArgumentException If the implementation does not annotate {@link Interceptor @Interceptor} or
@@ -24,6 +39,19 @@ public abstract class AnnotatedInterceptor<A extends Annotation> {
             throw new IllegalArgumentException(
                     format("The Interceptor class[%s] must annotate %s", getClass(), INTERCEPTOR_ANNOTATION_TYPE));
         }
+        Type superclass = getClass().getGenericSuperclass();
+        Type typeArgument = superclass instanceof ParameterizedType ?
+                ((ParameterizedType) superclass).getActualTypeArguments()[0] : null;
+        if (!(typeArgument instanceof Class) || !((Class<?>) typeArgument).isAnnotation()) {
+            throw new IllegalArgumentException(
+                    format("The annotationType[%s] of the Interceptor class[%s] should be an annotation",
+                            typeArgument, getClass().getName()));
+        }
+        this.annotationType = (Class<A>) typeArgument;
+    }
+
+    public Class<A> getAnnotationType() {
+        return annotationType;
     }
 
     protected <A extends Annotation> Annotation findAnnotation(Method method, Class<A> bindingAnnotationType) {
@@ -37,20 +65,45 @@ public abstract class AnnotatedInterceptor<A extends Annotation> {
     protected abstract Object execute(InvocationContext context, A bindingAnnotation) throws Throwable;
 
 
+    /**
+     * Bind the interceptor to the method, once at the creation of the proxy.
+     *
+     * @param method the method of the proxied interface
+     * @return the handle of type (InvocationContext)Object intercepting the invocations of the method, or null if
+     * neither the method nor its class is annotated, then the interceptor doesn't apply to it
+     */
+    public final MethodHandle bind(Method method) {
+        A annotation = annotationType.cast(findAnnotation(method, annotationType));
+        if (annotation == null) {
+            return null;
+        }
+        return PROCEED.bindTo(bind(method, annotation));
+    }
+
+    /**
+     * Resolve what the interception of the method depends on, e.g. the attributes of the annotation or the cache,
+     * once at the creation of the proxy.
+     *
+     * @param method            the annotated method
+     * @param bindingAnnotation the annotation of the method or of its class
+     * @return the interception of the method
+     */
+    protected Invocation bind(Method method, A bindingAnnotation) {
+        return context -> execute(context, bindingAnnotation);
+    }
+
     @AroundInvoke
     public final Object execute(InvocationContext context) throws Throwable {
-        Type parameterizedType = ((ParameterizedType) this.getClass().getGenericSuperclass()).getActualTypeArguments()[0];
-        Class<A> typeClass = (Class<A>) parameterizedType;
-        Class<A> annotationType = null;
-        if (!typeClass.isAnnotation()) {
-            System.err.println(format("The annotationType[%s] should be a n nnotation",
-                    typeClass.getName()
-            ));
-            throw new RuntimeException("error");
-        }
-        annotationType = (Class<A>) typeClass;
         Annotation annotation = findAnnotation(context.getMethod(), annotationType);
         return execute(context, (A) annotation);
+    }
+
+    /**
+     * The interception of a method bound by {@link #bind(Method, Annotation)}
+     */
+    @FunctionalInterface
+    protected interface Invocation {
 
+        Object proceed(InvocationContext context) throws Throwable;
     }
 }
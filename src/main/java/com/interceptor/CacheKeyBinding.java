@@ -0,0 +1,258 @@
+package com.interceptor;
+
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheKeyInvocationContext;
+import javax.cache.annotation.CacheValue;
+import javax.interceptor.InvocationContext;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * How the key, and the value, of an invocation of an annotated method are bound to its parameters, resolved once
+ * for the method.
+ * <p>
+ * The key parameters are the parameters annotated {@link CacheKey @CacheKey}, or else all the parameters but the
+ * {@link CacheValue @CacheValue} one. Unless the annotation names a {@link CacheKeyGenerator}, the key is the argument
+ * itself for a single key parameter, or else a {@link DefaultGeneratedCacheKey} of the key arguments, which wraps the
+ * arguments without copy when every parameter is a key parameter.
+ *
+ * @param <A> the cache annotation type
+ */
+final class CacheKeyBinding<A extends Annotation> {
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private static final DefaultGeneratedCacheKey EMPTY_KEY = new DefaultGeneratedCacheKey(NO_PARAMETERS);
+
+    private final Method method;
+
+    private final A cacheAnnotation;
+
+    private final String cacheName;
+
+    private final int[] keyPositions;
+
+    private final boolean allParameters;
+
+    private final int valuePosition;
+
+    /**
+     * The configured generator, or null for the default keys
+     */
+    private final CacheKeyGenerator generator;
+
+    private CacheKeyBinding(Method method, A cacheAnnotation, String cacheName, int[] keyPositions,
+                            int valuePosition, CacheKeyGenerator generator) {
+        this.method = method;
+        this.cacheAnnotation = cacheAnnotation;
+        this.cacheName = cacheName;
+        this.keyPositions = keyPositions;
+        this.allParameters = keyPositions.length == method.getParameterCount();
+        this.valuePosition = valuePosition;
+        this.generator = generator;
+    }
+
+    /**
+     * @param method          the annotated method
+     * @param cacheAnnotation the cache annotation of the method
+     * @param cacheName       the resolved cache name
+     * @param generatorType   the {@link CacheKeyGenerator} class of the annotation, {@link CacheKeyGenerator} itself
+     *                        for the default keys
+     * @param requiresValue   whether a {@link CacheValue @CacheValue} parameter is required
+     * @throws IllegalArgumentException if the parameters are not annotated as required or the generator can't be
+     *                                  instantiated
+     */
+    static <A extends Annotation> CacheKeyBinding<A> of(Method method, A cacheAnnotation, String cacheName,
+                                                        Class<? extends CacheKeyGenerator> generatorType,
+                                                        boolean requiresValue) throws IllegalArgumentException {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        int[] keyPositions = new int[parameterAnnotations.length];
+        int keys = 0;
+        int valuePosition = -1;
+        boolean annotatedKeys = false;
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            if (isAnnotationPresent(parameterAnnotations[i], CacheValue.class)) {
+                if (valuePosition >= 0) {
+                    throw new IllegalArgumentException(format("The method[%s] has more than one @CacheValue parameter",
+                            method));
+                }
+                valuePosition = i;
+            }
+            if (isAnnotationPresent(parameterAnnotations[i], CacheKey.class)) {
+                if (!annotatedKeys) { // only the @CacheKey parameters
+                    annotatedKeys = true;
+                    keys = 0;
+                }
+                keyPositions[keys++] = i;
+            } else if (!annotatedKeys && valuePosition != i) {
+                keyPositions[keys++] = i;
+            }
+        }
+        if (requiresValue && valuePosition < 0) {
+            throw new IllegalArgumentException(format("The method[%s] annotated %s must have a @CacheValue parameter",
+                    method, cacheAnnotation.annotationType().getSimpleName()));
+        }
+        CacheKeyGenerator generator = null;
+        if (generatorType != CacheKeyGenerator.class && generatorType != DefaultCacheKeyGenerator.class) {
+            try {
+                generator = generatorType.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(format("The CacheKeyGenerator[%s] can't be instantiated",
+                        generatorType.getName()), e);
+            }
+        }
+        return new CacheKeyBinding<>(method, cacheAnnotation, cacheName, Arrays.copyOf(keyPositions, keys),
+                valuePosition, generator);
+    }
+
+    private static boolean isAnnotationPresent(Annotation[] annotations, Class<? extends Annotation> annotationType) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType() == annotationType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Object keyOf(InvocationContext context) {
+        Object[] parameters = context.getParameters();
+        if (parameters == null) {
+            parameters = NO_PARAMETERS;
+        }
+        if (generator != null) {
+            return generator.generateCacheKey(new KeyInvocationContext(context.getTarget(), parameters));
+        }
+        if (keyPositions.length == 1) {
+            Object key = parameters[keyPositions[0]];
+            // a cache holds no null keys
+            return key != null ? key : new DefaultGeneratedCacheKey(new Object[]{null});
+        }
+        if (keyPositions.length == 0) {
+            return EMPTY_KEY;
+        }
+        if (allParameters) {
+            return new DefaultGeneratedCacheKey(parameters);
+        }
+        Object[] keys = new Object[keyPositions.length];
+        for (int i = 0; i < keyPositions.length; i++) {
+            keys[i] = parameters[keyPositions[i]];
+        }
+        return new DefaultGeneratedCacheKey(keys);
+    }
+
+    /**
+     * @return the argument of the {@link CacheValue @CacheValue} parameter
+     */
+    Object valueOf(InvocationContext context) {
+        return context.getParameters()[valuePosition];
+    }
+
+    /**
+     * The {@link CacheKeyInvocationContext} given to the configured {@link CacheKeyGenerator}
+     */
+    private final class KeyInvocationContext implements CacheKeyInvocationContext<A> {
+
+        private final Object target;
+
+        private final Object[] parameters;
+
+        KeyInvocationContext(Object target, Object[] parameters) {
+            this.target = target;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public CacheInvocationParameter[] getKeyParameters() {
+            CacheInvocationParameter[] keyParameters = new CacheInvocationParameter[keyPositions.length];
+            for (int i = 0; i < keyPositions.length; i++) {
+                keyParameters[i] = new Parameter(keyPositions[i]);
+            }
+            return keyParameters;
+        }
+
+        @Override
+        public CacheInvocationParameter getValueParameter() {
+            return valuePosition < 0 ? null : new Parameter(valuePosition);
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public CacheInvocationParameter[] getAllParameters() {
+            CacheInvocationParameter[] allParameters = new CacheInvocationParameter[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                allParameters[i] = new Parameter(i);
+            }
+            return allParameters;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> cls) {
+            if (cls.isInstance(this)) {
+                return cls.cast(this);
+            }
+            throw new IllegalArgumentException(format("Can't unwrap to %s", cls.getName()));
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Set<Annotation> getAnnotations() {
+            return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(method.getAnnotations())));
+        }
+
+        @Override
+        public A getCacheAnnotation() {
+            return cacheAnnotation;
+        }
+
+        @Override
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        private final class Parameter implements CacheInvocationParameter {
+
+            private final int position;
+
+            Parameter(int position) {
+                this.position = position;
+            }
+
+            @Override
+            public Class<?> getRawType() {
+                return method.getParameterTypes()[position];
+            }
+
+            @Override
+            public Object getValue() {
+                return parameters[position];
+            }
+
+            @Override
+            public Set<Annotation> getAnnotations() {
+                return Collections.unmodifiableSet(new HashSet<>(
+                        Arrays.asList(method.getParameterAnnotations()[position])));
+            }
+
+            @Override
+            public int getParameterPosition() {
+                return position;
+            }
+        }
+    }
+}
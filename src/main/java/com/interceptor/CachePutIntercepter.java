@@ -10,6 +10,7 @@ import javax.cache.configuration.MutableConfiguration;
 import javax.cache.spi.CachingProvider;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
 import java.net.URI;
 
 @Interceptor
@@ -17,28 +18,45 @@ public class CachePutIntercepter extends AnnotatedInterceptor<CachePut> {
 
     CachingProvider cachingProvider = CachingProviderFactory.getCachingProvider();
     CacheManager cacheManager = cachingProvider.getCacheManager(URI.create("in-memory://localhost/"), null);
-    MutableConfiguration<String, Integer> config =
-            new MutableConfiguration<String, Integer>()
+    // the keys may be composite, and the values of any type
+    MutableConfiguration<Object, Object> config =
+            new MutableConfiguration<Object, Object>()
                     .setManagementEnabled(true)
-                    .setStatisticsEnabled(true)
-                    .setTypes(String.class, Integer.class);
+                    .setStatisticsEnabled(true);
 
     @Override
     protected Object execute(InvocationContext context, CachePut cachePut) throws Throwable {
         if (cachePut == null) {
             return context.proceed();
         }
+        return bind(context.getMethod(), cachePut).proceed(context);
+    }
+
+    /**
+     * Resolve the cache, the key binding, the tags and the attributes of {@link CachePut @CachePut} once for the method
+     */
+    @Override
+    protected Invocation bind(Method method, CachePut cachePut) {
         String cacheName = cachePut.cacheName();
         Cache cache = getCache(cacheName);
+        CacheKeyBinding<CachePut> binding = CacheKeyBinding.of(method, cachePut, cacheName,
+                cachePut.cacheKeyGenerator(), true);
+        CacheTagBinding tags = CacheTagBinding.of(method, cache);
         /* If true and the annotated method throws an exception the rules governing */
         boolean afterInvocation = cachePut.afterInvocation();
+        return context -> execute(context, afterInvocation, cache, binding, tags);
+    }
+
+    private Object execute(InvocationContext context, boolean afterInvocation, Cache cache,
+                           CacheKeyBinding<CachePut> binding, CacheTagBinding tags) throws Throwable {
         // The result of target method
         Object result = context.proceed();
         if (afterInvocation) {
-            Object[] parameters = context.getParameters();
-            Object key = parameters[0];
-            Object value = parameters[1];
-            cache.put(key, value);
+            if (tags == null) {
+                cache.put(binding.keyOf(context), binding.valueOf(context));
+            } else {
+                tags.put(binding.keyOf(context), binding.valueOf(context), context);
+            }
         }
         return result;
     }
@@ -9,6 +9,7 @@ import javax.cache.configuration.MutableConfiguration;
 import javax.cache.spi.CachingProvider;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
 import java.net.URI;
 
 @Interceptor
@@ -16,27 +17,45 @@ public class CacheRemoveInterceptor extends AnnotatedInterceptor<CacheRemove> {
 
     CachingProvider cachingProvider = CachingProviderFactory.getCachingProvider();
     CacheManager cacheManager = cachingProvider.getCacheManager(URI.create("in-memory://localhost/"), null);
-    MutableConfiguration<String, Integer> config =
-            new MutableConfiguration<String, Integer>()
+    // the keys may be composite, and the values of any type
+    MutableConfiguration<Object, Object> config =
+            new MutableConfiguration<Object, Object>()
                     .setManagementEnabled(true)
-                    .setStatisticsEnabled(true)
-                    .setTypes(String.class, Integer.class);
+                    .setStatisticsEnabled(true);
 
     @Override
     protected Object execute(InvocationContext context, CacheRemove cacheRemove) throws Throwable {
         if (cacheRemove == null) {
             return context.proceed();
         }
-        Cache cache = getCache(cacheRemove.cacheName());
+        return bind(context.getMethod(), cacheRemove).proceed(context);
+    }
+
+    /**
+     * Resolve the cache, the key binding and the attributes of {@link CacheRemove @CacheRemove} once for the method
+     */
+    @Override
+    protected Invocation bind(Method method, CacheRemove cacheRemove) {
+        String cacheName = cacheRemove.cacheName();
+        CacheKeyBinding<CacheRemove> binding = CacheKeyBinding.of(method, cacheRemove, cacheName,
+                cacheRemove.cacheKeyGenerator(), false);
         boolean afterInvocation = cacheRemove.afterInvocation();
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) { // not created yet, e.g. by a @CachePut method, so look it up at every invocation
+            return context -> execute(context, afterInvocation, getCache(cacheName), binding);
+        }
+        return context -> execute(context, afterInvocation, cache, binding);
+    }
+
+    private Object execute(InvocationContext context, boolean afterInvocation, Cache cache,
+                           CacheKeyBinding<CacheRemove> binding) throws Throwable {
         Object result = context.proceed();
-        if (afterInvocation) {
-            cache.remove(context.getParameters()[0]);
+        if (afterInvocation && cache != null) {
+            cache.remove(binding.keyOf(context));
         }
         return result;
     }
 
-
     private Cache getCache(String cacheName) {
         Cache cache = cacheManager.getCache(cacheName);
         if (cache == null) {
@@ -0,0 +1,151 @@
+package com.interceptor;
+
+import com.factory.CachingProviderFactory;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.annotation.CacheResult;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The read-through memoization of the methods annotated {@link CacheResult @CacheResult} : on a hit, the cached result
+ * is returned without invoking the method, on a miss the result of the method is cached.
+ * <p>
+ * When {@link CacheResult#exceptionCacheName()} is set, the exceptions thrown by the method which match
+ * {@link CacheResult#cachedExceptions()} and not {@link CacheResult#nonCachedExceptions()} are cached too, and thrown
+ * again without invoking the method.
+ * <p>
+ * The {@code null} results are only cached if the negative caching is enabled, then a missing entry of the backend is
+ * looked up once until it expires or is removed.
+ * <p>
+ * The cached results are tagged with the {@link CacheTags @CacheTags} of the method, if any.
+ */
+@Interceptor
+public class CacheResultInterceptor extends AnnotatedInterceptor<CacheResult> {
+
+    CachingProvider cachingProvider = CachingProviderFactory.getCachingProvider();
+    CacheManager cacheManager = cachingProvider.getCacheManager(URI.create("in-memory://localhost/"), null);
+    MutableConfiguration<Object, Object> config =
+            new MutableConfiguration<Object, Object>()
+                    .setManagementEnabled(true)
+                    .setStatisticsEnabled(true);
+
+    private final boolean negativeCaching;
+
+    public CacheResultInterceptor() {
+        this(false);
+    }
+
+    /**
+     * @param negativeCaching whether the {@code null} results are cached
+     */
+    public CacheResultInterceptor(boolean negativeCaching) {
+        this.negativeCaching = negativeCaching;
+    }
+
+    public boolean isNegativeCaching() {
+        return negativeCaching;
+    }
+
+    @Override
+    protected Object execute(InvocationContext context, CacheResult cacheResult) throws Throwable {
+        if (cacheResult == null) {
+            return context.proceed();
+        }
+        return bind(context.getMethod(), cacheResult).proceed(context);
+    }
+
+    /**
+     * Resolve the caches and the attributes of {@link CacheResult @CacheResult} once for the method
+     */
+    @Override
+    protected Invocation bind(Method method, CacheResult cacheResult) {
+        String cacheName = cacheName(method, cacheResult.cacheName());
+        Cache<Object, Object> cache = getCache(cacheName);
+        CacheKeyBinding<CacheResult> binding = CacheKeyBinding.of(method, cacheResult, cacheName,
+                cacheResult.cacheKeyGenerator(), false);
+        CacheTagBinding tags = CacheTagBinding.of(method, cache);
+        Cache<Object, Object> exceptionCache = cacheResult.exceptionCacheName().isEmpty() ? null :
+                getCache(cacheResult.exceptionCacheName());
+        boolean skipGet = cacheResult.skipGet();
+        Class<? extends Throwable>[] cachedExceptions = cacheResult.cachedExceptions();
+        Class<? extends Throwable>[] nonCachedExceptions = cacheResult.nonCachedExceptions();
+        return context -> {
+            Object key = binding.keyOf(context);
+            if (!skipGet) {
+                Object value = cache.get(key);
+                if (value != null) {
+                    return value == NullValue.INSTANCE ? null : value;
+                }
+                if (exceptionCache != null) {
+                    Object exception = exceptionCache.get(key);
+                    if (exception != null) {
+                        throw (Throwable) exception;
+                    }
+                }
+            }
+            Object result;
+            try {
+                result = context.proceed();
+            } catch (Throwable e) {
+                if (exceptionCache != null && isCached(e, cachedExceptions, nonCachedExceptions)) {
+                    exceptionCache.put(key, e);
+                }
+                throw e;
+            }
+            if (result != null || negativeCaching) {
+                Object value = result != null ? result : NullValue.INSTANCE;
+                if (tags == null) {
+                    cache.put(key, value);
+                } else {
+                    tags.put(key, value, context);
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * @return the name of the cache, by default the fully qualified name of the method and of its parameter types
+     */
+    static String cacheName(Method method, String cacheName) {
+        if (!cacheName.isEmpty()) {
+            return cacheName;
+        }
+        return method.getDeclaringClass().getName() + "." + method.getName() +
+                Stream.of(method.getParameterTypes()).map(Class::getName).collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static boolean isCached(Throwable exception, Class<? extends Throwable>[] cachedExceptions,
+                                    Class<? extends Throwable>[] nonCachedExceptions) {
+        for (Class<? extends Throwable> type : nonCachedExceptions) {
+            if (type.isInstance(exception)) {
+                return false;
+            }
+        }
+        if (cachedExceptions.length == 0) {
+            return true;
+        }
+        for (Class<? extends Throwable> type : cachedExceptions) {
+            if (type.isInstance(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Cache<Object, Object> getCache(String cacheName) {
+        Cache<Object, Object> cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            cache = cacheManager.createCache(cacheName, config);
+        }
+        return cache;
+    }
+}
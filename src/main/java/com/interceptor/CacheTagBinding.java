@@ -0,0 +1,133 @@
+package com.interceptor;
+
+import com.mycache.AbstractCache;
+
+import javax.cache.Cache;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * The {@link CacheTags @CacheTags} of a method, parsed once for the method : the constant tags are shared by every
+ * invocation, only the tags referring to the arguments are formatted per invocation.
+ */
+final class CacheTagBinding {
+
+    private final AbstractCache<Object, Object> cache;
+
+    /**
+     * The parts of the templates, a String for a text or an Integer for the position of an argument
+     */
+    private final Object[][] templates;
+
+    /**
+     * The tags of every invocation if no template refers to an argument, or else null
+     */
+    private final Set<String> constantTags;
+
+    private CacheTagBinding(AbstractCache<Object, Object> cache, Object[][] templates) {
+        this.cache = cache;
+        this.templates = templates;
+        boolean constant = true;
+        for (Object[] template : templates) {
+            constant &= isConstant(template);
+        }
+        this.constantTags = constant ? Collections.unmodifiableSet(formatTags(null)) : null;
+    }
+
+    /**
+     * @param method the annotated method
+     * @param cache  the cache of the method
+     * @return the binding of the {@link CacheTags @CacheTags} of the method, or null if it isn't annotated
+     * @throws IllegalArgumentException if a template refers to a missing parameter or the cache can't be tagged
+     */
+    static CacheTagBinding of(Method method, Cache<?, ?> cache) throws IllegalArgumentException {
+        CacheTags cacheTags = method.getAnnotation(CacheTags.class);
+        if (cacheTags == null) {
+            return null;
+        }
+        String[] tags = cacheTags.value();
+        Object[][] templates = new Object[tags.length][];
+        for (int i = 0; i < tags.length; i++) {
+            templates[i] = parse(method, tags[i]);
+        }
+        // the interceptors pass the keys and values of any cache as Objects
+        @SuppressWarnings("unchecked")
+        AbstractCache<Object, Object> taggedCache = cache.unwrap(AbstractCache.class);
+        return new CacheTagBinding(taggedCache, templates);
+    }
+
+    private static Object[] parse(Method method, String tag) {
+        List<Object> parts = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = tag.indexOf('{', start)) >= 0) {
+            int close = tag.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            int position;
+            try {
+                position = Integer.parseInt(tag.substring(open + 1, close));
+            } catch (NumberFormatException e) { // not a reference, kept as text
+                parts.add(tag.substring(start, close + 1));
+                start = close + 1;
+                continue;
+            }
+            if (position < 0 || position >= method.getParameterCount()) {
+                throw new IllegalArgumentException(format("The tag[%s] of the method[%s] refers to a missing parameter",
+                        tag, method));
+            }
+            if (open > start) {
+                parts.add(tag.substring(start, open));
+            }
+            parts.add(position);
+            start = close + 1;
+        }
+        if (start < tag.length() || parts.isEmpty()) {
+            parts.add(tag.substring(start));
+        }
+        return parts.toArray();
+    }
+
+    private static boolean isConstant(Object[] template) {
+        for (Object part : template) {
+            if (part instanceof Integer) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put the value with the tags of the invocation.
+     */
+    void put(Object key, Object value, InvocationContext context) {
+        cache.put(key, value, tagsOf(context));
+    }
+
+    /**
+     * @return the tags of the invocation
+     */
+    Set<String> tagsOf(InvocationContext context) {
+        return constantTags != null ? constantTags : formatTags(context.getParameters());
+    }
+
+    private Set<String> formatTags(Object[] parameters) {
+        Set<String> tags = new LinkedHashSet<>(templates.length * 2);
+        for (Object[] template : templates) {
+            StringBuilder tag = new StringBuilder();
+            for (Object part : template) {
+                tag.append(part instanceof Integer ? String.valueOf(parameters[(Integer) part]) : part);
+            }
+            tags.add(tag.toString());
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,26 @@
+package com.interceptor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The tags of the entries cached by a method annotated {@link javax.cache.annotation.CachePut @CachePut} or
+ * {@link javax.cache.annotation.CacheResult @CacheResult}, so that they are removed together by
+ * {@link com.mycache.AbstractCache#invalidateTag(String)}.
+ * <p>
+ * A tag may refer to the arguments of the method by their position, e.g. <code>"user:{0}"</code> tags the entries with
+ * the first argument prefixed by "user:".
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheTags {
+
+    /**
+     * @return the tags, or the templates of the tags
+     */
+    String[] value();
+}
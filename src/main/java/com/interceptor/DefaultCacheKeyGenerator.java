@@ -0,0 +1,26 @@
+package com.interceptor;
+
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheKeyInvocationContext;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+
+/**
+ * The {@link CacheKeyGenerator} of the {@link DefaultGeneratedCacheKey} of the key parameters.
+ * <p>
+ * The interceptors don't call it on their hot path : they build the same keys straight from the arguments, and use
+ * the argument itself as the key of the methods with a single key parameter.
+ */
+public class DefaultCacheKeyGenerator implements CacheKeyGenerator {
+
+    @Override
+    public GeneratedCacheKey generateCacheKey(CacheKeyInvocationContext<? extends Annotation> context) {
+        CacheInvocationParameter[] keyParameters = context.getKeyParameters();
+        Object[] parameters = new Object[keyParameters.length];
+        for (int i = 0; i < keyParameters.length; i++) {
+            parameters[i] = keyParameters[i].getValue();
+        }
+        return new DefaultGeneratedCacheKey(parameters);
+    }
+}
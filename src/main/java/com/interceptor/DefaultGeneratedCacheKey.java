@@ -0,0 +1,46 @@
+package com.interceptor;
+
+import javax.cache.annotation.GeneratedCacheKey;
+import java.util.Arrays;
+
+/**
+ * The composite key of the key parameters of an annotated method.
+ * <p>
+ * The hash is computed once when the key is created, and the parameters are held as given : the array must not be
+ * modified afterwards, which holds for the arguments of an invocation.
+ */
+public final class DefaultGeneratedCacheKey implements GeneratedCacheKey {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] parameters;
+
+    private final int hashCode;
+
+    public DefaultGeneratedCacheKey(Object[] parameters) {
+        this.parameters = parameters;
+        this.hashCode = Arrays.deepHashCode(parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof DefaultGeneratedCacheKey)) {
+            return false;
+        }
+        DefaultGeneratedCacheKey that = (DefaultGeneratedCacheKey) object;
+        return hashCode == that.hashCode && Arrays.deepEquals(parameters, that.parameters);
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultGeneratedCacheKey" + Arrays.deepToString(parameters);
+    }
+}
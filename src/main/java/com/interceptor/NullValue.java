@@ -0,0 +1,11 @@
+package com.interceptor;
+
+/**
+ * The marker cached for the {@code null} results, since a {@link javax.cache.Cache} doesn't hold {@code null} values.
+ * <p>
+ * It is an enum, so that it stays the same instance when the cache stores its values by copy.
+ */
+enum NullValue {
+
+    INSTANCE
+}
@@ -1,173 +1,1970 @@
 package com.mycache;
 
+import com.mycache.copier.Copier;
+import com.mycache.copier.Copiers;
+import com.mycache.management.CacheStatistics;
+import com.mycache.serializer.Serializer;
+import com.mycache.serializer.Serializers;
+
 import javax.cache.Cache;
 import javax.cache.CacheException;
 import javax.cache.CacheManager;
 import javax.cache.configuration.*;
+import javax.cache.event.EventType;
+import javax.cache.expiry.Duration;
 import javax.cache.expiry.EternalExpiryPolicy;
 import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.expiry.ModifiedExpiryPolicy;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
 import javax.cache.integration.CompletionListener;
 import javax.cache.processor.EntryProcessor;
 import javax.cache.processor.EntryProcessorException;
 import javax.cache.processor.EntryProcessorResult;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
-public abstract class AbstractCache<K, V> implements Cache<K, V> {
+public abstract class AbstractCache<K, V> implements Cache<K, V> {
+
+    /**
+     * The prefix of property name for the settings of caches in the {@link CacheManager#getProperties()}, e.g:
+     * <p>
+     * com.mycache.cache.${cacheName}.maximum-size=10000 for one cache, or
+     * com.mycache.cache.maximum-size=10000 for all caches
+     */
+    public static final String CACHE_PROPERTY_PREFIX = "com.mycache.cache.";
+
+    /**
+     * The cache property name of the class name of {@link Serializer} for keys
+     */
+    public static final String KEY_SERIALIZER_PROPERTY_NAME = "key-serializer";
+
+    /**
+     * The cache property name of the class name of {@link Serializer} for values
+     */
+    public static final String VALUE_SERIALIZER_PROPERTY_NAME = "value-serializer";
+
+    /**
+     * The cache property name of the class name of {@link Copier} for keys
+     */
+    public static final String KEY_COPIER_PROPERTY_NAME = "key-copier";
+
+    /**
+     * The cache property name of the class name of {@link Copier} for values
+     */
+    public static final String VALUE_COPIER_PROPERTY_NAME = "value-copier";
+
+    /**
+     * The cache property name of the maximum number of keys loaded by one task of {@link #loadAll}
+     */
+    public static final String LOAD_BATCH_SIZE_PROPERTY_NAME = "load-batch-size";
+
+    public static final int DEFAULT_LOAD_BATCH_SIZE = 256;
+
+    /**
+     * The cache property name of the maximum milliseconds of waiting for the load of a key started by another caller
+     */
+    public static final String LOAD_TIMEOUT_PROPERTY_NAME = "load-timeout";
+
+    /**
+     * The cache property name of the milliseconds after the write of an entry when a read reloads it in background,
+     * see {@link CacheConfiguration#setRefreshAfterWrite(long)}
+     */
+    public static final String REFRESH_AFTER_WRITE_PROPERTY_NAME = "refresh-after-write";
+
+    /**
+     * The cache property name of writing the changes behind, see {@link CacheConfiguration#setWriteBehind(boolean)}
+     */
+    public static final String WRITE_BEHIND_PROPERTY_NAME = "write-behind";
+
+    public static final String WRITE_BEHIND_BATCH_SIZE_PROPERTY_NAME = "write-behind-batch-size";
+
+    public static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 100;
+
+    /**
+     * The cache property name of the maximum milliseconds a change waits before it's written behind
+     */
+    public static final String WRITE_BEHIND_DELAY_PROPERTY_NAME = "write-behind-delay";
+
+    public static final long DEFAULT_WRITE_BEHIND_DELAY = 1000;
+
+    public static final String WRITE_BEHIND_QUEUE_SIZE_PROPERTY_NAME = "write-behind-queue-size";
+
+    public static final int DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 10_000;
+
+    /**
+     * The cache property name of the number of retries of a batch failed to be written behind
+     */
+    public static final String WRITE_BEHIND_RETRIES_PROPERTY_NAME = "write-behind-retries";
+
+    public static final int DEFAULT_WRITE_BEHIND_RETRIES = 3;
+
+    /**
+     * The cache property name of the milliseconds before the first retry, doubled by every retry
+     */
+    public static final String WRITE_BEHIND_BACKOFF_PROPERTY_NAME = "write-behind-backoff";
+
+    public static final long DEFAULT_WRITE_BEHIND_BACKOFF = 100;
+
+    /**
+     * The minimum number of keys of {@link #invokeAll} processed in parallel
+     */
+    static final int PARALLEL_INVOKE_SIZE = 1024;
+
+    private static final int INITIAL_KEY_BUFFER_SIZE = 64;
+
+    private static final Logger logger = Logger.getLogger(AbstractCache.class.getName());
+
+    /**
+     * The placeholder of the {@link CacheLoader} or the {@link CacheWriter} which is not configured
+     */
+    private static final Object NONE = new Object();
+
+    private final CacheManager cacheManager;
+    private final String cacheName;
+    private final MutableConfiguration<K, V> configuration;
+    private volatile ExpiryPolicy expiryPolicy;
+    /**
+     * <code>false</code> if the cache was created eternal and the subclass may skip the expiration, until
+     * {@link #setTimeToLive(long)} starts it
+     */
+    private volatile boolean expiring;
+    private final Ticker ticker;
+    private volatile Serializer<K> keySerializer;
+    private volatile Serializer<V> valueSerializer;
+    private volatile Copier<K> keyCopier;
+    private volatile Copier<V> valueCopier;
+    /**
+     * The {@link CacheLoader} resolved on first use, or {@link #NONE}
+     */
+    private volatile Object cacheLoader;
+    /**
+     * The {@link CacheWriter} resolved on first use, or {@link #NONE}
+     */
+    private volatile Object cacheWriter;
+    /**
+     * <code>null</code> if the changes are not written behind
+     */
+    private volatile WriteBehindQueue<K, V> writeBehindQueue;
+    private final Executor loaderExecutor;
+    private final int loadBatchSize;
+    /**
+     * The milliseconds of waiting for a load in flight, {@link CacheConfiguration#UNBOUNDED} means no limit
+     */
+    private final long loadTimeout;
+    /**
+     * The nanoseconds after the write of an entry when it's reloaded ahead, zero if never
+     */
+    private final long refreshNanos;
+    /**
+     * The read-through loads in flight, so that the concurrent misses of a key share one call of the loader
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> loadsInFlight = new ConcurrentHashMap<>();
+    private final ThreadLocal<ByteBuffer> keyBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_KEY_BUFFER_SIZE));
+    private final KeyLocks<K> keyLocks = new KeyLocks<>();
+    private volatile AsyncCache<K, V> asyncView;
+    private final CacheEntryEventPublisher<K, V> eventPublisher;
+    /**
+     * The tags of the entries written by {@link #put(Object, Object, Set)}
+     */
+    private final TagIndex<K> tagIndex = new TagIndex<>();
+    /**
+     * The statistics kept across the toggles of {@link #setStatisticsEnabled(boolean)}, created on first use
+     */
+    private volatile CacheStatistics cacheStatistics;
+    /**
+     * The statistics being recorded, <code>null</code> if disabled, so that a disabled cache pays one read per
+     * operation
+     */
+    private volatile CacheStatistics statistics;
+    private volatile boolean closed;
+
+    protected AbstractCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
+        this.cacheManager = cacheManager;
+        this.cacheName = cacheName;
+        this.configuration = mutableConfiguration(configuration);
+        this.expiryPolicy = resolveExpiryPolicy(this.getConfiguration());
+        this.expiring = !isEternal();
+        this.ticker = resolveTicker(this.getConfiguration());
+        this.loaderExecutor = resolveLoaderExecutor(this.getConfiguration());
+        this.loadBatchSize = resolveLoadBatchSize();
+        this.loadTimeout = resolveLoadTimeout();
+        this.refreshNanos = resolveRefreshNanos();
+        this.statistics = this.configuration.isStatisticsEnabled() ? getStatistics() : null;
+        //TODO set a fallback stragey when  cannout load cache
+        //        this.defaultFallbackStorage = new CompositeFallbackStorage(getClassLoader());
+        this.eventPublisher = new CacheEntryEventPublisher<>(this, resolveListenerExecutor(this.getConfiguration()));
+        registerCacheEntryListenersFromConfiguration();
+        // the MBeans are registered by AbstractCacheManager#registerMBeansIfRequired, once the cache is managed
+    }
+
+
+    /**
+     * Get the setting of current cache from the properties of {@link CacheManager}
+     *
+     * @param name the name of setting without {@link #CACHE_PROPERTY_PREFIX}
+     * @return the property of current cache if present, or else the property shared by all caches
+     */
+    protected String getCacheProperty(String name) {
+        Properties properties = cacheManager.getProperties();
+        if (properties == null) {
+            return null;
+        }
+        String value = properties.getProperty(CACHE_PROPERTY_PREFIX + cacheName + "." + name);
+        return value != null ? value : properties.getProperty(CACHE_PROPERTY_PREFIX + name);
+    }
+
+    private ExpiryPolicy resolveExpiryPolicy(CompleteConfiguration<?, ?> configuration) {
+        Factory<ExpiryPolicy> expiryPolicyFactory = configuration.getExpiryPolicyFactory();
+        if (expiryPolicyFactory == null) {
+            expiryPolicyFactory = EternalExpiryPolicy::new;
+        }
+        return expiryPolicyFactory.create();
+    }
+
+    private static Ticker resolveTicker(CompleteConfiguration<?, ?> configuration) {
+        Ticker ticker = null;
+        if (configuration instanceof CacheConfiguration) {
+            ticker = ((CacheConfiguration<?, ?>) configuration).getTicker();
+        }
+        return ticker == null ? Ticker.systemTicker() : ticker;
+    }
+
+    private static Executor resolveLoaderExecutor(CompleteConfiguration<?, ?> configuration) {
+        Executor executor = null;
+        if (configuration instanceof CacheConfiguration) {
+            executor = ((CacheConfiguration<?, ?>) configuration).getLoaderExecutor();
+        }
+        return executor == null ? ForkJoinPool.commonPool() : executor;
+    }
+
+    private static Executor resolveListenerExecutor(CompleteConfiguration<?, ?> configuration) {
+        return configuration instanceof CacheConfiguration ?
+                ((CacheConfiguration<?, ?>) configuration).getListenerExecutor() : null;
+    }
+
+    private void registerCacheEntryListenersFromConfiguration() {
+        for (CacheEntryListenerConfiguration<K, V> listenerConfiguration :
+                configuration.getCacheEntryListenerConfigurations()) {
+            eventPublisher.register(listenerConfiguration);
+        }
+    }
+
+    private int resolveLoadBatchSize() {
+        int batchSize = 0;
+        if (configuration instanceof CacheConfiguration) {
+            batchSize = ((CacheConfiguration<K, V>) configuration).getLoadBatchSize();
+        }
+        if (batchSize == 0) {
+            String value = getCacheProperty(LOAD_BATCH_SIZE_PROPERTY_NAME);
+            batchSize = value == null ? DEFAULT_LOAD_BATCH_SIZE : Integer.parseInt(value.trim());
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(format("The load batch size of cache[%s] must be positive", cacheName));
+        }
+        return batchSize;
+    }
+
+    private long resolveLoadTimeout() {
+        long timeout = CacheConfiguration.UNBOUNDED;
+        if (configuration instanceof CacheConfiguration) {
+            timeout = ((CacheConfiguration<K, V>) configuration).getLoadTimeout();
+        }
+        if (timeout == CacheConfiguration.UNBOUNDED) {
+            String value = getCacheProperty(LOAD_TIMEOUT_PROPERTY_NAME);
+            timeout = value == null ? CacheConfiguration.UNBOUNDED : Long.parseLong(value.trim());
+        }
+        return timeout;
+    }
+
+    private long resolveRefreshNanos() {
+        long refreshAfterWrite = CacheConfiguration.UNBOUNDED;
+        if (configuration instanceof CacheConfiguration) {
+            refreshAfterWrite = ((CacheConfiguration<K, V>) configuration).getRefreshAfterWrite();
+        }
+        if (refreshAfterWrite == CacheConfiguration.UNBOUNDED) {
+            String value = getCacheProperty(REFRESH_AFTER_WRITE_PROPERTY_NAME);
+            refreshAfterWrite = value == null ? CacheConfiguration.UNBOUNDED : Long.parseLong(value.trim());
+        }
+        return refreshAfterWrite == CacheConfiguration.UNBOUNDED ? 0L :
+                TimeUnit.MILLISECONDS.toNanos(refreshAfterWrite);
+    }
+
+    // Operations of ExpiryPolicy
+
+    protected final Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return <code>true</code> if the entries never expire, so that the time needs not to be read at all
+     */
+    protected final boolean isEternal() {
+        return expiryPolicy instanceof EternalExpiryPolicy;
+    }
+
+    /**
+     * @param now the current time of {@link #getTicker()}
+     * @return the expiration time of a new entry, expired at <code>now</code> if it should not be stored
+     */
+    protected long expirationTimeForCreation(long now) {
+        return expirationTime(expiryPolicy.getExpiryForCreation(), now, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param current the live entry to be updated
+     * @param now     the current time of {@link #getTicker()}
+     * @return the expiration time of the updated entry
+     */
+    protected long expirationTimeForUpdate(ExpirableEntry<K, V> current, long now) {
+        return expirationTime(expiryPolicy.getExpiryForUpdate(), now, current.getExpirationTime());
+    }
+
+    /**
+     * @param current the live entry being read
+     * @param now     the current time of {@link #getTicker()}
+     * @return the expiration time of the entry after the access
+     */
+    protected long expirationTimeForAccess(ExpirableEntry<K, V> current, long now) {
+        return expirationTime(expiryPolicy.getExpiryForAccess(), now, current.getExpirationTime());
+    }
+
+    private static long expirationTime(Duration duration, long now, long unchanged) {
+        if (duration == null) {
+            return unchanged;
+        }
+        if (duration.isEternal()) {
+            return Long.MAX_VALUE;
+        }
+        long time = now + duration.getTimeUnit().toNanos(duration.getDurationAmount());
+        // saturate on overflow
+        return time < now ? Long.MAX_VALUE : time;
+    }
+
+    /**
+     * @return the milliseconds the entries live since they are created or updated, or
+     * {@link CacheConfiguration#UNBOUNDED} if they never expire after the creation
+     */
+    public long getTimeToLive() {
+        Duration duration = expiryPolicy.getExpiryForCreation();
+        return duration == null || duration.isEternal() ? CacheConfiguration.UNBOUNDED :
+                duration.getTimeUnit().toMillis(duration.getDurationAmount());
+    }
+
+    /**
+     * Change the expiry policy at runtime, so that the entries created or updated from now on live for the given
+     * time since their last write. The entries present keep their expiration time until they are updated.
+     *
+     * @param timeToLive the milliseconds, {@link CacheConfiguration#UNBOUNDED} means the entries never expire
+     * @throws UnsupportedOperationException if the cache was created eternal and can't start expiring
+     */
+    public synchronized void setTimeToLive(long timeToLive) {
+        if (timeToLive < 0 && timeToLive != CacheConfiguration.UNBOUNDED) {
+            throw new IllegalArgumentException("The time to live must not be negative!");
+        }
+        ExpiryPolicy policy = timeToLive == CacheConfiguration.UNBOUNDED ? new EternalExpiryPolicy() :
+                new ModifiedExpiryPolicy(new Duration(TimeUnit.MILLISECONDS, timeToLive));
+        if (!expiring && timeToLive != CacheConfiguration.UNBOUNDED) {
+            startExpiring();
+            expiring = true;
+        }
+        expiryPolicy = policy;
+        configuration.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(policy));
+    }
+
+    /**
+     * Start the expiration of the cache created eternal, before its first expiring entry is written.
+     * <p>
+     * Subclass skipping the expiration of the eternal caches must override this method, it's unsupported by default.
+     *
+     * @throws UnsupportedOperationException if the cache can't start expiring
+     */
+    protected void startExpiring() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(format("The cache[%s] was created eternal, it can't expire " +
+                "the entries unless it's recreated", cacheName));
+    }
+
+    // Operations of runtime sizing, managed by com.mycache.management.CacheManagement
+
+    /**
+     * @return the maximum number of entries, or {@link CacheConfiguration#UNBOUNDED}
+     */
+    public long getMaximumSize() {
+        return CacheConfiguration.UNBOUNDED;
+    }
+
+    /**
+     * Change the maximum number of entries at runtime, keeping the entries within the new bound.
+     * <p>
+     * Subclass bounded by size should override this method, it's unsupported by default.
+     *
+     * @param maximumSize the maximum number of entries, {@link CacheConfiguration#UNBOUNDED} means no limit
+     */
+    public void setMaximumSize(long maximumSize) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(format("The cache[%s] is not bounded by size", cacheName));
+    }
+
+    /**
+     * @return the name of the eviction policy, or <code>null</code> if the cache doesn't evict by policy
+     */
+    public String getEvictionPolicy() {
+        return null;
+    }
+
+    /**
+     * Change the eviction policy at runtime, keeping the entries.
+     * <p>
+     * Subclass evicting by policy should override this method, it's unsupported by default.
+     *
+     * @param evictionPolicy the name of {@link com.mycache.eviction.EvictionPolicyProvider} or its class name
+     */
+    public void setEvictionPolicy(String evictionPolicy) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(format("The cache[%s] doesn't evict by policy", cacheName));
+    }
+
+    // Operations of CacheLoader
+
+    /**
+     * @return the {@link CacheLoader} created on first use by the factory of the configuration, or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    protected final CacheLoader<K, V> getCacheLoader() {
+        Object loader = cacheLoader;
+        if (loader == null) {
+            synchronized (this) {
+                loader = cacheLoader;
+                if (loader == null) {
+                    Factory<CacheLoader<K, V>> factory = configuration.getCacheLoaderFactory();
+                    loader = factory == null ? null : factory.create();
+                    cacheLoader = loader = loader == null ? NONE : loader;
+                }
+            }
+        }
+        return loader == NONE ? null : (CacheLoader<K, V>) loader;
+    }
+
+    /**
+     * @return the {@link CacheLoader} to be called on misses, or <code>null</code> if the cache is not read-through
+     */
+    private CacheLoader<K, V> getReadThroughLoader() {
+        return configuration.isReadThrough() ? getCacheLoader() : null;
+    }
+
+    /**
+     * Load the missing key once for all the concurrent callers : the first one registers the load in flight and calls
+     * the loader, the others wait for its result or its exception.
+     */
+    private V loadThrough(K key, Function<? super K, ? extends V> loading) throws CacheException {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> current = loadsInFlight.putIfAbsent(key, load);
+        if (current != null) {
+            return copyValue(awaitLoad(key, current));
+        }
+        try {
+            // the key may have been loaded between the miss and the registration
+            ExpirableEntry<K, V> entry = getEntry(key);
+            V value = entry == null ? loading.apply(key) : entry.getValue();
+            load.complete(value);
+            return entry == null ? value : copyValue(value);
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Load the missing keys once for all the concurrent callers, the keys not being loaded by others are loaded by
+     * one call of {@link CacheLoader#loadAll}, before waiting for the others.
+     *
+     * @param result the map to put the values found or loaded
+     */
+    private void loadThrough(CacheLoader<K, V> loader, Collection<K> keys, Map<K, V> result)
+            throws CacheLoaderException {
+        Map<K, CompletableFuture<V>> owned = new HashMap<>();
+        Map<K, CompletableFuture<V>> joined = null;
+        for (K key : keys) {
+            CompletableFuture<V> load = new CompletableFuture<>();
+            CompletableFuture<V> current = loadsInFlight.putIfAbsent(key, load);
+            if (current == null) {
+                owned.put(key, load);
+            } else {
+                if (joined == null) {
+                    joined = new HashMap<>();
+                }
+                joined.put(key, current);
+            }
+        }
+        if (!owned.isEmpty()) {
+            try {
+                Map<K, V> values = new HashMap<>();
+                for (ExpirableEntry<K, V> entry : getEntries(owned.keySet())) {
+                    values.put(entry.getKey(), entry.getValue());
+                    result.put(entry.getKey(), copyValue(entry.getValue()));
+                }
+                if (values.size() < owned.size()) {
+                    List<K> misses = new ArrayList<>(owned.size() - values.size());
+                    for (K key : owned.keySet()) {
+                        if (!values.containsKey(key)) {
+                            misses.add(key);
+                        }
+                    }
+                    for (Map.Entry<K, V> entry : load(loader, misses).entrySet()) {
+                        if (entry.getValue() != null && owned.containsKey(entry.getKey())) {
+                            values.put(entry.getKey(), entry.getValue());
+                            result.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                owned.forEach((key, load) -> load.complete(values.get(key)));
+            } catch (RuntimeException | Error e) {
+                owned.values().forEach(load -> load.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(loadsInFlight::remove);
+            }
+        }
+        if (joined != null) {
+            for (Map.Entry<K, CompletableFuture<V>> load : joined.entrySet()) {
+                V value = awaitLoad(load.getKey(), load.getValue());
+                if (value != null) {
+                    result.put(load.getKey(), copyValue(value));
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for the load of the key started by another caller within the load timeout, the exception of the load is
+     * rethrown as is.
+     */
+    private V awaitLoad(K key, CompletableFuture<V> load) throws CacheLoaderException {
+        try {
+            return loadTimeout == CacheConfiguration.UNBOUNDED ? load.get() :
+                    load.get(loadTimeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CacheLoaderException(format("Failed to load key = %s of cache[%s]", key, cacheName), cause);
+        } catch (TimeoutException e) {
+            throw new CacheLoaderException(format("Timed out after %d ms waiting for the load of key = %s of cache[%s]",
+                    loadTimeout, key, cacheName), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheLoaderException(format("Interrupted waiting for the load of key = %s of cache[%s]", key,
+                    cacheName), e);
+        }
+    }
+
+    /**
+     * Create the entry of a write or a load, copying the key and the value if they are stored by value, and stamping
+     * the time to refresh it.
+     */
+    private ExpirableEntry<K, V> newEntry(K key, V value) {
+        ExpirableEntry<K, V> entry = new ExpirableEntry<>(copyKey(key), copyValue(value));
+        if (refreshNanos > 0 && getCacheLoader() != null) {
+            long now = ticker.read();
+            long refreshTime = now + refreshNanos;
+            entry.setRefreshTime(refreshTime < now ? Long.MAX_VALUE : refreshTime);
+        }
+        return entry;
+    }
+
+    /**
+     * Reload the entry in background on the loader executor if it's due to be refreshed, the readers keep getting the
+     * current value meanwhile. The reloaded value replaces the entry unless it has been changed or removed since.
+     */
+    private void refreshIfDue(ExpirableEntry<K, V> entry) {
+        if (entry.getRefreshTime() == Long.MAX_VALUE) {
+            return;
+        }
+        long now = ticker.read();
+        if (!entry.claimRefresh(now)) {
+            return;
+        }
+        CacheLoader<K, V> loader = getCacheLoader();
+        K key = entry.getKey();
+        try {
+            loaderExecutor.execute(() -> {
+                try {
+                    V value = loader.load(key);
+                    if (value != null && !isClosed()) {
+                        KeyLocks.KeyLock lock = lockWrite(key);
+                        try {
+                            if (getEntry(key) == entry) {
+                                // the reloaded entry expires as a new one, so that a hot key never expires
+                                ExpirableEntry<K, V> reloaded = newEntry(key, value);
+                                long time = ticker.read();
+                                reloaded.setExpirationTime(expirationTimeForCreation(time));
+                                if (!reloaded.isExpired(time)) {
+                                    restoreEntry(reloaded);
+                                }
+                            }
+                        } finally {
+                            unlockWrite(key, lock);
+                        }
+                    }
+                } catch (Exception e) {
+                    // the entry is refreshed again once the period elapses, unless it expires before
+                    entry.setRefreshTime(now + refreshNanos);
+                    logger.log(Level.WARNING, format("Failed to refresh key = %s of cache[%s]", key, cacheName), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.setRefreshTime(now + refreshNanos);
+            logger.log(Level.WARNING, format("The refresh of key = %s of cache[%s] is rejected", key, cacheName), e);
+        }
+    }
+
+    private V load(CacheLoader<K, V> loader, K key) throws CacheLoaderException {
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (CacheLoaderException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheLoaderException(format("Failed to load key = %s of cache[%s]", key, cacheName), e);
+        }
+        if (value != null) {
+            KeyLocks.KeyLock lock = lockWrite(key);
+            try {
+                storeEntry(newEntry(key, value));
+            } finally {
+                unlockWrite(key, lock);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Load the keys by one call of {@link CacheLoader#loadAll} and store the non-null values.
+     *
+     * @return the loaded entries of non-null values
+     */
+    private Map<K, V> load(CacheLoader<K, V> loader, Collection<? extends K> keys) throws CacheLoaderException {
+        Map<K, V> values;
+        try {
+            values = loader.loadAll(Collections.unmodifiableCollection(keys));
+        } catch (CacheLoaderException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheLoaderException(format("Failed to load %d keys of cache[%s]", keys.size(), cacheName), e);
+        }
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<ExpirableEntry<K, V>> entries = new ArrayList<>(values.size());
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                entries.add(newEntry(entry.getKey(), entry.getValue()));
+            }
+        }
+        KeyLocks.Batch<K> locks = lockWrites(values.keySet());
+        try {
+            storeEntries(entries);
+        } finally {
+            unlockWrites(locks);
+        }
+        return values;
+    }
+
+    // Operations of CacheWriter
+
+    /**
+     * @return the {@link CacheWriter} of a write-through cache, created on first use by the factory of the
+     * configuration, or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    protected final CacheWriter<? super K, ? super V> getCacheWriter() {
+        Object writer = cacheWriter;
+        if (writer == null) {
+            synchronized (this) {
+                writer = cacheWriter;
+                if (writer == null) {
+                    Factory<CacheWriter<? super K, ? super V>> factory = configuration.getCacheWriterFactory();
+                    writer = !configuration.isWriteThrough() || factory == null ? null : factory.create();
+                    if (writer != null && isWriteBehind()) {
+                        writeBehindQueue = newWriteBehindQueue((CacheWriter<? super K, ? super V>) writer);
+                    }
+                    cacheWriter = writer = writer == null ? NONE : writer;
+                }
+            }
+        }
+        return writer == NONE ? null : (CacheWriter<? super K, ? super V>) writer;
+    }
+
+    private boolean isWriteBehind() {
+        if (configuration instanceof CacheConfiguration && ((CacheConfiguration<K, V>) configuration).isWriteBehind()) {
+            return true;
+        }
+        return Boolean.parseBoolean(getCacheProperty(WRITE_BEHIND_PROPERTY_NAME));
+    }
+
+    private WriteBehindQueue<K, V> newWriteBehindQueue(CacheWriter<? super K, ? super V> writer) {
+        int batchSize = 0;
+        long delay = 0;
+        int queueSize = 0;
+        if (configuration instanceof CacheConfiguration) {
+            CacheConfiguration<K, V> config = (CacheConfiguration<K, V>) configuration;
+            batchSize = config.getWriteBehindBatchSize();
+            delay = config.getWriteBehindDelay();
+            queueSize = config.getWriteBehindQueueSize();
+        }
+        if (batchSize == 0) {
+            batchSize = (int) getLongCacheProperty(WRITE_BEHIND_BATCH_SIZE_PROPERTY_NAME, DEFAULT_WRITE_BEHIND_BATCH_SIZE);
+        }
+        if (delay == 0) {
+            delay = getLongCacheProperty(WRITE_BEHIND_DELAY_PROPERTY_NAME, DEFAULT_WRITE_BEHIND_DELAY);
+        }
+        if (queueSize == 0) {
+            queueSize = (int) getLongCacheProperty(WRITE_BEHIND_QUEUE_SIZE_PROPERTY_NAME,
+                    Math.max(DEFAULT_WRITE_BEHIND_QUEUE_SIZE, batchSize));
+        }
+        return new WriteBehindQueue<>(cacheName, writer, batchSize, delay, queueSize,
+                (int) getLongCacheProperty(WRITE_BEHIND_RETRIES_PROPERTY_NAME, DEFAULT_WRITE_BEHIND_RETRIES),
+                getLongCacheProperty(WRITE_BEHIND_BACKOFF_PROPERTY_NAME, DEFAULT_WRITE_BEHIND_BACKOFF));
+    }
+
+    private long getLongCacheProperty(String name, long defaultValue) {
+        String value = getCacheProperty(name);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Write the entry through before it's stored, or queue it to be written behind.
+     */
+    private void writeThrough(ExpirableEntry<K, V> entry) throws CacheWriterException {
+        CacheWriter<? super K, ? super V> writer = getCacheWriter();
+        if (writer == null) {
+            return;
+        }
+        WriteBehindQueue<K, V> queue = writeBehindQueue;
+        if (queue != null) {
+            queue.write(entry.getKey(), entry.getValue());
+            return;
+        }
+        try {
+            writer.write(entry);
+        } catch (Exception e) {
+            throw writerException(e, format("Failed to write key = %s of cache[%s]", entry.getKey(), cacheName));
+        }
+    }
+
+    /**
+     * Write the entries through before they are stored, or queue them to be written behind.
+     *
+     * @param entries the entries to be stored, only the ones written are left if the writer fails
+     */
+    @SuppressWarnings("unchecked")
+    private void writeThrough(Collection<ExpirableEntry<K, V>> entries) throws CacheWriterException {
+        CacheWriter<? super K, ? super V> writer = getCacheWriter();
+        if (writer == null || entries.isEmpty()) {
+            return;
+        }
+        WriteBehindQueue<K, V> queue = writeBehindQueue;
+        if (queue != null) {
+            for (ExpirableEntry<K, V> entry : entries) {
+                queue.write(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        // the writer removes the entries written from the collection
+        List<Entry<? extends K, ? extends V>> unwritten = new ArrayList<>(entries);
+        try {
+            ((CacheWriter<K, V>) writer).writeAll(unwritten);
+        } catch (Exception e) {
+            Set<Entry<? extends K, ? extends V>> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            failed.addAll(unwritten);
+            entries.removeIf(failed::contains);
+            throw writerException(e, format("Failed to write %d entries of cache[%s]", failed.size(), cacheName));
+        }
+    }
+
+    /**
+     * Delete the key through before it's removed, or queue it to be deleted behind.
+     */
+    private void deleteThrough(K key) throws CacheWriterException {
+        CacheWriter<? super K, ? super V> writer = getCacheWriter();
+        if (writer == null) {
+            return;
+        }
+        WriteBehindQueue<K, V> queue = writeBehindQueue;
+        if (queue != null) {
+            queue.delete(key);
+            return;
+        }
+        try {
+            writer.delete(key);
+        } catch (Exception e) {
+            throw writerException(e, format("Failed to delete key = %s of cache[%s]", key, cacheName));
+        }
+    }
+
+    /**
+     * Delete the keys through before they are removed, or queue them to be deleted behind.
+     *
+     * @return the keys to be removed, only the ones deleted are left if the writer fails
+     */
+    private Set<? extends K> deleteThrough(Set<? extends K> keys) throws CacheWriterException {
+        CacheWriter<? super K, ? super V> writer = getCacheWriter();
+        if (writer == null || keys.isEmpty()) {
+            return keys;
+        }
+        WriteBehindQueue<K, V> queue = writeBehindQueue;
+        if (queue != null) {
+            for (K key : keys) {
+                queue.delete(key);
+            }
+            return keys;
+        }
+        // the writer removes the keys deleted from the collection
+        Set<K> undeleted = new HashSet<>(keys);
+        try {
+            writer.deleteAll(undeleted);
+            return keys;
+        } catch (Exception e) {
+            Set<K> deleted = new HashSet<>(keys);
+            deleted.removeAll(undeleted);
+            deleteEntries(deleted);
+            throw writerException(e, format("Failed to delete %d keys of cache[%s]", undeleted.size(), cacheName));
+        }
+    }
+
+    private static CacheWriterException writerException(Exception e, String message) {
+        return e instanceof CacheWriterException ? (CacheWriterException) e : new CacheWriterException(message, e);
+    }
+
+    // Operations of Serializer
+
+    /**
+     * @return the serializer of keys, resolved on first use from the configuration, the
+     * {@value #KEY_SERIALIZER_PROPERTY_NAME} cache property or else the {@link CacheManager}
+     */
+    protected final Serializer<K> getKeySerializer() {
+        Serializer<K> serializer = keySerializer;
+        if (serializer == null) {
+            // the serializers are stateless, a racy resolution is harmless
+            Serializer<K> configured = configuration instanceof CacheConfiguration ?
+                    ((CacheConfiguration<K, V>) configuration).getKeySerializer() : null;
+            serializer = keySerializer = resolveSerializer(configured, KEY_SERIALIZER_PROPERTY_NAME,
+                    configuration.getKeyType());
+        }
+        return serializer;
+    }
+
+    /**
+     * @return the serializer of values, resolved on first use from the configuration, the
+     * {@value #VALUE_SERIALIZER_PROPERTY_NAME} cache property or else the {@link CacheManager}
+     */
+    protected final Serializer<V> getValueSerializer() {
+        Serializer<V> serializer = valueSerializer;
+        if (serializer == null) {
+            Serializer<V> configured = configuration instanceof CacheConfiguration ?
+                    ((CacheConfiguration<K, V>) configuration).getValueSerializer() : null;
+            serializer = valueSerializer = resolveSerializer(configured, VALUE_SERIALIZER_PROPERTY_NAME,
+                    configuration.getValueType());
+        }
+        return serializer;
+    }
+
+    private <T> Serializer<T> resolveSerializer(Serializer<T> configured, String propertyName, Class<T> type) {
+        if (configured != null) {
+            return configured;
+        }
+        String className = getCacheProperty(propertyName);
+        if (className != null) {
+            return Serializers.newSerializer(className, cacheManager.getClassLoader());
+        }
+        if (cacheManager instanceof AbstractCacheManager) {
+            return ((AbstractCacheManager) cacheManager).getSerializer(type);
+        }
+        return Serializers.getSerializer(type, cacheManager.getClassLoader());
+    }
+
+    // Operations of store-by-value
+
+    /**
+     * Subclass may override this method if it stores the serialized forms of entries and reads fresh objects back,
+     * so that storing by value needs no copy at all.
+     *
+     * @return <code>true</code> if the entries are serialized by the storage
+     */
+    protected boolean isSerializing() {
+        return false;
+    }
+
+    private boolean isCopying() {
+        return configuration.isStoreByValue() && !isSerializing();
+    }
+
+    /**
+     * Copy the key stored or returned by value, only the mutable keys of a cache storing by value are copied.
+     */
+    protected final K copyKey(K key) {
+        if (key == null || !isCopying()) {
+            return key;
+        }
+        Copier<K> copier = keyCopier;
+        if (copier == null) {
+            Copier<K> configured = configuration instanceof CacheConfiguration ?
+                    ((CacheConfiguration<K, V>) configuration).getKeyCopier() : null;
+            copier = keyCopier = resolveCopier(configured, KEY_COPIER_PROPERTY_NAME, configuration.getKeyType(),
+                    this::getKeySerializer);
+        }
+        return copier.copy(key);
+    }
+
+    /**
+     * Copy the value stored or returned by value, only the mutable values of a cache storing by value are copied. A
+     * value is copied once when it is stored, and once per read when it is returned to the caller, the reads inside
+     * the cache share the stored value.
+     */
+    protected final V copyValue(V value) {
+        if (value == null || !isCopying()) {
+            return value;
+        }
+        Copier<V> copier = valueCopier;
+        if (copier == null) {
+            Copier<V> configured = configuration instanceof CacheConfiguration ?
+                    ((CacheConfiguration<K, V>) configuration).getValueCopier() : null;
+            copier = valueCopier = resolveCopier(configured, VALUE_COPIER_PROPERTY_NAME, configuration.getValueType(),
+                    this::getValueSerializer);
+        }
+        return copier.copy(value);
+    }
+
+    private <T> Copier<T> resolveCopier(Copier<T> configured, String propertyName, Class<T> type,
+                                        Supplier<Serializer<T>> serializer) {
+        if (configured != null) {
+            return configured;
+        }
+        String className = getCacheProperty(propertyName);
+        if (className != null) {
+            return Copiers.newCopier(className, cacheManager.getClassLoader());
+        }
+        return Copiers.copier(type, serializer.get());
+    }
+
+    /**
+     * Serialize the key into a buffer reused by the current thread, so that a lookup allocates nothing.
+     *
+     * @param key the key
+     * @return the bytes of key between the position and the limit, valid until the next call of the thread
+     */
+    protected final ByteBuffer serializeKey(K key) {
+        Serializer<K> serializer = getKeySerializer();
+        int size = serializer.sizeOf(key);
+        ByteBuffer buffer = keyBuffer.get();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+            keyBuffer.set(buffer);
+        }
+        buffer.clear().limit(size);
+        serializer.write(key, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * As an instance of {@link MutableConfiguration}
+     *
+     * @param configuration {@link Configuration}
+     * @param <K>           the type of key
+     * @param <V>           the type of value
+     * @return non-null
+     * @see MutableConfiguration
+     */
+    public static <K, V> MutableConfiguration<K, V> mutableConfiguration(Configuration<K, V> configuration) {
+        MutableConfiguration mutableConfiguration = null;
+        if (configuration instanceof MutableConfiguration) {
+            mutableConfiguration = (MutableConfiguration) configuration;
+        } else if (configuration instanceof CompleteConfiguration) {
+            CompleteConfiguration config = (CompleteConfiguration) configuration;
+            mutableConfiguration = new MutableConfiguration<>(config);
+        } else {
+            mutableConfiguration = new MutableConfiguration<K, V>()
+                    .setTypes(configuration.getKeyType(), configuration.getValueType())
+                    .setStoreByValue(configuration.isStoreByValue());
+        }
+        return mutableConfiguration;
+    }
+
+    /**
+     * Get the statistics of the cache, which are recorded while {@link CompleteConfiguration#isStatisticsEnabled()}.
+     *
+     * @return non-null
+     */
+    public final CacheStatistics getStatistics() {
+        CacheStatistics cacheStatistics = this.cacheStatistics;
+        if (cacheStatistics == null) {
+            synchronized (this) {
+                cacheStatistics = this.cacheStatistics;
+                if (cacheStatistics == null) {
+                    cacheStatistics = new CacheStatistics();
+                    this.cacheStatistics = cacheStatistics;
+                }
+            }
+        }
+        return cacheStatistics;
+    }
+
+    /**
+     * Start or stop recording the statistics, the counters are kept while they are not recorded.
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        configuration.setStatisticsEnabled(enabled);
+        statistics = enabled ? getStatistics() : null;
+    }
+
+    public void setManagementEnabled(boolean enabled) {
+        configuration.setManagementEnabled(enabled);
+    }
+
+    /**
+     * Record the evictions, subclass calls it when entries are evicted to make room.
+     */
+    protected final void recordEvictions(long count) {
+        CacheStatistics statistics = this.statistics;
+        if (statistics != null) {
+            statistics.recordEvictions(count);
+        }
+    }
+
+    private static void recordGets(CacheStatistics statistics, long start, long hits, long misses) {
+        statistics.recordHits(hits);
+        statistics.recordMisses(misses);
+        statistics.recordGetTime(System.nanoTime() - start);
+    }
+
+    @Override
+    public V get(K key) {
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> entry = getLiveEntry(key);
+        V value;
+        if (entry != null) {
+            value = copyValue(entry.getValue());
+        } else {
+            CacheLoader<K, V> loader = getReadThroughLoader();
+            value = loader == null ? null : loadThrough(key, missing -> load(loader, missing));
+        }
+        if (statistics != null) {
+            recordGets(statistics, start, entry == null ? 0 : 1, entry == null ? 1 : 0);
+        }
+        return value;
+    }
+
+    /**
+     * Get the value of the key, or compute it once for all the concurrent callers if it's absent. The computed value
+     * is stored as a put, unless it's <code>null</code>.
+     *
+     * @param key             the key
+     * @param mappingFunction the function computing the missing value
+     * @return the current or computed value
+     * @throws CacheWriterException if the computed value fails to be written through
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        requireNonNull(mappingFunction, "The mapping function must not be null.");
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> entry = getLiveEntry(key);
+        if (entry != null) {
+            if (statistics != null) {
+                recordGets(statistics, start, 1, 0);
+            }
+            return copyValue(entry.getValue());
+        }
+        if (statistics != null) {
+            recordGets(statistics, start, 0, 1);
+        }
+        return loadThrough(key, missing -> {
+            V value = mappingFunction.apply(missing);
+            if (value != null) {
+                ExpirableEntry<K, V> computed = newEntry(missing, value);
+                KeyLocks.KeyLock lock = lockWrite(missing);
+                try {
+                    writeThrough(computed);
+                    storeEntry(computed);
+                } finally {
+                    unlockWrite(missing, lock);
+                }
+            }
+            return value;
+        });
+    }
+
+    /**
+     * @return the live entry of the key, refreshed ahead if it's due
+     */
+    final ExpirableEntry<K, V> getLiveEntry(K key) {
+        assertNotClosed();
+        requireKeyNotNull(key);
+        ExpirableEntry<K, V> entry = getEntry(key);
+        if (entry != null && refreshNanos > 0) {
+            refreshIfDue(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return the live entries of the keys, refreshed ahead if they are due
+     */
+    final Collection<ExpirableEntry<K, V>> getLiveEntries(Set<? extends K> keys) {
+        assertNotClosed();
+        requireKeysNotNull(keys);
+        Collection<ExpirableEntry<K, V>> entries = getEntries(keys);
+        if (refreshNanos > 0) {
+            for (ExpirableEntry<K, V> entry : entries) {
+                refreshIfDue(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return <code>true</code> if a miss calls the {@link CacheLoader}
+     */
+    final boolean isReadingThrough() {
+        return getReadThroughLoader() != null;
+    }
+
+    /**
+     * @return <code>true</code> if a write waits for the {@link CacheWriter}, which doesn't write behind
+     */
+    final boolean isWritingThrough() {
+        return getCacheWriter() != null && writeBehindQueue == null;
+    }
+
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        Collection<ExpirableEntry<K, V>> entries = getLiveEntries(keys);
+        Map<K, V> result = new HashMap<>(Math.max(16, (int) (entries.size() / 0.75f) + 1));
+        for (ExpirableEntry<K, V> entry : entries) {
+            result.put(entry.getKey(), copyValue(entry.getValue()));
+        }
+        CacheLoader<K, V> loader = getReadThroughLoader();
+        if (loader != null && result.size() < keys.size()) {
+            List<K> misses = new ArrayList<>(keys.size() - result.size());
+            for (K key : keys) {
+                if (!result.containsKey(key)) {
+                    misses.add(key);
+                }
+            }
+            loadThrough(loader, misses, result);
+        }
+        if (statistics != null) {
+            recordGets(statistics, start, entries.size(), keys.size() - entries.size());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        assertNotClosed();
+        requireKeyNotNull(key);
+        return peekEntry(key) != null;
+    }
+
+    @Override
+    public void loadAll(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener completionListener) {
+        assertNotClosed();
+        requireKeysNotNull(keys);
+        CacheLoader<K, V> loader = getCacheLoader();
+        if (loader == null || keys.isEmpty()) {
+            if (completionListener != null) {
+                completionListener.onCompletion();
+            }
+            return;
+        }
+        // snapshot the keys, the set of the caller may change once the call returns
+        Set<K> pending = new HashSet<>(keys);
+        CompletableFuture<Void> completion = CompletableFuture.runAsync(() -> {
+            if (!replaceExistingValues) {
+                for (ExpirableEntry<K, V> entry : getEntries(pending)) {
+                    pending.remove(entry.getKey());
+                }
+            }
+        }, loaderExecutor).thenCompose(ignored -> {
+            // the batches are loaded in parallel, each one by a single call of CacheLoader#loadAll
+            List<CompletableFuture<?>> batches = new ArrayList<>(pending.size() / loadBatchSize + 1);
+            List<K> batch = new ArrayList<>(Math.min(loadBatchSize, pending.size()));
+            for (K key : pending) {
+                batch.add(key);
+                if (batch.size() == loadBatchSize) {
+                    batches.add(loadAsync(loader, batch));
+                    batch = new ArrayList<>(loadBatchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(loadAsync(loader, batch));
+            }
+            return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0]));
+        });
+        if (completionListener != null) {
+            completion.whenComplete((ignored, error) -> {
+                if (error == null) {
+                    completionListener.onCompletion();
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                            error.getCause() : error;
+                    completionListener.onException(cause instanceof Exception ? (Exception) cause :
+                            new CacheLoaderException(cause));
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Void> loadAsync(CacheLoader<K, V> loader, List<K> batch) {
+        return CompletableFuture.runAsync(() -> load(loader, batch), loaderExecutor);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        assertNotClosed();
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> expirableEntry = newEntry(key, value);
+        KeyLocks.KeyLock lock = lockWrite(key);
+        try {
+            writeThrough(expirableEntry);
+            storeEntry(expirableEntry);
+        } finally {
+            unlockWrite(key, lock);
+        }
+        if (statistics != null) {
+            recordPuts(statistics, start, 1);
+        }
+    }
+
+    /**
+     * Put the value with its tags, which replace the former tags of the key, so that the entry is removed by
+     * {@link #invalidateTag(String)} of any of them.
+     * <p>
+     * The tags of an entry are kept when its value is replaced by a write without tags, and released when it is
+     * removed, evicted or expired.
+     *
+     * @param tags the tags of the entry, may be empty
+     */
+    public void put(K key, V value, Set<String> tags) {
+        requireNonNull(tags, "The tags must not be null.");
+        // the tagged writes of the key are serialized, so that its value and its tags are of the same write
+        KeyLocks.KeyLock lock = keyLocks.lock(key);
+        try {
+            put(key, value);
+            // tagged after the write, so that the eviction of the former entry can't release the new tags
+            tagIndex.tag(key, tags);
+            // the removal, eviction or expiration of the entry in between has released the tags before they were set
+            if (peekEntry(key) == null) {
+                tagIndex.release(key);
+            }
+        } finally {
+            keyLocks.unlock(key, lock);
+        }
+    }
+
+    /**
+     * @return the tags of the entry of the key, empty if none
+     */
+    public Set<String> getTags(K key) {
+        requireKeyNotNull(key);
+        return tagIndex.getTags(key);
+    }
+
+    /**
+     * Remove the entries tagged with the tag, like {@link #removeAll(Set)} of their keys, in time proportional to
+     * their number whatever the size of the cache.
+     *
+     * @return the number of entries removed
+     */
+    public int invalidateTag(String tag) {
+        assertNotClosed();
+        requireNonNull(tag, "The tag must not be null.");
+        Set<K> keys = tagIndex.removeTag(tag);
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        int removed = deleteAll(keys);
+        if (statistics != null) {
+            recordRemovals(statistics, start, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * @return <code>true</code> if any entry is tagged, so that the subclass may skip the resolution of the keys to
+     * release
+     */
+    protected final boolean hasTags() {
+        return !tagIndex.isEmpty();
+    }
+
+    /**
+     * Release the tags of the entry evicted by the subclass.
+     */
+    protected final void releaseTags(K key) {
+        if (!tagIndex.isEmpty()) {
+            tagIndex.release(key);
+        }
+    }
 
+    /**
+     * @return <code>true</code> if the plain writes lock their keys like the conditional writes of a write-through
+     * cache or of a storage without CAS, so that the writer and the storage are changed in one step ordered with the
+     * conditional writes
+     */
+    private boolean isLockingWrites() {
+        return getCacheWriter() != null || !isAtomic();
+    }
 
-    private final CacheManager cacheManager;
-    private final String cacheName;
-    private final MutableConfiguration<K, V> configuration;
-    private final ExpiryPolicy expiryPolicy;
+    /**
+     * @return the lock of the key if the writes lock, or else <code>null</code>
+     */
+    private KeyLocks.KeyLock lockWrite(K key) {
+        return isLockingWrites() ? keyLocks.lock(key) : null;
+    }
 
-    protected AbstractCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
-        this.cacheManager = cacheManager;
-        this.cacheName = cacheName;
-        this.configuration = mutableConfiguration(configuration);
-        this.expiryPolicy = resolveExpiryPolicy(this.getConfiguration());
-        //TODO set a fallback stragey when  cannout load cache
-        //        this.defaultFallbackStorage = new CompositeFallbackStorage(getClassLoader());
-//        this.cacheLoader = resolveCacheLoader(getConfiguration(), getClassLoader());
-//        this.cacheWriter = resolveCacheWriter(getConfiguration(), getClassLoader());
-//        this.entryEventPublisher = new CacheEntryEventPublisher();
-//        this.cacheStatistics = resolveCacheStatistic();
-//        this.executor = ForkJoinPool.commonPool();
-//        registerCacheEntryListenersFromConfiguration();
-//        registerMBeansIfRequired(this, cacheStatistics);
+    private void unlockWrite(K key, KeyLocks.KeyLock lock) {
+        if (lock != null) {
+            keyLocks.unlock(key, lock);
+        }
     }
 
+    /**
+     * @return the locks of the keys if the writes lock, or else <code>null</code>
+     */
+    private KeyLocks.Batch<K> lockWrites(Collection<? extends K> keys) {
+        return isLockingWrites() ? keyLocks.lockAll(keys) : null;
+    }
 
-    private ExpiryPolicy resolveExpiryPolicy(CompleteConfiguration<?, ?> configuration) {
-        Factory<ExpiryPolicy> expiryPolicyFactory = configuration.getExpiryPolicyFactory();
-        if (expiryPolicyFactory == null) {
-            expiryPolicyFactory = EternalExpiryPolicy::new;
+    private void unlockWrites(KeyLocks.Batch<K> locks) {
+        if (locks != null) {
+            keyLocks.unlockAll(locks);
         }
-        return expiryPolicyFactory.create();
     }
 
     /**
-     * As an instance of {@link MutableConfiguration}
+     * Delete the keys through and remove their entries, in one step if the writes lock.
      *
-     * @param configuration {@link Configuration}
-     * @param <K>           the type of key
-     * @param <V>           the type of value
-     * @return non-null
-     * @see MutableConfiguration
+     * @return the number of entries removed
      */
-    public static <K, V> MutableConfiguration<K, V> mutableConfiguration(Configuration<K, V> configuration) {
-        MutableConfiguration mutableConfiguration = null;
-        if (configuration instanceof MutableConfiguration) {
-            mutableConfiguration = (MutableConfiguration) configuration;
-        } else if (configuration instanceof CompleteConfiguration) {
-            CompleteConfiguration config = (CompleteConfiguration) configuration;
-            mutableConfiguration = new MutableConfiguration<>(config);
+    private int deleteAll(Set<? extends K> keys) {
+        KeyLocks.Batch<K> locks = lockWrites(keys);
+        try {
+            return deleteEntries(deleteThrough(keys));
+        } finally {
+            unlockWrites(locks);
+        }
+    }
+
+    /**
+     * Put the entry, and publish its creation or update if any listener of them is registered, which costs the
+     * fetch of the former entry.
+     */
+    private void storeEntry(ExpirableEntry<K, V> entry) {
+        if (eventPublisher.isListeningWrites()) {
+            eventPublisher.publishWrite(entry.getKey(), entry.getValue(), getAndPutEntry(entry));
         } else {
-            mutableConfiguration = new MutableConfiguration<K, V>()
-                    .setTypes(configuration.getKeyType(), configuration.getValueType())
-                    .setStoreByValue(configuration.isStoreByValue());
+            putEntry(entry);
         }
-        return mutableConfiguration;
     }
 
-    @Override
-    public V get(K key) {
-        //TODO 完善 isReadThrough 和 isWriteThrough 功能
-        assertNotClosed();
-        requireKeyNotNull(key);
-        return getEntry(key).getValue();
+    /**
+     * Put the entries in one batch, or one by one if their creations or updates are listened.
+     */
+    private void storeEntries(Collection<ExpirableEntry<K, V>> entries) {
+        if (eventPublisher.isListeningWrites()) {
+            for (ExpirableEntry<K, V> entry : entries) {
+                storeEntry(entry);
+            }
+        } else {
+            putEntries(entries);
+        }
     }
 
-    @Override
-    public Map<K, V> getAll(Set<? extends K> keys) {
-        return null;
+    /**
+     * Remove the entry of the key, and publish its removal if any listener of it is registered.
+     *
+     * @return <code>true</code> if a live entry is removed
+     */
+    private boolean deleteEntry(K key) {
+        releaseTags(key);
+        if (eventPublisher.isListening(EventType.REMOVED)) {
+            ExpirableEntry<K, V> removed = getAndRemoveEntry(key);
+            if (removed != null) {
+                eventPublisher.publish(EventType.REMOVED, key, removed.getValue(), null);
+            }
+            return removed != null;
+        }
+        return removeEntry(key);
     }
 
-    @Override
-    public boolean containsKey(K key) {
-        return false;
+    /**
+     * Remove the entries of the keys in one batch, or one by one if their removals are listened.
+     *
+     * @return the number of entries removed
+     */
+    private int deleteEntries(Set<? extends K> keys) {
+        if (!eventPublisher.isListening(EventType.REMOVED)) {
+            if (!tagIndex.isEmpty()) {
+                tagIndex.releaseAll(keys);
+            }
+            return removeEntries(keys);
+        }
+        int removed = 0;
+        for (K key : keys) {
+            if (deleteEntry(key)) {
+                removed++;
+            }
+        }
+        return removed;
     }
 
-    @Override
-    public void loadAll(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener completionListener) {
+    /**
+     * Publish the expiration of the entry reclaimed by the subclass, and release its tags. The tiers of a
+     * {@link TieredCache} override it to publish on the tiered cache.
+     */
+    protected void publishExpired(ExpirableEntry<K, V> entry) {
+        releaseTags(entry.getKey());
+        eventPublisher.publish(EventType.EXPIRED, entry.getKey(), entry.getValue(), null);
+    }
 
+    private static void recordPuts(CacheStatistics statistics, long start, long puts) {
+        statistics.recordPuts(puts);
+        statistics.recordPutTime(System.nanoTime() - start);
     }
 
-    @Override
-    public void put(K key, V value) {
-        ExpirableEntry expirableEntry = new ExpirableEntry(key, value);
-        putEntry(expirableEntry);
+    private static void recordRemovals(CacheStatistics statistics, long start, long removals) {
+        statistics.recordRemovals(removals);
+        statistics.recordRemoveTime(System.nanoTime() - start);
     }
 
-    protected abstract void putEntry(Entry<K, V> entry) throws CacheException, ClassCastException;
+    protected abstract void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException;
 
     protected abstract ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException;
 
     protected abstract boolean removeEntry(K key);
 
+    /**
+     * Remove all entries at once.
+     */
+    protected abstract void clearEntries();
+
+    /**
+     * Get the keys of the entries, including the expired ones not reclaimed yet, so that {@link #removeAll()} removes
+     * them one by one when it must.
+     * <p>
+     * Subclass should override this method, it's unsupported by default.
+     *
+     * @return a snapshot of the keys
+     * @throws UnsupportedOperationException if the cache can't enumerate its keys
+     */
+    protected Set<K> getKeys() throws CacheException, UnsupportedOperationException {
+        throw new UnsupportedOperationException(format("The cache[%s] can't enumerate its keys", cacheName));
+    }
+
+    /**
+     * Get the live entries of the keys in one batch.
+     * <p>
+     * Subclass may override this method to visit its storage once per batch, the entries are got one by one by
+     * default.
+     *
+     * @param keys the non-null keys
+     * @return the entries found, at most one per key
+     */
+    protected Collection<ExpirableEntry<K, V>> getEntries(Set<? extends K> keys) throws CacheException,
+            ClassCastException {
+        List<ExpirableEntry<K, V>> entries = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ExpirableEntry<K, V> entry = getEntry(key);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Put the entries in one batch.
+     * <p>
+     * Subclass may override this method to visit its storage once per batch, the entries are put one by one by
+     * default.
+     *
+     * @param entries the entries of distinct keys
+     */
+    protected void putEntries(Collection<ExpirableEntry<K, V>> entries) throws CacheException, ClassCastException {
+        for (ExpirableEntry<K, V> entry : entries) {
+            putEntry(entry);
+        }
+    }
+
+    /**
+     * Remove the entries of the keys in one batch.
+     * <p>
+     * Subclass may override this method to visit its storage once per batch, the entries are removed one by one by
+     * default.
+     *
+     * @param keys the non-null keys
+     * @return the number of entries removed
+     */
+    protected int removeEntries(Set<? extends K> keys) throws CacheException, ClassCastException {
+        int removed = 0;
+        for (K key : keys) {
+            if (removeEntry(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Store the entry moved from another tier, keeping its expiration time, see {@link TieredCache}.
+     * <p>
+     * Subclass may override this method, the entry is put as a new one by default.
+     *
+     * @param entry the entry holding its expiration time
+     */
+    protected void restoreEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        putEntry(entry);
+    }
+
+    // Operations of atomic storage, the subclasses storing the entries by reference override them by CAS
+
+    /**
+     * Subclass overriding all the operations of atomic storage by CAS should override this method, so that its plain
+     * writes don't lock their keys. The default operations lock the key, then so do the plain writes, or else a
+     * concurrent put could be lost by a conditional write which succeeds.
+     *
+     * @return <code>true</code> if the operations of atomic storage don't rely on the lock of the key
+     */
+    protected boolean isAtomic() {
+        return false;
+    }
+
+    /**
+     * Get the live entry of the key without recording the access.
+     * <p>
+     * Subclass may override this method, the entry is got by {@link #getEntry(Object)} by default.
+     */
+    protected ExpirableEntry<K, V> peekEntry(K key) throws CacheException, ClassCastException {
+        return getEntry(key);
+    }
+
+    /**
+     * Put the entry unless the key has a live entry, atomically.
+     * <p>
+     * Subclass may override this method, the key is locked by default.
+     *
+     * @return the live entry of the key, or <code>null</code> if the entry is put
+     */
+    protected ExpirableEntry<K, V> putEntryIfAbsent(ExpirableEntry<K, V> entry) throws CacheException,
+            ClassCastException {
+        K key = entry.getKey();
+        KeyLocks.KeyLock lock = keyLocks.lock(key);
+        try {
+            ExpirableEntry<K, V> current = getEntry(key);
+            if (current == null) {
+                putEntry(entry);
+            }
+            return current;
+        } finally {
+            keyLocks.unlock(key, lock);
+        }
+    }
+
+    /**
+     * Replace the entry got by {@link #peekEntry(Object)} unless it has been changed since, atomically.
+     * <p>
+     * Subclass may override this method to compare the references of entries, the key is locked and the values of
+     * entries are compared by default, since the entries read from a serialized storage are new objects.
+     *
+     * @return <code>true</code> if the entry is replaced
+     */
+    protected boolean compareAndReplaceEntry(ExpirableEntry<K, V> expected, ExpirableEntry<K, V> replacement)
+            throws CacheException, ClassCastException {
+        K key = expected.getKey();
+        KeyLocks.KeyLock lock = keyLocks.lock(key);
+        try {
+            ExpirableEntry<K, V> current = getEntry(key);
+            if (current == null || !current.getValue().equals(expected.getValue())) {
+                return false;
+            }
+            putEntry(replacement);
+            return true;
+        } finally {
+            keyLocks.unlock(key, lock);
+        }
+    }
+
+    /**
+     * Remove the entry got by {@link #peekEntry(Object)} unless it has been changed since, atomically.
+     * <p>
+     * Subclass may override this method to compare the references of entries, the key is locked and the values of
+     * entries are compared by default.
+     *
+     * @return <code>true</code> if the live entry is removed
+     */
+    protected boolean compareAndRemoveEntry(ExpirableEntry<K, V> expected) throws CacheException,
+            ClassCastException {
+        K key = expected.getKey();
+        KeyLocks.KeyLock lock = keyLocks.lock(key);
+        try {
+            ExpirableEntry<K, V> current = getEntry(key);
+            return current != null && current.getValue().equals(expected.getValue()) && removeEntry(key);
+        } finally {
+            keyLocks.unlock(key, lock);
+        }
+    }
+
+    /**
+     * Put the entry and get the live entry it replaces, atomically.
+     * <p>
+     * Subclass may override this method, the key is locked by default.
+     */
+    protected ExpirableEntry<K, V> getAndPutEntry(ExpirableEntry<K, V> entry) throws CacheException,
+            ClassCastException {
+        K key = entry.getKey();
+        KeyLocks.KeyLock lock = keyLocks.lock(key);
+        try {
+            ExpirableEntry<K, V> previous = getEntry(key);
+            putEntry(entry);
+            return previous;
+        } finally {
+            keyLocks.unlock(key, lock);
+        }
+    }
+
+    /**
+     * Remove the entry of the key and get it if it was live, atomically.
+     * <p>
+     * Subclass may override this method, the key is locked by default.
+     */
+    protected ExpirableEntry<K, V> getAndRemoveEntry(K key) throws CacheException, ClassCastException {
+        KeyLocks.KeyLock lock = keyLocks.lock(key);
+        try {
+            ExpirableEntry<K, V> previous = getEntry(key);
+            if (previous != null) {
+                removeEntry(key);
+            }
+            return previous;
+        } finally {
+            keyLocks.unlock(key, lock);
+        }
+    }
+
+    /**
+     * Replace or remove the live entry of the key if its value matches, by a CAS retried until it succeeds or the
+     * value doesn't match anymore. A write-through cache also locks the key, so that the writer is called once and
+     * only if the condition holds : its plain writes lock the key too, so none of them can fail the CAS once the
+     * replacement is written through.
+     *
+     * @param condition   the condition of the current value, <code>null</code> means any value
+     * @param replacement the new entry, <code>null</code> to remove the current one
+     * @return the entry replaced or removed, or <code>null</code> if the condition failed
+     */
+    private ExpirableEntry<K, V> replaceIf(K key, Predicate<V> condition, ExpirableEntry<K, V> replacement) {
+        boolean writing = getCacheWriter() != null;
+        KeyLocks.KeyLock lock = writing ? keyLocks.lock(key) : null;
+        try {
+            boolean written = !writing;
+            for (; ; ) {
+                ExpirableEntry<K, V> current = peekEntry(key);
+                if (current == null || condition != null && !condition.test(current.getValue())) {
+                    return null;
+                }
+                if (!written) {
+                    if (replacement == null) {
+                        deleteThrough(key);
+                    } else {
+                        writeThrough(replacement);
+                    }
+                    written = true;
+                }
+                if (replacement == null ? compareAndRemoveEntry(current) :
+                        compareAndReplaceEntry(current, replacement)) {
+                    return current;
+                }
+            }
+        } finally {
+            if (lock != null) {
+                keyLocks.unlock(key, lock);
+            }
+        }
+    }
+
     @Override
     public V getAndPut(K key, V value) {
-        return null;
+        assertNotClosed();
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> entry = newEntry(key, value);
+        ExpirableEntry<K, V> previous;
+        KeyLocks.KeyLock lock = lockWrite(key);
+        try {
+            writeThrough(entry);
+            previous = getAndPutEntry(entry);
+        } finally {
+            unlockWrite(key, lock);
+        }
+        eventPublisher.publishWrite(key, entry.getValue(), previous);
+        if (statistics != null) {
+            recordHit(statistics, previous != null);
+            recordPuts(statistics, start, 1);
+        }
+        return previous == null ? null : copyValue(previous.getValue());
+    }
+
+    /**
+     * Record the hit or miss of a conditional operation, which is not timed as a get
+     */
+    private static void recordHit(CacheStatistics statistics, boolean hit) {
+        if (hit) {
+            statistics.recordHits(1);
+        } else {
+            statistics.recordMisses(1);
+        }
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> map) {
-
+        assertNotClosed();
+        requireNonNull(map, "The map must not be null.");
+        // no entry is put if any key or value is null
+        List<ExpirableEntry<K, V>> entries = new ArrayList<>(map.size());
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            entries.add(newEntry(entry.getKey(), entry.getValue()));
+        }
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        KeyLocks.Batch<K> locks = lockWrites(map.keySet());
+        try {
+            writeThrough(entries);
+        } finally {
+            // the entries written are stored even if the others failed
+            try {
+                storeEntries(entries);
+            } finally {
+                unlockWrites(locks);
+            }
+            if (statistics != null) {
+                recordPuts(statistics, start, entries.size());
+            }
+        }
     }
 
     @Override
     public boolean putIfAbsent(K key, V value) {
-        return false;
+        assertNotClosed();
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> entry = newEntry(key, value);
+        boolean put;
+        if (getCacheWriter() == null) {
+            put = putEntryIfAbsent(entry) == null;
+        } else {
+            KeyLocks.KeyLock lock = keyLocks.lock(key);
+            try {
+                if (peekEntry(key) != null) {
+                    put = false;
+                } else {
+                    writeThrough(entry);
+                    put = putEntryIfAbsent(entry) == null;
+                }
+            } finally {
+                keyLocks.unlock(key, lock);
+            }
+        }
+        if (put) {
+            eventPublisher.publish(EventType.CREATED, key, entry.getValue(), null);
+            if (statistics != null) {
+                recordPuts(statistics, start, 1);
+            }
+        }
+        return put;
     }
 
     @Override
     public boolean remove(K key) {
         assertNotClosed();
         requireKeyNotNull(key);
-        return removeEntry(key);
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        boolean removed;
+        KeyLocks.KeyLock lock = lockWrite(key);
+        try {
+            deleteThrough(key);
+            removed = deleteEntry(key);
+        } finally {
+            unlockWrite(key, lock);
+        }
+        if (statistics != null) {
+            recordRemovals(statistics, start, removed ? 1 : 0);
+        }
+        return removed;
     }
 
     @Override
     public boolean remove(K key, V oldValue) {
-        return false;
+        assertNotClosed();
+        requireKeyNotNull(key);
+        ExpirableEntry.requireValueNotNull(oldValue);
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> previous = replaceIf(key, oldValue::equals, null);
+        boolean removed = previous != null;
+        if (removed) {
+            releaseTags(key);
+            eventPublisher.publish(EventType.REMOVED, key, previous.getValue(), null);
+        }
+        if (statistics != null) {
+            recordHit(statistics, removed);
+            recordRemovals(statistics, start, removed ? 1 : 0);
+        }
+        return removed;
     }
 
     @Override
     public V getAndRemove(K key) {
-        return null;
+        assertNotClosed();
+        requireKeyNotNull(key);
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> previous;
+        KeyLocks.KeyLock lock = lockWrite(key);
+        try {
+            deleteThrough(key);
+            previous = getAndRemoveEntry(key);
+        } finally {
+            unlockWrite(key, lock);
+        }
+        if (previous != null) {
+            releaseTags(key);
+            eventPublisher.publish(EventType.REMOVED, key, previous.getValue(), null);
+        }
+        if (statistics != null) {
+            recordHit(statistics, previous != null);
+            recordRemovals(statistics, start, previous == null ? 0 : 1);
+        }
+        return previous == null ? null : copyValue(previous.getValue());
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
-        return false;
+        assertNotClosed();
+        ExpirableEntry.requireValueNotNull(oldValue);
+        return replaceAndRecord(key, oldValue::equals, newEntry(key, newValue)) != null;
     }
 
     @Override
     public boolean replace(K key, V value) {
-        return false;
+        assertNotClosed();
+        return replaceAndRecord(key, null, newEntry(key, value)) != null;
     }
 
     @Override
     public V getAndReplace(K key, V value) {
-        return null;
+        assertNotClosed();
+        ExpirableEntry<K, V> previous = replaceAndRecord(key, null, newEntry(key, value));
+        return previous == null ? null : copyValue(previous.getValue());
+    }
+
+    /**
+     * {@link #replaceIf} recording a hit and a put if the entry is replaced, or else a miss
+     */
+    private ExpirableEntry<K, V> replaceAndRecord(K key, Predicate<V> condition, ExpirableEntry<K, V> replacement) {
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        ExpirableEntry<K, V> previous = replaceIf(key, condition, replacement);
+        if (previous != null) {
+            eventPublisher.publish(EventType.UPDATED, key, replacement.getValue(), previous.getValue());
+        }
+        if (statistics != null) {
+            recordHit(statistics, previous != null);
+            if (previous != null) {
+                recordPuts(statistics, start, 1);
+            }
+        }
+        return previous;
     }
 
     @Override
     public void removeAll(Set<? extends K> keys) {
-
+        assertNotClosed();
+        requireKeysNotNull(keys);
+        CacheStatistics statistics = this.statistics;
+        long start = statistics == null ? 0 : System.nanoTime();
+        int removed = deleteAll(keys);
+        if (statistics != null) {
+            recordRemovals(statistics, start, removed);
+        }
     }
 
+    /**
+     * Unlike {@link #clear()}, the entries are removed one by one if their removals are listened, recorded or written
+     * through, or else they are cleared at once.
+     */
     @Override
     public void removeAll() {
-
+        assertNotClosed();
+        CacheStatistics statistics = this.statistics;
+        if (statistics == null && getCacheWriter() == null && !eventPublisher.isListening(EventType.REMOVED)) {
+            clearEntries();
+            tagIndex.clear();
+            return;
+        }
+        long start = statistics == null ? 0 : System.nanoTime();
+        int removed = deleteAll(getKeys());
+        if (statistics != null) {
+            recordRemovals(statistics, start, removed);
+        }
     }
 
     @Override
     public void clear() {
-
+        assertNotClosed();
+        clearEntries();
+        tagIndex.clear();
     }
 
 
@@ -187,47 +1984,190 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
     @Override
     public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) throws EntryProcessorException {
-        return null;
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireNonNull(entryProcessor, "The entry processor must not be null.");
+        return process(key, entryProcessor, arguments);
     }
 
     @Override
     public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
-        return null;
+        assertNotClosed();
+        requireKeysNotNull(keys);
+        requireNonNull(entryProcessor, "The entry processor must not be null.");
+        Map<K, EntryProcessorResult<T>> results = new ConcurrentHashMap<>();
+        // the keys are processed one at a time, so the processors of distinct keys run in parallel without deadlock
+        Consumer<K> processing = key -> {
+            try {
+                T result = process(key, entryProcessor, arguments);
+                if (result != null) {
+                    results.put(key, () -> result);
+                }
+            } catch (EntryProcessorException e) {
+                results.put(key, () -> {
+                    throw e;
+                });
+            }
+        };
+        if (keys.size() >= PARALLEL_INVOKE_SIZE && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            keys.parallelStream().forEach(processing);
+        } else {
+            keys.forEach(processing);
+        }
+        return results;
+    }
+
+    /**
+     * Process the entry of the key, and apply the final mutation of the processor by a CAS against the entry read, so
+     * that the processor runs again if a concurrent write changed the entry in between. The caches whose writes lock
+     * their keys process them under the lock, so that the writer is called once.
+     */
+    private <T> T process(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments)
+            throws EntryProcessorException {
+        KeyLocks.KeyLock lock = lockWrite(key);
+        try {
+            for (; ; ) {
+                ExpirableEntry<K, V> current = getEntry(key);
+                ProcessedEntry<K, V> entry = new ProcessedEntry<>(this, key,
+                        current == null ? null : current.getValue());
+                T result = entryProcessor.process(entry, arguments);
+                if (!applyMutation(key, current, entry)) {
+                    continue;
+                }
+                CacheStatistics statistics = this.statistics;
+                if (statistics != null) {
+                    if (entry.getMutation() == ProcessedEntry.Mutation.UPDATE) {
+                        statistics.recordPuts(1);
+                    } else if (entry.getMutation() == ProcessedEntry.Mutation.REMOVE) {
+                        statistics.recordRemovals(1);
+                    }
+                }
+                return result;
+            }
+        } catch (EntryProcessorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EntryProcessorException(format("Failed to process key = %s of cache[%s]", key, cacheName), e);
+        } finally {
+            unlockWrite(key, lock);
+        }
+    }
+
+    /**
+     * Apply the final mutation of the processed entry, and publish it.
+     *
+     * @param current the live entry given to the processor, or <code>null</code>
+     * @return <code>false</code> if the entry has been changed since it was read, then nothing is applied
+     */
+    private boolean applyMutation(K key, ExpirableEntry<K, V> current, ProcessedEntry<K, V> entry) {
+        switch (entry.getMutation()) {
+            case LOAD:
+            case UPDATE:
+                ExpirableEntry<K, V> updated = newEntry(key, entry.getNewValue());
+                if (entry.getMutation() == ProcessedEntry.Mutation.UPDATE) {
+                    writeThrough(updated);
+                }
+                if (current == null ? putEntryIfAbsent(updated) != null : !compareAndReplaceEntry(current, updated)) {
+                    return false;
+                }
+                eventPublisher.publishWrite(key, updated.getValue(), current);
+                return true;
+            case REMOVE:
+                // the processor removes an entry which existed
+                deleteThrough(key);
+                if (!compareAndRemoveEntry(current)) {
+                    return false;
+                }
+                releaseTags(key);
+                eventPublisher.publish(EventType.REMOVED, key, current.getValue(), null);
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return the value loaded by the read-through {@link CacheLoader} without storing it, or <code>null</code>
+     */
+    final V loadIfReadThrough(K key) throws CacheLoaderException {
+        CacheLoader<K, V> loader = getReadThroughLoader();
+        if (loader == null) {
+            return null;
+        }
+        try {
+            return loader.load(key);
+        } catch (CacheLoaderException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheLoaderException(format("Failed to load key = %s of cache[%s]", key, cacheName), e);
+        }
     }
 
     @Override
     public String getName() {
-        return null;
+        return cacheName;
     }
 
     @Override
     public CacheManager getCacheManager() {
-        return null;
+        return cacheManager;
     }
 
     @Override
     public void close() {
+        if (!closed) {
+            closed = true;
+            WriteBehindQueue<K, V> queue = writeBehindQueue;
+            if (queue != null) {
+                // the pending changes are written before the cache is closed
+                queue.close();
+            }
+            doClose();
+        }
+    }
 
+    /**
+     * Subclass may override this method to release its resources
+     */
+    protected void doClose() {
     }
 
     @Override
     public boolean isClosed() {
-        return false;
+        return closed;
     }
 
     @Override
     public <T> T unwrap(Class<T> clazz) {
-        return null;
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        if (clazz == AsyncCache.class) {
+            AsyncCache<K, V> view = asyncView;
+            if (view == null) {
+                // the views are stateless, a racy creation is harmless
+                view = asyncView = new AsyncCacheView<>(this, loaderExecutor);
+            }
+            return clazz.cast(view);
+        }
+        throw new IllegalArgumentException(format("The cache[%s] can't be unwrapped to %s", cacheName, clazz.getName()));
     }
 
     @Override
     public void registerCacheEntryListener(CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
-
+        assertNotClosed();
+        requireNonNull(cacheEntryListenerConfiguration, "The CacheEntryListenerConfiguration must not be null.");
+        // the configuration rejects the registered one
+        configuration.addCacheEntryListenerConfiguration(cacheEntryListenerConfiguration);
+        eventPublisher.register(cacheEntryListenerConfiguration);
     }
 
     @Override
     public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
-
+        assertNotClosed();
+        requireNonNull(cacheEntryListenerConfiguration, "The CacheEntryListenerConfiguration must not be null.");
+        configuration.removeCacheEntryListenerConfiguration(cacheEntryListenerConfiguration);
+        eventPublisher.deregister(cacheEntryListenerConfiguration);
     }
 
     @Override
@@ -244,4 +2184,11 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
     public static <K> void requireKeyNotNull(K key) {
         requireNonNull(key, "The key must not be null.");
     }
+
+    static void requireKeysNotNull(Set<?> keys) {
+        requireNonNull(keys, "The keys must not be null.");
+        for (Object key : keys) {
+            requireKeyNotNull(key);
+        }
+    }
 }
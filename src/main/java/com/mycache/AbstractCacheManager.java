@@ -1,8 +1,14 @@
 package com.mycache;
 
+import com.mycache.management.CacheMBeans;
+import com.mycache.management.CacheManagement;
+import com.mycache.serializer.Serializer;
+import com.mycache.serializer.Serializers;
+
 import javax.cache.Cache;
 import javax.cache.CacheException;
 import javax.cache.CacheManager;
+import javax.cache.configuration.CompleteConfiguration;
 import javax.cache.configuration.Configuration;
 import javax.cache.configuration.MutableConfiguration;
 import javax.cache.spi.CachingProvider;
@@ -31,10 +37,6 @@ public abstract class AbstractCacheManager implements CacheManager {
     private ConcurrentMap<String, CacheIdentifier> cacheRepository = new ConcurrentHashMap<>();
 
 
-    //TODO cache 序列化工具 因为缓存不会所有的都存字符串
-    //    private final Object serializers;
-    //    private final Object deserializers;
-
     public AbstractCacheManager(CachingProvider cachingProvider, URI uri, ClassLoader classLoader, Properties properties) {
         this.cachingProvider = cachingProvider;
         this.uri = uri == null ? cachingProvider.getDefaultURI() : uri;
@@ -62,6 +64,20 @@ public abstract class AbstractCacheManager implements CacheManager {
         return properties;
     }
 
+    /**
+     * Get the serializer of keys or values stored outside of the heap, the caches of this manager use it unless their
+     * configuration or properties set another one.
+     * <p>
+     * Subclass may override this method, the serializer registered for the type is returned by default.
+     *
+     * @param type the declared type of keys or values
+     * @return non-null
+     * @see Serializers
+     */
+    public <T> Serializer<T> getSerializer(Class<T> type) {
+        return Serializers.getSerializer(type, getClassLoader());
+    }
+
     /**
      * Creates a named {@link Cache} at runtime.
      * <p>
@@ -127,13 +143,33 @@ public abstract class AbstractCacheManager implements CacheManager {
             // TODO 如果keytype 和valuetype 不同，可以添加不同的Cache ，这里就取一个了
             KeyValueTypePair keyValueTypePair = new KeyValueTypePair(configuration.getKeyType(), configuration.getValueType());
             cacheIdentifier.keyValueTypePair = keyValueTypePair;
-            cacheIdentifier.cache = doCreateCache(cacheName, configuration);
+            // 配置了分层的cache 由各层的实现组合而成
+            String[] tierNames = TieredCache.resolveTierNames(getProperties(), cacheName);
+            cacheIdentifier.cache = tierNames == null ? doCreateCache(cacheName, configuration) :
+                    new TieredCache<>(this, cacheName, configuration, tierNames);
             cacheRepository.putIfAbsent(cacheName, cacheIdentifier);
-
+            registerMBeansIfRequired(cacheName, configuration);
         }
         return cacheIdentifier.cache;
     }
 
+    private void registerMBeansIfRequired(String cacheName, Configuration<?, ?> configuration) {
+        if (configuration instanceof CompleteConfiguration) {
+            CompleteConfiguration<?, ?> completeConfiguration = (CompleteConfiguration<?, ?>) configuration;
+            if (completeConfiguration.isManagementEnabled()) {
+                enableManagement(cacheName, true);
+            }
+            if (completeConfiguration.isStatisticsEnabled()) {
+                enableStatistics(cacheName, true);
+            }
+        }
+    }
+
+    private void unregisterMBeans(String cacheName) {
+        CacheMBeans.unregister(CacheMBeans.CONFIGURATION_TYPE, getURI(), cacheName);
+        CacheMBeans.unregister(CacheMBeans.STATISTICS_TYPE, getURI(), cacheName);
+    }
+
     //扩展
     protected abstract <K, V, C extends Configuration<K, V>> Cache doCreateCache(String cacheName, C configuration);
 
@@ -164,6 +200,7 @@ public abstract class AbstractCacheManager implements CacheManager {
         assertNotClosed();
         CacheIdentifier cacheIdentifier = cacheRepository.remove(cacheName);
         if (cacheIdentifier != null) {
+            unregisterMBeans(cacheName);
             //TODO 如果cache 很多，需要迭代执行
             cacheIdentifier.cache.close();
         }
@@ -178,19 +215,56 @@ public abstract class AbstractCacheManager implements CacheManager {
     }
 
 
+    /**
+     * Register or unregister the {@link com.mycache.management.CacheManagementMXBean} of the cache named
+     * javax.cache:type=CacheConfiguration,CacheManager=${uri},Cache=${cacheName}, which also changes its maximum
+     * size, time to live and eviction policy at runtime.
+     */
     @Override
     public void enableManagement(String cacheName, boolean enabled) {
-        //TODO 添加JMX功能加以管理
+        requireNonNull(cacheName, "The 'cacheName' argument must not be null.");
+        assertNotClosed();
+        CacheIdentifier cacheIdentifier = cacheRepository.get(cacheName);
+        if (cacheIdentifier == null || !(cacheIdentifier.cache instanceof AbstractCache)) {
+            return;
+        }
+        AbstractCache<?, ?> cache = (AbstractCache<?, ?>) cacheIdentifier.cache;
+        cache.setManagementEnabled(enabled);
+        if (enabled) {
+            CacheMBeans.register(new CacheManagement(cache), CacheMBeans.CONFIGURATION_TYPE, getURI(), cacheName);
+        } else {
+            CacheMBeans.unregister(CacheMBeans.CONFIGURATION_TYPE, getURI(), cacheName);
+        }
     }
 
+    /**
+     * Start or stop recording the statistics of the cache, which are exposed as the
+     * {@link javax.cache.management.CacheStatisticsMXBean} named
+     * javax.cache:type=CacheStatistics,CacheManager=${uri},Cache=${cacheName} while they are recorded.
+     */
     @Override
     public void enableStatistics(String cacheName, boolean enabled) {
-        //TODO 配合JMX功能添加统计
+        requireNonNull(cacheName, "The 'cacheName' argument must not be null.");
+        assertNotClosed();
+        CacheIdentifier cacheIdentifier = cacheRepository.get(cacheName);
+        if (cacheIdentifier == null || !(cacheIdentifier.cache instanceof AbstractCache)) {
+            return;
+        }
+        AbstractCache<?, ?> cache = (AbstractCache<?, ?>) cacheIdentifier.cache;
+        cache.setStatisticsEnabled(enabled);
+        if (enabled) {
+            CacheMBeans.register(cache.getStatistics(), CacheMBeans.STATISTICS_TYPE, getURI(), cacheName);
+        } else {
+            CacheMBeans.unregister(CacheMBeans.STATISTICS_TYPE, getURI(), cacheName);
+        }
     }
 
     @Override
     public void close() {
         isClosed = true;
+        for (String cacheName : cacheRepository.keySet()) {
+            unregisterMBeans(cacheName);
+        }
     }
 
     @Override
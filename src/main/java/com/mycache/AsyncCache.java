@@ -0,0 +1,61 @@
+package com.mycache;
+
+import javax.cache.Cache;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * The non-blocking view of a {@link Cache}, obtained by <code>cache.unwrap(AsyncCache.class)</code>.
+ * <p>
+ * The operations served by the memory complete before they return, without any scheduling, e.g : a hit, or a miss of a
+ * cache without read-through. Only the operations waiting for a {@link javax.cache.integration.CacheLoader}, a
+ * {@link javax.cache.integration.CacheWriter} or a mapping function run on the {@link Executor} of the view, which is
+ * the loader executor of the cache unless another one is given by {@link #withExecutor(Executor)}.
+ * <p>
+ * The failures complete the futures exceptionally, except for the invalid arguments which are thrown at once.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public interface AsyncCache<K, V> {
+
+    /**
+     * @see Cache#get(Object)
+     */
+    CompletableFuture<V> getAsync(K key);
+
+    /**
+     * @see Cache#getAll(Set)
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Set<? extends K> keys);
+
+    /**
+     * @see Cache#put(Object, Object)
+     */
+    CompletableFuture<Void> putAsync(K key, V value);
+
+    /**
+     * @see Cache#remove(Object)
+     */
+    CompletableFuture<Boolean> removeAsync(K key);
+
+    /**
+     * Get the value of the key, or compute it once for all the concurrent callers if it's absent, see
+     * {@link AbstractCache#computeIfAbsent(Object, Function)}.
+     */
+    CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * @param executor the {@link Executor} of the operations which may block
+     * @return the view of the same cache running its slow paths on the executor
+     */
+    AsyncCache<K, V> withExecutor(Executor executor);
+
+    /**
+     * @return the blocking {@link Cache} of the view
+     */
+    Cache<K, V> synchronous();
+}
@@ -0,0 +1,133 @@
+package com.mycache;
+
+import javax.cache.Cache;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link AsyncCache} of an {@link AbstractCache}, completing the futures of the hits and of the writes without
+ * loader nor synchronous writer in the calling thread.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class AsyncCacheView<K, V> implements AsyncCache<K, V> {
+
+    private final AbstractCache<K, V> cache;
+
+    private final Executor executor;
+
+    AsyncCacheView(AbstractCache<K, V> cache, Executor executor) {
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        AbstractCache.requireKeyNotNull(key);
+        try {
+            ExpirableEntry<K, V> entry = cache.getLiveEntry(key);
+            if (entry != null) {
+                return CompletableFuture.completedFuture(cache.copyValue(entry.getValue()));
+            }
+            if (!cache.isReadingThrough()) {
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return CompletableFuture.supplyAsync(() -> cache.get(key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Set<? extends K> keys) {
+        AbstractCache.requireKeysNotNull(keys);
+        Map<K, V> result;
+        try {
+            Collection<ExpirableEntry<K, V>> entries = cache.getLiveEntries(keys);
+            result = new HashMap<>(Math.max(16, (int) (keys.size() / 0.75f) + 1));
+            for (ExpirableEntry<K, V> entry : entries) {
+                result.put(entry.getKey(), cache.copyValue(entry.getValue()));
+            }
+            if (result.size() == keys.size() || !cache.isReadingThrough()) {
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        Set<K> misses = new HashSet<>(keys);
+        misses.removeAll(result.keySet());
+        return CompletableFuture.supplyAsync(() -> {
+            result.putAll(cache.getAll(misses));
+            return result;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        AbstractCache.requireKeyNotNull(key);
+        ExpirableEntry.requireValueNotNull(value);
+        try {
+            if (!cache.isWritingThrough()) {
+                cache.put(key, value);
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return CompletableFuture.runAsync(() -> cache.put(key, value), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeAsync(K key) {
+        AbstractCache.requireKeyNotNull(key);
+        try {
+            if (!cache.isWritingThrough()) {
+                return CompletableFuture.completedFuture(cache.remove(key));
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return CompletableFuture.supplyAsync(() -> cache.remove(key), executor);
+    }
+
+    @Override
+    public CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> mappingFunction) {
+        AbstractCache.requireKeyNotNull(key);
+        requireNonNull(mappingFunction, "The mapping function must not be null.");
+        try {
+            ExpirableEntry<K, V> entry = cache.getLiveEntry(key);
+            if (entry != null) {
+                return CompletableFuture.completedFuture(cache.copyValue(entry.getValue()));
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return CompletableFuture.supplyAsync(() -> cache.computeIfAbsent(key, mappingFunction), executor);
+    }
+
+    @Override
+    public AsyncCache<K, V> withExecutor(Executor executor) {
+        requireNonNull(executor, "The executor must not be null.");
+        return new AsyncCacheView<>(cache, executor);
+    }
+
+    @Override
+    public Cache<K, V> synchronous() {
+        return cache;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
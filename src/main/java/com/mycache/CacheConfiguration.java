@@ -0,0 +1,371 @@
+package com.mycache;
+
+import com.mycache.copier.Copier;
+import com.mycache.serializer.Serializer;
+import com.mycache.weigher.Weigher;
+import com.mycache.weigher.Weighers;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import java.util.concurrent.Executor;
+
+/**
+ * The {@link MutableConfiguration} extension carrying the settings beyond JSR-107. An unset value falls back to the
+ * cache properties of the {@link javax.cache.CacheManager}, see {@link AbstractCache#CACHE_PROPERTY_PREFIX}.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class CacheConfiguration<K, V> extends MutableConfiguration<K, V> {
+
+    /**
+     * The value of no limit
+     */
+    public static final long UNBOUNDED = -1L;
+
+    private long maximumSize = UNBOUNDED;
+
+    private String evictionPolicy;
+
+    private long maximumWeight = UNBOUNDED;
+
+    private Weigher<K, V> weigher;
+
+    private Ticker ticker;
+
+    private Serializer<K> keySerializer;
+
+    private Serializer<V> valueSerializer;
+
+    private Copier<K> keyCopier;
+
+    private Copier<V> valueCopier;
+
+    private Executor loaderExecutor;
+
+    private Executor listenerExecutor;
+
+    private int loadBatchSize;
+
+    private long loadTimeout = UNBOUNDED;
+
+    private long refreshAfterWrite = UNBOUNDED;
+
+    private boolean writeBehind;
+
+    private int writeBehindBatchSize;
+
+    private long writeBehindDelay;
+
+    private int writeBehindQueueSize;
+
+    public CacheConfiguration() {
+    }
+
+    public CacheConfiguration(CompleteConfiguration<K, V> configuration) {
+        super(configuration);
+        if (configuration instanceof CacheConfiguration) {
+            CacheConfiguration<K, V> config = (CacheConfiguration<K, V>) configuration;
+            this.maximumSize = config.maximumSize;
+            this.evictionPolicy = config.evictionPolicy;
+            this.maximumWeight = config.maximumWeight;
+            this.weigher = config.weigher;
+            this.ticker = config.ticker;
+            this.keySerializer = config.keySerializer;
+            this.valueSerializer = config.valueSerializer;
+            this.keyCopier = config.keyCopier;
+            this.valueCopier = config.valueCopier;
+            this.loaderExecutor = config.loaderExecutor;
+            this.listenerExecutor = config.listenerExecutor;
+            this.loadBatchSize = config.loadBatchSize;
+            this.loadTimeout = config.loadTimeout;
+            this.refreshAfterWrite = config.refreshAfterWrite;
+            this.writeBehind = config.writeBehind;
+            this.writeBehindBatchSize = config.writeBehindBatchSize;
+            this.writeBehindDelay = config.writeBehindDelay;
+            this.writeBehindQueueSize = config.writeBehindQueueSize;
+        }
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @param maximumSize the maximum number of entries, {@link #UNBOUNDED} means no limit
+     * @return this
+     */
+    public CacheConfiguration<K, V> setMaximumSize(long maximumSize) {
+        if (maximumSize < 0 && maximumSize != UNBOUNDED) {
+            throw new IllegalArgumentException("The maximum size must not be negative!");
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    public String getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * @param evictionPolicy the name of {@link com.mycache.eviction.EvictionPolicyProvider} or its class name
+     * @return this
+     */
+    public CacheConfiguration<K, V> setEvictionPolicy(String evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * @param maximumWeight the maximum sum of the weights of entries in bytes, {@link #UNBOUNDED} means no limit
+     * @return this
+     */
+    public CacheConfiguration<K, V> setMaximumWeight(long maximumWeight) {
+        if (maximumWeight < 0 && maximumWeight != UNBOUNDED) {
+            throw new IllegalArgumentException("The maximum weight must not be negative!");
+        }
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    public Weigher<K, V> getWeigher() {
+        return weigher;
+    }
+
+    /**
+     * @param weigher the {@link Weigher} of entries, <code>null</code> means {@link Weighers#estimating()}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setWeigher(Weigher<K, V> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @param ticker the time source of expiration, <code>null</code> means {@link Ticker#systemTicker()}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setTicker(Ticker ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    public Serializer<K> getKeySerializer() {
+        return keySerializer;
+    }
+
+    /**
+     * @param keySerializer the {@link Serializer} of keys stored outside of the heap, <code>null</code> means the one
+     *                      registered for the key type, see {@link com.mycache.serializer.Serializers}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setKeySerializer(Serializer<K> keySerializer) {
+        this.keySerializer = keySerializer;
+        return this;
+    }
+
+    public Serializer<V> getValueSerializer() {
+        return valueSerializer;
+    }
+
+    /**
+     * @param valueSerializer the {@link Serializer} of values stored outside of the heap, <code>null</code> means the
+     *                        one registered for the value type, see {@link com.mycache.serializer.Serializers}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setValueSerializer(Serializer<V> valueSerializer) {
+        this.valueSerializer = valueSerializer;
+        return this;
+    }
+
+    public Copier<K> getKeyCopier() {
+        return keyCopier;
+    }
+
+    /**
+     * @param keyCopier the {@link Copier} of keys when storing by value, <code>null</code> means copying them by the
+     *                  key serializer unless they are immutable
+     * @return this
+     */
+    public CacheConfiguration<K, V> setKeyCopier(Copier<K> keyCopier) {
+        this.keyCopier = keyCopier;
+        return this;
+    }
+
+    public Copier<V> getValueCopier() {
+        return valueCopier;
+    }
+
+    /**
+     * @param valueCopier the {@link Copier} of values when storing by value, <code>null</code> means copying them by
+     *                    the value serializer unless they are immutable
+     * @return this
+     */
+    public CacheConfiguration<K, V> setValueCopier(Copier<V> valueCopier) {
+        this.valueCopier = valueCopier;
+        return this;
+    }
+
+    public Executor getLoaderExecutor() {
+        return loaderExecutor;
+    }
+
+    /**
+     * @param loaderExecutor the {@link Executor} running the {@link javax.cache.integration.CacheLoader} for
+     *                       {@link javax.cache.Cache#loadAll}, <code>null</code> means the common ForkJoinPool
+     * @return this
+     */
+    public CacheConfiguration<K, V> setLoaderExecutor(Executor loaderExecutor) {
+        this.loaderExecutor = loaderExecutor;
+        return this;
+    }
+
+    public Executor getListenerExecutor() {
+        return listenerExecutor;
+    }
+
+    /**
+     * @param listenerExecutor the {@link Executor} notifying the asynchronous
+     *                         {@link javax.cache.event.CacheEntryListener}s, <code>null</code> means a pool shared by
+     *                         all caches
+     * @return this
+     */
+    public CacheConfiguration<K, V> setListenerExecutor(Executor listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+        return this;
+    }
+
+    public int getLoadBatchSize() {
+        return loadBatchSize;
+    }
+
+    /**
+     * @param loadBatchSize the maximum number of keys loaded by one task of {@link javax.cache.Cache#loadAll}, zero
+     *                      means the {@value AbstractCache#LOAD_BATCH_SIZE_PROPERTY_NAME} cache property or else
+     *                      {@value AbstractCache#DEFAULT_LOAD_BATCH_SIZE}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setLoadBatchSize(int loadBatchSize) {
+        if (loadBatchSize < 0) {
+            throw new IllegalArgumentException("The load batch size must not be negative!");
+        }
+        this.loadBatchSize = loadBatchSize;
+        return this;
+    }
+
+    public long getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    /**
+     * @param loadTimeout the maximum milliseconds of waiting for the load of a key started by another caller,
+     *                    {@link #UNBOUNDED} means the {@value AbstractCache#LOAD_TIMEOUT_PROPERTY_NAME} cache property
+     *                    or else no limit
+     * @return this
+     */
+    public CacheConfiguration<K, V> setLoadTimeout(long loadTimeout) {
+        if (loadTimeout < 0 && loadTimeout != UNBOUNDED) {
+            throw new IllegalArgumentException("The load timeout must not be negative!");
+        }
+        this.loadTimeout = loadTimeout;
+        return this;
+    }
+
+    public long getRefreshAfterWrite() {
+        return refreshAfterWrite;
+    }
+
+    /**
+     * @param refreshAfterWrite the milliseconds after the write of an entry when a read reloads it in background by the
+     *                          {@link javax.cache.integration.CacheLoader}, while still returning the current value,
+     *                          {@link #UNBOUNDED} means the {@value AbstractCache#REFRESH_AFTER_WRITE_PROPERTY_NAME}
+     *                          cache property or else never
+     * @return this
+     */
+    public CacheConfiguration<K, V> setRefreshAfterWrite(long refreshAfterWrite) {
+        if (refreshAfterWrite <= 0 && refreshAfterWrite != UNBOUNDED) {
+            throw new IllegalArgumentException("The refresh after write must be positive!");
+        }
+        this.refreshAfterWrite = refreshAfterWrite;
+        return this;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * @param writeBehind <code>true</code> if the changes of a write-through cache are queued and written to the
+     *                    {@link javax.cache.integration.CacheWriter} in background batches, <code>false</code> means
+     *                    the {@value AbstractCache#WRITE_BEHIND_PROPERTY_NAME} cache property or else writing them
+     *                    synchronously
+     * @return this
+     */
+    public CacheConfiguration<K, V> setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+        return this;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    /**
+     * @param writeBehindBatchSize the maximum number of changes written behind at once, zero means the
+     *                             {@value AbstractCache#WRITE_BEHIND_BATCH_SIZE_PROPERTY_NAME} cache property or else
+     *                             {@value AbstractCache#DEFAULT_WRITE_BEHIND_BATCH_SIZE}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setWriteBehindBatchSize(int writeBehindBatchSize) {
+        if (writeBehindBatchSize < 0) {
+            throw new IllegalArgumentException("The write-behind batch size must not be negative!");
+        }
+        this.writeBehindBatchSize = writeBehindBatchSize;
+        return this;
+    }
+
+    public long getWriteBehindDelay() {
+        return writeBehindDelay;
+    }
+
+    /**
+     * @param writeBehindDelay the maximum milliseconds a change waits before it's written behind, zero means the
+     *                         {@value AbstractCache#WRITE_BEHIND_DELAY_PROPERTY_NAME} cache property or else
+     *                         {@value AbstractCache#DEFAULT_WRITE_BEHIND_DELAY}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setWriteBehindDelay(long writeBehindDelay) {
+        if (writeBehindDelay < 0) {
+            throw new IllegalArgumentException("The write-behind delay must not be negative!");
+        }
+        this.writeBehindDelay = writeBehindDelay;
+        return this;
+    }
+
+    public int getWriteBehindQueueSize() {
+        return writeBehindQueueSize;
+    }
+
+    /**
+     * @param writeBehindQueueSize the maximum number of changes waiting to be written behind, the writers block while
+     *                             it's reached, zero means the
+     *                             {@value AbstractCache#WRITE_BEHIND_QUEUE_SIZE_PROPERTY_NAME} cache property or else
+     *                             {@value AbstractCache#DEFAULT_WRITE_BEHIND_QUEUE_SIZE}
+     * @return this
+     */
+    public CacheConfiguration<K, V> setWriteBehindQueueSize(int writeBehindQueueSize) {
+        if (writeBehindQueueSize < 0) {
+            throw new IllegalArgumentException("The write-behind queue size must not be negative!");
+        }
+        this.writeBehindQueueSize = writeBehindQueueSize;
+        return this;
+    }
+}
@@ -0,0 +1,401 @@
+package com.mycache;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * The publisher of the {@link CacheEntryEvent}s of a cache to its registered {@link CacheEntryListener}s.
+ * <p>
+ * The synchronous listeners are notified inline by the thread mutating the cache, and their failures are thrown to it.
+ * The asynchronous listeners are notified on the listener executor : the events are queued in lanes selected by the
+ * hash of the key, every lane is drained by one task at a time in batches, so that the events of a key are delivered in
+ * the order of the mutations, and a slow listener never delays the writers.
+ * <p>
+ * The mutating operations check {@link #isListening} first, so that no event is built, nor the old value fetched,
+ * while no listener of the type is registered.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class CacheEntryEventPublisher<K, V> {
+
+    /**
+     * The maximum number of events delivered by one task of a lane
+     */
+    static final int BATCH_SIZE = 256;
+
+    static final int LANES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+
+    private static final Logger logger = Logger.getLogger(CacheEntryEventPublisher.class.getName());
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    /**
+     * The executor of the caches which don't configure their own one
+     */
+    private static final ExecutorService sharedExecutor = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "zc-cache-listener-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Cache<K, V> cache;
+
+    private final Executor executor;
+
+    private final Lane[] lanes;
+
+    /**
+     * Copied on write under the monitor of the publisher
+     */
+    private volatile Registration<K, V>[] registrations = newRegistrations(0);
+
+    /**
+     * The bits of the {@link EventType}s listened synchronously and asynchronously
+     */
+    private volatile int synchronousTypes;
+
+    private volatile int asynchronousTypes;
+
+    @SuppressWarnings("unchecked")
+    CacheEntryEventPublisher(Cache<K, V> cache, Executor executor) {
+        this.cache = cache;
+        this.executor = executor == null ? sharedExecutor : executor;
+        this.lanes = (Lane[]) new CacheEntryEventPublisher<?, ?>.Lane[LANES];
+        for (int i = 0; i < LANES; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Registration<K, V>[] newRegistrations(int length) {
+        return new Registration[length];
+    }
+
+    private static int bit(EventType type) {
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * @return <code>true</code> if any listener of the type is registered
+     */
+    boolean isListening(EventType type) {
+        return ((synchronousTypes | asynchronousTypes) & bit(type)) != 0;
+    }
+
+    /**
+     * @return <code>true</code> if any listener of the creations or of the updates is registered
+     */
+    boolean isListeningWrites() {
+        return ((synchronousTypes | asynchronousTypes) & (bit(EventType.CREATED) | bit(EventType.UPDATED))) != 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the configuration is already registered
+     */
+    synchronized void register(CacheEntryListenerConfiguration<K, V> configuration) {
+        for (Registration<K, V> registration : registrations) {
+            if (registration.configuration.equals(configuration)) {
+                throw new IllegalArgumentException("The CacheEntryListenerConfiguration is already registered");
+            }
+        }
+        Registration<K, V>[] updated = Arrays.copyOf(registrations, registrations.length + 1);
+        updated[registrations.length] = new Registration<>(configuration);
+        publish(updated);
+    }
+
+    synchronized void deregister(CacheEntryListenerConfiguration<K, V> configuration) {
+        List<Registration<K, V>> updated = new ArrayList<>(Arrays.asList(registrations));
+        if (updated.removeIf(registration -> registration.configuration.equals(configuration))) {
+            publish(updated.toArray(newRegistrations(updated.size())));
+        }
+    }
+
+    private void publish(Registration<K, V>[] registrations) {
+        int synchronousTypes = 0;
+        int asynchronousTypes = 0;
+        for (Registration<K, V> registration : registrations) {
+            if (registration.synchronous) {
+                synchronousTypes |= registration.types;
+            } else {
+                asynchronousTypes |= registration.types;
+            }
+        }
+        this.registrations = registrations;
+        this.synchronousTypes = synchronousTypes;
+        this.asynchronousTypes = asynchronousTypes;
+    }
+
+    /**
+     * Publish the write of the key, as a creation if there was no value before.
+     *
+     * @param previous the live entry replaced, or <code>null</code>
+     */
+    void publishWrite(K key, V value, ExpirableEntry<K, V> previous) {
+        if (previous == null) {
+            publish(EventType.CREATED, key, value, null);
+        } else {
+            publish(EventType.UPDATED, key, value, previous.getValue());
+        }
+    }
+
+    /**
+     * @param value    the new value, or the value removed or expired
+     * @param oldValue the value replaced, <code>null</code> unless the entry is updated
+     * @throws CacheEntryListenerException if a synchronous listener fails
+     */
+    void publish(EventType type, K key, V value, V oldValue) throws CacheEntryListenerException {
+        int bit = bit(type);
+        int synchronousTypes = this.synchronousTypes;
+        int asynchronousTypes = this.asynchronousTypes;
+        if (((synchronousTypes | asynchronousTypes) & bit) == 0) {
+            return;
+        }
+        Event<K, V> event = new Event<>(cache, type, key, value, oldValue);
+        if ((asynchronousTypes & bit) != 0) {
+            int hash = key.hashCode() * 0x9E3779B9;
+            lanes[(hash ^ (hash >>> 16)) & (LANES - 1)].offer(event);
+        }
+        if ((synchronousTypes & bit) != 0) {
+            List<Event<K, V>> events = Collections.singletonList(event);
+            for (Registration<K, V> registration : registrations) {
+                if (registration.synchronous) {
+                    try {
+                        registration.dispatch(events);
+                    } catch (CacheEntryListenerException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        throw new CacheEntryListenerException(format("The listener of cache[%s] failed on %s of " +
+                                "key = %s", cache.getName(), type, key), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The queue of the asynchronous events of a share of the keys, drained by one task at a time
+     */
+    private final class Lane implements Runnable {
+
+        private final ConcurrentLinkedQueue<Event<K, V>> events = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void offer(Event<K, V> event) {
+            events.offer(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!events.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    logger.log(Level.WARNING, format("The events of cache[%s] are rejected by the listener executor",
+                            cache.getName()), e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Event<K, V>> batch = new ArrayList<>(Math.min(BATCH_SIZE, events.size()));
+                for (Event<K, V> event; batch.size() < BATCH_SIZE && (event = events.poll()) != null; ) {
+                    batch.add(event);
+                }
+                for (Registration<K, V> registration : registrations) {
+                    if (!registration.synchronous) {
+                        try {
+                            registration.dispatch(batch);
+                        } catch (RuntimeException e) {
+                            logger.log(Level.WARNING, format("The asynchronous listener of cache[%s] failed on %d " +
+                                    "events", cache.getName(), batch.size()), e);
+                        }
+                    }
+                }
+            } finally {
+                // yield the thread to the other lanes between the batches
+                scheduled.set(false);
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * A registered listener with its filter
+     */
+    private static final class Registration<K, V> {
+
+        final CacheEntryListenerConfiguration<K, V> configuration;
+
+        final CacheEntryListener<? super K, ? super V> listener;
+
+        /**
+         * <code>null</code> if every event is delivered
+         */
+        final CacheEntryEventFilter<? super K, ? super V> filter;
+
+        final boolean synchronous;
+
+        final boolean oldValueRequired;
+
+        /**
+         * The bits of the {@link EventType}s the listener implements
+         */
+        final int types;
+
+        Registration(CacheEntryListenerConfiguration<K, V> configuration) {
+            this.configuration = configuration;
+            this.listener = configuration.getCacheEntryListenerFactory().create();
+            Factory<CacheEntryEventFilter<? super K, ? super V>> filterFactory =
+                    configuration.getCacheEntryEventFilterFactory();
+            this.filter = filterFactory == null ? null : filterFactory.create();
+            this.synchronous = configuration.isSynchronous();
+            this.oldValueRequired = configuration.isOldValueRequired();
+            int types = 0;
+            if (listener instanceof CacheEntryCreatedListener) {
+                types |= bit(EventType.CREATED);
+            }
+            if (listener instanceof CacheEntryUpdatedListener) {
+                types |= bit(EventType.UPDATED);
+            }
+            if (listener instanceof CacheEntryRemovedListener) {
+                types |= bit(EventType.REMOVED);
+            }
+            if (listener instanceof CacheEntryExpiredListener) {
+                types |= bit(EventType.EXPIRED);
+            }
+            this.types = types;
+        }
+
+        /**
+         * Deliver the events the listener accepts, the consecutive events of a type in one call.
+         */
+        void dispatch(List<Event<K, V>> events) {
+            List<CacheEntryEvent<? extends K, ? extends V>> run = new ArrayList<>();
+            EventType runType = null;
+            for (Event<K, V> event : events) {
+                if ((types & bit(event.getEventType())) == 0 || filter != null && !filter.evaluate(event)) {
+                    continue;
+                }
+                if (event.getEventType() != runType && !run.isEmpty()) {
+                    deliver(runType, run);
+                    run = new ArrayList<>();
+                }
+                runType = event.getEventType();
+                run.add(oldValueRequired || event.getOldValue() == null ? event : event.withoutOldValue());
+            }
+            if (!run.isEmpty()) {
+                deliver(runType, run);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(EventType type, List<CacheEntryEvent<? extends K, ? extends V>> events) {
+            switch (type) {
+                case CREATED:
+                    ((CacheEntryCreatedListener<K, V>) listener).onCreated(events);
+                    break;
+                case UPDATED:
+                    ((CacheEntryUpdatedListener<K, V>) listener).onUpdated(events);
+                    break;
+                case REMOVED:
+                    ((CacheEntryRemovedListener<K, V>) listener).onRemoved(events);
+                    break;
+                case EXPIRED:
+                    ((CacheEntryExpiredListener<K, V>) listener).onExpired(events);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    static final class Event<K, V> extends CacheEntryEvent<K, V> {
+
+        /**
+         * The typed source, {@link #getSource()} returns a raw {@link Cache}
+         */
+        private final Cache<K, V> cache;
+
+        private final K key;
+
+        private final V value;
+
+        private final V oldValue;
+
+        Event(Cache<K, V> source, EventType eventType, K key, V value, V oldValue) {
+            super(source, eventType);
+            this.cache = source;
+            this.key = key;
+            this.value = value;
+            this.oldValue = oldValue;
+        }
+
+        Event<K, V> withoutOldValue() {
+            return new Event<>(cache, getEventType(), key, value, null);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V getOldValue() {
+            return oldValue;
+        }
+
+        @Override
+        public boolean isOldValueAvailable() {
+            return oldValue != null;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isInstance(this)) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("The event can't be unwrapped to " + clazz.getName());
+        }
+
+        @Override
+        public String toString() {
+            return getEventType() + "[key = " + key + ", value = " + value + "]";
+        }
+    }
+}
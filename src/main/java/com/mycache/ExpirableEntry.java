@@ -2,22 +2,54 @@ package com.mycache;
 
 import javax.cache.Cache;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import static java.util.Objects.requireNonNull;
 
 public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializable {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<ExpirableEntry> REFRESH_TIME =
+            AtomicLongFieldUpdater.newUpdater(ExpirableEntry.class, "refreshTime");
+
     private final K key;
 
     private V value;
 
-    private long timestamp;
+    /**
+     * The time to expire in nanoseconds of the cache {@link Ticker}, {@link Long#MAX_VALUE} means eternal
+     */
+    private volatile long expirationTime;
+
+    /**
+     * The time to reload the value ahead of its expiration in nanoseconds of the cache {@link Ticker},
+     * {@link Long#MAX_VALUE} means never
+     */
+    private volatile long refreshTime;
+
+    /**
+     * The last access time in nanoseconds, stamped by the storage without synchronization for the eviction policies
+     */
+    private transient long accessTime;
+
+    /**
+     * The estimated size in bytes, zero unless the cache is bounded by weight
+     */
+    private transient int weight;
+
+    /**
+     * The links of the bucket in the {@link TimingWheel}, guarded by the segment lock
+     */
+    transient ExpirableEntry<K, V> previousInWheel;
+
+    transient ExpirableEntry<K, V> nextInWheel;
 
     public ExpirableEntry(K key, V value) throws NullPointerException {
         requireKeyNotNull(key);
         this.key = key;
         this.setValue(value);
-        this.timestamp = Long.MAX_VALUE; // default
+        this.expirationTime = Long.MAX_VALUE; // default
+        this.refreshTime = Long.MAX_VALUE;
     }
 
     public static <K> void requireKeyNotNull(K key) {
@@ -31,10 +63,65 @@ public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializable {
 
 
     public void setValue(V value) {
-        requireKeyNotNull(value);
+        requireValueNotNull(value);
         this.value = value;
     }
 
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public void setExpirationTime(long expirationTime) {
+        this.expirationTime = expirationTime;
+    }
+
+    public boolean isEternal() {
+        return expirationTime == Long.MAX_VALUE;
+    }
+
+    /**
+     * @param now the current time of the cache {@link Ticker}
+     * @return <code>true</code> if the entry has expired at the time
+     */
+    public boolean isExpired(long now) {
+        return expirationTime <= now;
+    }
+
+    public long getRefreshTime() {
+        return refreshTime;
+    }
+
+    public void setRefreshTime(long refreshTime) {
+        this.refreshTime = refreshTime;
+    }
+
+    /**
+     * Claim the reload of the entry if it's due, so that one reader only starts it.
+     *
+     * @param now the current time of the cache {@link Ticker}
+     * @return <code>true</code> if the caller must reload the entry
+     */
+    public boolean claimRefresh(long now) {
+        long time = refreshTime;
+        return time <= now && REFRESH_TIME.compareAndSet(this, time, Long.MAX_VALUE);
+    }
+
+    public long getAccessTime() {
+        return accessTime;
+    }
+
+    void setAccessTime(long accessTime) {
+        this.accessTime = accessTime;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    void setWeight(long weight) {
+        this.weight = (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
     @Override
     public K getKey() {
         return key;
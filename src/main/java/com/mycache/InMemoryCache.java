@@ -1,37 +1,479 @@
 package com.mycache;
 
+import com.mycache.eviction.EvictionPolicies;
+import com.mycache.weigher.Weigher;
+import com.mycache.weigher.Weighers;
+
 import javax.cache.CacheException;
 import javax.cache.CacheManager;
 import javax.cache.configuration.Configuration;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class InMemoryCache<K, V> extends AbstractCache<K, V> {
 
-    private CacheManager cacheManager;
+    /**
+     * The property name of the number of segments, e.g :
+     * <p>
+     * com.mycache.in-memory.concurrency-level=64
+     */
+    public static final String CONCURRENCY_LEVEL_PROPERTY_NAME = "com.mycache.in-memory.concurrency-level";
+
+    /**
+     * The cache property name of the maximum number of entries, see {@link #CACHE_PROPERTY_PREFIX}
+     */
+    public static final String MAXIMUM_SIZE_PROPERTY_NAME = "maximum-size";
+
+    /**
+     * The cache property name of the eviction policy, see {@link EvictionPolicies}
+     */
+    public static final String EVICTION_POLICY_PROPERTY_NAME = "eviction-policy";
+
+    /**
+     * The cache property name of the maximum weight in bytes, units are allowed, e.g : 64m
+     */
+    public static final String MAXIMUM_WEIGHT_PROPERTY_NAME = "maximum-weight";
+
+    /**
+     * The cache property name of the class name of {@link Weigher}
+     */
+    public static final String WEIGHER_PROPERTY_NAME = "weigher";
+
+    /**
+     * The interval in seconds of reclaiming the expired entries in background
+     */
+    static final long EXPIRATION_INTERVAL_SECONDS = 1;
+
+    private static final Logger logger = Logger.getLogger(InMemoryCache.class.getName());
+
+    private static final ScheduledExecutorService expirationScheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "zc-cache-expiration");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final SegmentedStore<K, V> store;
+
+    private final Class<K> keyType;
+
+    /**
+     * <code>null</code> if the cache is not bounded by weight
+     */
+    private final Weigher<K, V> weigher;
+
+    /**
+     * <code>true</code> until the entries may expire, see {@link #startExpiring()}
+     */
+    private volatile boolean eternal;
+
+    /**
+     * <code>null</code> if the entries never expire
+     */
+    private volatile ScheduledFuture<?> expirationTask;
 
     protected InMemoryCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
         super(cacheManager, cacheName, configuration);
-        this.cacheManager = cacheManager;
+        long maximumWeight = resolveMaximumWeight();
+        this.eternal = isEternal();
+        this.store = new SegmentedStore<>(resolveConcurrencyLevel(cacheManager), resolveMaximumSize(), maximumWeight,
+                EvictionPolicies.getProvider(resolveEvictionPolicy(), cacheManager.getClassLoader()),
+                eternal ? null : getTicker(), new SegmentedStore.RemovalListener<K, V>() {
+                    @Override
+                    public void onEvicting(ExpirableEntry<K, V> entry) {
+                        InMemoryCache.this.onEvicting(entry);
+                    }
+
+                    @Override
+                    public void onEvicted(ExpirableEntry<K, V> entry) {
+                        recordEvictions(1);
+                        releaseTags(entry.getKey());
+                        InMemoryCache.this.onEvicted(entry);
+                    }
+
+                    @Override
+                    public void onExpired(ExpirableEntry<K, V> entry) {
+                        publishExpired(entry);
+                        InMemoryCache.this.onExpired(entry);
+                    }
+                });
+        this.keyType = configuration.getKeyType();
+        this.weigher = maximumWeight == CacheConfiguration.UNBOUNDED ? null : resolveWeigher();
+        this.expirationTask = eternal ? null : scheduleExpiration();
+    }
+
+    private ScheduledFuture<?> scheduleExpiration() {
+        return expirationScheduler.scheduleWithFixedDelay(this::cleanUp, EXPIRATION_INTERVAL_SECONDS,
+                EXPIRATION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected void startExpiring() {
+        // the wheels are ready before the first entry expiring is prepared
+        store.startExpiring(getTicker());
+        eternal = false;
+        expirationTask = scheduleExpiration();
+    }
+
+    @Override
+    public long getMaximumSize() {
+        return store.getMaximumSize();
+    }
+
+    @Override
+    public synchronized void setMaximumSize(long maximumSize) {
+        if (maximumSize < 0 && maximumSize != CacheConfiguration.UNBOUNDED) {
+            throw new IllegalArgumentException("The maximum size must not be negative!");
+        }
+        store.reconfigure(maximumSize, store.getPolicyProvider());
+        if (getConfiguration() instanceof CacheConfiguration) {
+            ((CacheConfiguration<K, V>) getConfiguration()).setMaximumSize(maximumSize);
+        }
     }
 
-    HashMap<String, Entry<K, V>> hashMap = new HashMap<>();
+    @Override
+    public String getEvictionPolicy() {
+        return store.getPolicyProvider().getName();
+    }
 
     @Override
-    protected void putEntry(Entry<K, V> entry) throws CacheException, ClassCastException {
-        hashMap.put((String) entry.getKey(), entry);
-        System.out.println("to " + cacheManager.getCacheNames() + " add key= " + entry.getKey() + " value = " + entry.getValue());
+    public synchronized void setEvictionPolicy(String evictionPolicy) {
+        store.reconfigure(store.getMaximumSize(),
+                EvictionPolicies.getProvider(evictionPolicy, getCacheManager().getClassLoader()));
+        if (getConfiguration() instanceof CacheConfiguration) {
+            ((CacheConfiguration<K, V>) getConfiguration()).setEvictionPolicy(evictionPolicy);
+        }
+    }
+
+    private long resolveMaximumSize() {
+        long maximumSize = CacheConfiguration.UNBOUNDED;
+        if (getConfiguration() instanceof CacheConfiguration) {
+            maximumSize = ((CacheConfiguration<K, V>) getConfiguration()).getMaximumSize();
+        }
+        if (maximumSize == CacheConfiguration.UNBOUNDED) {
+            String value = getCacheProperty(MAXIMUM_SIZE_PROPERTY_NAME);
+            maximumSize = value == null ? CacheConfiguration.UNBOUNDED : Long.parseLong(value.trim());
+        }
+        return maximumSize;
+    }
+
+    private long resolveMaximumWeight() {
+        long maximumWeight = CacheConfiguration.UNBOUNDED;
+        if (getConfiguration() instanceof CacheConfiguration) {
+            maximumWeight = ((CacheConfiguration<K, V>) getConfiguration()).getMaximumWeight();
+        }
+        if (maximumWeight == CacheConfiguration.UNBOUNDED) {
+            String value = getCacheProperty(MAXIMUM_WEIGHT_PROPERTY_NAME);
+            maximumWeight = value == null ? CacheConfiguration.UNBOUNDED : Weighers.parseBytes(value);
+        }
+        return maximumWeight;
+    }
+
+    private Weigher<K, V> resolveWeigher() {
+        Weigher<K, V> weigher = null;
+        if (getConfiguration() instanceof CacheConfiguration) {
+            weigher = ((CacheConfiguration<K, V>) getConfiguration()).getWeigher();
+        }
+        if (weigher == null) {
+            String className = getCacheProperty(WEIGHER_PROPERTY_NAME);
+            weigher = className == null ? Weighers.estimating() :
+                    Weighers.newWeigher(className, getCacheManager().getClassLoader());
+        }
+        return weigher;
+    }
+
+    private String resolveEvictionPolicy() {
+        String evictionPolicy = null;
+        if (getConfiguration() instanceof CacheConfiguration) {
+            evictionPolicy = ((CacheConfiguration<K, V>) getConfiguration()).getEvictionPolicy();
+        }
+        return evictionPolicy == null ? getCacheProperty(EVICTION_POLICY_PROPERTY_NAME) : evictionPolicy;
+    }
+
+    private static int resolveConcurrencyLevel(CacheManager cacheManager) {
+        String value = cacheManager.getProperties() == null ? null :
+                cacheManager.getProperties().getProperty(CONCURRENCY_LEVEL_PROPERTY_NAME);
+        return value == null ? SegmentedStore.defaultConcurrencyLevel() : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        if (!prepare(entry, eternal ? 0L : getTicker().read())) {
+            // a zero duration : the entry is not stored, and a former value must not survive the write
+            removeEntry(entry.getKey());
+            return;
+        }
+        store.put(entry);
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("add key = " + entry.getKey() + " to cache[" + getName() + "]");
+        }
+    }
+
+    @Override
+    protected void putEntries(Collection<ExpirableEntry<K, V>> entries) throws CacheException, ClassCastException {
+        long now = eternal ? 0L : getTicker().read();
+        List<ExpirableEntry<K, V>> stored = new ArrayList<>(entries.size());
+        List<K> dropped = null;
+        for (ExpirableEntry<K, V> entry : entries) {
+            if (prepare(entry, now)) {
+                stored.add(entry);
+            } else {
+                if (dropped == null) {
+                    dropped = new ArrayList<>();
+                }
+                dropped.add(entry.getKey());
+            }
+        }
+        if (dropped != null) {
+            store.removeAll(dropped);
+        }
+        store.putAll(stored);
+    }
+
+    /**
+     * Set the expiration time and the weight of the entry to be put.
+     *
+     * @return <code>false</code> if the entry expires at once and must not be stored
+     */
+    private boolean prepare(ExpirableEntry<K, V> entry, long now) throws ClassCastException {
+        K key = entry.getKey();
+        requireKeyType(key);
+        if (!eternal) {
+            ExpirableEntry<K, V> current = store.peek(key);
+            long expirationTime = current == null || current.isExpired(now) ?
+                    expirationTimeForCreation(now) : expirationTimeForUpdate(current, now);
+            if (expirationTime <= now) {
+                return false;
+            }
+            entry.setExpirationTime(expirationTime);
+        }
+        if (weigher != null) {
+            entry.setWeight(weigher.weigh(entry.getKey(), entry.getValue()));
+        }
+        return true;
+    }
+
+    @Override
+    protected void restoreEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        requireKeyType(entry.getKey());
+        if (!eternal && entry.isExpired(getTicker().read())) {
+            return;
+        }
+        if (weigher != null) {
+            entry.setWeight(weigher.weigh(entry.getKey(), entry.getValue()));
+        }
+        store.put(entry);
     }
 
     @Override
     protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
-        return (ExpirableEntry<K, V>) hashMap.get(key);
+        ExpirableEntry<K, V> entry = store.get(key);
+        if (entry == null || eternal) {
+            return entry;
+        }
+        return access(entry, getTicker().read()) ? entry : null;
+    }
+
+    @Override
+    protected Collection<ExpirableEntry<K, V>> getEntries(Set<? extends K> keys) throws CacheException,
+            ClassCastException {
+        List<ExpirableEntry<K, V>> entries = store.getAll(keys);
+        if (!eternal && !entries.isEmpty()) {
+            long now = getTicker().read();
+            entries.removeIf(entry -> !access(entry, now));
+        }
+        return entries;
+    }
+
+    /**
+     * Apply the expiry policy to the entry being read.
+     *
+     * @return <code>false</code> if the entry has expired
+     */
+    private boolean access(ExpirableEntry<K, V> entry, long now) {
+        if (entry.isExpired(now)) {
+            // hide the expired entry lazily, the timing wheel would reclaim it later anyway
+            store.expire(entry);
+            return false;
+        }
+        long expirationTime = expirationTimeForAccess(entry, now);
+        if (expirationTime != entry.getExpirationTime()) {
+            // the timing wheel reschedules the entry when it reaches the former bucket
+            entry.setExpirationTime(expirationTime);
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean isAtomic() {
+        return true;
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> peekEntry(K key) throws CacheException, ClassCastException {
+        ExpirableEntry<K, V> entry = store.peek(key);
+        return entry == null || eternal || !entry.isExpired(getTicker().read()) ? entry : null;
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> putEntryIfAbsent(ExpirableEntry<K, V> entry) throws CacheException,
+            ClassCastException {
+        K key = entry.getKey();
+        long now = eternal ? 0L : getTicker().read();
+        for (; ; ) {
+            ExpirableEntry<K, V> current = store.peek(key);
+            if (current != null && (eternal || !current.isExpired(now))) {
+                return current;
+            }
+            if (!prepare(entry, now)) {
+                // a zero duration : the entry is not stored, and the expired one is reclaimed
+                if (current != null) {
+                    store.expire(current);
+                }
+                return null;
+            }
+            // an expired entry counts as absent, it's replaced by a CAS of its reference
+            if (current == null ? store.putIfAbsent(entry) == null : store.replace(current, entry)) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    protected boolean compareAndReplaceEntry(ExpirableEntry<K, V> expected, ExpirableEntry<K, V> replacement)
+            throws CacheException, ClassCastException {
+        long now = eternal ? 0L : getTicker().read();
+        if (!eternal && expected.isExpired(now)) {
+            return false;
+        }
+        if (!prepare(replacement, now)) {
+            // a zero duration : the replaced entry is removed
+            return store.remove(expected);
+        }
+        return store.replace(expected, replacement);
+    }
+
+    @Override
+    protected boolean compareAndRemoveEntry(ExpirableEntry<K, V> expected) throws CacheException,
+            ClassCastException {
+        return store.remove(expected) && (eternal || !expected.isExpired(getTicker().read()));
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> getAndPutEntry(ExpirableEntry<K, V> entry) throws CacheException,
+            ClassCastException {
+        long now = eternal ? 0L : getTicker().read();
+        ExpirableEntry<K, V> previous = prepare(entry, now) ? store.put(entry) : store.remove(entry.getKey());
+        return previous == null || eternal || !previous.isExpired(now) ? previous : null;
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> getAndRemoveEntry(K key) throws CacheException, ClassCastException {
+        ExpirableEntry<K, V> removed = store.remove(key);
+        return removed == null || eternal || !removed.isExpired(getTicker().read()) ? removed : null;
     }
 
     @Override
     protected boolean removeEntry(K key) {
-        Entry<K, V> removed = hashMap.remove(key);
+        ExpirableEntry<K, V> removed = store.remove(key);
+        if (removed != null && logger.isLoggable(Level.FINEST)) {
+            logger.finest("remove key = " + key + " from cache[" + getName() + "]");
+        }
+        return removed != null && (eternal || !removed.isExpired(getTicker().read()));
+    }
+
+    @Override
+    protected Set<K> getKeys() {
+        return store.keys();
+    }
+
+    @Override
+    protected int removeEntries(Set<? extends K> keys) {
+        List<ExpirableEntry<K, V>> removed = store.removeAll(keys);
+        if (!removed.isEmpty() && logger.isLoggable(Level.FINEST)) {
+            logger.finest("remove " + removed.size() + " keys from cache[" + getName() + "]");
+        }
+        return removed.size();
+    }
+
+    @Override
+    protected void clearEntries() {
+        store.clear();
+    }
+
+    /**
+     * Drain the pending bookkeeping and reclaim the expired entries now, which the background task does every
+     * {@value #EXPIRATION_INTERVAL_SECONDS} second.
+     */
+    public void cleanUp() {
+        store.cleanUp();
+    }
+
+    @Override
+    protected void doClose() {
+        ScheduledFuture<?> expirationTask = this.expirationTask;
+        if (expirationTask != null) {
+            expirationTask.cancel(false);
+        }
+    }
+
+    /**
+     * Subclass may override this method to be notified of the entries reclaimed after their expiration
+     *
+     * @param entry the expired entry
+     */
+    protected void onExpired(ExpirableEntry<K, V> entry) {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("expire key = " + entry.getKey() + " from cache[" + getName() + "]");
+        }
+    }
+
+    /**
+     * Subclass may override this method to hand the entries over while they are evicted by the size bound, it's
+     * called atomically with the other writes of the key while the segment lock is held, so it must not write to
+     * this cache.
+     *
+     * @param entry the entry being evicted
+     */
+    protected void onEvicting(ExpirableEntry<K, V> entry) {
+    }
+
+    /**
+     * Subclass may override this method to be notified of the entries evicted by the size bound
+     *
+     * @param entry the evicted entry
+     */
+    protected void onEvicted(ExpirableEntry<K, V> entry) {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("evict key = " + entry.getKey() + " from cache[" + getName() + "]");
+        }
+    }
+
+    private void requireKeyType(K key) throws ClassCastException {
+        if (keyType != null && keyType != Object.class) {
+            keyType.cast(key);
+        }
+    }
+
+    /**
+     * @return the number of entries currently held
+     */
+    public long size() {
+        return store.size();
+    }
 
-        System.out.println("from " + cacheManager.getCacheNames() + " remove key= " + removed.getKey() + " value = " + removed.getValue());
-        return removed != null;
+    /**
+     * @return the sum of the weights of entries in bytes, zero if the cache is not bounded by weight
+     */
+    public long weightedSize() {
+        return store.weightedSize();
     }
 }
@@ -0,0 +1,145 @@
+package com.mycache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The locks of the keys being processed atomically, e.g : by {@link AbstractCache#invoke}.
+ * <p>
+ * A lock is created on demand and dropped once its last holder or waiter releases it, so that the keys never share a
+ * lock and the memory held is bounded by the number of keys being processed.
+ *
+ * @param <K> the type of key
+ */
+final class KeyLocks<K> {
+
+    /**
+     * The lock of a key, counting the threads holding or waiting for it
+     */
+    static final class KeyLock extends ReentrantLock {
+
+        /**
+         * Guarded by the bin of the key in {@link #locks}
+         */
+        private int users;
+    }
+
+    private final ConcurrentHashMap<K, KeyLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Lock the key, blocking while another thread holds it.
+     *
+     * @return the lock to be given to {@link #unlock(Object, KeyLock)}
+     */
+    KeyLock lock(K key) {
+        KeyLock lock = locks.compute(key, (k, current) -> {
+            KeyLock keyLock = current == null ? new KeyLock() : current;
+            keyLock.users++;
+            return keyLock;
+        });
+        lock.lock();
+        return lock;
+    }
+
+    void unlock(K key, KeyLock lock) {
+        lock.unlock();
+        release(key);
+    }
+
+    /**
+     * Lock the key unless another thread holds it.
+     *
+     * @return the lock to be given to {@link #unlock(Object, KeyLock)}, or <code>null</code> if the key is held
+     */
+    KeyLock tryLock(K key) {
+        KeyLock lock = locks.compute(key, (k, current) -> {
+            KeyLock keyLock = current == null ? new KeyLock() : current;
+            keyLock.users++;
+            return keyLock;
+        });
+        if (lock.tryLock()) {
+            return lock;
+        }
+        release(key);
+        return null;
+    }
+
+    private void release(K key) {
+        locks.computeIfPresent(key, (k, current) -> --current.users == 0 ? null : current);
+    }
+
+    /**
+     * Lock the keys in the order of their hashes, so that the threads locking common keys don't deadlock. The keys of
+     * the same hash have no common order, so they are only tried : if one is held by another thread, the keys of its
+     * hash are released and locked again once it's free.
+     *
+     * @return the locks to be given to {@link #unlockAll(KeyLocks.Batch)}
+     */
+    @SuppressWarnings("unchecked")
+    Batch<K> lockAll(Collection<? extends K> keys) {
+        Object[] sorted = new LinkedHashSet<>(keys).toArray();
+        Arrays.sort(sorted, Comparator.comparingInt(Object::hashCode));
+        KeyLock[] held = new KeyLock[sorted.length];
+        int i = 0;
+        while (i < sorted.length) {
+            K key = (K) sorted[i];
+            int hash = key.hashCode();
+            if (i == 0 || sorted[i - 1].hashCode() != hash) {
+                held[i++] = lock(key);
+                continue;
+            }
+            KeyLock lock = tryLock(key);
+            if (lock != null) {
+                held[i++] = lock;
+                continue;
+            }
+            int first = i;
+            while (sorted[first - 1].hashCode() == hash) {
+                if (--first == 0) {
+                    break;
+                }
+            }
+            for (int j = i - 1; j >= first; j--) {
+                unlock((K) sorted[j], held[j]);
+                held[j] = null;
+            }
+            // wait for the key without holding any key of its hash
+            unlock(key, lock(key));
+            i = first;
+        }
+        return new Batch<>(sorted, held);
+    }
+
+    @SuppressWarnings("unchecked")
+    void unlockAll(Batch<K> batch) {
+        for (int i = batch.keys.length - 1; i >= 0; i--) {
+            unlock((K) batch.keys[i], batch.locks[i]);
+        }
+    }
+
+    /**
+     * The locks of the keys locked together
+     */
+    static final class Batch<K> {
+
+        private final Object[] keys;
+
+        private final KeyLock[] locks;
+
+        private Batch(Object[] keys, KeyLock[] locks) {
+            this.keys = keys;
+            this.locks = locks;
+        }
+    }
+
+    /**
+     * @return the number of keys locked or waited for
+     */
+    int size() {
+        return locks.size();
+    }
+}
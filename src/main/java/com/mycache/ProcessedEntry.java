@@ -0,0 +1,116 @@
+package com.mycache;
+
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.MutableEntry;
+
+import static java.lang.String.format;
+
+/**
+ * The {@link MutableEntry} given to an {@link EntryProcessor}, recording the final mutation only, which is applied
+ * to the cache once the processor returns.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class ProcessedEntry<K, V> implements MutableEntry<K, V> {
+
+    /**
+     * The mutation to be applied
+     */
+    enum Mutation {
+        NONE,
+        /**
+         * The value is loaded by the read-through {@link javax.cache.integration.CacheLoader}, it's stored without
+         * being written through
+         */
+        LOAD,
+        UPDATE,
+        REMOVE
+    }
+
+    private final AbstractCache<K, V> cache;
+
+    private final K key;
+
+    private final boolean existed;
+
+    /**
+     * The current value, the stored one until it's read or changed
+     */
+    private V value;
+
+    private boolean copied;
+
+    private Mutation mutation = Mutation.NONE;
+
+    /**
+     * @param value the value stored, or <code>null</code> if the key is absent
+     */
+    ProcessedEntry(AbstractCache<K, V> cache, K key, V value) {
+        this.cache = cache;
+        this.key = key;
+        this.value = value;
+        this.existed = value != null;
+    }
+
+    @Override
+    public K getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean exists() {
+        return value != null;
+    }
+
+    @Override
+    public V getValue() {
+        if (value == null && mutation == Mutation.NONE) {
+            value = cache.loadIfReadThrough(key);
+            if (value != null) {
+                mutation = Mutation.LOAD;
+                copied = true;
+            }
+        } else if (!copied) {
+            // the processor may modify the value it reads, the stored one must stay untouched
+            value = cache.copyValue(value);
+            copied = true;
+        }
+        return value;
+    }
+
+    @Override
+    public void setValue(V value) {
+        ExpirableEntry.requireValueNotNull(value);
+        this.value = value;
+        this.copied = true;
+        this.mutation = Mutation.UPDATE;
+    }
+
+    @Override
+    public void remove() {
+        this.value = null;
+        this.copied = true;
+        this.mutation = existed ? Mutation.REMOVE : Mutation.NONE;
+    }
+
+    Mutation getMutation() {
+        return mutation;
+    }
+
+    /**
+     * @return the value to be stored by {@link Mutation#LOAD} or {@link Mutation#UPDATE}
+     */
+    V getNewValue() {
+        return value;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isInstance(this)) {
+            return clazz.cast(this);
+        }
+        throw new IllegalArgumentException(format("The entry of key = %s can't be unwrapped to %s", key,
+                clazz.getName()));
+    }
+}
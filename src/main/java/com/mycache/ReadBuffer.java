@@ -0,0 +1,63 @@
+package com.mycache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded and lossy ring buffer of the keys read from a segment, so that the reads record their accesses without
+ * acquiring the segment lock. The accesses are replayed on the eviction policy in batches by the lock holder, and
+ * are dropped while the buffer is full : losing a few access records only makes the policy slightly less accurate.
+ *
+ * @param <K> the type of key
+ */
+final class ReadBuffer<K> {
+
+    static final int SIZE = 64;
+
+    static final int MASK = SIZE - 1;
+
+    /**
+     * The number of pending records for which a reader tries to drain the buffer
+     */
+    static final int DRAIN_THRESHOLD = SIZE / 2;
+
+    private final AtomicReferenceArray<K> buffer = new AtomicReferenceArray<>(SIZE);
+
+    private final AtomicLong writeCounter = new AtomicLong();
+
+    private volatile long readCounter;
+
+    /**
+     * @param key the read key
+     * @return <code>true</code> if the buffer should be drained
+     */
+    boolean offer(K key) {
+        long writes = writeCounter.get();
+        long pending = writes - readCounter;
+        if (pending < SIZE && writeCounter.compareAndSet(writes, writes + 1)) {
+            buffer.lazySet((int) (writes & MASK), key);
+            pending++;
+        }
+        return pending >= DRAIN_THRESHOLD;
+    }
+
+    /**
+     * Must be invoked while the segment lock is held.
+     */
+    void drainTo(Consumer<K> consumer) {
+        long reads = readCounter;
+        long writes = writeCounter.get();
+        for (; reads < writes; reads++) {
+            int index = (int) (reads & MASK);
+            K key = buffer.get(index);
+            if (key == null) {
+                // the writer has claimed the slot, but not published the key yet
+                break;
+            }
+            buffer.lazySet(index, null);
+            consumer.accept(key);
+        }
+        readCounter = reads;
+    }
+}
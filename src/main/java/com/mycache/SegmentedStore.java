@@ -0,0 +1,808 @@
+package com.mycache;
+
+import com.mycache.eviction.EvictionPolicy;
+import com.mycache.eviction.EvictionPolicyProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * The lock-striped storage of {@link InMemoryCache}.
+ * <p>
+ * The key space is split by hash into a power-of-two number of {@link Segment segments}, each one backed by its
+ * own {@link ConcurrentHashMap}. Reads never block, and writes on different segments never contend with each other,
+ * so the throughput scales with the number of cores instead of being bounded by a single global lock.
+ * <p>
+ * When the store is bounded, every segment owns a share of the maximum size or weight and an {@link EvictionPolicy}
+ * guarded by the segment lock. The writers take the lock to reconcile the policy and evict the victims, while the
+ * readers only append the key to the {@link ReadBuffer} of the segment and drain it if the lock happens to be free.
+ * The weights of entries are summed up incrementally per segment as the writes replace or remove them.
+ * <p>
+ * When the entries may expire, every segment also owns a {@link TimingWheel} guarded by the segment lock, which is
+ * advanced by the writers and by {@link #cleanUp()}.
+ * <p>
+ * The bulk operations group the keys by segment, so that every segment is visited and locked once per batch, and the
+ * groups of the large batches are processed in parallel by the {@link ForkJoinPool#commonPool()}.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class SegmentedStore<K, V> {
+
+    static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+    /**
+     * The minimum share of the maximum size per segment, fewer segments are used for small bounded stores
+     */
+    static final int MINIMUM_SEGMENT_CAPACITY = 32;
+
+    /**
+     * The minimum share of the maximum weight per segment
+     */
+    static final long MINIMUM_SEGMENT_WEIGHT = 64 * 1024;
+
+    /**
+     * The weight of the smallest entries, which sizes the policies of the stores bounded by weight only
+     */
+    static final long MINIMUM_ENTRY_WEIGHT = 64;
+
+    static final int MAXIMUM_POLICY_CAPACITY = 1 << 20;
+
+    /**
+     * The minimum number of keys of a batch processed in parallel
+     */
+    static final int PARALLEL_BATCH_SIZE = 1024;
+
+    private final Segment<K, V>[] segments;
+
+    private final int segmentShift;
+
+    private final int segmentMask;
+
+    /**
+     * <code>null</code> if the entries never expire, see {@link #startExpiring(Ticker)}
+     */
+    private volatile Ticker ticker;
+
+    private final RemovalListener<K, V> removalListener;
+
+    private final long maximumWeight;
+
+    /**
+     * Guarded by the monitor of the store, as the other settings changed by {@link #reconfigure}
+     */
+    private volatile long maximumSize;
+
+    private volatile EvictionPolicyProvider policyProvider;
+
+    SegmentedStore(int concurrencyLevel) {
+        this(concurrencyLevel, CacheConfiguration.UNBOUNDED, CacheConfiguration.UNBOUNDED, null, null, null);
+    }
+
+    /**
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param maximumSize      the maximum number of entries, or {@link CacheConfiguration#UNBOUNDED}
+     * @param maximumWeight    the maximum sum of weights, or {@link CacheConfiguration#UNBOUNDED}
+     * @param policyProvider   the provider of {@link EvictionPolicy}, required if the store is bounded
+     * @param ticker           the time source of expiration, <code>null</code> if the entries never expire
+     * @param removalListener  the listener of the evicted and expired entries, may be <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    SegmentedStore(int concurrencyLevel, long maximumSize, long maximumWeight, EvictionPolicyProvider policyProvider,
+                   Ticker ticker, RemovalListener<K, V> removalListener) {
+        boolean sizeBounded = maximumSize != CacheConfiguration.UNBOUNDED;
+        boolean weightBounded = maximumWeight != CacheConfiguration.UNBOUNDED;
+        long level = concurrencyLevel;
+        if (sizeBounded) {
+            level = Math.min(level, maximumSize / MINIMUM_SEGMENT_CAPACITY);
+        }
+        if (weightBounded) {
+            level = Math.min(level, maximumWeight / MINIMUM_SEGMENT_WEIGHT);
+        }
+        int shift = 0;
+        int size = 1;
+        while (size < level && size < MAXIMUM_SEGMENTS) {
+            size <<= 1;
+            shift++;
+        }
+        this.segmentShift = 32 - shift;
+        this.segmentMask = size - 1;
+        this.ticker = ticker;
+        this.removalListener = removalListener;
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.policyProvider = policyProvider;
+        this.segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            Segment<K, V> segment = new Segment<>(i);
+            segment.weightCapacity = weightBounded ? share(maximumWeight, size, i) : Long.MAX_VALUE;
+            segment.policy = newPolicy(segment);
+            if (ticker != null) {
+                segment.wheel = new TimingWheel<>(ticker.read());
+            }
+            segments[i] = segment;
+        }
+    }
+
+    private static long share(long maximum, int segments, int index) {
+        return maximum / segments + (index < maximum % segments ? 1 : 0);
+    }
+
+    /**
+     * Set the size capacity of the segment, and create its policy if the store is bounded.
+     *
+     * @return <code>null</code> if the store is unbounded
+     */
+    private EvictionPolicy<K> newPolicy(Segment<K, V> segment) {
+        boolean sizeBounded = maximumSize != CacheConfiguration.UNBOUNDED;
+        // spread the remainders, so that the capacities sum up to the maximums exactly
+        segment.capacity = sizeBounded ?
+                (int) Math.min(share(maximumSize, segments.length, segment.index), Integer.MAX_VALUE) :
+                Integer.MAX_VALUE;
+        if (!sizeBounded && maximumWeight == CacheConfiguration.UNBOUNDED) {
+            return null;
+        }
+        int policyCapacity = sizeBounded ? segment.capacity :
+                (int) Math.min(segment.weightCapacity / MINIMUM_ENTRY_WEIGHT, MAXIMUM_POLICY_CAPACITY);
+        return policyProvider.newPolicy(policyCapacity, segment::accessTime);
+    }
+
+    /**
+     * Change the maximum size or the eviction policy, keeping the entries. The policy of every segment is rebuilt
+     * from its keys in the order of their last access, then the victims beyond the new capacity are evicted. The
+     * frequencies recorded by the former policies are lost, and the number of segments is kept, so the segments of a
+     * store shrunk below {@link #MINIMUM_SEGMENT_CAPACITY} per segment are bounded less evenly.
+     *
+     * @param maximumSize    the maximum number of entries, or {@link CacheConfiguration#UNBOUNDED}
+     * @param policyProvider the provider of {@link EvictionPolicy}
+     */
+    synchronized void reconfigure(long maximumSize, EvictionPolicyProvider policyProvider) {
+        this.maximumSize = maximumSize;
+        this.policyProvider = policyProvider;
+        for (Segment<K, V> segment : segments) {
+            Removals<K, V> removals = new Removals<>();
+            segment.lock.lock();
+            try {
+                // the reads buffered for the former policy are reflected by the access times
+                segment.readBuffer.drainTo(key -> {
+                });
+                EvictionPolicy<K> policy = newPolicy(segment);
+                if (policy != null) {
+                    List<ExpirableEntry<K, V>> entries = new ArrayList<>(segment.map.values());
+                    entries.sort(Comparator.comparingLong(ExpirableEntry::getAccessTime));
+                    for (ExpirableEntry<K, V> entry : entries) {
+                        policy.recordWrite(entry.getKey());
+                    }
+                }
+                segment.policy = policy;
+                segment.maintain(ticker, removalListener, removals);
+            } finally {
+                segment.lock.unlock();
+            }
+            removals.notify(removalListener);
+        }
+    }
+
+    /**
+     * Create the timing wheels of the store created eternal, so that the entries written from now on may expire.
+     * The entries present never expire.
+     */
+    synchronized void startExpiring(Ticker ticker) {
+        if (this.ticker != null) {
+            return;
+        }
+        // the ticker is set first, a segment with a wheel advances it
+        this.ticker = ticker;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.wheel = new TimingWheel<>(ticker.read());
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    long getMaximumSize() {
+        return maximumSize;
+    }
+
+    EvictionPolicyProvider getPolicyProvider() {
+        return policyProvider;
+    }
+
+    /**
+     * The default concurrency level : four segments per available processor
+     */
+    static int defaultConcurrencyLevel() {
+        return Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    /**
+     * Select the segment by the high bits of the mixed hash, {@link ConcurrentHashMap} consumes the low bits.
+     */
+    Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return segments[(h >>> segmentShift) & segmentMask];
+    }
+
+    Segment<K, V>[] segments() {
+        return segments;
+    }
+
+    /**
+     * Get the entry and record the access, the entry may have expired.
+     */
+    ExpirableEntry<K, V> get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        ExpirableEntry<K, V> entry = segment.map.get(key);
+        if (entry != null && segment.policy != null) {
+            entry.setAccessTime(System.nanoTime());
+            afterRead(segment, key);
+        }
+        return entry;
+    }
+
+    /**
+     * Get the entry without any side effect, the entry may have expired.
+     */
+    ExpirableEntry<K, V> peek(K key) {
+        return segmentFor(key).map.get(key);
+    }
+
+    ExpirableEntry<K, V> put(ExpirableEntry<K, V> entry) {
+        K key = entry.getKey();
+        Segment<K, V> segment = segmentFor(key);
+        if (segment.policy != null) {
+            entry.setAccessTime(System.nanoTime());
+        }
+        ExpirableEntry<K, V> previous = segment.map.put(key, entry);
+        segment.addWeight(entry.getWeight() - (previous == null ? 0 : previous.getWeight()));
+        if (segment.isMaintained()) {
+            afterWrite(segment, key, entry, previous);
+        }
+        return previous;
+    }
+
+    /**
+     * Put the entry unless the key is present.
+     *
+     * @return the present entry, which may have expired, or <code>null</code> if the entry is put
+     */
+    ExpirableEntry<K, V> putIfAbsent(ExpirableEntry<K, V> entry) {
+        K key = entry.getKey();
+        Segment<K, V> segment = segmentFor(key);
+        if (segment.policy != null) {
+            entry.setAccessTime(System.nanoTime());
+        }
+        ExpirableEntry<K, V> present = segment.map.putIfAbsent(key, entry);
+        if (present == null) {
+            segment.addWeight(entry.getWeight());
+            if (segment.isMaintained()) {
+                afterWrite(segment, key, entry, null);
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Replace the entry by a CAS of its reference.
+     *
+     * @return <code>false</code> if the key is mapped to another entry or to none
+     */
+    boolean replace(ExpirableEntry<K, V> expected, ExpirableEntry<K, V> replacement) {
+        K key = expected.getKey();
+        Segment<K, V> segment = segmentFor(key);
+        if (segment.policy != null) {
+            replacement.setAccessTime(System.nanoTime());
+        }
+        if (!segment.map.replace(key, expected, replacement)) {
+            return false;
+        }
+        segment.addWeight(replacement.getWeight() - expected.getWeight());
+        if (segment.isMaintained()) {
+            afterWrite(segment, key, replacement, expected);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the entry by a CAS of its reference.
+     *
+     * @return <code>false</code> if the key is mapped to another entry or to none
+     */
+    boolean remove(ExpirableEntry<K, V> expected) {
+        K key = expected.getKey();
+        Segment<K, V> segment = segmentFor(key);
+        if (!segment.map.remove(key, expected)) {
+            return false;
+        }
+        segment.addWeight(-expected.getWeight());
+        if (segment.isMaintained()) {
+            afterWrite(segment, key, null, expected);
+        }
+        return true;
+    }
+
+    ExpirableEntry<K, V> remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        ExpirableEntry<K, V> removed = segment.map.remove(key);
+        if (removed != null) {
+            segment.addWeight(-removed.getWeight());
+            if (segment.isMaintained()) {
+                afterWrite(segment, key, null, removed);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Get the entries of the keys and record the accesses, the entries may have expired.
+     *
+     * @return the entries found
+     */
+    List<ExpirableEntry<K, V>> getAll(Collection<? extends K> keys) {
+        List<K>[] groups = groupBySegment(keys, Function.<K>identity());
+        List<ExpirableEntry<K, V>>[] found = newGroups();
+        forEachGroup(groups, keys.size(), (segment, group) -> {
+            List<ExpirableEntry<K, V>> entries = new ArrayList<>(group.size());
+            boolean recorded = false;
+            long now = segment.policy == null ? 0L : System.nanoTime();
+            for (K key : group) {
+                ExpirableEntry<K, V> entry = segment.map.get(key);
+                if (entry != null) {
+                    entries.add(entry);
+                    if (segment.policy != null) {
+                        entry.setAccessTime(now);
+                        recorded |= segment.readBuffer.offer(key);
+                    }
+                }
+            }
+            // drain the buffered reads once for the group
+            if (recorded && segment.lock.tryLock()) {
+                try {
+                    segment.drainReads();
+                } finally {
+                    segment.lock.unlock();
+                }
+            }
+            found[segment.index] = entries;
+        });
+        return flatten(found, keys.size());
+    }
+
+    /**
+     * Put the entries, the policy and the wheel of every segment are reconciled under one lock per batch.
+     */
+    void putAll(Collection<ExpirableEntry<K, V>> entries) {
+        List<ExpirableEntry<K, V>>[] groups = groupBySegment(entries, ExpirableEntry::getKey);
+        forEachGroup(groups, entries.size(), (segment, group) -> {
+            List<ExpirableEntry<K, V>> previous = segment.isMaintained() ? new ArrayList<>(group.size()) : null;
+            long now = segment.policy == null ? 0L : System.nanoTime();
+            long weight = 0L;
+            for (ExpirableEntry<K, V> entry : group) {
+                if (segment.policy != null) {
+                    entry.setAccessTime(now);
+                }
+                ExpirableEntry<K, V> replaced = segment.map.put(entry.getKey(), entry);
+                weight += entry.getWeight() - (replaced == null ? 0 : replaced.getWeight());
+                if (previous != null) {
+                    previous.add(replaced);
+                }
+            }
+            segment.addWeight(weight);
+            if (previous != null) {
+                afterWrites(segment, group, previous);
+            }
+        });
+    }
+
+    /**
+     * Remove the entries of the keys, the policy and the wheel of every segment are reconciled under one lock per
+     * batch.
+     *
+     * @return the entries removed
+     */
+    List<ExpirableEntry<K, V>> removeAll(Collection<? extends K> keys) {
+        List<K>[] groups = groupBySegment(keys, Function.<K>identity());
+        List<ExpirableEntry<K, V>>[] removedGroups = newGroups();
+        forEachGroup(groups, keys.size(), (segment, group) -> {
+            List<ExpirableEntry<K, V>> removed = new ArrayList<>(group.size());
+            long weight = 0L;
+            for (K key : group) {
+                ExpirableEntry<K, V> entry = segment.map.remove(key);
+                if (entry != null) {
+                    weight += entry.getWeight();
+                    removed.add(entry);
+                }
+            }
+            segment.addWeight(-weight);
+            if (segment.isMaintained() && !removed.isEmpty()) {
+                afterWrites(segment, null, removed);
+            }
+            removedGroups[segment.index] = removed;
+        });
+        return flatten(removedGroups, keys.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T>[] newGroups() {
+        return new List[segments.length];
+    }
+
+    private <T> List<T>[] groupBySegment(Collection<? extends T> items, Function<T, ?> keyOf) {
+        List<T>[] groups = newGroups();
+        int expectedSize = Math.max(4, items.size() / segments.length * 2);
+        for (T item : items) {
+            int index = segmentFor(keyOf.apply(item)).index;
+            List<T> group = groups[index];
+            if (group == null) {
+                group = groups[index] = new ArrayList<>(expectedSize);
+            }
+            group.add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Process the groups of a batch by segment, in parallel if the batch is large and more than one core is available.
+     */
+    private <T> void forEachGroup(List<T>[] groups, int batchSize, BiConsumer<Segment<K, V>, List<T>> action) {
+        if (batchSize >= PARALLEL_BATCH_SIZE && segments.length > 1 && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            IntStream.range(0, groups.length).parallel().filter(i -> groups[i] != null)
+                    .forEach(i -> action.accept(segments[i], groups[i]));
+        } else {
+            for (int i = 0; i < groups.length; i++) {
+                if (groups[i] != null) {
+                    action.accept(segments[i], groups[i]);
+                }
+            }
+        }
+    }
+
+    private static <T> List<T> flatten(List<T>[] groups, int expectedSize) {
+        List<T> all = new ArrayList<>(expectedSize);
+        for (List<T> group : groups) {
+            if (group != null) {
+                all.addAll(group);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Remove the entry found expired by a reader, unless it has been replaced in the meantime.
+     *
+     * @param entry the expired entry
+     * @return <code>true</code> if the entry was removed by this call
+     */
+    boolean expire(ExpirableEntry<K, V> entry) {
+        if (!remove(entry)) {
+            return false;
+        }
+        if (removalListener != null) {
+            removalListener.onExpired(entry);
+        }
+        return true;
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return a snapshot of the keys, including those of the expired entries not reclaimed yet
+     */
+    Set<K> keys() {
+        Set<K> keys = new HashSet<>();
+        for (Segment<K, V> segment : segments) {
+            keys.addAll(segment.map.keySet());
+        }
+        return keys;
+    }
+
+    /**
+     * @return the sum of the weights of entries, maintained incrementally by the writes
+     */
+    long weightedSize() {
+        long weightedSize = 0;
+        for (Segment<K, V> segment : segments) {
+            weightedSize += segment.weight.get();
+        }
+        return weightedSize;
+    }
+
+    void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.map.clear();
+                segment.weight.set(0);
+                if (segment.policy != null) {
+                    segment.policy.clear();
+                }
+                if (segment.wheel != null) {
+                    segment.wheel.clear();
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drain the pending reads and reclaim the expired entries of all segments.
+     */
+    void cleanUp() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.isMaintained()) {
+                Removals<K, V> removals = new Removals<>();
+                segment.lock.lock();
+                try {
+                    segment.maintain(ticker, removalListener, removals);
+                } finally {
+                    segment.lock.unlock();
+                }
+                removals.notify(removalListener);
+            }
+        }
+    }
+
+    private void afterRead(Segment<K, V> segment, K key) {
+        if (segment.readBuffer.offer(key) && segment.lock.tryLock()) {
+            try {
+                segment.drainReads();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(Segment<K, V> segment, K key, ExpirableEntry<K, V> written, ExpirableEntry<K, V> removed) {
+        Removals<K, V> removals = new Removals<>();
+        segment.lock.lock();
+        try {
+            if (segment.policy != null) {
+                segment.drainReads();
+            }
+            segment.reconcile(key, written, removed);
+            segment.maintain(ticker, removalListener, removals);
+        } finally {
+            segment.lock.unlock();
+        }
+        removals.notify(removalListener);
+    }
+
+    /**
+     * @param written the entries written to the segment, or <code>null</code> if the entries were removed
+     * @param removed the entries replaced or removed, in the order of <code>written</code>, an element may be
+     *                <code>null</code>
+     */
+    private void afterWrites(Segment<K, V> segment, List<ExpirableEntry<K, V>> written,
+                             List<ExpirableEntry<K, V>> removed) {
+        Removals<K, V> removals = new Removals<>();
+        segment.lock.lock();
+        try {
+            if (segment.policy != null) {
+                segment.drainReads();
+            }
+            for (int i = 0; i < removed.size(); i++) {
+                ExpirableEntry<K, V> entry = written == null ? null : written.get(i);
+                ExpirableEntry<K, V> former = removed.get(i);
+                segment.reconcile(entry == null ? former.getKey() : entry.getKey(), entry, former);
+            }
+            segment.maintain(ticker, removalListener, removals);
+        } finally {
+            segment.lock.unlock();
+        }
+        removals.notify(removalListener);
+    }
+
+    /**
+     * The listener of the entries removed by the store itself, notified without holding the segment lock
+     */
+    interface RemovalListener<K, V> {
+
+        /**
+         * Hand the victim over while it is being evicted, atomically with the other writes of its key, so that a
+         * writer of the key can't interleave between the eviction and the hand-over. It's called while the segment
+         * lock is held, and must not write to the store.
+         *
+         * @param entry the entry being evicted
+         */
+        default void onEvicting(ExpirableEntry<K, V> entry) {
+        }
+
+        void onEvicted(ExpirableEntry<K, V> entry);
+
+        void onExpired(ExpirableEntry<K, V> entry);
+    }
+
+    /**
+     * The entries removed while the segment lock is held, to be notified after it is released
+     */
+    static final class Removals<K, V> {
+
+        List<ExpirableEntry<K, V>> evicted;
+
+        List<ExpirableEntry<K, V>> expired;
+
+        void evicted(ExpirableEntry<K, V> entry) {
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(entry);
+        }
+
+        void expired(ExpirableEntry<K, V> entry) {
+            if (expired == null) {
+                expired = new ArrayList<>();
+            }
+            expired.add(entry);
+        }
+
+        void notify(RemovalListener<K, V> listener) {
+            if (listener == null) {
+                return;
+            }
+            if (expired != null) {
+                expired.forEach(listener::onExpired);
+            }
+            if (evicted != null) {
+                evicted.forEach(listener::onEvicted);
+            }
+        }
+    }
+
+    /**
+     * A stripe of the {@link SegmentedStore}
+     */
+    static final class Segment<K, V> {
+
+        final int index;
+
+        final ConcurrentMap<K, ExpirableEntry<K, V>> map = new ConcurrentHashMap<>();
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        final ReadBuffer<K> readBuffer = new ReadBuffer<>();
+
+        /**
+         * Guarded by {@link #lock}, <code>null</code> if the store is unbounded. It's volatile since the readers
+         * check it without the lock, and {@link SegmentedStore#reconfigure} may replace it
+         */
+        volatile EvictionPolicy<K> policy;
+
+        /**
+         * Guarded by {@link #lock}, <code>null</code> if the entries never expire. It's volatile since the writers
+         * check {@link #isMaintained()} without the lock
+         */
+        volatile TimingWheel<K, V> wheel;
+
+        int capacity;
+
+        long weightCapacity;
+
+        /**
+         * The sum of the weights of entries, only updated for the weighted entries
+         */
+        final AtomicLong weight = new AtomicLong();
+
+        Segment(int index) {
+            this.index = index;
+        }
+
+        boolean isMaintained() {
+            return policy != null || wheel != null;
+        }
+
+        long accessTime(K key) {
+            ExpirableEntry<K, V> entry = map.get(key);
+            return entry == null ? Long.MIN_VALUE : entry.getAccessTime();
+        }
+
+        void addWeight(long delta) {
+            if (delta != 0) {
+                weight.addAndGet(delta);
+            }
+        }
+
+        void drainReads() {
+            EvictionPolicy<K> policy = this.policy;
+            // the policy may have been dropped since the reader checked it
+            if (policy != null) {
+                readBuffer.drainTo(policy::recordAccess);
+            }
+        }
+
+        /**
+         * Reconcile the policy and the wheel with a write of the key, while the lock is held. The policy follows the
+         * current state of the map rather than the order of the operations, so that the writers racing for the lock
+         * can't leave it out of sync.
+         */
+        void reconcile(K key, ExpirableEntry<K, V> written, ExpirableEntry<K, V> removed) {
+            if (policy != null) {
+                if (map.containsKey(key)) {
+                    policy.recordWrite(key);
+                } else {
+                    policy.recordRemoval(key);
+                }
+            }
+            if (wheel != null) {
+                if (removed != null) {
+                    wheel.deschedule(removed);
+                }
+                // the entry may have been replaced by another writer holding the lock before
+                if (written != null && map.get(key) == written) {
+                    wheel.schedule(written);
+                }
+            }
+        }
+
+        /**
+         * Reclaim the expired entries, then evict until the segment is within its capacities.
+         */
+        void maintain(Ticker ticker, RemovalListener<K, V> listener, Removals<K, V> removals) {
+            if (policy != null) {
+                drainReads();
+            }
+            if (wheel != null) {
+                wheel.advance(ticker.read(), entry -> {
+                    if (map.remove(entry.getKey(), entry)) {
+                        addWeight(-entry.getWeight());
+                        if (policy != null) {
+                            policy.recordRemoval(entry.getKey());
+                        }
+                        removals.expired(entry);
+                    }
+                });
+            }
+            if (policy != null) {
+                evict(listener, removals);
+            }
+        }
+
+        private void evict(RemovalListener<K, V> listener, Removals<K, V> removals) {
+            while (policy.size() > capacity || weight.get() > weightCapacity) {
+                K victim = policy.evict();
+                if (victim == null) {
+                    break;
+                }
+                ExpirableEntry<K, V> entry = listener == null ? map.remove(victim) : evict(victim, listener);
+                if (entry != null) {
+                    addWeight(-entry.getWeight());
+                    if (wheel != null) {
+                        wheel.deschedule(entry);
+                    }
+                    removals.evicted(entry);
+                }
+            }
+        }
+
+        private ExpirableEntry<K, V> evict(K victim, RemovalListener<K, V> listener) {
+            List<ExpirableEntry<K, V>> evicted = new ArrayList<>(1);
+            map.computeIfPresent(victim, (key, entry) -> {
+                listener.onEvicting(entry);
+                evicted.add(entry);
+                return null;
+            });
+            return evicted.isEmpty() ? null : evicted.get(0);
+        }
+    }
+}
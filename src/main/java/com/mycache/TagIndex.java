@@ -0,0 +1,114 @@
+package com.mycache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The inverted index from the tags of the entries of a cache to their keys.
+ * <p>
+ * Every key also maps to its tags, so that the removal, the eviction or the expiration of an entry releases its
+ * references in time proportional to its tags, and the keys of a tag are taken in time proportional to their number,
+ * whatever the size of the cache. A tag is dropped with its last key.
+ * <p>
+ * The index is lock-free for the readers, the sets of keys are updated under the lock of their tag by
+ * {@link ConcurrentHashMap#compute}, so that a key added to a tag is never lost by the concurrent removal of its last
+ * key.
+ *
+ * @param <K> the type of key
+ */
+final class TagIndex<K> {
+
+    private static final String[] NO_TAGS = new String[0];
+
+    private final ConcurrentMap<String, Set<K>> keysByTag = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<K, String[]> tagsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * @return <code>true</code> if no key is tagged, then the releases are skipped
+     */
+    boolean isEmpty() {
+        return tagsByKey.isEmpty();
+    }
+
+    /**
+     * Replace the tags of the key.
+     */
+    void tag(K key, Collection<String> tags) {
+        String[] tagArray = tags.isEmpty() ? NO_TAGS : tags.toArray(new String[0]);
+        String[] previous = tagArray.length == 0 ? tagsByKey.remove(key) : tagsByKey.put(key, tagArray);
+        if (previous != null) {
+            for (String tag : previous) {
+                if (!tags.contains(tag)) {
+                    removeKey(tag, key);
+                }
+            }
+        }
+        for (String tag : tagArray) {
+            keysByTag.compute(tag, (t, keys) -> {
+                if (keys == null) {
+                    keys = ConcurrentHashMap.newKeySet();
+                }
+                keys.add(key);
+                return keys;
+            });
+        }
+    }
+
+    /**
+     * @return the tags of the key, empty if none
+     */
+    Set<String> getTags(K key) {
+        String[] tags = tagsByKey.get(key);
+        if (tags == null) {
+            return Collections.emptySet();
+        }
+        Set<String> tagSet = new LinkedHashSet<>(tags.length * 2);
+        Collections.addAll(tagSet, tags);
+        return Collections.unmodifiableSet(tagSet);
+    }
+
+    /**
+     * Release the tags of the key, when its entry is removed, evicted or expired.
+     */
+    void release(K key) {
+        String[] tags = tagsByKey.remove(key);
+        if (tags != null) {
+            for (String tag : tags) {
+                removeKey(tag, key);
+            }
+        }
+    }
+
+    void releaseAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            release(key);
+        }
+    }
+
+    /**
+     * Take the keys of the tag out of the index, their entries are going to be invalidated.
+     *
+     * @return the keys of the tag, empty if none
+     */
+    Set<K> removeTag(String tag) {
+        Set<K> keys = keysByTag.remove(tag);
+        return keys == null ? Collections.emptySet() : keys;
+    }
+
+    void clear() {
+        tagsByKey.clear();
+        keysByTag.clear();
+    }
+
+    private void removeKey(String tag, K key) {
+        keysByTag.computeIfPresent(tag, (t, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
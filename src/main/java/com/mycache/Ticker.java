@@ -0,0 +1,20 @@
+package com.mycache;
+
+/**
+ * The time source of expiration in nanoseconds, which can be replaced to control the time in tests.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    /**
+     * @return the number of nanoseconds elapsed since a fixed but arbitrary origin
+     */
+    long read();
+
+    /**
+     * @return the {@link Ticker} of {@link System#nanoTime()}
+     */
+    static Ticker systemTicker() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,371 @@
+package com.mycache;
+
+import com.mycache.file.MappedFileCache;
+import com.mycache.offheap.OffHeapCache;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.Configuration;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * The cache stacking tiers from the fastest to the largest behind one facade, configured by the
+ * {@value #TIERS_PROPERTY_NAME} cache property, e.g :
+ * <p>
+ * com.mycache.cache.users.tiers=in-memory,offheap,file
+ * <p>
+ * A key lives in one tier at a time. The writes go to the first tier, the entries evicted from a tier are demoted to
+ * the next one with their expiration time, and a hit on a lower tier promotes the entry back to the first one. The
+ * first tier is read without any lock nor copy, the misses are resolved under a lock striped by key, which also
+ * serializes the writes of a key against the promotions.
+ * <p>
+ * Every tier is a cache named <code>${cacheName}.${tier}</code>, so that it is sized by its own properties, e.g :
+ * <p>
+ * com.mycache.cache.users.in-memory.maximum-size=10000<br>
+ * com.mycache.cache.users.offheap.maximum-weight=1g
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class TieredCache<K, V> extends AbstractCache<K, V> {
+
+    /**
+     * The cache property name of the comma-separated tiers, from the first to the last
+     */
+    public static final String TIERS_PROPERTY_NAME = "tiers";
+
+    public static final String IN_MEMORY_TIER = "in-memory";
+
+    public static final String OFFHEAP_TIER = "offheap";
+
+    public static final String FILE_TIER = "file";
+
+    static final int LOCK_STRIPES = 64;
+
+    private static final Logger logger = Logger.getLogger(TieredCache.class.getName());
+
+    private final AbstractCache<K, V>[] tiers;
+
+    private final ReentrantLock[] locks;
+
+    @SuppressWarnings("unchecked")
+    protected TieredCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration,
+                          String[] tierNames) {
+        super(cacheManager, cacheName, configuration);
+        if (tierNames.length == 0) {
+            throw new IllegalArgumentException(format("No tier is configured for cache[%s]", cacheName));
+        }
+        this.tiers = new AbstractCache[tierNames.length];
+        CacheConfiguration<K, V> tierConfiguration = tierConfiguration(getConfiguration());
+        for (int i = 0; i < tierNames.length; i++) {
+            tiers[i] = newTier(tierNames[i].trim(), i, tierConfiguration);
+        }
+        this.locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return the tiers configured for the cache, or <code>null</code> if the cache is not tiered
+     */
+    static String[] resolveTierNames(Properties properties, String cacheName) {
+        if (properties == null) {
+            return null;
+        }
+        String value = properties.getProperty(CACHE_PROPERTY_PREFIX + cacheName + "." + TIERS_PROPERTY_NAME,
+                properties.getProperty(CACHE_PROPERTY_PREFIX + TIERS_PROPERTY_NAME));
+        return value == null || value.trim().isEmpty() ? null : value.split(",");
+    }
+
+    /**
+     * The configuration of the tiers, which store the entries only : the listeners, the loader, the writer and the
+     * statistics are applied once by this cache, and the tiers publish their expirations on it.
+     */
+    private static <K, V> CacheConfiguration<K, V> tierConfiguration(CompleteConfiguration<K, V> configuration) {
+        CacheConfiguration<K, V> tierConfiguration = new CacheConfiguration<>(configuration);
+        List<CacheEntryListenerConfiguration<K, V>> listenerConfigurations = new ArrayList<>();
+        for (CacheEntryListenerConfiguration<K, V> listenerConfiguration :
+                tierConfiguration.getCacheEntryListenerConfigurations()) {
+            listenerConfigurations.add(listenerConfiguration);
+        }
+        for (CacheEntryListenerConfiguration<K, V> listenerConfiguration : listenerConfigurations) {
+            tierConfiguration.removeCacheEntryListenerConfiguration(listenerConfiguration);
+        }
+        tierConfiguration.setCacheLoaderFactory(null)
+                .setCacheWriterFactory(null)
+                .setReadThrough(false)
+                .setWriteThrough(false)
+                .setStatisticsEnabled(false);
+        tierConfiguration.setWriteBehind(false);
+        return tierConfiguration;
+    }
+
+    private AbstractCache<K, V> newTier(String tierName, int level, Configuration<K, V> configuration) {
+        String name = getName() + "." + tierName;
+        switch (tierName) {
+            case IN_MEMORY_TIER:
+                return new InMemoryCache<K, V>(getCacheManager(), name, configuration) {
+                    @Override
+                    protected void onEvicting(ExpirableEntry<K, V> entry) {
+                        demote(level, entry);
+                    }
+
+                    @Override
+                    protected void onEvicted(ExpirableEntry<K, V> entry) {
+                        super.onEvicted(entry);
+                        if (level + 1 >= tiers.length) {
+                            evicted(entry.getKey());
+                        }
+                    }
+
+                    @Override
+                    protected void publishExpired(ExpirableEntry<K, V> entry) {
+                        TieredCache.this.publishExpired(entry);
+                    }
+                };
+            case OFFHEAP_TIER:
+                return new OffHeapCache<K, V>(getCacheManager(), name, configuration) {
+                    @Override
+                    protected void onEvicted(ByteBuffer key, ByteBuffer value, long expirationTime) {
+                        if (level + 1 < tiers.length) {
+                            ExpirableEntry<K, V> entry = new ExpirableEntry<>(getKeySerializer().read(key),
+                                    getValueSerializer().read(value));
+                            entry.setExpirationTime(expirationTime);
+                            demote(level, entry);
+                        } else {
+                            evicted(this, key);
+                        }
+                    }
+
+                    @Override
+                    protected void onExpired(ByteBuffer key) {
+                        super.onExpired(key);
+                        dropped(this, key);
+                    }
+
+                    @Override
+                    protected void publishExpired(ExpirableEntry<K, V> entry) {
+                        TieredCache.this.publishExpired(entry);
+                    }
+                };
+            case FILE_TIER:
+                // the last tier, or else its evicted entries are dropped all the same
+                return new MappedFileCache<K, V>(getCacheManager(), name, configuration) {
+                    @Override
+                    protected void onEvicted(ByteBuffer key) {
+                        super.onEvicted(key);
+                        evicted(this, key);
+                    }
+
+                    @Override
+                    protected void onExpired(ByteBuffer key) {
+                        super.onExpired(key);
+                        dropped(this, key);
+                    }
+
+                    @Override
+                    protected void publishExpired(ExpirableEntry<K, V> entry) {
+                        TieredCache.this.publishExpired(entry);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(format("The tier '%s' of cache[%s] is unknown, one of %s is expected",
+                        tierName, getName(), Arrays.asList(IN_MEMORY_TIER, OFFHEAP_TIER, FILE_TIER)));
+        }
+    }
+
+    /**
+     * Move the entry evicted from the tier to the next one, while the tier still holds the lock of the entry.
+     */
+    private void demote(int level, ExpirableEntry<K, V> entry) {
+        if (level + 1 >= tiers.length) {
+            return;
+        }
+        try {
+            tiers[level + 1].restoreEntry(entry);
+            if (logger.isLoggable(Level.FINEST)) {
+                logger.finest("demote key = " + entry.getKey() + " to tier " + (level + 1) + " of cache[" + getName() + "]");
+            }
+        } catch (CacheException e) {
+            logger.log(Level.WARNING, format("Failed to demote key = %s of cache[%s]", entry.getKey(), getName()), e);
+        }
+    }
+
+    /**
+     * Record the eviction of the entry dropped by the last tier and release its tags, the demotions are not evictions
+     * of this cache. The statistics and the tags are held by this cache, not by the tiers.
+     */
+    private void evicted(K key) {
+        recordEvictions(1);
+        releaseTags(key);
+    }
+
+    /**
+     * @param key the serialized key of the entry evicted by the last tier
+     */
+    private void evicted(AbstractCache<K, V> tier, ByteBuffer key) {
+        recordEvictions(1);
+        dropped(tier, key);
+    }
+
+    /**
+     * Release the tags of the entry dropped by a tier, which expired or was evicted without moving to another tier,
+     * the expirations met by a read are released with their publication.
+     *
+     * @param key the serialized key of the entry dropped by the tier
+     */
+    private void dropped(AbstractCache<K, V> tier, ByteBuffer key) {
+        if (hasTags()) {
+            releaseTags(tier.getKeySerializer().read(key.duplicate()));
+        }
+    }
+
+    private ReentrantLock lockFor(K key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
+        ExpirableEntry<K, V> entry = tiers[0].getEntry(key);
+        if (entry != null || tiers.length == 1) {
+            return entry;
+        }
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            entry = tiers[0].getEntry(key);
+            if (entry != null) {
+                return entry;
+            }
+            for (int i = 1; i < tiers.length; i++) {
+                entry = tiers[i].getEntry(key);
+                if (entry != null) {
+                    // remove before promoting, so that a demotion of the promoted entry is not undone
+                    tiers[i].removeEntry(key);
+                    tiers[0].restoreEntry(entry);
+                    if (logger.isLoggable(Level.FINEST)) {
+                        logger.finest("promote key = " + key + " from tier " + i + " of cache[" + getName() + "]");
+                    }
+                    return entry;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        ReentrantLock lock = lockFor(entry.getKey());
+        lock.lock();
+        try {
+            // remove before putting, so that a demotion of the put entry is not undone
+            for (int i = 1; i < tiers.length; i++) {
+                tiers[i].removeEntry(entry.getKey());
+            }
+            tiers[0].putEntry(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean removeEntry(K key) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            boolean removed = false;
+            for (AbstractCache<K, V> tier : tiers) {
+                removed |= tier.removeEntry(key);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected Set<K> getKeys() throws CacheException {
+        Set<K> keys = new HashSet<>();
+        for (AbstractCache<K, V> tier : tiers) {
+            keys.addAll(tier.getKeys());
+        }
+        return keys;
+    }
+
+    @Override
+    protected void clearEntries() {
+        for (AbstractCache<K, V> tier : tiers) {
+            tier.clearEntries();
+        }
+    }
+
+    @Override
+    public synchronized void setTimeToLive(long timeToLive) {
+        // the tiers compute the expiration times of the entries they store
+        for (AbstractCache<K, V> tier : tiers) {
+            tier.setTimeToLive(timeToLive);
+        }
+        super.setTimeToLive(timeToLive);
+    }
+
+    @Override
+    protected void startExpiring() {
+        // the tiers are started by setTimeToLive
+    }
+
+    /**
+     * @return the maximum size of the first tier
+     */
+    @Override
+    public long getMaximumSize() {
+        return tiers[0].getMaximumSize();
+    }
+
+    @Override
+    public void setMaximumSize(long maximumSize) {
+        tiers[0].setMaximumSize(maximumSize);
+    }
+
+    @Override
+    public String getEvictionPolicy() {
+        return tiers[0].getEvictionPolicy();
+    }
+
+    @Override
+    public void setEvictionPolicy(String evictionPolicy) {
+        tiers[0].setEvictionPolicy(evictionPolicy);
+    }
+
+    @Override
+    protected void doClose() {
+        for (AbstractCache<K, V> tier : tiers) {
+            tier.close();
+        }
+    }
+
+    /**
+     * @return the tiers from the first to the last, for inspection
+     */
+    public List<Cache<K, V>> getTiers() {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(tiers)));
+    }
+}
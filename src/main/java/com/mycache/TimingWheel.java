@@ -0,0 +1,186 @@
+package com.mycache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel reclaiming the expired entries of a segment, as described in "Hashed and Hierarchical
+ * Timing Wheels" by Varghese and Lauck.
+ * <p>
+ * The wheels are arrays of buckets whose spans are powers of two close to a second, a minute, an hour and a day, so
+ * the bucket of an entry is found by a shift and a mask. Scheduling and descheduling are O(1) on the intrusive
+ * links of {@link ExpirableEntry}. Advancing the time only visits the buckets passed over : their entries are either
+ * expired, or cascaded down to a finer wheel when their expiration time has been extended since they were scheduled.
+ * <p>
+ * The wheel is not thread-safe, it must be used while the segment lock is held.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class TimingWheel<K, V> {
+
+    static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    static final long[] SPANS = {
+            ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)), // 1.07s
+            ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)), // 1.14m
+            ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),   // 1.22h
+            ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),    // 1.63d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+    };
+
+    static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final ExpirableEntry<K, V>[][] wheel;
+
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long now) {
+        this.nanos = now;
+        this.wheel = new ExpirableEntry[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new ExpirableEntry[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = new Sentinel<>();
+            }
+        }
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+
+    /**
+     * Schedule the entry, the eternal entries are ignored. An entry already expired goes to the current bucket, so
+     * that the next advance reclaims it.
+     */
+    void schedule(ExpirableEntry<K, V> entry) {
+        if (!entry.isEternal()) {
+            link(findBucket(Math.max(entry.getExpirationTime(), nanos)), entry);
+        }
+    }
+
+    /**
+     * Deschedule the entry if it is scheduled.
+     */
+    void deschedule(ExpirableEntry<K, V> entry) {
+        if (entry.nextInWheel != null) {
+            unlink(entry);
+        }
+    }
+
+    /**
+     * Advance the time, and hand the entries that have expired over to the expirer.
+     *
+     * @param now     the current time
+     * @param expirer the consumer of expired entries
+     */
+    void advance(long now, Consumer<ExpirableEntry<K, V>> expirer) {
+        long previous = nanos;
+        nanos = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, delta, expirer);
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta, Consumer<ExpirableEntry<K, V>> expirer) {
+        ExpirableEntry<K, V>[] buckets = wheel[index];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(delta + 1, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            ExpirableEntry<K, V> sentinel = buckets[i & mask];
+            ExpirableEntry<K, V> entry = sentinel.nextInWheel;
+            // detach the whole bucket, the entries scheduled again won't be visited twice
+            sentinel.previousInWheel = sentinel;
+            sentinel.nextInWheel = sentinel;
+            while (entry != sentinel) {
+                ExpirableEntry<K, V> next = entry.nextInWheel;
+                entry.previousInWheel = null;
+                entry.nextInWheel = null;
+                if (entry.isExpired(nanos)) {
+                    expirer.accept(entry);
+                } else {
+                    schedule(entry);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    /**
+     * Unlink all entries.
+     */
+    void clear() {
+        for (ExpirableEntry<K, V>[] buckets : wheel) {
+            for (ExpirableEntry<K, V> sentinel : buckets) {
+                ExpirableEntry<K, V> entry = sentinel.nextInWheel;
+                while (entry != sentinel) {
+                    ExpirableEntry<K, V> next = entry.nextInWheel;
+                    entry.previousInWheel = null;
+                    entry.nextInWheel = null;
+                    entry = next;
+                }
+                sentinel.previousInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+            }
+        }
+    }
+
+    private ExpirableEntry<K, V> findBucket(long time) {
+        long duration = time - nanos;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    private static <K, V> void link(ExpirableEntry<K, V> sentinel, ExpirableEntry<K, V> entry) {
+        entry.previousInWheel = sentinel.previousInWheel;
+        entry.nextInWheel = sentinel;
+        sentinel.previousInWheel.nextInWheel = entry;
+        sentinel.previousInWheel = entry;
+    }
+
+    private static <K, V> void unlink(ExpirableEntry<K, V> entry) {
+        entry.previousInWheel.nextInWheel = entry.nextInWheel;
+        entry.nextInWheel.previousInWheel = entry.previousInWheel;
+        entry.previousInWheel = null;
+        entry.nextInWheel = null;
+    }
+
+    /**
+     * The head of a bucket, which is never expired
+     */
+    @SuppressWarnings("unchecked")
+    static final class Sentinel<K, V> extends ExpirableEntry<K, V> {
+
+        private static final Object PLACEHOLDER = new Object();
+
+        Sentinel() {
+            super((K) PLACEHOLDER, (V) PLACEHOLDER);
+            this.previousInWheel = this;
+            this.nextInWheel = this;
+        }
+    }
+}
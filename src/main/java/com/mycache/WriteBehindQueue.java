@@ -0,0 +1,261 @@
+package com.mycache;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * The queue of the changes written behind to the {@link CacheWriter} of a cache.
+ * <p>
+ * The changes are coalesced per key, the last write or delete of a key wins and keeps the place of the first one in
+ * the queue. A flusher thread writes the changes in batches of {@link CacheWriter#writeAll} and
+ * {@link CacheWriter#deleteAll}, as soon as a batch is full or the oldest change has waited for the delay. A failed
+ * batch is retried with an exponential backoff, and dropped with a warning once the retries are exhausted.
+ * <p>
+ * The queue is bounded, a change of a new key blocks while the queue is full, so that the writers of the cache are
+ * slowed down to the pace of the backend instead of exhausting the heap.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class WriteBehindQueue<K, V> {
+
+    /**
+     * The maximum backoff between two attempts of a batch
+     */
+    static final long MAXIMUM_BACKOFF_MILLIS = 10_000;
+
+    private static final Logger logger = Logger.getLogger(WriteBehindQueue.class.getName());
+
+    private final String cacheName;
+
+    private final CacheWriter<K, V> writer;
+
+    private final int batchSize;
+
+    private final long delayNanos;
+
+    private final int capacity;
+
+    private final int retries;
+
+    private final long backoffMillis;
+
+    /**
+     * The pending changes in the order of their first write, a <code>null</code> value is a delete
+     */
+    private final LinkedHashMap<K, V> pending = new LinkedHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition flushable = lock.newCondition();
+
+    /**
+     * The {@link System#nanoTime()} of the oldest pending change
+     */
+    private long oldestTime;
+
+    private boolean closed;
+
+    private final Thread flusher;
+
+    /**
+     * @param batchSize     the maximum number of changes per batch, a full batch is flushed at once
+     * @param delayMillis   the maximum milliseconds a change waits before it's flushed
+     * @param capacity      the maximum number of pending changes
+     * @param retries       the number of retries of a failed batch
+     * @param backoffMillis the backoff before the first retry, doubled by every retry
+     */
+    @SuppressWarnings("unchecked")
+    WriteBehindQueue(String cacheName, CacheWriter<? super K, ? super V> writer, int batchSize, long delayMillis,
+                     int capacity, int retries, long backoffMillis) {
+        if (batchSize <= 0 || delayMillis <= 0 || capacity < batchSize || retries < 0 || backoffMillis < 0) {
+            throw new IllegalArgumentException(format("The write-behind settings of cache[%s] are invalid : " +
+                            "batch size = %d, delay = %d ms, queue size = %d, retries = %d, backoff = %d ms", cacheName,
+                    batchSize, delayMillis, capacity, retries, backoffMillis));
+        }
+        this.cacheName = cacheName;
+        // the writer of the super types accepts the entries of K and V
+        this.writer = (CacheWriter<K, V>) writer;
+        this.batchSize = batchSize;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.capacity = capacity;
+        this.retries = retries;
+        this.backoffMillis = backoffMillis;
+        this.flusher = new Thread(this::run, "zc-cache-write-behind-" + cacheName);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue the write of the key, blocking while the queue is full.
+     */
+    void write(K key, V value) throws CacheWriterException {
+        offer(key, value);
+    }
+
+    /**
+     * Queue the delete of the key, blocking while the queue is full.
+     */
+    void delete(K key) throws CacheWriterException {
+        offer(key, null);
+    }
+
+    private void offer(K key, V value) throws CacheWriterException {
+        lock.lock();
+        try {
+            while (pending.size() >= capacity && !pending.containsKey(key)) {
+                if (closed) {
+                    throw new CacheWriterException(format("The write-behind queue of cache[%s] is closed", cacheName));
+                }
+                notFull.await();
+            }
+            if (pending.isEmpty()) {
+                oldestTime = System.nanoTime();
+                // the flusher waits without timeout for the first change
+                flushable.signal();
+            }
+            pending.put(key, value);
+            if (pending.size() == batchSize) {
+                flushable.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheWriterException(format("Interrupted waiting for the write-behind queue of cache[%s]",
+                    cacheName), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of pending changes
+     */
+    int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flush the pending changes and stop the flusher.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            flushable.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Cache.Entry<? extends K, ? extends V>> writes = new ArrayList<>(batchSize);
+        List<K> deletes = new ArrayList<>(batchSize);
+        while (take(writes, deletes)) {
+            flush(writes, deletes);
+            writes.clear();
+            deletes.clear();
+        }
+    }
+
+    /**
+     * Wait for a full batch, for the delay of the oldest change or for the close, and take the next batch.
+     *
+     * @return <code>false</code> if the queue is closed and drained
+     */
+    private boolean take(List<Cache.Entry<? extends K, ? extends V>> writes, List<K> deletes) {
+        lock.lock();
+        try {
+            while (!closed) {
+                if (pending.isEmpty()) {
+                    flushable.await();
+                    continue;
+                }
+                long remaining = delayNanos - (System.nanoTime() - oldestTime);
+                if (pending.size() >= batchSize || remaining <= 0) {
+                    break;
+                }
+                flushable.awaitNanos(remaining);
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            // the changes left behind are as old as the batch, so they are flushed right after it
+            Iterator<Map.Entry<K, V>> iterator = pending.entrySet().iterator();
+            for (int i = 0; i < batchSize && iterator.hasNext(); i++) {
+                Map.Entry<K, V> change = iterator.next();
+                if (change.getValue() == null) {
+                    deletes.add(change.getKey());
+                } else {
+                    writes.add(new ExpirableEntry<>(change.getKey(), change.getValue()));
+                }
+                iterator.remove();
+            }
+            notFull.signalAll();
+            return true;
+        } catch (InterruptedException e) {
+            logger.log(Level.WARNING, format("The write-behind of cache[%s] is interrupted, %d changes are dropped",
+                    cacheName, pending.size()), e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(List<Cache.Entry<? extends K, ? extends V>> writes, List<K> deletes) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (!writes.isEmpty()) {
+                    // the writer removes the entries written, so that a retry writes the others only
+                    writer.writeAll(writes);
+                    writes.clear();
+                }
+                if (!deletes.isEmpty()) {
+                    writer.deleteAll(deletes);
+                    deletes.clear();
+                }
+                return;
+            } catch (Exception e) {
+                if (attempt >= retries) {
+                    logger.log(Level.WARNING, format("Failed to write %d entries and delete %d keys of cache[%s] " +
+                            "after %d attempts, the changes are dropped", writes.size(), deletes.size(), cacheName,
+                            attempt + 1), e);
+                    return;
+                }
+                logger.log(Level.FINE, format("Failed to write behind the changes of cache[%s], attempt %d",
+                        cacheName, attempt + 1), e);
+            }
+            try {
+                Thread.sleep(Math.min(backoffMillis << Math.min(attempt, 20), MAXIMUM_BACKOFF_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.mycache.copier;
+
+/**
+ * The copier isolating the keys and values of a cache configured to store by value, see
+ * {@link javax.cache.configuration.Configuration#isStoreByValue()}, so that the objects held by the cache are never
+ * shared with the callers.
+ * <p>
+ * The implementations must be thread-safe.
+ *
+ * @param <T> the type of object
+ */
+@FunctionalInterface
+public interface Copier<T> {
+
+    /**
+     * @param object the object to copy, non-null
+     * @return an object equal to the given one and sharing no mutable state with it, or the object itself if it is
+     * immutable
+     */
+    T copy(T object);
+}
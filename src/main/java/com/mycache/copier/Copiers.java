@@ -0,0 +1,83 @@
+package com.mycache.copier;
+
+import com.mycache.serializer.Serializer;
+
+import javax.cache.CacheException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.lang.String.format;
+
+/**
+ * The built-in {@link Copier}s.
+ */
+public final class Copiers {
+
+    private static final Copier<Object> IDENTITY_COPIER = object -> object;
+
+    private static final Set<Class<?>> IMMUTABLE_CLASSES = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class, Class.class));
+
+    private static final ClassValue<Boolean> immutableClasses = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return IMMUTABLE_CLASSES.contains(type) || type.isEnum() ||
+                    (type.getSuperclass() != null && type.getSuperclass().isEnum()) ||
+                    // the value-based classes of the date and time API are all final and immutable
+                    (type.getName().startsWith("java.time.") && Modifier.isFinal(type.getModifiers()));
+        }
+    };
+
+    private Copiers() {
+    }
+
+    /**
+     * @return the {@link Copier} returning the objects as is
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Copier<T> identity() {
+        return (Copier<T>) IDENTITY_COPIER;
+    }
+
+    /**
+     * @param type       the declared type of objects
+     * @param serializer  the {@link Serializer} of the type
+     * @return {@link #identity()} if the type is immutable, or else a {@link SerializingCopier}
+     */
+    public static <T> Copier<T> copier(Class<T> type, Serializer<T> serializer) {
+        return type != null && isImmutable(type) ? identity() : new SerializingCopier<>(serializer);
+    }
+
+    /**
+     * @param type the exact class of an object
+     * @return <code>true</code> if the objects of the class can't be changed, so that they are never copied
+     */
+    public static boolean isImmutable(Class<?> type) {
+        return immutableClasses.get(type);
+    }
+
+    /**
+     * @param className   the class name of {@link Copier} implementation
+     * @param classLoader the {@link ClassLoader} to load the class
+     * @return a new instance of {@link Copier}
+     * @throws CacheException if the class can't be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Copier<T> newCopier(String className, ClassLoader classLoader) throws CacheException {
+        try {
+            Class<?> copierClass = classLoader.loadClass(className.trim());
+            if (!Copier.class.isAssignableFrom(copierClass)) {
+                throw new CacheException(format("The class[%s] must implement %s", className, Copier.class.getName()));
+            }
+            return (Copier<T>) copierClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new CacheException(format("The copier[%s] can't be instantiated", className), e);
+        }
+    }
+}
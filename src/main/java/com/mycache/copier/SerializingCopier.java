@@ -0,0 +1,50 @@
+package com.mycache.copier;
+
+import com.mycache.serializer.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The copier writing the object by its {@link Serializer} and reading it back, through a buffer reused by the thread.
+ * The objects of the immutable classes are returned as is, see {@link Copiers#isImmutable(Class)}.
+ *
+ * @param <T> the type of object
+ */
+public class SerializingCopier<T> implements Copier<T> {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * The buffers beyond this size are not kept for the next copy
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 << 10;
+
+    private static final ThreadLocal<ByteBuffer> buffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+
+    private final Serializer<T> serializer;
+
+    public SerializingCopier(Serializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public T copy(T object) {
+        if (Copiers.isImmutable(object.getClass())) {
+            return object;
+        }
+        int size = serializer.sizeOf(object);
+        ByteBuffer bytes = buffer.get();
+        if (bytes.capacity() < size) {
+            bytes = ByteBuffer.allocate(Math.max(size, bytes.capacity() * 2));
+            if (bytes.capacity() <= MAX_RETAINED_BUFFER_SIZE) {
+                buffer.set(bytes);
+            }
+        }
+        bytes.clear();
+        bytes.limit(size);
+        serializer.write(object, bytes);
+        bytes.flip();
+        return serializer.read(bytes);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mycache.eviction;
+
+import javax.cache.CacheException;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.String.format;
+
+/**
+ * The registry of {@link EvictionPolicyProvider}s.
+ */
+public final class EvictionPolicies {
+
+    /**
+     * The name of the default policy
+     */
+    public static final String DEFAULT_POLICY_NAME = TinyLfuEvictionPolicy.NAME;
+
+    private static final ConcurrentMap<ClassLoader, Map<String, EvictionPolicyProvider>> providersCache =
+            new ConcurrentHashMap<>();
+
+    private EvictionPolicies() {
+    }
+
+    /**
+     * Get the provider by its name or by the class name of the implementation.
+     *
+     * @param name        the name of policy, <code>null</code> means {@link #DEFAULT_POLICY_NAME}
+     * @param classLoader the {@link ClassLoader} to load the providers
+     * @return non-null
+     * @throws CacheException if no provider is found
+     */
+    public static EvictionPolicyProvider getProvider(String name, ClassLoader classLoader) throws CacheException {
+        String policyName = name == null ? DEFAULT_POLICY_NAME : name.trim();
+        ClassLoader loader = classLoader == null ? EvictionPolicies.class.getClassLoader() : classLoader;
+        EvictionPolicyProvider provider = providersCache.computeIfAbsent(loader, EvictionPolicies::loadProviders)
+                .get(policyName);
+        if (provider == null) {
+            provider = instantiate(policyName, loader);
+        }
+        return provider;
+    }
+
+    private static Map<String, EvictionPolicyProvider> loadProviders(ClassLoader classLoader) {
+        Map<String, EvictionPolicyProvider> providers = new ConcurrentHashMap<>();
+        for (EvictionPolicyProvider provider : ServiceLoader.load(EvictionPolicyProvider.class, classLoader)) {
+            providers.putIfAbsent(provider.getName(), provider);
+        }
+        return providers;
+    }
+
+    private static EvictionPolicyProvider instantiate(String className, ClassLoader classLoader) {
+        try {
+            Class<?> providerClass = classLoader.loadClass(className);
+            if (!EvictionPolicyProvider.class.isAssignableFrom(providerClass)) {
+                throw new CacheException(format("The class[%s] must implement %s", className,
+                        EvictionPolicyProvider.class.getName()));
+            }
+            return (EvictionPolicyProvider) providerClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new CacheException(format("The eviction policy[%s] can't be found", className), e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycache.eviction;
+
+/**
+ * The bookkeeping of a size-bounded cache segment, which decides the key to be evicted once the segment exceeds its
+ * capacity.
+ * <p>
+ * A policy instance is confined to one segment and is always invoked while the segment lock is held, so the
+ * implementations need not be thread-safe. All the record methods must be idempotent : the segment reconciles the
+ * policy with its storage, so a key may be recorded as written or removed more than once.
+ *
+ * @param <K> the type of key
+ * @see EvictionPolicyProvider
+ */
+public interface EvictionPolicy<K> {
+
+    /**
+     * Record the key was created or updated, the key is tracked after this call.
+     *
+     * @param key the written key
+     */
+    void recordWrite(K key);
+
+    /**
+     * Record the key was read, an unknown key must be ignored.
+     *
+     * @param key the read key
+     */
+    void recordAccess(K key);
+
+    /**
+     * Record the key was removed, an unknown key must be ignored.
+     *
+     * @param key the removed key
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Select the victim and stop tracking it.
+     *
+     * @return the key to be evicted, <code>null</code> if no key is tracked
+     */
+    K evict();
+
+    /**
+     * @return the number of the tracked keys
+     */
+    int size();
+
+    /**
+     * Forget all tracked keys.
+     */
+    void clear();
+}
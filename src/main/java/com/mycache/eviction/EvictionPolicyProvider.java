@@ -0,0 +1,28 @@
+package com.mycache.eviction;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * The SPI of {@link EvictionPolicy}, the implementations are loaded by {@link java.util.ServiceLoader} from
+ * <code>META-INF/services/com.mycache.eviction.EvictionPolicyProvider</code> and selected by {@link #getName() name}.
+ *
+ * @see EvictionPolicies
+ */
+public interface EvictionPolicyProvider {
+
+    /**
+     * @return the unique name of policy, e.g : "lru"
+     */
+    String getName();
+
+    /**
+     * Create a new policy for one segment.
+     *
+     * @param capacity    the maximum number of entries of the segment
+     * @param accessTimes the last access time of a tracked key, the policies that keep their own recency order
+     *                    may ignore it
+     * @param <K>         the type of key
+     * @return non-null
+     */
+    <K> EvictionPolicy<K> newPolicy(int capacity, ToLongFunction<K> accessTimes);
+}
@@ -0,0 +1,110 @@
+package com.mycache.eviction;
+
+/**
+ * A Count-Min sketch of 4-bit counters estimating the popularity of keys within a time window, as described in
+ * "TinyLFU: A Highly Efficient Cache Admission Policy".
+ * <p>
+ * Each <code>long</code> slot holds sixteen counters, and a key is hashed onto four counters of a single slot. When
+ * the number of increments reaches ten times the capacity, every counter is halved so that the history ages out.
+ * The sketch is not thread-safe.
+ *
+ * @param <K> the type of key
+ */
+public final class FrequencySketch<K> {
+
+    static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    static final long RESET_MASK = 0x7777777777777777L;
+
+    static final long ONE_MASK = 0x1111111111111111L;
+
+    static final int MAXIMUM_FREQUENCY = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int size;
+
+    public FrequencySketch(int capacity) {
+        int length = tableSizeFor(Math.max(capacity, 8));
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = capacity <= 0 ? 10 : 10 * capacity;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(capacity - 1);
+        return n >= (1 << 30) ? (1 << 30) : n + 1;
+    }
+
+    /**
+     * @param key the key
+     * @return the estimated number of occurrences of the key, at most {@value #MAXIMUM_FREQUENCY}
+     */
+    public int frequency(K key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increment the popularity of the key if it does not exceed the maximum.
+     *
+     * @param key the key
+     */
+    public void increment(K key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halve every counter, and adjust the size for the truncated odd counters.
+     */
+    void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * The exact Least-Recently-Used policy, which keeps the keys in an access-ordered {@link LinkedHashMap}.
+ *
+ * @param <K> the type of key
+ */
+public class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    public static final String NAME = "lru";
+
+    private final LinkedHashMap<K, Boolean> keys;
+
+    public LruEvictionPolicy(int capacity) {
+        this.keys = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true);
+    }
+
+    @Override
+    public void recordWrite(K key) {
+        keys.put(key, Boolean.TRUE);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        keys.get(key);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        keys.remove(key);
+    }
+
+    @Override
+    public K evict() {
+        Iterator<K> iterator = keys.keySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        K eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public void clear() {
+        keys.clear();
+    }
+
+    public static class Provider implements EvictionPolicyProvider {
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public <K> EvictionPolicy<K> newPolicy(int capacity, ToLongFunction<K> accessTimes) {
+            return new LruEvictionPolicy<>(capacity);
+        }
+    }
+}
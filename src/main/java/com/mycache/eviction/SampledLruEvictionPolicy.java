@@ -0,0 +1,125 @@
+package com.mycache.eviction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * The approximated Least-Recently-Used policy in the style of Redis : an access costs nothing but the timestamp the
+ * cache stamps on the entry, and the victim is the least recently accessed one of a few randomly sampled keys.
+ *
+ * @param <K> the type of key
+ */
+public class SampledLruEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    public static final String NAME = "sampled-lru";
+
+    static final int DEFAULT_SAMPLE_SIZE = 5;
+
+    private final ToLongFunction<K> accessTimes;
+
+    private final int sampleSize;
+
+    private final Map<K, Integer> indexes = new HashMap<>();
+
+    private Object[] keys;
+
+    private int size;
+
+    public SampledLruEvictionPolicy(int capacity, ToLongFunction<K> accessTimes) {
+        this(capacity, accessTimes, DEFAULT_SAMPLE_SIZE);
+    }
+
+    public SampledLruEvictionPolicy(int capacity, ToLongFunction<K> accessTimes, int sampleSize) {
+        this.accessTimes = accessTimes;
+        this.sampleSize = sampleSize;
+        this.keys = new Object[Math.max(16, Math.min(capacity + 1, 1 << 16))];
+    }
+
+    @Override
+    public void recordWrite(K key) {
+        if (indexes.containsKey(key)) {
+            return;
+        }
+        if (size == keys.length) {
+            Object[] newKeys = new Object[size << 1];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            keys = newKeys;
+        }
+        keys[size] = key;
+        indexes.put(key, size++);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        // the cache has already stamped the access time on the entry
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Integer index = indexes.remove(key);
+        if (index != null) {
+            removeAt(index);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeAt(int index) {
+        int last = --size;
+        if (index != last) {
+            K moved = (K) keys[last];
+            keys[index] = moved;
+            indexes.put(moved, index);
+        }
+        keys[last] = null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K evict() {
+        if (size == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int victimIndex = -1;
+        long victimAccessTime = Long.MAX_VALUE;
+        for (int i = 0, samples = Math.min(sampleSize, size); i < samples; i++) {
+            int index = random.nextInt(size);
+            long accessTime = accessTimes.applyAsLong((K) keys[index]);
+            if (victimIndex < 0 || accessTime < victimAccessTime) {
+                victimIndex = index;
+                victimAccessTime = accessTime;
+            }
+        }
+        K victim = (K) keys[victimIndex];
+        indexes.remove(victim);
+        removeAt(victimIndex);
+        return victim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        indexes.clear();
+        keys = new Object[keys.length];
+        size = 0;
+    }
+
+    public static class Provider implements EvictionPolicyProvider {
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public <K> EvictionPolicy<K> newPolicy(int capacity, ToLongFunction<K> accessTimes) {
+            return new SampledLruEvictionPolicy<>(capacity, accessTimes);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.mycache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * The W-TinyLFU policy : new keys enter a small LRU admission window (1% of the capacity), and the main space is a
+ * segmented LRU whose protected part holds 80% of it. When the window overflows, its eldest key only replaces the
+ * eldest key of the main space if the {@link FrequencySketch} estimates it is more popular, so that one-hit wonders
+ * and scans can't flush the frequently used keys.
+ *
+ * @param <K> the type of key
+ */
+public class TinyLfuEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    public static final String NAME = "tinylfu";
+
+    private final int capacity;
+
+    private final int windowMaximum;
+
+    private final int protectedMaximum;
+
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LinkedHashMap<K, Boolean> protectedKeys = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FrequencySketch<K> sketch;
+
+    public TinyLfuEvictionPolicy(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.windowMaximum = Math.max(1, this.capacity / 100);
+        this.protectedMaximum = (int) ((this.capacity - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch<>(this.capacity);
+    }
+
+    @Override
+    public void recordWrite(K key) {
+        sketch.increment(key);
+        if (onHit(key)) {
+            return;
+        }
+        window.put(key, Boolean.TRUE);
+        // While there is room, the keys leaving the window are admitted without competing
+        if (window.size() > windowMaximum && size() <= capacity) {
+            probation.put(removeEldest(window), Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        if (isTracked(key)) {
+            sketch.increment(key);
+            onHit(key);
+        }
+    }
+
+    private boolean isTracked(K key) {
+        return window.containsKey(key) || probation.containsKey(key) || protectedKeys.containsKey(key);
+    }
+
+    private boolean onHit(K key) {
+        if (window.get(key) != null || protectedKeys.get(key) != null) {
+            return true;
+        }
+        if (probation.remove(key) != null) {
+            protectedKeys.put(key, Boolean.TRUE);
+            if (protectedKeys.size() > protectedMaximum) {
+                probation.put(removeEldest(protectedKeys), Boolean.TRUE);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedKeys.remove(key);
+        }
+    }
+
+    @Override
+    public K evict() {
+        K victim = eldest(probation);
+        if (victim == null) {
+            victim = eldest(protectedKeys);
+        }
+        K candidate = window.size() > windowMaximum || victim == null ? eldest(window) : null;
+        if (candidate == null) {
+            recordRemoval(victim);
+            return victim;
+        }
+        window.remove(candidate);
+        if (victim != null && sketch.frequency(candidate) > sketch.frequency(victim)) {
+            recordRemoval(victim);
+            probation.put(candidate, Boolean.TRUE);
+            return victim;
+        }
+        return candidate;
+    }
+
+    private static <K> K eldest(LinkedHashMap<K, Boolean> keys) {
+        Iterator<K> iterator = keys.keySet().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static <K> K removeEldest(LinkedHashMap<K, Boolean> keys) {
+        Iterator<K> iterator = keys.keySet().iterator();
+        K eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    @Override
+    public int size() {
+        return window.size() + probation.size() + protectedKeys.size();
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedKeys.clear();
+    }
+
+    public static class Provider implements EvictionPolicyProvider {
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public <K> EvictionPolicy<K> newPolicy(int capacity, ToLongFunction<K> accessTimes) {
+            return new TinyLfuEvictionPolicy<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.mycache.file;
+
+import com.mycache.AbstractCache;
+import com.mycache.CacheConfiguration;
+import com.mycache.ExpirableEntry;
+import com.mycache.weigher.Weighers;
+
+import javax.cache.CacheException;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * The cache persisting the serialized entries in memory-mapped segment files, see {@link MappedFileStore}. The files
+ * of a cache are in the sub-directory named after the cache, under the path of the {@link CacheManager#getURI()}, e.g :
+ * file:///var/cache/zc-cache/, or under the {@value #DIRECTORY_PROPERTY_NAME} property. The entries survive the
+ * restarts of the JVM.
+ * <p>
+ * The expiration times are persisted in the wall-clock time, so that they remain valid after a restart while the
+ * cache {@link com.mycache.Ticker} starts from another origin.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class MappedFileCache<K, V> extends AbstractCache<K, V> {
+
+    /**
+     * The cache property name of the maximum bytes of segment files, units are allowed, e.g : 10g
+     */
+    public static final String MAXIMUM_WEIGHT_PROPERTY_NAME = "maximum-weight";
+
+    /**
+     * The cache property name of the size of a segment file, which is also the maximum size of a serialized entry
+     */
+    public static final String SEGMENT_SIZE_PROPERTY_NAME = "segment-size";
+
+    /**
+     * The cache property name of the root directory of the segment files, which overrides the path of the URI
+     */
+    public static final String DIRECTORY_PROPERTY_NAME = "directory";
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /**
+     * The interval in seconds of compacting the sparse segments in background
+     */
+    static final long COMPACTION_INTERVAL_SECONDS = 1;
+
+    private static final Logger logger = Logger.getLogger(MappedFileCache.class.getName());
+
+    private static final ScheduledExecutorService compactionScheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "zc-cache-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final MappedFileStore store;
+
+    private final Class<K> keyType;
+
+    /**
+     * <code>true</code> until the entries may expire, see {@link #startExpiring()}
+     */
+    private volatile boolean eternal;
+
+    /**
+     * The wall-clock time in nanoseconds minus the time of the ticker
+     */
+    private final long clockOffset;
+
+    private final ScheduledFuture<?> compactionTask;
+
+    protected MappedFileCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
+        super(cacheManager, cacheName, configuration);
+        this.keyType = configuration.getKeyType();
+        this.eternal = isEternal();
+        this.clockOffset = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - getTicker().read();
+        this.store = new MappedFileStore(resolveDirectory(), resolveSegmentSize(),
+                resolveMaximumWeight(), () -> toStoredTime(getTicker().read()), new MappedFileStore.RemovalListener() {
+                    @Override
+                    public void onEvicted(ByteBuffer key) {
+                        recordEvictions(1);
+                        if (hasTags()) {
+                            releaseTags(getKeySerializer().read(key.duplicate()));
+                        }
+                        MappedFileCache.this.onEvicted(key);
+                    }
+
+                    @Override
+                    public void onExpired(ByteBuffer key) {
+                        if (hasTags()) {
+                            releaseTags(getKeySerializer().read(key.duplicate()));
+                        }
+                        MappedFileCache.this.onExpired(key);
+                    }
+                });
+        this.compactionTask = compactionScheduler.scheduleWithFixedDelay(this::compact,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Path resolveDirectory() {
+        String path = getCacheProperty(DIRECTORY_PROPERTY_NAME);
+        if (path == null) {
+            path = getCacheManager().getURI().getPath();
+        }
+        File root = path == null || path.isEmpty() || "/".equals(path) ?
+                new File(System.getProperty("java.io.tmpdir"), "zc-cache") : new File(path);
+        return new File(root, getName()).toPath();
+    }
+
+    private long resolveMaximumWeight() {
+        long maximumWeight = CacheConfiguration.UNBOUNDED;
+        if (getConfiguration() instanceof CacheConfiguration) {
+            maximumWeight = ((CacheConfiguration<K, V>) getConfiguration()).getMaximumWeight();
+        }
+        if (maximumWeight == CacheConfiguration.UNBOUNDED) {
+            String value = getCacheProperty(MAXIMUM_WEIGHT_PROPERTY_NAME);
+            maximumWeight = value == null ? Long.MAX_VALUE : Weighers.parseBytes(value);
+        }
+        return maximumWeight;
+    }
+
+    private int resolveSegmentSize() {
+        String value = getCacheProperty(SEGMENT_SIZE_PROPERTY_NAME);
+        return value == null ? DEFAULT_SEGMENT_SIZE : (int) Weighers.parseBytes(value);
+    }
+
+    private long toStoredTime(long time) {
+        if (time == Long.MAX_VALUE) {
+            return time;
+        }
+        long storedTime = time + clockOffset;
+        // saturate on overflow
+        return ((time ^ storedTime) & (clockOffset ^ storedTime)) < 0 ? Long.MAX_VALUE : storedTime;
+    }
+
+    private long fromStoredTime(long storedTime) {
+        return storedTime == Long.MAX_VALUE ? storedTime : storedTime - clockOffset;
+    }
+
+    /**
+     * The eternal cache only skips the reads of the ticker, its entries are stored to never expire.
+     */
+    @Override
+    protected void startExpiring() {
+        eternal = false;
+    }
+
+    @Override
+    protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        K key = entry.getKey();
+        requireKeyType(key);
+        ByteBuffer serializedKey = serializeKey(key);
+        long expirationTime = Long.MAX_VALUE;
+        if (!eternal) {
+            long now = getTicker().read();
+            long currentExpirationTime = store.getExpirationTime(serializedKey);
+            if (currentExpirationTime == MappedFileStore.ABSENT || fromStoredTime(currentExpirationTime) <= now) {
+                expirationTime = expirationTimeForCreation(now);
+            } else {
+                ExpirableEntry<K, V> current = new ExpirableEntry<>(key, entry.getValue());
+                current.setExpirationTime(fromStoredTime(currentExpirationTime));
+                expirationTime = expirationTimeForUpdate(current, now);
+            }
+            if (expirationTime <= now) {
+                // a zero duration : the entry is not stored, and a former value must not survive the write
+                store.remove(serializedKey);
+                return;
+            }
+        }
+        entry.setExpirationTime(expirationTime);
+        if (!store.put(serializedKey, getValueSerializer(), entry.getValue(), toStoredTime(expirationTime))) {
+            logger.warning(format("The entry of key = %s is larger than a segment of cache[%s], it is not stored",
+                    key, getName()));
+            return;
+        }
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("add key = " + key + " to cache[" + getName() + "]");
+        }
+    }
+
+    @Override
+    protected void restoreEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        K key = entry.getKey();
+        requireKeyType(key);
+        if (!eternal && entry.isExpired(getTicker().read())) {
+            return;
+        }
+        store.put(serializeKey(key), getValueSerializer(), entry.getValue(),
+                toStoredTime(entry.getExpirationTime()));
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
+        ByteBuffer serializedKey = serializeKey(key);
+        ExpirableEntry<K, V> entry = store.get(serializedKey, (value, expirationTime) -> {
+            ExpirableEntry<K, V> read = new ExpirableEntry<>(key, getValueSerializer().read(value));
+            read.setExpirationTime(fromStoredTime(expirationTime));
+            return read;
+        });
+        if (entry == null || eternal) {
+            return entry;
+        }
+        long now = getTicker().read();
+        if (entry.isExpired(now)) {
+            if (store.removeIfExpired(serializedKey)) {
+                publishExpired(entry);
+                onExpired(serializedKey);
+            }
+            return null;
+        }
+        long expirationTime = expirationTimeForAccess(entry, now);
+        if (expirationTime != entry.getExpirationTime()) {
+            entry.setExpirationTime(expirationTime);
+            store.setExpirationTime(serializedKey, toStoredTime(expirationTime));
+        }
+        return entry;
+    }
+
+    @Override
+    protected boolean removeEntry(K key) {
+        long expirationTime = store.remove(serializeKey(key));
+        if (expirationTime != MappedFileStore.ABSENT && logger.isLoggable(Level.FINEST)) {
+            logger.finest("remove key = " + key + " from cache[" + getName() + "]");
+        }
+        return expirationTime != MappedFileStore.ABSENT &&
+                (eternal || fromStoredTime(expirationTime) > getTicker().read());
+    }
+
+    /**
+     * Compact the sparse segments now, which the background task does every {@value #COMPACTION_INTERVAL_SECONDS}
+     * second.
+     */
+    public void compact() {
+        try {
+            while (store.compact()) {
+                if (logger.isLoggable(Level.FINEST)) {
+                    logger.finest("compact a segment of cache[" + getName() + "]");
+                }
+            }
+        } catch (CacheException e) {
+            logger.log(Level.WARNING, format("Failed to compact the segments of cache[%s]", getName()), e);
+        }
+    }
+
+    @Override
+    protected Set<K> getKeys() throws CacheException {
+        Set<K> keys = new HashSet<>();
+        store.forEachKey(key -> keys.add(getKeySerializer().read(key)));
+        return keys;
+    }
+
+    @Override
+    protected void clearEntries() {
+        store.clear();
+    }
+
+    /**
+     * The entries are serialized into the segment files and every read deserializes a fresh value, so storing by
+     * value needs no copy.
+     */
+    @Override
+    protected boolean isSerializing() {
+        return true;
+    }
+
+    @Override
+    protected void doClose() {
+        compactionTask.cancel(false);
+        store.close();
+    }
+
+    /**
+     * Subclass may override this method to be notified of the entries evicted with the oldest segment to make room,
+     * it's called while the store is locked.
+     *
+     * @param key the serialized key, valid during the call only
+     */
+    protected void onEvicted(ByteBuffer key) {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("evict key = " + getKeySerializer().read(key) + " from cache[" + getName() + "]");
+        }
+    }
+
+    /**
+     * Subclass may override this method to be notified of the expired entries reclaimed, by a read, a compaction or
+     * an eviction.
+     *
+     * @param key the serialized key, valid during the call only
+     */
+    protected void onExpired(ByteBuffer key) {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("expire key = " + getKeySerializer().read(key) + " from cache[" + getName() + "]");
+        }
+    }
+
+    private void requireKeyType(K key) throws ClassCastException {
+        if (keyType != null && keyType != Object.class) {
+            keyType.cast(key);
+        }
+    }
+
+    /**
+     * @return the number of entries currently held
+     */
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * @return the bytes of the segment files
+     */
+    public long fileBytes() {
+        return store.fileBytes();
+    }
+}
@@ -0,0 +1,808 @@
+package com.mycache.file;
+
+import com.mycache.offheap.OffHeapIndex;
+import com.mycache.serializer.Serializer;
+
+import javax.cache.CacheException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+
+/**
+ * The storage of serialized entries in an append-only log of memory-mapped segment files, indexed by an
+ * {@link OffHeapIndex} whose keys are compared with the bytes in the segments, so that an entry costs no object on the
+ * heap.
+ * <p>
+ * Every write appends a record to the active segment, a removal appends a tombstone. A full segment is forced to the
+ * disk and sealed. The sealed segments whose live bytes fall under {@link #COMPACTION_THRESHOLD} are compacted by
+ * copying their live records to the active segment and deleting the file. If the segments exceed the capacity, the
+ * oldest one is evicted as a whole.
+ * <p>
+ * After a crash, the index is rebuilt by scanning the segments in order. The records of sealed segments are trusted,
+ * those of the active segment are checked by their CRC and the scan stops at the first torn record.
+ * <p>
+ * Segment layout : [int magic][int sealed][long reserved][records]
+ * <p>
+ * Record layout, aligned to 8 bytes : [int crc][int record length][int key length][int value length, -1 for a
+ * tombstone][int hash][int reserved][long expiration time][key bytes][value bytes]. The CRC covers the record but its
+ * expiration time, which is updated in place.
+ */
+final class MappedFileStore {
+
+    /**
+     * The expiration time returned for the absent keys
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+
+    static final String SEGMENT_FILE_PREFIX = "segment-";
+
+    static final String SEGMENT_FILE_SUFFIX = ".log";
+
+    static final int SEGMENT_HEADER_SIZE = 16;
+
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * A sealed segment is compacted if at most this part of it is live
+     */
+    static final float COMPACTION_THRESHOLD = 0.5f;
+
+    private static final int MAGIC = 0x7A63_6C67;
+
+    private static final int SEALED_OFFSET = 4;
+
+    private static final int CRC_OFFSET = 0;
+
+    private static final int RECORD_LENGTH_OFFSET = 4;
+
+    private static final int KEY_LENGTH_OFFSET = 8;
+
+    private static final int VALUE_LENGTH_OFFSET = 12;
+
+    private static final int HASH_OFFSET = 16;
+
+    private static final int EXPIRATION_TIME_OFFSET = 24;
+
+    private static final int TOMBSTONE = -1;
+
+    /**
+     * Reads the value of a record from a read-only view of the segment, without copying it.
+     *
+     * @param <T> the type of result
+     */
+    interface ValueReader<T> {
+
+        /**
+         * @param value          the bytes of value between the position and the limit
+         * @param expirationTime the expiration time of the record
+         * @return the result of read
+         */
+        T read(ByteBuffer value, long expirationTime);
+    }
+
+    /**
+     * The listener of the records dropped by the store itself, called while the lock of the store is held.
+     */
+    interface RemovalListener {
+
+        /**
+         * Notified of the unexpired records dropped with the oldest segment to make room.
+         *
+         * @param key the bytes of key between the position and the limit
+         */
+        void onEvicted(ByteBuffer key);
+
+        /**
+         * Notified of the expired records dropped by a compaction or an eviction.
+         *
+         * @param key the bytes of key between the position and the limit
+         */
+        void onExpired(ByteBuffer key);
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final long capacity;
+
+    private final LongSupplier clock;
+
+    private final RemovalListener removalListener;
+
+    private final OffHeapIndex index = new OffHeapIndex(1024);
+
+    /**
+     * The segments by id, the id is the high part of an address
+     */
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private final CRC32 crc = new CRC32();
+
+    private Segment active;
+
+    private boolean closed;
+
+    /**
+     * Open the store, rebuilding the index from the segments in the directory.
+     *
+     * @param directory   the directory of the segment files, created if absent
+     * @param segmentSize the size of a segment file, which bounds the size of a record
+     * @param capacity    the maximum bytes of the segment files, {@link Long#MAX_VALUE} for unbounded
+     * @param clock           the current time compared with the expiration times
+     * @param removalListener the listener of the records dropped by the store, may be <code>null</code>
+     */
+    MappedFileStore(Path directory, int segmentSize, long capacity, LongSupplier clock,
+                    RemovalListener removalListener) throws CacheException {
+        if (segmentSize < SEGMENT_HEADER_SIZE + HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("The segment size must not be less than " +
+                    (SEGMENT_HEADER_SIZE + HEADER_SIZE * 2));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.capacity = Math.max(capacity, segmentSize * 2L);
+        this.clock = clock;
+        this.removalListener = removalListener;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new CacheException(format("Failed to open the segments in %s", directory), e);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_FILE_PREFIX + "*" + SEGMENT_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Integer.parseInt(name.substring(SEGMENT_FILE_PREFIX.length(),
+                        name.length() - SEGMENT_FILE_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+        for (int id : ids) {
+            Segment segment = new Segment(id, false);
+            if (segment.size() < SEGMENT_HEADER_SIZE || segment.buffer.getInt(0) != MAGIC) {
+                // created but never initialized
+                segment.delete();
+                continue;
+            }
+            segments.put(id, segment);
+            replay(segment);
+            active = segment;
+        }
+        if (active == null || active.isSealed()) {
+            active = createSegment();
+        } else {
+            // clear the torn tail, so that later appends are not followed by stale records, the zero pages of the
+            // sparse file are only read
+            ByteBuffer buffer = active.buffer;
+            int i = active.end;
+            for (int size = active.size(); i < size; i++) {
+                if ((i & 7) == 0 && i + 8 <= size) {
+                    if (buffer.getLong(i) != 0L) {
+                        buffer.putLong(i, 0L);
+                    }
+                    i += 7;
+                } else if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+        }
+    }
+
+    private void replay(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        boolean verify = !segment.isSealed();
+        int offset = SEGMENT_HEADER_SIZE;
+        int size = segment.size();
+        while (offset + HEADER_SIZE <= size) {
+            int length = buffer.getInt(offset + RECORD_LENGTH_OFFSET);
+            int keyLength = buffer.getInt(offset + KEY_LENGTH_OFFSET);
+            int valueLength = buffer.getInt(offset + VALUE_LENGTH_OFFSET);
+            if (length < HEADER_SIZE || length > size - offset || keyLength < 0 ||
+                    length != recordLength(keyLength, Math.max(valueLength, 0)) ||
+                    (verify && buffer.getInt(offset + CRC_OFFSET) != crc(buffer, offset, keyLength, valueLength))) {
+                break;
+            }
+            long address = address(segment.id, offset);
+            int hash = buffer.getInt(offset + HASH_OFFSET);
+            int slot = findSlot(hash, buffer, offset + HEADER_SIZE, keyLength);
+            if (valueLength == TOMBSTONE) {
+                if (slot >= 0) {
+                    release(index.address(slot));
+                    index.delete(slot);
+                }
+            } else {
+                if (slot >= 0) {
+                    release(index.address(slot));
+                    index.setAddress(slot, address);
+                } else {
+                    index.insert(hash, address);
+                }
+                segment.liveBytes += length;
+            }
+            offset += length;
+        }
+        segment.end = offset;
+    }
+
+    /**
+     * @return the result of the reader, or <code>null</code> if the key is absent
+     */
+    <T> T get(ByteBuffer key, ValueReader<T> reader) {
+        int hash = OffHeapIndex.hash(key);
+        lock.readLock().lock();
+        try {
+            assertNotClosed();
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            long address = index.address(slot);
+            ByteBuffer buffer = segment(address).buffer;
+            int offset = offset(address);
+            int valueOffset = offset + HEADER_SIZE + buffer.getInt(offset + KEY_LENGTH_OFFSET);
+            ByteBuffer value = buffer.duplicate();
+            value.limit(valueOffset + buffer.getInt(offset + VALUE_LENGTH_OFFSET)).position(valueOffset);
+            return reader.read(value.asReadOnlyBuffer(), buffer.getLong(offset + EXPIRATION_TIME_OFFSET));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the expiration time of the key, or {@link #ABSENT}
+     */
+    long getExpirationTime(ByteBuffer key) {
+        int hash = OffHeapIndex.hash(key);
+        lock.readLock().lock();
+        try {
+            assertNotClosed();
+            int slot = find(key, hash);
+            return slot < 0 ? ABSENT : expirationTime(index.address(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Update the expiration time of the key in place.
+     *
+     * @return <code>true</code> if the key is present
+     */
+    boolean setExpirationTime(ByteBuffer key, long expirationTime) {
+        int hash = OffHeapIndex.hash(key);
+        lock.writeLock().lock();
+        try {
+            assertNotClosed();
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return false;
+            }
+            long address = index.address(slot);
+            segment(address).buffer.putLong(offset(address) + EXPIRATION_TIME_OFFSET, expirationTime);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append the record, replacing the former one of the key.
+     *
+     * @param key        the bytes of key between the position and the limit, the buffer is not changed
+     * @param serializer the serializer writing the value into the segment
+     * @return <code>false</code> if the record is larger than a segment, the former record is removed then
+     */
+    <T> boolean put(ByteBuffer key, Serializer<T> serializer, T value, long expirationTime) {
+        int hash = OffHeapIndex.hash(key);
+        int valueLength = serializer.sizeOf(value);
+        int length = recordLength(key.remaining(), valueLength);
+        lock.writeLock().lock();
+        try {
+            assertNotClosed();
+            if (length > Math.max(segmentSize, active.size()) - SEGMENT_HEADER_SIZE) {
+                remove(key, hash);
+                return false;
+            }
+            // the former record is unlinked before making room, which would evict it as if the key were dropped, the
+            // appended record supersedes it when the segments are replayed
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                release(index.address(slot));
+                index.delete(slot);
+            }
+            long address = append(hash, key, serializer, value, valueLength, expirationTime);
+            index.insert(hash, address);
+            segment(address).liveBytes += length;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the expiration time of the removed record, or {@link #ABSENT}
+     */
+    long remove(ByteBuffer key) {
+        int hash = OffHeapIndex.hash(key);
+        lock.writeLock().lock();
+        try {
+            assertNotClosed();
+            return remove(key, hash);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the record of the key if it has expired.
+     *
+     * @return <code>true</code> if removed
+     */
+    boolean removeIfExpired(ByteBuffer key) {
+        int hash = OffHeapIndex.hash(key);
+        lock.writeLock().lock();
+        try {
+            assertNotClosed();
+            int slot = find(key, hash);
+            if (slot < 0 || expirationTime(index.address(slot)) > clock.getAsLong()) {
+                return false;
+            }
+            remove(key, hash);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long remove(ByteBuffer key, int hash) {
+        int slot = find(key, hash);
+        if (slot < 0) {
+            return ABSENT;
+        }
+        long expirationTime = expirationTime(index.address(slot));
+        // the tombstone may roll the segments over, which moves or drops records
+        append(hash, key, null, null, TOMBSTONE, Long.MAX_VALUE);
+        slot = find(key, hash);
+        if (slot >= 0) {
+            release(index.address(slot));
+            index.delete(slot);
+        }
+        return expirationTime;
+    }
+
+    /**
+     * Compact the sparsest sealed segment if it is under {@link #COMPACTION_THRESHOLD}.
+     *
+     * @return <code>true</code> if a segment was compacted, so that another one may be
+     */
+    boolean compact() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            Segment sparsest = sparsestSealedSegment();
+            if (sparsest == null || sparsest.liveBytes > (sparsest.end - SEGMENT_HEADER_SIZE) * COMPACTION_THRESHOLD) {
+                return false;
+            }
+            compact(sparsest);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of records, including the expired ones not reclaimed yet
+     */
+    long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit the keys of the records, including the expired ones not reclaimed yet.
+     *
+     * @param action given the bytes of a key between the position and the limit, valid during the call only
+     */
+    void forEachKey(Consumer<ByteBuffer> action) {
+        lock.readLock().lock();
+        try {
+            assertNotClosed();
+            for (int slot = 0, capacity = index.capacity(); slot < capacity; slot++) {
+                if (!index.isEmpty(slot)) {
+                    long address = index.address(slot);
+                    action.accept(keyOf(segment(address).buffer, offset(address)));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the bytes of the segment files
+     */
+    long fileBytes() {
+        lock.readLock().lock();
+        try {
+            return fileBytesLocked();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all records and their segment files.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            assertNotClosed();
+            index.clear();
+            for (Segment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            active = createSegment();
+        } catch (IOException e) {
+            throw new CacheException(format("Failed to clear the segments in %s", directory), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Force the active segment to the disk and release the files, the records are kept for the next opening.
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.buffer.force();
+            segments.clear();
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void assertNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("The store of " + directory + " has been closed!");
+        }
+    }
+
+    /**
+     * @param valueLength the length of value, or {@link #TOMBSTONE} to append a tombstone without value
+     */
+    private <T> long append(int hash, ByteBuffer key, Serializer<T> serializer, T value, int valueLength,
+                            long expirationTime) {
+        int keyLength = key.remaining();
+        int length = recordLength(keyLength, Math.max(valueLength, 0));
+        ByteBuffer buffer = reserve(length).buffer;
+        int offset = active.end;
+        buffer.putInt(offset + RECORD_LENGTH_OFFSET, length);
+        buffer.putInt(offset + KEY_LENGTH_OFFSET, keyLength);
+        buffer.putInt(offset + VALUE_LENGTH_OFFSET, valueLength);
+        buffer.putInt(offset + HASH_OFFSET, hash);
+        buffer.putLong(offset + EXPIRATION_TIME_OFFSET, expirationTime);
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset + HEADER_SIZE);
+        target.put(key.duplicate());
+        if (valueLength != TOMBSTONE) {
+            target.limit(target.position() + valueLength);
+            // the end is not advanced before the value is complete, so a failed write is overwritten by the next one
+            serializer.write(value, target);
+            if (target.hasRemaining()) {
+                throw new CacheException(format("The serializer[%s] wrote %d bytes while %d are expected",
+                        serializer.getClass().getName(), valueLength - target.remaining(), valueLength));
+            }
+        }
+        buffer.putInt(offset + CRC_OFFSET, crc(buffer, offset, keyLength, valueLength));
+        active.end += length;
+        return address(active.id, offset);
+    }
+
+    /**
+     * Copy a record of another segment to the active one.
+     */
+    private long appendCopy(ByteBuffer source, int sourceOffset, int length) {
+        reserve(length);
+        int offset = active.end;
+        ByteBuffer record = source.duplicate();
+        record.limit(sourceOffset + length).position(sourceOffset);
+        ByteBuffer target = active.buffer.duplicate();
+        target.position(offset);
+        target.put(record);
+        active.end += length;
+        return address(active.id, offset);
+    }
+
+    /**
+     * Roll the active segment over if the record does not fit, then make room under the capacity.
+     */
+    private Segment reserve(int length) {
+        if (active.end + length <= active.size()) {
+            return active;
+        }
+        try {
+            active.seal();
+            active = createSegment();
+            while (fileBytesLocked() > capacity) {
+                Segment sparsest = sparsestSealedSegment();
+                if (sparsest != null && sparsest.liveBytes <= (sparsest.end - SEGMENT_HEADER_SIZE) * COMPACTION_THRESHOLD
+                        && active.end + sparsest.liveBytes + length <= segmentSize) {
+                    compact(sparsest);
+                } else {
+                    evict(segments.firstEntry().getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new CacheException(format("Failed to roll the segments in %s over", directory), e);
+        }
+        return active;
+    }
+
+    private long fileBytesLocked() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.size();
+        }
+        return bytes;
+    }
+
+    private Segment sparsestSealedSegment() {
+        Segment sparsest = null;
+        for (Segment segment : segments.values()) {
+            if (segment != active && (sparsest == null || segment.liveBytes < sparsest.liveBytes)) {
+                sparsest = segment;
+            }
+        }
+        return sparsest;
+    }
+
+    /**
+     * Copy the live records to the active segment, and delete the segment. The tombstones are kept unless there is no
+     * older segment left, and the expired records become tombstones for the same reason.
+     */
+    private void compact(Segment segment) {
+        boolean oldest = segments.firstKey() == segment.id;
+        ByteBuffer buffer = segment.buffer;
+        long now = clock.getAsLong();
+        int offset = SEGMENT_HEADER_SIZE;
+        // detach the segment first, so that a roll-over while copying does not pick it again
+        segments.remove(segment.id);
+        while (offset < segment.end) {
+            int length = buffer.getInt(offset + RECORD_LENGTH_OFFSET);
+            int hash = buffer.getInt(offset + HASH_OFFSET);
+            if (buffer.getInt(offset + VALUE_LENGTH_OFFSET) == TOMBSTONE) {
+                if (!oldest) {
+                    appendCopy(buffer, offset, length);
+                }
+            } else {
+                int slot = index.findAddress(hash, address(segment.id, offset));
+                if (slot >= 0) {
+                    if (buffer.getLong(offset + EXPIRATION_TIME_OFFSET) <= now) {
+                        index.delete(slot);
+                        if (!oldest) {
+                            appendTombstoneOf(buffer, offset, hash);
+                        }
+                        if (removalListener != null) {
+                            removalListener.onExpired(keyOf(buffer, offset));
+                        }
+                    } else {
+                        long address = appendCopy(buffer, offset, length);
+                        // the copy may have rolled the segments over and evicted the key
+                        slot = index.findAddress(hash, address(segment.id, offset));
+                        if (slot >= 0) {
+                            index.setAddress(slot, address);
+                            segment(address).liveBytes += length;
+                        }
+                    }
+                }
+            }
+            offset += length;
+        }
+        active.buffer.force();
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            throw new CacheException(format("Failed to delete the segment %s", segment.path), e);
+        }
+    }
+
+    private void appendTombstoneOf(ByteBuffer buffer, int offset, int hash) {
+        // the detached segment stays mapped until it is deleted, so the key is not copied
+        append(hash, keyOf(buffer, offset), null, null, TOMBSTONE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return a read-only view of the key of the record at the offset
+     */
+    private static ByteBuffer keyOf(ByteBuffer buffer, int offset) {
+        int keyOffset = offset + HEADER_SIZE;
+        ByteBuffer key = buffer.duplicate();
+        key.limit(keyOffset + buffer.getInt(offset + KEY_LENGTH_OFFSET)).position(keyOffset);
+        return key.asReadOnlyBuffer();
+    }
+
+    /**
+     * Drop all live records of the oldest segment, and delete it.
+     */
+    private void evict(Segment segment) throws IOException {
+        ByteBuffer buffer = segment.buffer;
+        long now = clock.getAsLong();
+        int offset = SEGMENT_HEADER_SIZE;
+        while (offset < segment.end) {
+            int slot = index.findAddress(buffer.getInt(offset + HASH_OFFSET), address(segment.id, offset));
+            if (slot >= 0) {
+                index.delete(slot);
+                if (removalListener != null) {
+                    if (buffer.getLong(offset + EXPIRATION_TIME_OFFSET) > now) {
+                        removalListener.onEvicted(keyOf(buffer, offset));
+                    } else {
+                        removalListener.onExpired(keyOf(buffer, offset));
+                    }
+                }
+            }
+            offset += buffer.getInt(offset + RECORD_LENGTH_OFFSET);
+        }
+        segments.remove(segment.id);
+        segment.delete();
+    }
+
+    private void release(long address) {
+        Segment segment = segment(address);
+        segment.liveBytes -= segment.buffer.getInt(offset(address) + RECORD_LENGTH_OFFSET);
+    }
+
+    private int find(ByteBuffer key, int hash) {
+        for (int slot = index.home(hash); !index.isEmpty(slot); slot = index.next(slot)) {
+            if (index.hash(slot) == hash && keyEquals(index.address(slot), key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findSlot(int hash, ByteBuffer buffer, int keyOffset, int keyLength) {
+        for (int slot = index.home(hash); !index.isEmpty(slot); slot = index.next(slot)) {
+            if (index.hash(slot) == hash) {
+                long address = index.address(slot);
+                ByteBuffer other = segment(address).buffer;
+                int otherOffset = offset(address);
+                if (other.getInt(otherOffset + KEY_LENGTH_OFFSET) == keyLength &&
+                        OffHeapIndex.rangeEquals(other, otherOffset + HEADER_SIZE, buffer, keyOffset, keyLength)) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(long address, ByteBuffer key) {
+        ByteBuffer buffer = segment(address).buffer;
+        int offset = offset(address);
+        return buffer.getInt(offset + KEY_LENGTH_OFFSET) == key.remaining() &&
+                OffHeapIndex.rangeEquals(buffer, offset + HEADER_SIZE, key, key.position(), key.remaining());
+    }
+
+    private long expirationTime(long address) {
+        return segment(address).buffer.getLong(offset(address) + EXPIRATION_TIME_OFFSET);
+    }
+
+    private Segment segment(long address) {
+        return segments.get((int) (address >>> 32));
+    }
+
+    private int crc(ByteBuffer buffer, int offset, int keyLength, int valueLength) {
+        crc.reset();
+        ByteBuffer range = buffer.duplicate();
+        range.limit(offset + EXPIRATION_TIME_OFFSET).position(offset + RECORD_LENGTH_OFFSET);
+        crc.update(range);
+        int payload = keyLength + Math.max(valueLength, 0);
+        range.limit(offset + HEADER_SIZE + payload).position(offset + HEADER_SIZE);
+        crc.update(range);
+        return (int) crc.getValue();
+    }
+
+    private Segment createSegment() throws IOException {
+        int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Segment segment = new Segment(id, true);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    static int recordLength(int keyLength, int valueLength) {
+        long length = (long) HEADER_SIZE + keyLength + valueLength;
+        return (int) Math.min(Integer.MAX_VALUE & ~7, (length + 7) & ~7L);
+    }
+
+    private static long address(int segmentId, int offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private final class Segment {
+
+        final int id;
+
+        final Path path;
+
+        final MappedByteBuffer buffer;
+
+        int end = SEGMENT_HEADER_SIZE;
+
+        int liveBytes;
+
+        /**
+         * @param create <code>true</code> to create a file of the segment size, or else the existing file is mapped
+         *               with its own size
+         */
+        Segment(int id, boolean create) throws IOException {
+            this.id = id;
+            this.path = directory.resolve(format("%s%010d%s", SEGMENT_FILE_PREFIX, id, SEGMENT_FILE_SUFFIX));
+            // the mapping stays valid after the channel is closed
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                if (create) {
+                    file.setLength(segmentSize);
+                }
+                this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            }
+            if (create) {
+                buffer.putInt(0, MAGIC);
+            }
+        }
+
+        int size() {
+            return buffer.capacity();
+        }
+
+        boolean isSealed() {
+            return buffer.getInt(SEALED_OFFSET) != 0;
+        }
+
+        void seal() {
+            buffer.force();
+            buffer.putInt(SEALED_OFFSET, 1);
+            buffer.force();
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.mycache.management;
+
+import javax.cache.management.CacheStatisticsMXBean;
+
+/**
+ * The {@link CacheStatisticsMXBean} with the percentiles of the latencies, since the averages hide the tail.
+ * <p>
+ * As the averages, the percentiles are in microseconds.
+ */
+public interface CacheLatencyStatisticsMXBean extends CacheStatisticsMXBean {
+
+    float getGetTime50thPercentile();
+
+    float getGetTime99thPercentile();
+
+    float getGetTime999thPercentile();
+
+    float getPutTime50thPercentile();
+
+    float getPutTime99thPercentile();
+
+    float getPutTime999thPercentile();
+}
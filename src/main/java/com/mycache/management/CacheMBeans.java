@@ -0,0 +1,79 @@
+package com.mycache.management;
+
+import javax.cache.CacheException;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+
+import static java.lang.String.format;
+
+/**
+ * The registration of the MXBeans of the caches in the platform {@link MBeanServer}, under the object names of
+ * JSR-107 :
+ * <p>
+ * javax.cache:type=CacheConfiguration,CacheManager=${uri},Cache=${cacheName}<br>
+ * javax.cache:type=CacheStatistics,CacheManager=${uri},Cache=${cacheName}
+ */
+public final class CacheMBeans {
+
+    public static final String CONFIGURATION_TYPE = "CacheConfiguration";
+
+    public static final String STATISTICS_TYPE = "CacheStatistics";
+
+    private CacheMBeans() {
+    }
+
+    /**
+     * Register the MXBean, replacing the one registered under the same name by another cache manager of the URI.
+     */
+    public static void register(Object mbean, String type, URI uri, String cacheName) throws CacheException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName(type, uri, cacheName);
+        try {
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            throw new CacheException(format("Failed to register the MBean %s", name), e);
+        }
+    }
+
+    public static void unregister(String type, URI uri, String cacheName) throws CacheException {
+        ObjectName name = objectName(type, uri, cacheName);
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (InstanceNotFoundException ignored) {
+            // not registered
+        } catch (JMException e) {
+            throw new CacheException(format("Failed to unregister the MBean %s", name), e);
+        }
+    }
+
+    public static boolean isRegistered(String type, URI uri, String cacheName) {
+        return ManagementFactory.getPlatformMBeanServer().isRegistered(objectName(type, uri, cacheName));
+    }
+
+    static ObjectName objectName(String type, URI uri, String cacheName) {
+        try {
+            return new ObjectName("javax.cache:type=" + type + ",CacheManager=" + sanitize(uri.toString()) +
+                    ",Cache=" + sanitize(cacheName));
+        } catch (MalformedObjectNameException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    /**
+     * Replace the characters which are illegal in a value of object name
+     */
+    private static String sanitize(String value) {
+        return value == null ? "" : value.replaceAll("[,:=\n*?\"]", ".");
+    }
+}
@@ -0,0 +1,87 @@
+package com.mycache.management;
+
+import com.mycache.AbstractCache;
+
+import javax.cache.configuration.CompleteConfiguration;
+
+/**
+ * The {@link CacheManagementMXBean} of a cache, reading its settings from its current configuration.
+ */
+public class CacheManagement implements CacheManagementMXBean {
+
+    private final AbstractCache<?, ?> cache;
+
+    public CacheManagement(AbstractCache<?, ?> cache) {
+        this.cache = cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompleteConfiguration<?, ?> getConfiguration() {
+        return cache.getConfiguration(CompleteConfiguration.class);
+    }
+
+    @Override
+    public String getKeyType() {
+        return getConfiguration().getKeyType().getName();
+    }
+
+    @Override
+    public String getValueType() {
+        return getConfiguration().getValueType().getName();
+    }
+
+    @Override
+    public boolean isReadThrough() {
+        return getConfiguration().isReadThrough();
+    }
+
+    @Override
+    public boolean isWriteThrough() {
+        return getConfiguration().isWriteThrough();
+    }
+
+    @Override
+    public boolean isStoreByValue() {
+        return getConfiguration().isStoreByValue();
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return getConfiguration().isStatisticsEnabled();
+    }
+
+    @Override
+    public boolean isManagementEnabled() {
+        return getConfiguration().isManagementEnabled();
+    }
+
+    @Override
+    public long getMaximumSize() {
+        return cache.getMaximumSize();
+    }
+
+    @Override
+    public void setMaximumSize(long maximumSize) {
+        cache.setMaximumSize(maximumSize);
+    }
+
+    @Override
+    public long getTimeToLive() {
+        return cache.getTimeToLive();
+    }
+
+    @Override
+    public void setTimeToLive(long timeToLive) {
+        cache.setTimeToLive(timeToLive);
+    }
+
+    @Override
+    public String getEvictionPolicy() {
+        return cache.getEvictionPolicy();
+    }
+
+    @Override
+    public void setEvictionPolicy(String evictionPolicy) {
+        cache.setEvictionPolicy(evictionPolicy);
+    }
+}
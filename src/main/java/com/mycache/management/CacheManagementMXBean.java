@@ -0,0 +1,40 @@
+package com.mycache.management;
+
+import javax.cache.management.CacheMXBean;
+
+/**
+ * The {@link CacheMXBean} with the settings which may be changed at runtime, without recreating the cache nor
+ * dropping its entries, e.g. from JConsole.
+ */
+public interface CacheManagementMXBean extends CacheMXBean {
+
+    /**
+     * @return the maximum number of entries, -1 means no limit
+     */
+    long getMaximumSize();
+
+    /**
+     * Change the maximum number of entries, the entries beyond the new bound are evicted.
+     */
+    void setMaximumSize(long maximumSize);
+
+    /**
+     * @return the milliseconds the entries live since they are created or updated, -1 means they never expire
+     */
+    long getTimeToLive();
+
+    /**
+     * Change the time to live of the entries created or updated from now on.
+     */
+    void setTimeToLive(long timeToLive);
+
+    /**
+     * @return the name of the eviction policy
+     */
+    String getEvictionPolicy();
+
+    /**
+     * Change the eviction policy, the entries are kept.
+     */
+    void setEvictionPolicy(String evictionPolicy);
+}
@@ -0,0 +1,178 @@
+package com.mycache.management;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of a cache, recorded by {@link LongAdder} counters, which are striped under contention, so that
+ * recording costs a few nanoseconds per operation.
+ * <p>
+ * The latencies are recorded in nanoseconds and reported in microseconds, as JSR-107 requires.
+ */
+public class CacheStatistics implements CacheLatencyStatisticsMXBean {
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder removals = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder getNanos = new LongAdder();
+
+    private final LongAdder putNanos = new LongAdder();
+
+    private final LongAdder removeNanos = new LongAdder();
+
+    private final LatencyHistogram getLatencies = new LatencyHistogram();
+
+    private final LatencyHistogram putLatencies = new LatencyHistogram();
+
+    public void recordHits(long count) {
+        hits.add(count);
+    }
+
+    public void recordMisses(long count) {
+        misses.add(count);
+    }
+
+    public void recordPuts(long count) {
+        puts.add(count);
+    }
+
+    public void recordRemovals(long count) {
+        removals.add(count);
+    }
+
+    public void recordEvictions(long count) {
+        evictions.add(count);
+    }
+
+    public void recordGetTime(long nanos) {
+        getNanos.add(nanos);
+        getLatencies.record(nanos);
+    }
+
+    public void recordPutTime(long nanos) {
+        putNanos.add(nanos);
+        putLatencies.record(nanos);
+    }
+
+    public void recordRemoveTime(long nanos) {
+        removeNanos.add(nanos);
+    }
+
+    @Override
+    public void clear() {
+        hits.reset();
+        misses.reset();
+        puts.reset();
+        removals.reset();
+        evictions.reset();
+        getNanos.reset();
+        putNanos.reset();
+        removeNanos.reset();
+        getLatencies.reset();
+        putLatencies.reset();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public float getCacheHitPercentage() {
+        return percentage(getCacheHits(), getCacheGets());
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public float getCacheMissPercentage() {
+        return percentage(getCacheMisses(), getCacheGets());
+    }
+
+    @Override
+    public long getCacheGets() {
+        return getCacheHits() + getCacheMisses();
+    }
+
+    @Override
+    public long getCachePuts() {
+        return puts.sum();
+    }
+
+    @Override
+    public long getCacheRemovals() {
+        return removals.sum();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public float getAverageGetTime() {
+        return average(getNanos.sum(), getCacheGets());
+    }
+
+    @Override
+    public float getAveragePutTime() {
+        return average(putNanos.sum(), getCachePuts());
+    }
+
+    @Override
+    public float getAverageRemoveTime() {
+        return average(removeNanos.sum(), getCacheRemovals());
+    }
+
+    @Override
+    public float getGetTime50thPercentile() {
+        return micros(getLatencies.getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public float getGetTime99thPercentile() {
+        return micros(getLatencies.getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public float getGetTime999thPercentile() {
+        return micros(getLatencies.getValueAtQuantile(0.999));
+    }
+
+    @Override
+    public float getPutTime50thPercentile() {
+        return micros(putLatencies.getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public float getPutTime99thPercentile() {
+        return micros(putLatencies.getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public float getPutTime999thPercentile() {
+        return micros(putLatencies.getValueAtQuantile(0.999));
+    }
+
+    private static float percentage(long count, long total) {
+        return total == 0 ? 0 : count * 100f / total;
+    }
+
+    private static float average(long nanos, long count) {
+        return count == 0 ? 0 : micros(nanos) / count;
+    }
+
+    private static float micros(long nanos) {
+        return nanos / (float) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,119 @@
+package com.mycache.management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The histogram of latencies in nanoseconds, recorded without lock nor allocation.
+ * <p>
+ * Like HdrHistogram, the buckets are log-linear : every power of two is split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, so that a percentile is reported within 1/{@value #SUB_BUCKETS} of the recorded value, whatever its
+ * magnitude, with a few hundreds of counters. The latencies beyond 2^{@value #MAXIMUM_EXPONENT} nanoseconds (about
+ * 4.9 hours) are counted in the last bucket.
+ * <p>
+ * The counters are striped by thread, so that the concurrent recorders of the same latency don't contend on one
+ * counter, the stripes are summed when a percentile is read.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int MAXIMUM_EXPONENT = 44;
+
+    /**
+     * The first group holds the values below {@link #SUB_BUCKETS} one by one, every next group a power of two
+     */
+    static final int BUCKETS = (MAXIMUM_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private static final int MAXIMUM_STRIPES = 8;
+
+    private final int stripeMask;
+
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        int stripes = Math.min(MAXIMUM_STRIPES, Integer.highestOneBit(
+                Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+    }
+
+    /**
+     * @param nanos the latency, the negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * BUCKETS + bucketOf(nanos));
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAXIMUM_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        // the top bit of the shifted value is always set, the next bits select the sub-bucket
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the lowest value of the bucket
+     */
+    static long lowestOf(int bucket) {
+        int group = bucket / SUB_BUCKETS;
+        int subBucket = bucket % SUB_BUCKETS;
+        return group == 0 ? subBucket : (long) (SUB_BUCKETS + subBucket) << (group - 1);
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the latency which the given fraction of the recorded latencies doesn't exceed.
+     *
+     * @param quantile the fraction in [0, 1], e.g. 0.99 for the 99th percentile
+     * @return the highest value of the bucket holding the quantile, or zero if nothing is recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("The quantile must be in [0, 1] : " + quantile);
+        }
+        long[] buckets = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            buckets[i % BUCKETS] += count;
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS - 1; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank) {
+                return lowestOf(bucket + 1) - 1;
+            }
+        }
+        return lowestOf(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+}
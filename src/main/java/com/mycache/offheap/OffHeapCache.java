@@ -0,0 +1,265 @@
+package com.mycache.offheap;
+
+import com.mycache.AbstractCache;
+import com.mycache.CacheConfiguration;
+import com.mycache.ExpirableEntry;
+import com.mycache.weigher.Weighers;
+
+import javax.cache.CacheException;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * The cache storing the serialized entries in direct memory, see {@link OffHeapStore}. The entries returned by reads
+ * are short-lived copies, so that the heap only retains the slabs and the index buffers whatever the number of entries.
+ * <p>
+ * The expired entries are reclaimed lazily, by the read which meets them or when their slab is compacted.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class OffHeapCache<K, V> extends AbstractCache<K, V> {
+
+    /**
+     * The cache property name of the maximum bytes of slabs, units are allowed, e.g : 256m
+     */
+    public static final String MAXIMUM_WEIGHT_PROPERTY_NAME = "maximum-weight";
+
+    /**
+     * The cache property name of the size of a slab, which is also the maximum size of a serialized entry
+     */
+    public static final String SLAB_SIZE_PROPERTY_NAME = "slab-size";
+
+    static final long DEFAULT_MAXIMUM_WEIGHT = 64L << 20;
+
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private static final Logger logger = Logger.getLogger(OffHeapCache.class.getName());
+
+    private final OffHeapStore store;
+
+    private final Class<K> keyType;
+
+    /**
+     * <code>true</code> until the entries may expire, see {@link #startExpiring()}
+     */
+    private volatile boolean eternal;
+
+    protected OffHeapCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
+        super(cacheManager, cacheName, configuration);
+        this.keyType = configuration.getKeyType();
+        this.eternal = isEternal();
+        this.store = new OffHeapStore(resolveMaximumWeight(), resolveSlabSize(),
+                new OffHeapStore.EvictionListener() {
+                    @Override
+                    public void onEvicted(ByteBuffer key, ByteBuffer value, long expirationTime) {
+                        recordEvictions(1);
+                        if (hasTags()) {
+                            releaseTags(getKeySerializer().read(key.duplicate()));
+                        }
+                        OffHeapCache.this.onEvicted(key, value, expirationTime);
+                    }
+
+                    @Override
+                    public void onExpired(ByteBuffer key) {
+                        if (hasTags()) {
+                            releaseTags(getKeySerializer().read(key.duplicate()));
+                        }
+                        OffHeapCache.this.onExpired(key);
+                    }
+                });
+    }
+
+    private long resolveMaximumWeight() {
+        long maximumWeight = CacheConfiguration.UNBOUNDED;
+        if (getConfiguration() instanceof CacheConfiguration) {
+            maximumWeight = ((CacheConfiguration<K, V>) getConfiguration()).getMaximumWeight();
+        }
+        if (maximumWeight == CacheConfiguration.UNBOUNDED) {
+            String value = getCacheProperty(MAXIMUM_WEIGHT_PROPERTY_NAME);
+            maximumWeight = value == null ? DEFAULT_MAXIMUM_WEIGHT : Weighers.parseBytes(value);
+        }
+        return maximumWeight;
+    }
+
+    private int resolveSlabSize() {
+        String value = getCacheProperty(SLAB_SIZE_PROPERTY_NAME);
+        return value == null ? DEFAULT_SLAB_SIZE : (int) Weighers.parseBytes(value);
+    }
+
+    /**
+     * The eternal cache only skips the reads of the ticker, its entries are stored to never expire.
+     */
+    @Override
+    protected void startExpiring() {
+        eternal = false;
+    }
+
+    @Override
+    protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        K key = entry.getKey();
+        requireKeyType(key);
+        ByteBuffer serializedKey = serializeKey(key);
+        long now = 0L;
+        long expirationTime = Long.MAX_VALUE;
+        if (!eternal) {
+            now = getTicker().read();
+            long currentExpirationTime = store.getExpirationTime(serializedKey);
+            if (currentExpirationTime == OffHeapStore.ABSENT || currentExpirationTime <= now) {
+                expirationTime = expirationTimeForCreation(now);
+            } else {
+                ExpirableEntry<K, V> current = new ExpirableEntry<>(key, entry.getValue());
+                current.setExpirationTime(currentExpirationTime);
+                expirationTime = expirationTimeForUpdate(current, now);
+            }
+            if (expirationTime <= now) {
+                // a zero duration : the entry is not stored, and a former value must not survive the write
+                store.remove(serializedKey);
+                return;
+            }
+        }
+        entry.setExpirationTime(expirationTime);
+        if (!store.put(serializedKey, getValueSerializer(), entry.getValue(), expirationTime, now)) {
+            logger.warning(format("The entry of key = %s is larger than a slab of cache[%s], it is not stored",
+                    key, getName()));
+            return;
+        }
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("add key = " + key + " to cache[" + getName() + "]");
+        }
+    }
+
+    @Override
+    protected void restoreEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        K key = entry.getKey();
+        requireKeyType(key);
+        long now = eternal ? 0L : getTicker().read();
+        if (entry.isExpired(now)) {
+            return;
+        }
+        store.put(serializeKey(key), getValueSerializer(), entry.getValue(),
+                entry.getExpirationTime(), now);
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
+        ByteBuffer serializedKey = serializeKey(key);
+        ExpirableEntry<K, V> entry = store.get(serializedKey, (value, expirationTime) -> {
+            ExpirableEntry<K, V> read = new ExpirableEntry<>(key, getValueSerializer().read(value));
+            read.setExpirationTime(expirationTime);
+            return read;
+        });
+        if (entry == null || eternal) {
+            return entry;
+        }
+        long now = getTicker().read();
+        if (entry.isExpired(now)) {
+            if (store.removeIfExpired(serializedKey, now)) {
+                publishExpired(entry);
+                onExpired(serializedKey);
+            }
+            return null;
+        }
+        long expirationTime = expirationTimeForAccess(entry, now);
+        if (expirationTime != entry.getExpirationTime()) {
+            entry.setExpirationTime(expirationTime);
+            store.setExpirationTime(serializedKey, expirationTime);
+        }
+        return entry;
+    }
+
+    @Override
+    protected boolean removeEntry(K key) {
+        long expirationTime = store.remove(serializeKey(key));
+        if (expirationTime != OffHeapStore.ABSENT && logger.isLoggable(Level.FINEST)) {
+            logger.finest("remove key = " + key + " from cache[" + getName() + "]");
+        }
+        return expirationTime != OffHeapStore.ABSENT && (eternal || expirationTime > getTicker().read());
+    }
+
+    @Override
+    protected Set<K> getKeys() throws CacheException {
+        Set<K> keys = new HashSet<>();
+        store.forEachKey(key -> keys.add(getKeySerializer().read(key)));
+        return keys;
+    }
+
+    @Override
+    protected void clearEntries() {
+        store.clear();
+    }
+
+    /**
+     * The entries are serialized into the slabs and every read deserializes a fresh value, so storing by value needs no
+     * copy.
+     */
+    @Override
+    protected boolean isSerializing() {
+        return true;
+    }
+
+    @Override
+    protected void doClose() {
+        store.close();
+    }
+
+    /**
+     * Subclass may override this method to be notified of the entries evicted to make room, it's called while the
+     * stripe of the entry is locked.
+     *
+     * @param key            the serialized key, valid during the call only
+     * @param value          the serialized value, valid during the call only
+     * @param expirationTime the expiration time of the entry
+     */
+    protected void onEvicted(ByteBuffer key, ByteBuffer value, long expirationTime) {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("evict key = " + getKeySerializer().read(key) + " from cache[" + getName() + "]");
+        }
+    }
+
+    /**
+     * Subclass may override this method to be notified of the expired entries reclaimed, by a read or while making
+     * room.
+     *
+     * @param key the serialized key, valid during the call only
+     */
+    protected void onExpired(ByteBuffer key) {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("expire key = " + getKeySerializer().read(key) + " from cache[" + getName() + "]");
+        }
+    }
+
+    private void requireKeyType(K key) throws ClassCastException {
+        if (keyType != null && keyType != Object.class) {
+            keyType.cast(key);
+        }
+    }
+
+    /**
+     * @return the number of entries currently held
+     */
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * @return the bytes of the live entries in the slabs
+     */
+    public long liveBytes() {
+        return store.liveBytes();
+    }
+
+    /**
+     * @return the bytes of direct memory allocated for the slabs
+     */
+    public long allocatedBytes() {
+        return store.allocatedBytes();
+    }
+}
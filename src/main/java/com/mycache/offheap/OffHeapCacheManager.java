@@ -0,0 +1,21 @@
+package com.mycache.offheap;
+
+import com.mycache.AbstractCacheManager;
+
+import javax.cache.Cache;
+import javax.cache.configuration.Configuration;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.Properties;
+
+public class OffHeapCacheManager extends AbstractCacheManager {
+
+    public OffHeapCacheManager(CachingProvider cachingProvider, URI uri, ClassLoader classLoader, Properties properties) {
+        super(cachingProvider, uri, classLoader, properties);
+    }
+
+    @Override
+    protected <K, V, C extends Configuration<K, V>> Cache doCreateCache(String cacheName, C configuration) {
+        return new OffHeapCache<K, V>(this, cacheName, configuration);
+    }
+}
@@ -0,0 +1,181 @@
+package com.mycache.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An open-addressing hash table kept in a direct {@link ByteBuffer}, mapping the hash of a key to the address of its
+ * record. The slots are probed linearly and deleted by backward shifting, so there are no tombstones.
+ * <p>
+ * Slot layout, 16 bytes : [long address + 1, 0 means empty][int hash][int unused]
+ * <p>
+ * The address is opaque to the index, the stores outside of the heap encode their slab or segment and offset in it.
+ * The index is not thread-safe, it must be guarded by the lock of its store.
+ */
+public final class OffHeapIndex {
+
+    static final int SLOT_SIZE = 16;
+
+    static final float LOAD_FACTOR = 0.75f;
+
+    private ByteBuffer slots;
+
+    private int mask;
+
+    private int size;
+
+    public OffHeapIndex(int initialCapacity) {
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1));
+    }
+
+    /**
+     * @return the hash of the serialized key, spread for both the stripes and the slots
+     */
+    public static int hash(ByteBuffer key) {
+        int hash = 1;
+        for (int i = key.position(), limit = key.limit(); i < limit; i++) {
+            hash = 31 * hash + key.get(i);
+        }
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compare the ranges of two buffers, by the absolute offsets.
+     */
+    public static boolean rangeEquals(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int length) {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (a.getLong(aOffset + i) != b.getLong(bOffset + i)) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (a.get(aOffset + i) != b.get(bOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void allocate(int capacity) {
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        this.mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots, the slots from 0 to the capacity are visited to enumerate the mappings
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the first slot of the probe sequence of the hash
+     */
+    public int home(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public int next(int slot) {
+        return (slot + 1) & mask;
+    }
+
+    public boolean isEmpty(int slot) {
+        return slots.getLong(slot * SLOT_SIZE) == 0L;
+    }
+
+    public long address(int slot) {
+        return slots.getLong(slot * SLOT_SIZE) - 1;
+    }
+
+    public int hash(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 8);
+    }
+
+    public void setAddress(int slot, long address) {
+        slots.putLong(slot * SLOT_SIZE, address + 1);
+    }
+
+    /**
+     * Insert a new mapping, the caller must have checked the key is absent.
+     */
+    public void insert(int hash, long address) {
+        if (size + 1 > (mask + 1) * LOAD_FACTOR) {
+            resize();
+        }
+        int slot = home(hash);
+        while (!isEmpty(slot)) {
+            slot = next(slot);
+        }
+        write(slot, hash, address);
+        size++;
+    }
+
+    /**
+     * Find the slot of the address among the slots of the hash.
+     *
+     * @return the slot, or -1 if absent
+     */
+    public int findAddress(int hash, long address) {
+        for (int slot = home(hash); !isEmpty(slot); slot = next(slot)) {
+            if (hash(slot) == hash && address(slot) == address) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void delete(int slot) {
+        int hole = slot;
+        int current = slot;
+        while (true) {
+            current = next(current);
+            if (isEmpty(current)) {
+                break;
+            }
+            int home = home(hash(current));
+            // move the entry back to the hole unless its home lies cyclically in (hole, current]
+            boolean movable = hole <= current ? (home <= hole || home > current) : (home <= hole && home > current);
+            if (movable) {
+                write(hole, hash(current), address(current));
+                hole = current;
+            }
+        }
+        slots.putLong(hole * SLOT_SIZE, 0L);
+        slots.putInt(hole * SLOT_SIZE + 8, 0);
+        size--;
+    }
+
+    public void clear() {
+        for (int i = 0, capacity = mask + 1; i < capacity; i++) {
+            slots.putLong(i * SLOT_SIZE, 0L);
+        }
+        size = 0;
+    }
+
+    private void write(int slot, int hash, long address) {
+        slots.putLong(slot * SLOT_SIZE, address + 1);
+        slots.putInt(slot * SLOT_SIZE + 8, hash);
+    }
+
+    private void resize() {
+        ByteBuffer oldSlots = slots;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            long storedAddress = oldSlots.getLong(i * SLOT_SIZE);
+            if (storedAddress != 0L) {
+                int hash = oldSlots.getInt(i * SLOT_SIZE + 8);
+                int slot = home(hash);
+                while (!isEmpty(slot)) {
+                    slot = next(slot);
+                }
+                write(slot, hash, storedAddress - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,640 @@
+package com.mycache.offheap;
+
+import com.mycache.serializer.Serializer;
+
+import javax.cache.CacheException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static java.lang.String.format;
+
+/**
+ * The storage of serialized entries outside of the Java heap. The keys are spread over lock-striped stripes, each one
+ * owning direct {@link ByteBuffer} slabs and an {@link OffHeapIndex}, so that an entry costs no object on the heap.
+ * <p>
+ * The records are appended to the current slab of a stripe. A replaced or removed record only decrements the live
+ * bytes of its slab, and the empty slabs are kept in a free-list. When a stripe runs out of slabs, the sealed slab with
+ * the fewest live bytes is compacted in place by sliding its live records to the front, which reclaims the holes
+ * without another slab. If every slab is too dense to be compacted, the oldest sealed slab is evicted as a whole.
+ * <p>
+ * Record layout, aligned to 8 bytes :
+ * [int record length][int key length][int value length][int hash][long expiration time][key bytes][value bytes]
+ * <p>
+ * The keys are compared by their serialized bytes, so equal keys must have the same serialized form. The values are
+ * written into the slab by their {@link Serializer}, without an intermediate copy.
+ */
+final class OffHeapStore {
+
+    /**
+     * The expiration time returned for the absent keys
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+
+    static final int HEADER_SIZE = 24;
+
+    private static final int RECORD_LENGTH_OFFSET = 0;
+
+    private static final int KEY_LENGTH_OFFSET = 4;
+
+    private static final int VALUE_LENGTH_OFFSET = 8;
+
+    private static final int HASH_OFFSET = 12;
+
+    private static final int EXPIRATION_TIME_OFFSET = 16;
+
+    private static final int MAXIMUM_STRIPES = 16;
+
+    private static final int MINIMUM_SLABS_PER_STRIPE = 4;
+
+    /**
+     * A sealed slab is compacted only if at most this part of it is live, or else the oldest slab is evicted
+     */
+    private static final float COMPACTION_THRESHOLD = 0.75f;
+
+    private static final byte FREE = 0;
+
+    private static final byte CURRENT = 1;
+
+    private static final byte SEALED = 2;
+
+    /**
+     * Reads the value of a record from a read-only view of the slab, without copying it.
+     *
+     * @param <T> the type of result
+     */
+    interface ValueReader<T> {
+
+        /**
+         * @param value          the bytes of value between the position and the limit
+         * @param expirationTime the expiration time of the record
+         * @return the result of read
+         */
+        T read(ByteBuffer value, long expirationTime);
+    }
+
+    /**
+     * The listener of the records dropped to make room, called while the lock of the stripe is held.
+     */
+    interface EvictionListener {
+
+        /**
+         * @param key            the bytes of key between the position and the limit
+         * @param value          the bytes of value between the position and the limit
+         * @param expirationTime the expiration time of the record
+         */
+        void onEvicted(ByteBuffer key, ByteBuffer value, long expirationTime);
+
+        /**
+         * Notified of the expired records dropped while making room, by a compaction or an eviction.
+         *
+         * @param key the bytes of key between the position and the limit
+         */
+        default void onExpired(ByteBuffer key) {
+        }
+    }
+
+    private final Stripe[] stripes;
+
+    private final int stripeMask;
+
+    private final int slabSize;
+
+    private final EvictionListener evictionListener;
+
+    /**
+     * @param capacity         the maximum bytes of slabs
+     * @param slabSize         the size of one slab, which bounds the size of a record
+     * @param evictionListener the listener of evictions, may be <code>null</code>
+     */
+    OffHeapStore(long capacity, int slabSize, EvictionListener evictionListener) {
+        if (slabSize < HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("The slab size must not be less than " + HEADER_SIZE * 2);
+        }
+        long slabs = Math.max(capacity / slabSize, MINIMUM_SLABS_PER_STRIPE);
+        int stripeCount = (int) Math.min(MAXIMUM_STRIPES, Math.max(1, slabs / MINIMUM_SLABS_PER_STRIPE));
+        stripeCount = Integer.highestOneBit(stripeCount);
+        int slabsPerStripe = (int) Math.min(Integer.MAX_VALUE, slabs / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i, slabsPerStripe);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.slabSize = slabSize;
+        this.evictionListener = evictionListener;
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[(hash >>> 8) & stripeMask];
+    }
+
+    /**
+     * @return the result of the reader, or <code>null</code> if the key is absent
+     */
+    <T> T get(ByteBuffer key, ValueReader<T> reader) {
+        int hash = OffHeapIndex.hash(key);
+        Stripe stripe = stripeFor(hash);
+        stripe.lock.readLock().lock();
+        try {
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            long address = stripe.index.address(slot);
+            ByteBuffer slab = stripe.slab(address);
+            int offset = offset(address);
+            ByteBuffer value = slab.duplicate();
+            int valueOffset = offset + HEADER_SIZE + slab.getInt(offset + KEY_LENGTH_OFFSET);
+            value.limit(valueOffset + slab.getInt(offset + VALUE_LENGTH_OFFSET)).position(valueOffset);
+            return reader.read(value.asReadOnlyBuffer(), slab.getLong(offset + EXPIRATION_TIME_OFFSET));
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the expiration time of the key, or {@link #ABSENT}
+     */
+    long getExpirationTime(ByteBuffer key) {
+        int hash = OffHeapIndex.hash(key);
+        Stripe stripe = stripeFor(hash);
+        stripe.lock.readLock().lock();
+        try {
+            int slot = stripe.find(key, hash);
+            return slot < 0 ? ABSENT : stripe.expirationTime(stripe.index.address(slot));
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Update the expiration time of the key in place.
+     *
+     * @return <code>true</code> if the key is present
+     */
+    boolean setExpirationTime(ByteBuffer key, long expirationTime) {
+        int hash = OffHeapIndex.hash(key);
+        Stripe stripe = stripeFor(hash);
+        stripe.lock.writeLock().lock();
+        try {
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                return false;
+            }
+            long address = stripe.index.address(slot);
+            stripe.slab(address).putLong(offset(address) + EXPIRATION_TIME_OFFSET, expirationTime);
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Store the record, replacing the former one of the key.
+     *
+     * @param key        the bytes of key between the position and the limit, the buffer is not changed
+     * @param serializer the serializer writing the value into the slab
+     * @param now        the current time, the expired records met while making room are dropped
+     * @return <code>false</code> if the record is larger than a slab, the former record is removed then
+     */
+    <T> boolean put(ByteBuffer key, Serializer<T> serializer, T value, long expirationTime, long now) {
+        int hash = OffHeapIndex.hash(key);
+        int keyLength = key.remaining();
+        int valueLength = serializer.sizeOf(value);
+        int length = recordLength(keyLength, valueLength);
+        Stripe stripe = stripeFor(hash);
+        stripe.lock.writeLock().lock();
+        try {
+            // the former record is unlinked before making room, which would evict it as if the key were dropped
+            stripe.remove(key, hash);
+            if (length > slabSize) {
+                return false;
+            }
+            long address = stripe.allocate(length, now);
+            ByteBuffer slab = stripe.slab(address);
+            int offset = offset(address);
+            slab.putInt(offset + RECORD_LENGTH_OFFSET, length);
+            slab.putInt(offset + KEY_LENGTH_OFFSET, keyLength);
+            slab.putInt(offset + VALUE_LENGTH_OFFSET, valueLength);
+            slab.putInt(offset + HASH_OFFSET, hash);
+            slab.putLong(offset + EXPIRATION_TIME_OFFSET, expirationTime);
+            ByteBuffer target = slab.duplicate();
+            target.position(offset + HEADER_SIZE);
+            target.put(key.duplicate());
+            target.limit(target.position() + valueLength);
+            // a failed write leaves a dead record, which is not indexed, and the key absent
+            serializer.write(value, target);
+            if (target.hasRemaining()) {
+                throw new CacheException(format("The serializer[%s] wrote %d bytes while %d are expected",
+                        serializer.getClass().getName(), valueLength - target.remaining(), valueLength));
+            }
+
+            stripe.index.insert(hash, address);
+            stripe.liveBytes[slabIndex(address)] += length;
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the expiration time of the removed record, or {@link #ABSENT}
+     */
+    long remove(ByteBuffer key) {
+        int hash = OffHeapIndex.hash(key);
+        Stripe stripe = stripeFor(hash);
+        stripe.lock.writeLock().lock();
+        try {
+            return stripe.remove(key, hash);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the record of the key if it has expired at the time.
+     *
+     * @return <code>true</code> if removed
+     */
+    boolean removeIfExpired(ByteBuffer key, long now) {
+        int hash = OffHeapIndex.hash(key);
+        Stripe stripe = stripeFor(hash);
+        stripe.lock.writeLock().lock();
+        try {
+            int slot = stripe.find(key, hash);
+            if (slot < 0 || stripe.expirationTime(stripe.index.address(slot)) > now) {
+                return false;
+            }
+            stripe.release(stripe.index.address(slot));
+            stripe.index.delete(slot);
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of records, including the expired ones not reclaimed yet
+     */
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                size += stripe.index.size();
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visit the keys of the records, including the expired ones not reclaimed yet, the stripes are locked in turn.
+     *
+     * @param action given the bytes of a key between the position and the limit, valid during the call only
+     */
+    void forEachKey(Consumer<ByteBuffer> action) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                for (int slot = 0, capacity = stripe.index.capacity(); slot < capacity; slot++) {
+                    if (!stripe.index.isEmpty(slot)) {
+                        long address = stripe.index.address(slot);
+                        action.accept(keyOf(stripe.slab(address), offset(address)));
+                    }
+                }
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the bytes of the live records
+     */
+    long liveBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                for (int live : stripe.liveBytes) {
+                    bytes += live;
+                }
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the bytes of the slabs allocated so far
+     */
+    long allocatedBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                bytes += (long) stripe.allocatedSlabs * slabSize;
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Remove all records, the slabs are kept for reuse.
+     */
+    void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Remove all records and drop the slabs, whose memory is freed with their buffers.
+     */
+    void close() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.clear();
+                Arrays.fill(stripe.slabs, null);
+                stripe.freeCount = 0;
+                stripe.allocatedSlabs = 0;
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    static int recordLength(int keyLength, int valueLength) {
+        long length = (long) HEADER_SIZE + keyLength + valueLength;
+        return (int) Math.min(Integer.MAX_VALUE & ~7, (length + 7) & ~7L);
+    }
+
+    private static long address(int slabIndex, int offset) {
+        return ((long) slabIndex << 32) | offset;
+    }
+
+    private static int slabIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * @return a read-only view of the key of the record at the offset
+     */
+    private static ByteBuffer keyOf(ByteBuffer slab, int offset) {
+        int keyOffset = offset + HEADER_SIZE;
+        ByteBuffer key = slab.duplicate();
+        key.limit(keyOffset + slab.getInt(offset + KEY_LENGTH_OFFSET)).position(keyOffset);
+        return key.asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy forward within a slab, so that the ranges may overlap if the target precedes the source.
+     */
+    private static void move(ByteBuffer slab, int from, int to, int length) {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            slab.putLong(to + i, slab.getLong(from + i));
+        }
+        for (; i < length; i++) {
+            slab.put(to + i, slab.get(from + i));
+        }
+    }
+
+    private final class Stripe {
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        final OffHeapIndex index = new OffHeapIndex(1024);
+
+        final ByteBuffer[] slabs;
+
+        final byte[] states;
+
+        /**
+         * The end of appended records of every slab
+         */
+        final int[] ends;
+
+        final int[] liveBytes;
+
+        /**
+         * The order of sealing, the smallest sealed slab is the oldest one
+         */
+        final long[] sealSequences;
+
+        /**
+         * The stack of empty slabs
+         */
+        final int[] freeSlabs;
+
+        final int stripeIndex;
+
+        int freeCount;
+
+        int allocatedSlabs;
+
+        int current = -1;
+
+        long sequence;
+
+        Stripe(int stripeIndex, int maximumSlabs) {
+            this.stripeIndex = stripeIndex;
+            this.slabs = new ByteBuffer[maximumSlabs];
+            this.states = new byte[maximumSlabs];
+            this.ends = new int[maximumSlabs];
+            this.liveBytes = new int[maximumSlabs];
+            this.sealSequences = new long[maximumSlabs];
+            this.freeSlabs = new int[maximumSlabs];
+        }
+
+        ByteBuffer slab(long address) {
+            return slabs[slabIndex(address)];
+        }
+
+        long expirationTime(long address) {
+            return slab(address).getLong(offset(address) + EXPIRATION_TIME_OFFSET);
+        }
+
+        int find(ByteBuffer key, int hash) {
+            for (int slot = index.home(hash); !index.isEmpty(slot); slot = index.next(slot)) {
+                if (index.hash(slot) == hash && keyEquals(index.address(slot), key)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private boolean keyEquals(long address, ByteBuffer key) {
+            ByteBuffer slab = slab(address);
+            int offset = offset(address);
+            return slab.getInt(offset + KEY_LENGTH_OFFSET) == key.remaining() &&
+                    OffHeapIndex.rangeEquals(slab, offset + HEADER_SIZE, key, key.position(), key.remaining());
+        }
+
+        long remove(ByteBuffer key, int hash) {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return ABSENT;
+            }
+            long address = index.address(slot);
+            long expirationTime = expirationTime(address);
+            release(address);
+            index.delete(slot);
+            return expirationTime;
+        }
+
+        /**
+         * Account the record as garbage, an empty sealed slab goes back to the free-list at once.
+         */
+        void release(long address) {
+            int slabIndex = slabIndex(address);
+            liveBytes[slabIndex] -= slab(address).getInt(offset(address) + RECORD_LENGTH_OFFSET);
+            if (liveBytes[slabIndex] == 0 && states[slabIndex] == SEALED) {
+                free(slabIndex);
+            }
+        }
+
+        long allocate(int length, long now) {
+            if (current < 0 || ends[current] + length > slabSize) {
+                if (current >= 0) {
+                    states[current] = SEALED;
+                    sealSequences[current] = sequence++;
+                }
+                current = takeSlab(length, now);
+                states[current] = CURRENT;
+            }
+            long address = address(current, ends[current]);
+            ends[current] += length;
+            return address;
+        }
+
+        private int takeSlab(int length, long now) {
+            if (freeCount > 0) {
+                return freeSlabs[--freeCount];
+            }
+            if (allocatedSlabs < slabs.length) {
+                slabs[allocatedSlabs] = ByteBuffer.allocateDirect(slabSize);
+                return allocatedSlabs++;
+            }
+            int sparsest = -1;
+            int oldest = -1;
+            for (int i = 0; i < allocatedSlabs; i++) {
+                if (states[i] != SEALED) {
+                    continue;
+                }
+                if (sparsest < 0 || liveBytes[i] < liveBytes[sparsest]) {
+                    sparsest = i;
+                }
+                if (oldest < 0 || sealSequences[i] < sealSequences[oldest]) {
+                    oldest = i;
+                }
+            }
+            if (sparsest < 0) {
+                // a single slab per stripe, the current one has just been sealed
+                throw new IllegalStateException("No slab to reclaim in the stripe " + stripeIndex);
+            }
+            if (liveBytes[sparsest] <= slabSize * COMPACTION_THRESHOLD) {
+                compact(sparsest, now);
+                if (ends[sparsest] + length <= slabSize) {
+                    return sparsest;
+                }
+            }
+            evict(oldest, now);
+            return oldest;
+        }
+
+        /**
+         * Slide the live records to the front of the slab, dropping the expired ones.
+         */
+        private void compact(int slabIndex, long now) {
+            ByteBuffer slab = slabs[slabIndex];
+            int read = 0;
+            int write = 0;
+            int end = ends[slabIndex];
+            while (read < end) {
+                int length = slab.getInt(read + RECORD_LENGTH_OFFSET);
+                int slot = index.findAddress(slab.getInt(read + HASH_OFFSET), address(slabIndex, read));
+                if (slot >= 0) {
+                    if (slab.getLong(read + EXPIRATION_TIME_OFFSET) <= now) {
+                        index.delete(slot);
+                        if (evictionListener != null) {
+                            evictionListener.onExpired(keyOf(slab, read));
+                        }
+                    } else {
+                        if (write != read) {
+                            move(slab, read, write, length);
+                            index.setAddress(slot, address(slabIndex, write));
+                        }
+                        write += length;
+                    }
+                }
+                read += length;
+            }
+            ends[slabIndex] = write;
+            liveBytes[slabIndex] = write;
+        }
+
+        /**
+         * Drop every live record of the slab, the unexpired ones are handed over to the eviction listener and the
+         * expired ones are notified to it.
+         */
+        private void evict(int slabIndex, long now) {
+            ByteBuffer slab = slabs[slabIndex];
+            int read = 0;
+            int end = ends[slabIndex];
+            while (read < end) {
+                int length = slab.getInt(read + RECORD_LENGTH_OFFSET);
+                int slot = index.findAddress(slab.getInt(read + HASH_OFFSET), address(slabIndex, read));
+                if (slot >= 0) {
+                    index.delete(slot);
+                    long expirationTime = slab.getLong(read + EXPIRATION_TIME_OFFSET);
+                    if (evictionListener != null) {
+                        if (expirationTime > now) {
+                            int valueOffset = read + HEADER_SIZE + slab.getInt(read + KEY_LENGTH_OFFSET);
+                            ByteBuffer value = slab.duplicate();
+                            value.limit(valueOffset + slab.getInt(read + VALUE_LENGTH_OFFSET)).position(valueOffset);
+                            evictionListener.onEvicted(keyOf(slab, read), value.asReadOnlyBuffer(), expirationTime);
+                        } else {
+                            evictionListener.onExpired(keyOf(slab, read));
+                        }
+                    }
+                }
+                read += length;
+            }
+            ends[slabIndex] = 0;
+            liveBytes[slabIndex] = 0;
+        }
+
+        private void free(int slabIndex) {
+            states[slabIndex] = FREE;
+            ends[slabIndex] = 0;
+            freeSlabs[freeCount++] = slabIndex;
+        }
+
+        void clear() {
+            index.clear();
+            freeCount = 0;
+            for (int i = 0; i < allocatedSlabs; i++) {
+                liveBytes[i] = 0;
+                free(i);
+            }
+            current = -1;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mycache.serializer;
+
+/**
+ * The base of the serializers shipped with the cache, overridden by any discovered serializer of the same type
+ *
+ * @param <T> the type of object
+ */
+abstract class BuiltInSerializer<T> implements Serializer<T> {
+
+    private final Class<T> type;
+
+    BuiltInSerializer(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public int getPriority() {
+        return BUILT_IN_PRIORITY;
+    }
+}
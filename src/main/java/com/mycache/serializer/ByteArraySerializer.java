@@ -0,0 +1,30 @@
+package com.mycache.serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The serializer of <code>byte[]</code> as is
+ */
+public class ByteArraySerializer extends BuiltInSerializer<byte[]> {
+
+    public ByteArraySerializer() {
+        super(byte[].class);
+    }
+
+    @Override
+    public int sizeOf(byte[] object) {
+        return object.length;
+    }
+
+    @Override
+    public void write(byte[] object, ByteBuffer target) {
+        target.put(object);
+    }
+
+    @Override
+    public byte[] read(ByteBuffer source) {
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return bytes;
+    }
+}
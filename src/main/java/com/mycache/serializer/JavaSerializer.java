@@ -0,0 +1,150 @@
+package com.mycache.serializer;
+
+import javax.cache.CacheException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+
+import static java.lang.String.format;
+
+/**
+ * The fallback serializer of the {@link java.io.Serializable} types without a specialized serializer.
+ * <p>
+ * The size of a Java serialized object is only known by serializing it, so the bytes computed by
+ * {@link #sizeOf(Object)} are kept by the thread and consumed by the following {@link #write(Object, ByteBuffer)} of
+ * the same object, so that a mutable object is serialized again by the next write.
+ *
+ * @param <T> the type of object
+ */
+public class JavaSerializer<T> implements Serializer<T> {
+
+    private static final ThreadLocal<Serialized> lastSerialized = ThreadLocal.withInitial(Serialized::new);
+
+    private final Class<T> type;
+
+    private final ClassLoader classLoader;
+
+    public JavaSerializer(Class<T> type, ClassLoader classLoader) {
+        this.type = type;
+        this.classLoader = classLoader == null ? JavaSerializer.class.getClassLoader() : classLoader;
+    }
+
+    @Override
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public int getPriority() {
+        return BUILT_IN_PRIORITY;
+    }
+
+    @Override
+    public int sizeOf(T object) {
+        return serialize(object, lastSerialized.get()).size();
+    }
+
+    @Override
+    public void write(T object, ByteBuffer target) {
+        Serialized serialized = lastSerialized.get();
+        if (serialized.object != object) {
+            serialize(object, serialized);
+        }
+        target.put(serialized.buffer(), 0, serialized.size());
+        serialized.object = null;
+    }
+
+    private Serialized serialize(T object, Serialized serialized) throws CacheException {
+        serialized.reset();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(serialized)) {
+            outputStream.writeObject(object);
+        } catch (IOException e) {
+            serialized.object = null;
+            throw new CacheException(format("Failed to serialize %s", object), e);
+        }
+        serialized.object = object;
+        return serialized;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read(ByteBuffer source) throws CacheException {
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteBufferInputStream(source)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+        }) {
+            return (T) inputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new CacheException(format("Failed to deserialize %s", type.getName()), e);
+        }
+    }
+
+    /**
+     * The reusable bytes of the last object serialized by the thread
+     */
+    private static final class Serialized extends ByteArrayOutputStream {
+
+        /**
+         * The bytes beyond this size are not kept for the next object
+         */
+        private static final int MAX_RETAINED_SIZE = 64 << 10;
+
+        private Object object;
+
+        Serialized() {
+            super(256);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        @Override
+        public void reset() {
+            object = null;
+            if (buf.length > MAX_RETAINED_SIZE) {
+                buf = new byte[256];
+            }
+            super.reset();
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mycache.serializer;
+
+import javax.cache.CacheException;
+import java.nio.ByteBuffer;
+
+import static java.lang.String.format;
+
+/**
+ * The serializer of {@link Object} or the declared types which are not concrete, e.g : the keys of an untyped cache.
+ * A tag byte tells the built-in codec of the actual class, the other classes fall back to {@link JavaSerializer}, so
+ * that a String key of an untyped cache costs its UTF-8 bytes plus one.
+ *
+ * @param <T> the declared type of object
+ */
+public class ObjectSerializer<T> implements Serializer<T> {
+
+    private static final byte JAVA_TAG = 0;
+
+    /**
+     * The built-in codecs indexed by their tags, starting at 1
+     */
+    private static final Serializer<?>[] CODECS = {
+            null,
+            new StringSerializer(),
+            new PrimitiveSerializers.IntegerSerializer(),
+            new PrimitiveSerializers.LongSerializer(),
+            new ByteArraySerializer(),
+            new PrimitiveSerializers.BooleanSerializer(),
+            new PrimitiveSerializers.ByteSerializer(),
+            new PrimitiveSerializers.ShortSerializer(),
+            new PrimitiveSerializers.CharacterSerializer(),
+            new PrimitiveSerializers.FloatSerializer(),
+            new PrimitiveSerializers.DoubleSerializer()
+    };
+
+    private final Class<T> type;
+
+    private final JavaSerializer<Object> javaSerializer;
+
+    public ObjectSerializer(Class<T> type, ClassLoader classLoader) {
+        this.type = type;
+        this.javaSerializer = new JavaSerializer<>(Object.class, classLoader);
+    }
+
+    private static byte tagOf(Object object) {
+        Class<?> objectClass = object.getClass();
+        for (byte tag = 1; tag < CODECS.length; tag++) {
+            if (CODECS[tag].getType() == objectClass) {
+                return tag;
+            }
+        }
+        return JAVA_TAG;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Serializer<Object> codecOf(byte tag) {
+        return tag == JAVA_TAG ? javaSerializer : (Serializer<Object>) CODECS[tag];
+    }
+
+    @Override
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public int getPriority() {
+        return BUILT_IN_PRIORITY;
+    }
+
+    @Override
+    public int sizeOf(T object) {
+        return 1 + codecOf(tagOf(object)).sizeOf(object);
+    }
+
+    @Override
+    public void write(T object, ByteBuffer target) {
+        byte tag = tagOf(object);
+        target.put(tag);
+        codecOf(tag).write(object, target);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read(ByteBuffer source) throws CacheException {
+        byte tag = source.get();
+        if (tag < 0 || tag >= CODECS.length) {
+            throw new CacheException(format("The tag[%d] of serialized %s is unknown", tag, type.getName()));
+        }
+        return (T) codecOf(tag).read(source);
+    }
+}
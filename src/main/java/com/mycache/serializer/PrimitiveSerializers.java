@@ -0,0 +1,189 @@
+package com.mycache.serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The fixed-size serializers of the boxed primitives, in the big-endian order of {@link ByteBuffer}
+ */
+public final class PrimitiveSerializers {
+
+    private PrimitiveSerializers() {
+    }
+
+    public static class BooleanSerializer extends BuiltInSerializer<Boolean> {
+
+        public BooleanSerializer() {
+            super(Boolean.class);
+        }
+
+        @Override
+        public int sizeOf(Boolean object) {
+            return 1;
+        }
+
+        @Override
+        public void write(Boolean object, ByteBuffer target) {
+            target.put(object ? (byte) 1 : (byte) 0);
+        }
+
+        @Override
+        public Boolean read(ByteBuffer source) {
+            return source.get() != 0;
+        }
+    }
+
+    public static class ByteSerializer extends BuiltInSerializer<Byte> {
+
+        public ByteSerializer() {
+            super(Byte.class);
+        }
+
+        @Override
+        public int sizeOf(Byte object) {
+            return Byte.BYTES;
+        }
+
+        @Override
+        public void write(Byte object, ByteBuffer target) {
+            target.put(object);
+        }
+
+        @Override
+        public Byte read(ByteBuffer source) {
+            return source.get();
+        }
+    }
+
+    public static class ShortSerializer extends BuiltInSerializer<Short> {
+
+        public ShortSerializer() {
+            super(Short.class);
+        }
+
+        @Override
+        public int sizeOf(Short object) {
+            return Short.BYTES;
+        }
+
+        @Override
+        public void write(Short object, ByteBuffer target) {
+            target.putShort(object);
+        }
+
+        @Override
+        public Short read(ByteBuffer source) {
+            return source.getShort();
+        }
+    }
+
+    public static class CharacterSerializer extends BuiltInSerializer<Character> {
+
+        public CharacterSerializer() {
+            super(Character.class);
+        }
+
+        @Override
+        public int sizeOf(Character object) {
+            return Character.BYTES;
+        }
+
+        @Override
+        public void write(Character object, ByteBuffer target) {
+            target.putChar(object);
+        }
+
+        @Override
+        public Character read(ByteBuffer source) {
+            return source.getChar();
+        }
+    }
+
+    public static class IntegerSerializer extends BuiltInSerializer<Integer> {
+
+        public IntegerSerializer() {
+            super(Integer.class);
+        }
+
+        @Override
+        public int sizeOf(Integer object) {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void write(Integer object, ByteBuffer target) {
+            target.putInt(object);
+        }
+
+        @Override
+        public Integer read(ByteBuffer source) {
+            return source.getInt();
+        }
+    }
+
+    public static class LongSerializer extends BuiltInSerializer<Long> {
+
+        public LongSerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public int sizeOf(Long object) {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void write(Long object, ByteBuffer target) {
+            target.putLong(object);
+        }
+
+        @Override
+        public Long read(ByteBuffer source) {
+            return source.getLong();
+        }
+    }
+
+    public static class FloatSerializer extends BuiltInSerializer<Float> {
+
+        public FloatSerializer() {
+            super(Float.class);
+        }
+
+        @Override
+        public int sizeOf(Float object) {
+            return Float.BYTES;
+        }
+
+        @Override
+        public void write(Float object, ByteBuffer target) {
+            // the raw bits keep the equal NaNs equal
+            target.putInt(Float.floatToIntBits(object));
+        }
+
+        @Override
+        public Float read(ByteBuffer source) {
+            return Float.intBitsToFloat(source.getInt());
+        }
+    }
+
+    public static class DoubleSerializer extends BuiltInSerializer<Double> {
+
+        public DoubleSerializer() {
+            super(Double.class);
+        }
+
+        @Override
+        public int sizeOf(Double object) {
+            return Double.BYTES;
+        }
+
+        @Override
+        public void write(Double object, ByteBuffer target) {
+            target.putLong(Double.doubleToLongBits(object));
+        }
+
+        @Override
+        public Double read(ByteBuffer source) {
+            return Double.longBitsToDouble(source.getLong());
+        }
+    }
+}
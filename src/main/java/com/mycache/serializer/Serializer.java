@@ -0,0 +1,56 @@
+package com.mycache.serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The codec of the keys or values of a type stored outside of the heap, discovered by {@link java.util.ServiceLoader}
+ * and chosen per type from the cache configuration, see {@link Serializers}.
+ * <p>
+ * The serializer writes into and reads from the buffers of the storage directly. As the keys are compared by their
+ * serialized forms, the equal objects must be written as the same bytes.
+ * <p>
+ * The implementations must be thread-safe.
+ *
+ * @param <T> the type of object
+ */
+public interface Serializer<T> {
+
+    /**
+     * The priority of the built-in serializers, which are overridden by the discovered ones of the same type
+     */
+    int BUILT_IN_PRIORITY = -1;
+
+    /**
+     * @return the type of objects, the serializer is chosen for this exact type
+     */
+    Class<T> getType();
+
+    /**
+     * @return the priority among the serializers of the same type, the highest one is chosen
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * @param object the object to write
+     * @return the exact number of bytes that {@link #write(Object, ByteBuffer)} writes
+     */
+    int sizeOf(T object);
+
+    /**
+     * Write the object at the position of the buffer, which is advanced by {@link #sizeOf(Object)} bytes.
+     *
+     * @param object the object to write
+     * @param target the buffer with enough remaining bytes
+     */
+    void write(T object, ByteBuffer target);
+
+    /**
+     * Read an object from the bytes between the position and the limit of the buffer, which may be advanced.
+     *
+     * @param source a read-only view of the storage
+     * @return the object read
+     */
+    T read(ByteBuffer source);
+}
@@ -0,0 +1,78 @@
+package com.mycache.serializer;
+
+import javax.cache.CacheException;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.String.format;
+
+/**
+ * The registry of {@link Serializer}s.
+ * <p>
+ * The serializers are discovered by {@link ServiceLoader}, the one of the highest priority is chosen for its type. A
+ * type without serializer falls back to {@link ObjectSerializer} if it is {@link Object} or not concrete, or to
+ * {@link JavaSerializer} otherwise.
+ */
+public final class Serializers {
+
+    private static final ConcurrentMap<ClassLoader, Map<Class<?>, Serializer<?>>> serializersCache =
+            new ConcurrentHashMap<>();
+
+    private Serializers() {
+    }
+
+    /**
+     * Get the serializer of the type.
+     *
+     * @param type        the declared type of keys or values
+     * @param classLoader the {@link ClassLoader} to load the serializers and the serialized classes
+     * @return non-null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Serializer<T> getSerializer(Class<T> type, ClassLoader classLoader) {
+        ClassLoader loader = classLoader == null ? Serializers.class.getClassLoader() : classLoader;
+        Class<T> declaredType = type == null ? (Class<T>) Object.class : type;
+        Serializer<T> serializer = (Serializer<T>) serializersCache.computeIfAbsent(loader, Serializers::loadSerializers)
+                .get(declaredType);
+        if (serializer != null) {
+            return serializer;
+        }
+        if (declaredType == Object.class || declaredType.isInterface() ||
+                Modifier.isAbstract(declaredType.getModifiers())) {
+            return new ObjectSerializer<>(declaredType, loader);
+        }
+        return new JavaSerializer<>(declaredType, loader);
+    }
+
+    private static Map<Class<?>, Serializer<?>> loadSerializers(ClassLoader classLoader) {
+        Map<Class<?>, Serializer<?>> serializers = new ConcurrentHashMap<>();
+        for (Serializer<?> serializer : ServiceLoader.load(Serializer.class, classLoader)) {
+            serializers.merge(serializer.getType(), serializer,
+                    (current, candidate) -> candidate.getPriority() > current.getPriority() ? candidate : current);
+        }
+        return serializers;
+    }
+
+    /**
+     * @param className   the class name of {@link Serializer} implementation
+     * @param classLoader the {@link ClassLoader} to load the class
+     * @return a new instance of {@link Serializer}
+     * @throws CacheException if the class can't be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Serializer<T> newSerializer(String className, ClassLoader classLoader) throws CacheException {
+        try {
+            Class<?> serializerClass = classLoader.loadClass(className.trim());
+            if (!Serializer.class.isAssignableFrom(serializerClass)) {
+                throw new CacheException(format("The class[%s] must implement %s", className,
+                        Serializer.class.getName()));
+            }
+            return (Serializer<T>) serializerClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new CacheException(format("The serializer[%s] can't be instantiated", className), e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mycache.serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The serializer of {@link String} in UTF-8, encoding the chars straight into the buffer and decoding them straight
+ * from it. The unpaired surrogates are written as '?', like {@link String#getBytes(java.nio.charset.Charset)}.
+ */
+public class StringSerializer extends BuiltInSerializer<String> {
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    public StringSerializer() {
+        super(String.class);
+    }
+
+    @Override
+    public int sizeOf(String object) {
+        int length = object.length();
+        int size = length;
+        for (int i = 0; i < length; i++) {
+            char c = object.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    size += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                        Character.isLowSurrogate(object.charAt(i + 1))) {
+                    // 4 bytes for 2 chars
+                    size += 2;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    // '?'
+                } else {
+                    size += 2;
+                }
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void write(String object, ByteBuffer target) {
+        int length = object.length();
+        int position = target.position();
+        int i = 0;
+        // the ASCII prefix, which is often the whole string
+        for (; i < length; i++) {
+            char c = object.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            target.put(position++, (byte) c);
+        }
+        for (; i < length; i++) {
+            char c = object.charAt(i);
+            if (c < 0x80) {
+                target.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                target.put(position++, (byte) (0xC0 | (c >> 6)));
+                target.put(position++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(object.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, object.charAt(++i));
+                target.put(position++, (byte) (0xF0 | (codePoint >> 18)));
+                target.put(position++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                target.put(position++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                target.put(position++, (byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                target.put(position++, (byte) '?');
+            } else {
+                target.put(position++, (byte) (0xE0 | (c >> 12)));
+                target.put(position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                target.put(position++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        target.position(position);
+    }
+
+    @Override
+    public String read(ByteBuffer source) {
+        int position = source.position();
+        int limit = source.limit();
+        // a UTF-8 string has at most as many chars as bytes
+        char[] chars = new char[limit - position];
+        int count = 0;
+        while (position < limit) {
+            int b = source.get(position++);
+            if (b >= 0) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0 && position < limit) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (source.get(position++) & 0x3F));
+            } else if ((b & 0xF0) == 0xE0 && position + 1 < limit) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((source.get(position++) & 0x3F) << 6) |
+                        (source.get(position++) & 0x3F));
+            } else if ((b & 0xF8) == 0xF0 && position + 2 < limit) {
+                int codePoint = ((b & 0x07) << 18) | ((source.get(position++) & 0x3F) << 12) |
+                        ((source.get(position++) & 0x3F) << 6) | (source.get(position++) & 0x3F);
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+            } else {
+                chars[count++] = REPLACEMENT;
+            }
+        }
+        source.position(position);
+        return new String(chars, 0, count);
+    }
+}
@@ -0,0 +1,184 @@
+package com.mycache.weigher;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Estimate the retained heap size of objects on a 64-bit JVM with compressed references, which is the default
+ * layout below 32 GB of heap : 12 bytes of object header, 4 bytes per reference and 8 bytes of alignment.
+ * <p>
+ * {@link String}, the boxed primitives, the arrays, {@link Collection}s and {@link Map}s are measured deeply by the
+ * built-in estimators. The other types are measured shallowly by their fields unless an estimator is
+ * {@link #register(Class, ToLongFunction) registered} for them.
+ */
+public final class ObjectSizeEstimator {
+
+    static final int OBJECT_HEADER = 12;
+
+    static final int ARRAY_HEADER = 16;
+
+    static final int REFERENCE = 4;
+
+    static final int ALIGNMENT = 8;
+
+    /**
+     * The shallow size of an entry of {@link java.util.HashMap} or {@link ConcurrentHashMap} : hash, key, value and
+     * next, plus its slot in the table
+     */
+    static final int HASH_NODE = 32 + REFERENCE;
+
+    private static final ConcurrentMap<Class<?>, ToLongFunction<Object>> estimators = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Long> shallowSizes = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return computeShallowSize(type);
+        }
+    };
+
+    static {
+        register(String.class, ObjectSizeEstimator::sizeOfString);
+        register(Boolean.class, value -> 16);
+        register(Byte.class, value -> 16);
+        register(Character.class, value -> 16);
+        register(Short.class, value -> 16);
+        register(Integer.class, value -> 16);
+        register(Float.class, value -> 16);
+        register(Long.class, value -> 24);
+        register(Double.class, value -> 24);
+    }
+
+    private ObjectSizeEstimator() {
+    }
+
+    /**
+     * Register the estimator of a type, which replaces the shallow measurement of the instances of exactly the type.
+     *
+     * @param type      the type
+     * @param estimator the estimator of retained size
+     * @param <T>       the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void register(Class<T> type, ToLongFunction<? super T> estimator) {
+        estimators.put(type, (ToLongFunction<Object>) estimator);
+    }
+
+    /**
+     * @param object the object, may be <code>null</code>
+     * @return the estimated retained size in bytes
+     */
+    public static long sizeOf(Object object) {
+        if (object == null) {
+            return 0;
+        }
+        Class<?> type = object.getClass();
+        ToLongFunction<Object> estimator = estimators.get(type);
+        if (estimator != null) {
+            return estimator.applyAsLong(object);
+        }
+        if (type.isArray()) {
+            return sizeOfArray(object, type.getComponentType());
+        }
+        if (object instanceof Collection) {
+            return sizeOfCollection((Collection<?>) object);
+        }
+        if (object instanceof Map) {
+            return sizeOfMap((Map<?, ?>) object);
+        }
+        return shallowSizeOf(type);
+    }
+
+    /**
+     * @param type the type
+     * @return the size of an instance without the objects it references
+     */
+    public static long shallowSizeOf(Class<?> type) {
+        return shallowSizes.get(type);
+    }
+
+    static long align(long size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    private static long sizeOfString(String value) {
+        // the String object : header, value reference, hash, coder and hashIsZero, then the compact byte[]
+        int length = value.length();
+        int bytesPerChar = 1;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return 24 + align(ARRAY_HEADER + (long) length * bytesPerChar);
+    }
+
+    private static long sizeOfArray(Object array, Class<?> componentType) {
+        if (componentType == byte.class) {
+            return align(ARRAY_HEADER + ((byte[]) array).length);
+        }
+        if (componentType.isPrimitive()) {
+            int length = Array.getLength(array);
+            return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        }
+        Object[] elements = (Object[]) array;
+        long size = align(ARRAY_HEADER + (long) elements.length * REFERENCE);
+        for (Object element : elements) {
+            size += sizeOf(element);
+        }
+        return size;
+    }
+
+    private static long sizeOfCollection(Collection<?> collection) {
+        // the collection object, its backing array or table, and one node per element for the linked ones
+        long size = shallowSizeOf(collection.getClass()) + align(ARRAY_HEADER + (long) collection.size() * REFERENCE);
+        if (!(collection instanceof RandomAccess)) {
+            size += (long) collection.size() * HASH_NODE;
+        }
+        for (Object element : collection) {
+            size += sizeOf(element);
+        }
+        return size;
+    }
+
+    private static long sizeOfMap(Map<?, ?> map) {
+        long size = shallowSizeOf(map.getClass()) + (long) map.size() * HASH_NODE + ARRAY_HEADER;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+        }
+        return size;
+    }
+
+    private static long computeShallowSize(Class<?> type) {
+        long size = OBJECT_HEADER;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    Class<?> fieldType = field.getType();
+                    size += fieldType.isPrimitive() ? primitiveSize(fieldType) : REFERENCE;
+                }
+            }
+        }
+        return align(size);
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+}
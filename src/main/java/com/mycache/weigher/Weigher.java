@@ -0,0 +1,20 @@
+package com.mycache.weigher;
+
+/**
+ * Estimate the retained size in bytes of a cache entry, including the key, the value and the storage overhead of
+ * the entry itself.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @see Weighers
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * @param key   the key of entry
+     * @param value the value of entry
+     * @return the estimated size in bytes, must not be negative
+     */
+    long weigh(K key, V value);
+}
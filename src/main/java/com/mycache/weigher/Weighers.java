@@ -0,0 +1,78 @@
+package com.mycache.weigher;
+
+import com.mycache.ExpirableEntry;
+
+import javax.cache.CacheException;
+
+import static java.lang.String.format;
+
+/**
+ * The built-in {@link Weigher}s.
+ */
+public final class Weighers {
+
+    /**
+     * The overhead of storing an entry : the {@link ExpirableEntry} and the hash node of the segment map
+     */
+    public static final long ENTRY_OVERHEAD = ObjectSizeEstimator.shallowSizeOf(ExpirableEntry.class)
+            + ObjectSizeEstimator.HASH_NODE;
+
+    private static final Weigher<Object, Object> ESTIMATING_WEIGHER =
+            (key, value) -> ENTRY_OVERHEAD + ObjectSizeEstimator.sizeOf(key) + ObjectSizeEstimator.sizeOf(value);
+
+    private Weighers() {
+    }
+
+    /**
+     * @return the {@link Weigher} measuring key and value by {@link ObjectSizeEstimator}, plus {@link #ENTRY_OVERHEAD}
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Weigher<K, V> estimating() {
+        return (Weigher<K, V>) ESTIMATING_WEIGHER;
+    }
+
+    /**
+     * Parse a size in bytes with an optional unit : "1024", "512k", "64m" or "1g".
+     *
+     * @param size the text of size
+     * @return the number of bytes
+     * @throws IllegalArgumentException if the text is malformed
+     */
+    public static long parseBytes(String size) throws IllegalArgumentException {
+        String text = size.trim().toLowerCase();
+        long unit = 1;
+        char suffix = text.isEmpty() ? ' ' : text.charAt(text.length() - 1);
+        if (suffix == 'b') {
+            text = text.substring(0, text.length() - 1);
+            suffix = text.isEmpty() ? ' ' : text.charAt(text.length() - 1);
+        }
+        if (suffix == 'k' || suffix == 'm' || suffix == 'g') {
+            unit = suffix == 'k' ? 1L << 10 : suffix == 'm' ? 1L << 20 : 1L << 30;
+            text = text.substring(0, text.length() - 1);
+        }
+        try {
+            return Long.parseLong(text.trim()) * unit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("The size[%s] is malformed", size), e);
+        }
+    }
+
+    /**
+     * @param className   the class name of {@link Weigher} implementation
+     * @param classLoader the {@link ClassLoader} to load the class
+     * @return a new instance of {@link Weigher}
+     * @throws CacheException if the class can't be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Weigher<K, V> newWeigher(String className, ClassLoader classLoader) throws CacheException {
+        try {
+            Class<?> weigherClass = classLoader.loadClass(className.trim());
+            if (!Weigher.class.isAssignableFrom(weigherClass)) {
+                throw new CacheException(format("The class[%s] must implement %s", className, Weigher.class.getName()));
+            }
+            return (Weigher<K, V>) weigherClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new CacheException(format("The weigher[%s] can't be instantiated", className), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import com.mycache.CacheConfiguration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the bulk operations with the same number of single operations on a bounded cache, run as :
+ * <p>
+ * java -cp target/classes:target/test-classes:... benchmarkBulk [batch-size] [rounds]
+ * <p>
+ * The batches hit random keys of a cache holding a million entries, and the time per key is printed for every mode.
+ */
+public class benchmarkBulk {
+
+    private static final int ENTRIES = 1_000_000;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>().setMaximumSize(ENTRIES);
+        config.setTypes(Integer.class, String.class);
+        Cache<Integer, String> cache = cacheManager.createCache("bulk-benchmark", config);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, "value-" + i);
+        }
+        List<Set<Integer>> batches = new ArrayList<>(rounds);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < rounds; round++) {
+            Set<Integer> keys = new HashSet<>();
+            while (keys.size() < batchSize) {
+                keys.add(random.nextInt(ENTRIES));
+            }
+            batches.add(keys);
+        }
+        for (int warmUp = 0; warmUp < 3; warmUp++) {
+            run(cache, batches, batchSize, warmUp == 2);
+        }
+        cacheManager.destroyCache("bulk-benchmark");
+    }
+
+    private static void run(Cache<Integer, String> cache, List<Set<Integer>> batches, int batchSize, boolean print) {
+        long keys = (long) batches.size() * batchSize;
+
+        long start = System.nanoTime();
+        for (Set<Integer> batch : batches) {
+            for (Integer key : batch) {
+                sink = cache.get(key);
+            }
+        }
+        long singleGets = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (Set<Integer> batch : batches) {
+            sink = cache.getAll(batch);
+        }
+        long bulkGets = System.nanoTime() - start;
+
+        List<Map<Integer, String>> values = new ArrayList<>(batches.size());
+        for (Set<Integer> batch : batches) {
+            Map<Integer, String> map = new HashMap<>();
+            batch.forEach(key -> map.put(key, "updated-" + key));
+            values.add(map);
+        }
+        start = System.nanoTime();
+        for (Map<Integer, String> map : values) {
+            map.forEach(cache::put);
+        }
+        long singlePuts = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (Map<Integer, String> map : values) {
+            cache.putAll(map);
+        }
+        long bulkPuts = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("batch of %d keys : get %d ns/key, getAll %d ns/key, put %d ns/key, putAll %d ns/key%n",
+                    batchSize, singleGets / keys, bulkGets / keys, singlePuts / keys, bulkPuts / keys);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of the segmented store from one thread up to the given threads, run as :
+ * <p>
+ * java -cp target/classes:target/test-classes:... benchmarkConcurrentStore [threads] [seconds]
+ * <p>
+ * Every thread gets and puts random keys among 16384, 90% reads and 10% writes.
+ */
+public class benchmarkConcurrentStore {
+
+    private static final int KEY_SPACE = 1 << 14;
+
+    private static volatile boolean running;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) :
+                Math.max(2, Runtime.getRuntime().availableProcessors());
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        Cache<Integer, Integer> cache = cacheManager.createCache("concurrent-store-benchmark",
+                new MutableConfiguration<Integer, Integer>().setTypes(Integer.class, Integer.class));
+        for (int i = 0; i < KEY_SPACE; i++) {
+            cache.put(i, i);
+        }
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(cache, threads, seconds);
+        }
+        cacheManager.destroyCache("concurrent-store-benchmark");
+    }
+
+    private static void run(Cache<Integer, Integer> cache, int threads, int seconds) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (running) {
+                    int key = random.nextInt(KEY_SPACE);
+                    if (random.nextInt(10) == 0) {
+                        cache.put(key, key);
+                    } else {
+                        cache.get(key);
+                    }
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }));
+        }
+        running = true;
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%2d threads : %,12d ops/s%n", threads, operations.sum() * 1_000_000_000L / elapsed);
+    }
+}
@@ -0,0 +1,83 @@
+import com.mycache.CacheConfiguration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of the conditional operations under contention, run as :
+ * <p>
+ * java -cp target/classes:target/test-classes:... benchmarkContention [threads] [seconds]
+ * <p>
+ * Every thread increments random counters by compare-and-set loops of get and replace(key, old, new), and swaps them
+ * by getAndPut, over one hot key and then over 1024 keys.
+ */
+public class benchmarkContention {
+
+    private static volatile boolean running;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        CacheConfiguration<Integer, Long> config = new CacheConfiguration<Integer, Long>().setMaximumSize(100_000);
+        config.setTypes(Integer.class, Long.class);
+        Cache<Integer, Long> cache = cacheManager.createCache("contention-benchmark", config);
+        for (int keys : new int[]{1, 1024}) {
+            for (int i = 0; i < keys; i++) {
+                cache.put(i, 0L);
+            }
+            run(cache, threads, seconds, keys, false);
+            run(cache, threads, seconds, keys, true);
+        }
+        cacheManager.destroyCache("contention-benchmark");
+    }
+
+    private static void run(Cache<Integer, Long> cache, int threads, int seconds, int keys, boolean swap)
+            throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        LongAdder retries = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long failures = 0;
+                while (running) {
+                    Integer key = random.nextInt(keys);
+                    if (swap) {
+                        cache.getAndPut(key, count);
+                    } else {
+                        for (; ; ) {
+                            Long current = cache.get(key);
+                            if (cache.replace(key, current, current + 1)) {
+                                break;
+                            }
+                            failures++;
+                        }
+                    }
+                    count++;
+                }
+                operations.add(count);
+                retries.add(failures);
+                done.countDown();
+            }));
+        }
+        running = true;
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d threads, %4d keys, %-9s : %,12d ops/s, %,d CAS retries%n", threads, keys,
+                swap ? "getAndPut" : "replace", operations.sum() * 1_000_000_000L / elapsed, retries.sum());
+    }
+}
@@ -0,0 +1,89 @@
+import com.DataRepository;
+import com.InMemoryDataRepository;
+import com.InterceptorEnhancer;
+import com.interceptor.CachePutIntercepter;
+import com.interceptor.CacheRemoveInterceptor;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Measures the overhead per call of the proxies of {@link InterceptorEnhancer}, run as :
+ * <p>
+ * java -cp target/classes:target/test-classes:... benchmarkInterceptor [calls]
+ * <p>
+ * A trivial method is called directly, through a proxy without interceptor, and through a proxy with two pass-through
+ * interceptors. Then {@link DataRepository#get(String)}, which has no cache annotation, is called directly and through
+ * a proxy with the cache interceptors.
+ */
+public class benchmarkInterceptor {
+
+    public interface Counter {
+
+        long add(long delta);
+    }
+
+    public static class SimpleCounter implements Counter {
+
+        private long count;
+
+        @Override
+        public long add(long delta) {
+            return count += delta;
+        }
+    }
+
+    @Interceptor
+    public static class PassThroughInterceptor {
+
+        @AroundInvoke
+        public Object intercept(InvocationContext context) throws Exception {
+            return context.proceed();
+        }
+    }
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        InterceptorEnhancer enhancer = new InterceptorEnhancer();
+        Counter direct = new SimpleCounter();
+        Counter proxied = (Counter) enhancer.enhanceJDKProxy(new SimpleCounter());
+        Counter intercepted = (Counter) enhancer.enhanceJDKProxy(new SimpleCounter(), new PassThroughInterceptor(),
+                new PassThroughInterceptor());
+        DataRepository repository = new InMemoryDataRepository();
+        DataRepository cachedRepository = (DataRepository) enhancer.enhanceJDKProxy(new InMemoryDataRepository(),
+                new CachePutIntercepter(), new CacheRemoveInterceptor());
+        for (int round = 0; round < 3; round++) {
+            run("direct", direct, calls);
+            run("proxy", proxied, calls);
+            run("proxy + 2 interceptors", intercepted, calls);
+            run("get direct", repository, calls);
+            run("get + cache interceptors", cachedRepository, calls);
+        }
+        System.out.println(sink);
+    }
+
+    private static void run(String name, DataRepository repository, int calls) {
+        long start = System.nanoTime();
+        long result = 0;
+        for (int i = 0; i < calls; i++) {
+            result += repository.get("key") == null ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += result;
+        System.out.printf("%-24s : %8.1f ns/call%n", name, (double) elapsed / calls);
+    }
+
+    private static void run(String name, Counter counter, int calls) {
+        long start = System.nanoTime();
+        long result = 0;
+        for (int i = 0; i < calls; i++) {
+            result += counter.add(1);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += result;
+        System.out.printf("%-24s : %8.1f ns/call%n", name, (double) elapsed / calls);
+    }
+}
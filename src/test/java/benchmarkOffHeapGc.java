@@ -0,0 +1,78 @@
+import com.mycache.CacheConfiguration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the GC pauses of the heap store and the off-heap store holding the same entries, run as :
+ * <p>
+ * java -Xmx2g -cp target/classes:target/test-classes:... benchmarkOffHeapGc [entries] [value-size]
+ * <p>
+ * Each store is filled, then churned by random overwrites while full collections are requested, and the collection
+ * counts and times are read from the {@link GarbageCollectorMXBean}s.
+ */
+public class benchmarkOffHeapGc {
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int valueSize = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        long capacity = (long) entries * (valueSize + 160) * 2;
+        run("in-memory", entries, valueSize, capacity);
+        run("offheap", entries, valueSize, capacity);
+    }
+
+    private static void run(String scheme, int entries, int valueSize, long capacity) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create(scheme + "://localhost/"), null);
+        CacheConfiguration<Integer, byte[]> config = new CacheConfiguration<Integer, byte[]>();
+        config.setTypes(Integer.class, byte[].class);
+        if ("offheap".equals(scheme)) {
+            config.setMaximumWeight(capacity);
+        }
+        Cache<Integer, byte[]> cache = cacheManager.createCache("gc-" + scheme, config);
+
+        long fillStart = System.nanoTime();
+        for (int i = 0; i < entries; i++) {
+            cache.put(i, new byte[valueSize]);
+        }
+        long fillMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fillStart);
+
+        long[] before = collections();
+        long churnStart = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < entries / 5; i++) {
+                cache.put(random.nextInt(entries), new byte[valueSize]);
+            }
+            long gcStart = System.nanoTime();
+            System.gc();
+            System.out.printf("%-9s full gc #%d : %d ms%n", scheme, round,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - gcStart));
+        }
+        long churnMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - churnStart);
+        long[] after = collections();
+        System.out.printf("%-9s fill : %d ms, churn : %d ms, collections : %d, gc time : %d ms, heap used : %d MB%n",
+                scheme, fillMillis, churnMillis, after[0] - before[0], after[1] - before[1], usedHeapMegabytes());
+        cacheManager.destroyCache("gc-" + scheme);
+        System.gc();
+    }
+
+    private static long[] collections() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    private static long usedHeapMegabytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+    }
+}
@@ -0,0 +1,57 @@
+import com.mycache.serializer.JavaSerializer;
+import com.mycache.serializer.Serializer;
+import com.mycache.serializer.Serializers;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the specialized serializers with the Java serialization they replace, run as :
+ * <p>
+ * java -cp target/classes:target/test-classes:... benchmarkSerializer [iterations]
+ * <p>
+ * Every codec writes into and reads from the same direct buffer, as the off-heap stores do, and the serialized size
+ * and the time of a write plus a read are printed per type.
+ */
+public class benchmarkSerializer {
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        run(String.class, "user:42:profile:settings", iterations);
+        run(Long.class, 1234567890123L, iterations);
+        run(Integer.class, 42, iterations);
+        run(byte[].class, new byte[128], iterations);
+        run(Object.class, "user:42:profile:settings", iterations);
+    }
+
+    private static <T> void run(Class<T> type, T object, int iterations) {
+        Serializer<T> specialized = Serializers.getSerializer(type, null);
+        Serializer<T> java = new JavaSerializer<>(type, null);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        // warm up both, then measure
+        measure(specialized, object, buffer, iterations);
+        measure(java, object, buffer, iterations / 10);
+        long specializedNanos = measure(specialized, object, buffer, iterations);
+        long javaNanos = measure(java, object, buffer, iterations / 10);
+        System.out.printf("%-16s %-20s %4d bytes, %6d ns/op | java serialization %4d bytes, %6d ns/op%n",
+                type.getSimpleName(), specialized.getClass().getSimpleName(), specialized.sizeOf(object),
+                specializedNanos, java.sizeOf(object), javaNanos);
+    }
+
+    /**
+     * @return the nanoseconds of a write plus a read
+     */
+    private static <T> long measure(Serializer<T> serializer, T object, ByteBuffer buffer, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            buffer.limit(serializer.sizeOf(object));
+            serializer.write(object, buffer);
+            buffer.flip();
+            sink = serializer.read(buffer);
+        }
+        return (System.nanoTime() - start) / Math.max(1, iterations);
+    }
+}
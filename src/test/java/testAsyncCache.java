@@ -0,0 +1,148 @@
+import com.mycache.AsyncCache;
+import com.mycache.CacheConfiguration;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class testAsyncCache {
+
+    private static CacheManager cacheManager() {
+        return Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMemoryOperationsCompleteAtOnce() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        Cache<Integer, String> cache = cacheManager().createCache("async-memory",
+                new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class));
+        AsyncCache<Integer, String> async = cache.unwrap(AsyncCache.class).withExecutor(tasks::add);
+        assertSame(cache, async.synchronous());
+
+        CompletableFuture<Void> put = async.putAsync(1, "one");
+        assertTrue(put.isDone());
+        CompletableFuture<String> hit = async.getAsync(1);
+        assertTrue(hit.isDone());
+        assertEquals("one", hit.get());
+        CompletableFuture<String> miss = async.getAsync(2);
+        assertTrue(miss.isDone());
+        assertNull(miss.get());
+        CompletableFuture<Map<Integer, String>> all = async.getAllAsync(new HashSet<>(Arrays.asList(1, 2)));
+        assertTrue(all.isDone());
+        assertEquals(1, all.get().size());
+        CompletableFuture<Boolean> remove = async.removeAsync(1);
+        assertTrue(remove.isDone());
+        assertTrue(remove.get());
+        assertTrue(tasks.isEmpty());
+
+        // only the computation runs on the executor
+        CompletableFuture<String> computed = async.computeIfAbsentAsync(3, key -> "three");
+        assertFalse(computed.isDone());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals("three", computed.get());
+        assertTrue(async.computeIfAbsentAsync(3, key -> "other").isDone());
+        assertEquals("three", cache.get(3));
+
+        cache.close();
+        try {
+            async.getAsync(3).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLoaderAndWriterRunOnExecutor() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Map<Integer, String> written = new HashMap<>();
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<>();
+        config.setTypes(Integer.class, String.class);
+        config.setReadThrough(true).setWriteThrough(true);
+        config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(new CacheLoader<Integer, String>() {
+            @Override
+            public String load(Integer key) {
+                loads.incrementAndGet();
+                return "value-" + key;
+            }
+
+            @Override
+            public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+                Map<Integer, String> values = new HashMap<>();
+                keys.forEach(key -> values.put(key, load(key)));
+                return values;
+            }
+        }));
+        config.setCacheWriterFactory(new FactoryBuilder.SingletonFactory<>(new CacheWriter<Integer, String>() {
+            @Override
+            public void write(Cache.Entry<? extends Integer, ? extends String> entry) {
+                written.put(entry.getKey(), entry.getValue());
+            }
+
+            @Override
+            public void writeAll(Collection<Cache.Entry<? extends Integer, ? extends String>> entries) {
+                entries.forEach(this::write);
+                entries.clear();
+            }
+
+            @Override
+            public void delete(Object key) {
+                written.remove(key);
+            }
+
+            @Override
+            public void deleteAll(Collection<?> keys) {
+                keys.forEach(this::delete);
+                keys.clear();
+            }
+        }));
+        List<Runnable> tasks = new ArrayList<>();
+        Cache<Integer, String> cache = cacheManager().createCache("async-loading", config);
+        AsyncCache<Integer, String> async = cache.unwrap(AsyncCache.class).withExecutor(tasks::add);
+
+        CompletableFuture<String> loaded = async.getAsync(1);
+        assertFalse(loaded.isDone());
+        tasks.remove(0).run();
+        assertEquals("value-1", loaded.get());
+        assertEquals("value-1", async.getAsync(1).get());
+
+        CompletableFuture<Map<Integer, String>> all = async.getAllAsync(new HashSet<>(Arrays.asList(1, 2)));
+        assertFalse(all.isDone());
+        tasks.remove(0).run();
+        assertEquals(2, all.get().size());
+        assertEquals(2, loads.get());
+
+        CompletableFuture<Void> put = async.putAsync(3, "three");
+        assertFalse(put.isDone());
+        tasks.remove(0).run();
+        put.get();
+        assertEquals("three", written.get(3));
+        assertTrue(tasks.isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class testBulkOperations {
+
+    private static Map<Integer, String> values(int from, int to) {
+        Map<Integer, String> values = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            values.put(i, "value-" + i);
+        }
+        return values;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBulkOperationsOnBoundedCache() {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>().setMaximumSize(5000);
+        config.setTypes(Integer.class, String.class);
+        InMemoryCache<Integer, String> cache = cacheManager.createCache("bulk-bounded", config)
+                .unwrap(InMemoryCache.class);
+
+        // a batch larger than the parallel threshold
+        cache.putAll(values(0, 3000));
+        assertEquals(3000, cache.size());
+        Set<Integer> keys = new HashSet<>(values(2900, 3100).keySet());
+        Map<Integer, String> found = cache.getAll(keys);
+        assertEquals(values(2900, 3000), found);
+
+        cache.removeAll(keys);
+        assertEquals(2900, cache.size());
+        assertTrue(cache.getAll(keys).isEmpty());
+
+        // the bound is enforced by the batches as well
+        cache.putAll(values(10000, 20000));
+        assertTrue(cache.size() <= 5000);
+
+        cache.removeAll();
+        assertEquals(0, cache.size());
+        cache.putAll(values(0, 10));
+        cache.clear();
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testNullsAreRejectedBeforeAnyWrite() {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        Cache<Integer, String> cache = cacheManager.createCache("bulk-nulls",
+                new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class));
+        Map<Integer, String> values = values(0, 10);
+        values.put(10, null);
+        try {
+            cache.putAll(values);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        assertNull(cache.get(1));
+        Set<Integer> keys = new HashSet<>();
+        keys.add(null);
+        try {
+            cache.getAll(keys);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testBulkOperationsOnTieredCache() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.bulk-tiered.tiers", "in-memory,offheap");
+        properties.setProperty("com.mycache.cache.bulk-tiered.in-memory.maximum-size", "100");
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        Cache<Integer, String> cache = cacheManager.createCache("bulk-tiered",
+                new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class));
+        cache.putAll(values(0, 1000));
+        assertEquals(values(0, 1000), cache.getAll(values(0, 1000).keySet()));
+        cache.removeAll(values(0, 500).keySet());
+        assertEquals(values(500, 1000), cache.getAll(values(0, 1000).keySet()));
+        cache.clear();
+        assertTrue(cache.getAll(values(0, 1000).keySet()).isEmpty());
+    }
+}
@@ -0,0 +1,245 @@
+import com.mycache.AbstractCache;
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testCacheEntryListener {
+
+    /**
+     * Record the events as "type:key=value(oldValue)"
+     */
+    static class RecordingListener implements CacheEntryCreatedListener<Integer, String>,
+            CacheEntryUpdatedListener<Integer, String>, CacheEntryRemovedListener<Integer, String>,
+            CacheEntryExpiredListener<Integer, String> {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        final Map<Integer, List<String>> valuesByKey = new ConcurrentHashMap<>();
+
+        volatile CountDownLatch released;
+
+        private void record(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            if (released != null) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            for (CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                this.events.add(event.getEventType() + ":" + event.getKey() + "=" + event.getValue() +
+                        (event.isOldValueAvailable() ? "(" + event.getOldValue() + ")" : ""));
+                valuesByKey.computeIfAbsent(event.getKey(), key -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(event.getValue());
+            }
+        }
+
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+    }
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private Cache<Integer, String> newCache(String name) {
+        return newCache(URI.create("in-memory://localhost/"), name);
+    }
+
+    private Cache<Integer, String> newCache(URI uri, String name) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(uri, null, new Properties());
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>().setTicker(nanos::get);
+        config.setTypes(Integer.class, String.class);
+        config.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 60))));
+        return cacheManager.createCache(name, config);
+    }
+
+    private static MutableCacheEntryListenerConfiguration<Integer, String> listenerConfiguration(
+            RecordingListener listener, boolean synchronous) {
+        return new MutableCacheEntryListenerConfiguration<>(new FactoryBuilder.SingletonFactory<>(listener), null,
+                true, synchronous);
+    }
+
+    @Test
+    public void testSynchronousEvents() {
+        Cache<Integer, String> cache = newCache("listened");
+        RecordingListener listener = new RecordingListener();
+        MutableCacheEntryListenerConfiguration<Integer, String> configuration = listenerConfiguration(listener, true);
+        cache.registerCacheEntryListener(configuration);
+        cache.put(1, "one");
+        cache.put(1, "uno");
+        cache.replace(1, "uno", "eins");
+        cache.putIfAbsent(2, "two");
+        cache.remove(1);
+        cache.remove(3);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.unwrap(InMemoryCache.class).cleanUp();
+        assertEquals(Arrays.asList("CREATED:1=one", "UPDATED:1=uno(one)", "UPDATED:1=eins(uno)",
+                "CREATED:2=two", "REMOVED:1=eins", "EXPIRED:2=two"), listener.events);
+
+        cache.deregisterCacheEntryListener(configuration);
+        cache.put(4, "four");
+        assertEquals(6, listener.events.size());
+    }
+
+    @Test
+    public void testAsynchronousEventsAreOrderedPerKey() throws InterruptedException {
+        Cache<Integer, String> cache = newCache("listened-async");
+        RecordingListener listener = new RecordingListener();
+        listener.released = new CountDownLatch(1);
+        cache.registerCacheEntryListener(listenerConfiguration(listener, false));
+        // the writers are not delayed by the blocked listener
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i % 10, String.valueOf(i));
+        }
+        assertTrue(listener.events.isEmpty());
+        listener.released.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (listener.events.size() < 1000 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1000, listener.events.size());
+        for (int key = 0; key < 10; key++) {
+            List<String> values = listener.valuesByKey.get(key);
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(String.valueOf(key + i * 10), values.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testExpiredEventsOfOffHeapCache() {
+        Cache<Integer, String> cache = newCache(URI.create("offheap://localhost/"), "listened-offheap");
+        RecordingListener listener = new RecordingListener();
+        cache.registerCacheEntryListener(listenerConfiguration(listener, true));
+        cache.put(1, "one");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        // the expired entry is reclaimed by the read which meets it
+        assertNull(cache.get(1));
+        assertNull(cache.get(1));
+        assertEquals(Arrays.asList("CREATED:1=one", "EXPIRED:1=one"), listener.events);
+    }
+
+    @Test
+    public void testExpiredEventsOfTieredCache() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.listened-tiered.tiers", "in-memory,offheap");
+        properties.setProperty("com.mycache.cache.listened-tiered.in-memory.maximum-size", "1");
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        RecordingListener configured = new RecordingListener();
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>().setTicker(nanos::get);
+        config.setTypes(Integer.class, String.class);
+        config.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 60))));
+        config.addCacheEntryListenerConfiguration(listenerConfiguration(configured, true));
+        Cache<Integer, String> cache = cacheManager.createCache("listened-tiered", config);
+        RecordingListener registered = new RecordingListener();
+        cache.registerCacheEntryListener(listenerConfiguration(registered, true));
+        List<Object> sources = Collections.synchronizedList(new ArrayList<>());
+        cache.registerCacheEntryListener(new MutableCacheEntryListenerConfiguration<>(
+                new FactoryBuilder.SingletonFactory<CacheEntryExpiredListener<Integer, String>>(events -> {
+                    for (CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                        sources.add(event.getSource());
+                    }
+                }), null, false, true));
+
+        cache.put(1, "one");
+        // demotes 1 to the off-heap tier
+        cache.put(2, "two");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        // the expirations met by the tiers are published once, by the tiered cache
+        List<String> expected = Arrays.asList("CREATED:1=one", "CREATED:2=two", "EXPIRED:1=one", "EXPIRED:2=two");
+        assertEquals(expected, configured.events);
+        assertEquals(expected, registered.events);
+        assertEquals(Arrays.asList(cache, cache), sources);
+    }
+
+    @Test
+    public void testRemoveAllPublishesRemovals() {
+        Cache<Integer, String> cache = newCache("listened-remove-all");
+        RecordingListener listener = new RecordingListener();
+        cache.registerCacheEntryListener(listenerConfiguration(listener, true));
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        listener.events.clear();
+        cache.removeAll();
+        List<String> events = new ArrayList<>(listener.events);
+        Collections.sort(events);
+        assertEquals(Arrays.asList("REMOVED:1=one", "REMOVED:2=two", "REMOVED:3=three"), events);
+        assertFalse(cache.containsKey(1));
+
+        // clear removes the entries without any event
+        cache.put(4, "four");
+        listener.events.clear();
+        cache.clear();
+        assertTrue(listener.events.isEmpty());
+        assertFalse(cache.containsKey(4));
+    }
+
+    @Test
+    public void testRemoveAllRecordsRemovals() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.slab-size", "64k");
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("offheap://localhost/"), null, properties);
+        Cache<Integer, String> cache = cacheManager.createCache("recorded-remove-all",
+                new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class)
+                        .setStatisticsEnabled(true));
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+        cache.removeAll();
+        assertEquals(10, cache.unwrap(AbstractCache.class).getStatistics().getCacheRemovals());
+        assertFalse(cache.containsKey(0));
+    }
+}
@@ -0,0 +1,136 @@
+import com.InterceptorEnhancer;
+import com.interceptor.CachePutIntercepter;
+import com.interceptor.CacheRemoveInterceptor;
+import com.interceptor.CacheResultInterceptor;
+import com.interceptor.DefaultGeneratedCacheKey;
+import org.junit.Test;
+
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheKeyInvocationContext;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheRemove;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+import javax.cache.annotation.GeneratedCacheKey;
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class testCacheKey {
+
+    public interface OrderRepository {
+
+        @CachePut(cacheName = "testCacheKey.orders")
+        void save(String tenant, long id, @CacheValue String order);
+
+        @CacheResult(cacheName = "testCacheKey.orders")
+        String find(String tenant, long id);
+
+        @CacheResult(cacheName = "testCacheKey.orders")
+        String findTraced(@CacheKey String tenant, @CacheKey long id, String traceId);
+
+        @CacheRemove(cacheName = "testCacheKey.orders")
+        void delete(String tenant, long id);
+
+        @CacheResult(cacheName = "testCacheKey.tenants", cacheKeyGenerator = TenantKeyGenerator.class)
+        String findByTenant(String tenant, long id);
+    }
+
+    public static class MapOrderRepository implements OrderRepository {
+
+        final Map<String, String> orders = new HashMap<>();
+
+        int finds;
+
+        @Override
+        public void save(String tenant, long id, String order) {
+            orders.put(tenant + "/" + id, order);
+        }
+
+        @Override
+        public String find(String tenant, long id) {
+            finds++;
+            return orders.get(tenant + "/" + id);
+        }
+
+        @Override
+        public String findTraced(String tenant, long id, String traceId) {
+            return find(tenant, id);
+        }
+
+        @Override
+        public void delete(String tenant, long id) {
+            orders.remove(tenant + "/" + id);
+        }
+
+        @Override
+        public String findByTenant(String tenant, long id) {
+            return find(tenant, id);
+        }
+    }
+
+    /**
+     * Only keys by the tenant
+     */
+    public static class TenantKeyGenerator implements CacheKeyGenerator {
+
+        @Override
+        public GeneratedCacheKey generateCacheKey(CacheKeyInvocationContext<? extends Annotation> context) {
+            return new DefaultGeneratedCacheKey(new Object[]{context.getKeyParameters()[0].getValue()});
+        }
+    }
+
+    private OrderRepository proxy(MapOrderRepository target) {
+        return (OrderRepository) new InterceptorEnhancer().enhanceJDKProxy(target, new CachePutIntercepter(),
+                new CacheRemoveInterceptor(), new CacheResultInterceptor());
+    }
+
+    @Test
+    public void testCompositeKeys() {
+        MapOrderRepository target = new MapOrderRepository();
+        OrderRepository repository = proxy(target);
+
+        repository.save("a", 1, "a1");
+        repository.save("a", 2, "a2");
+        repository.save("b", 1, "b1");
+        assertEquals("a1", repository.find("a", 1));
+        assertEquals("a2", repository.find("a", 2));
+        assertEquals("b1", repository.find("b", 1));
+        // only the @CacheKey parameters
+        assertEquals("a2", repository.findTraced("a", 2, "trace"));
+        assertEquals(0, target.finds);
+
+        repository.delete("a", 1);
+        target.orders.put("a/1", "a1'");
+        assertEquals("a1'", repository.find("a", 1));
+        assertEquals("a2", repository.find("a", 2));
+        assertEquals(1, target.finds);
+    }
+
+    @Test
+    public void testCacheKeyGenerator() {
+        MapOrderRepository target = new MapOrderRepository();
+        OrderRepository repository = proxy(target);
+        target.orders.put("c/1", "c1");
+        target.orders.put("c/2", "c2");
+
+        assertEquals("c1", repository.findByTenant("c", 1));
+        // the same tenant hits the same entry
+        assertEquals("c1", repository.findByTenant("c", 2));
+        assertEquals(1, target.finds);
+    }
+
+    @Test
+    public void testGeneratedCacheKey() {
+        DefaultGeneratedCacheKey key = new DefaultGeneratedCacheKey(new Object[]{"a", 1L, new int[]{1, 2}});
+        DefaultGeneratedCacheKey same = new DefaultGeneratedCacheKey(new Object[]{"a", 1L, new int[]{1, 2}});
+        assertEquals(key, same);
+        assertEquals(key.hashCode(), same.hashCode());
+        assertNotEquals(key, new DefaultGeneratedCacheKey(new Object[]{"a", 2L, new int[]{1, 2}}));
+        assertNotEquals(key, new DefaultGeneratedCacheKey(new Object[]{1L, "a", new int[]{1, 2}}));
+    }
+}
@@ -0,0 +1,97 @@
+import com.InterceptorEnhancer;
+import com.interceptor.CacheResultInterceptor;
+import org.junit.Test;
+
+import javax.cache.annotation.CacheResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class testCacheResult {
+
+    public interface UserRepository {
+
+        @CacheResult(cacheName = "testCacheResult.users")
+        String find(String id);
+
+        @CacheResult(cacheName = "testCacheResult.missing")
+        String findMissing(String id);
+
+        @CacheResult(cacheName = "testCacheResult.failures", exceptionCacheName = "testCacheResult.exceptions",
+                cachedExceptions = IllegalStateException.class)
+        String fail(String id);
+    }
+
+    public static class CountingUserRepository implements UserRepository {
+
+        int calls;
+
+        @Override
+        public String find(String id) {
+            calls++;
+            return "user-" + id;
+        }
+
+        @Override
+        public String findMissing(String id) {
+            calls++;
+            return null;
+        }
+
+        @Override
+        public String fail(String id) {
+            calls++;
+            throw "state".equals(id) ? new IllegalStateException(id) : new IllegalArgumentException(id);
+        }
+    }
+
+    @Test
+    public void testHitAndNegativeCaching() {
+        CountingUserRepository target = new CountingUserRepository();
+        UserRepository repository = (UserRepository) new InterceptorEnhancer().enhanceJDKProxy(target,
+                new CacheResultInterceptor(true));
+
+        assertEquals("user-1", repository.find("1"));
+        assertEquals("user-1", repository.find("1"));
+        assertEquals("user-2", repository.find("2"));
+        assertEquals(2, target.calls);
+
+        assertNull(repository.findMissing("1"));
+        assertNull(repository.findMissing("1"));
+        assertEquals(3, target.calls);
+    }
+
+    @Test
+    public void testExceptionCache() {
+        CountingUserRepository target = new CountingUserRepository();
+        UserRepository repository = (UserRepository) new InterceptorEnhancer().enhanceJDKProxy(target,
+                new CacheResultInterceptor());
+
+        IllegalStateException thrown = null;
+        for (int i = 0; i < 2; i++) {
+            try {
+                repository.fail("state");
+                fail();
+            } catch (IllegalStateException e) {
+                if (thrown == null) {
+                    thrown = e;
+                }
+                assertEquals(thrown.getMessage(), e.getMessage());
+            }
+        }
+        assertEquals(1, target.calls);
+
+        // not in the cachedExceptions
+        for (int i = 0; i < 2; i++) {
+            try {
+                repository.fail("argument");
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertSame(IllegalArgumentException.class, e.getClass());
+            }
+        }
+        assertEquals(3, target.calls);
+    }
+}
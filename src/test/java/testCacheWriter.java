@@ -0,0 +1,250 @@
+import com.mycache.CacheConfiguration;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class testCacheWriter {
+
+    /**
+     * Write into a map, failing the keys from {@link #failingKey} on, and the first {@link #failures} batches
+     */
+    static class MapWriter implements CacheWriter<Integer, String> {
+
+        final Map<Integer, String> written = new ConcurrentHashMap<>();
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        volatile int failingKey = Integer.MAX_VALUE;
+
+        final AtomicInteger failures = new AtomicInteger();
+
+        volatile CountDownLatch entered;
+
+        volatile CountDownLatch released;
+
+        @Override
+        public void write(Cache.Entry<? extends Integer, ? extends String> entry) {
+            if (entry.getKey() >= failingKey) {
+                throw new IllegalStateException("backend is down");
+            }
+            written.put(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends Integer, ? extends String>> entries) {
+            batches.incrementAndGet();
+            if (entered != null) {
+                entered.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("backend is down");
+            }
+            for (Iterator<Cache.Entry<? extends Integer, ? extends String>> iterator = entries.iterator();
+                 iterator.hasNext(); ) {
+                write(iterator.next());
+                iterator.remove();
+            }
+        }
+
+        @Override
+        public void delete(Object key) {
+            written.remove(key);
+        }
+
+        @Override
+        public void deleteAll(Collection<?> keys) {
+            batches.incrementAndGet();
+            for (Iterator<?> iterator = keys.iterator(); iterator.hasNext(); ) {
+                delete(iterator.next());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Cache<Integer, String> newCache(String name, MapWriter writer, boolean writeBehind,
+                                                   Properties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>()
+                .setWriteBehind(writeBehind)
+                .setWriteBehindBatchSize(10)
+                .setWriteBehindDelay(50)
+                .setWriteBehindQueueSize(10);
+        config.setTypes(Integer.class, String.class);
+        config.setCacheWriterFactory(new FactoryBuilder.SingletonFactory<>(writer)).setWriteThrough(true);
+        return cacheManager.createCache(name, config);
+    }
+
+    private static Cache<Integer, String> newCache(String name, MapWriter writer, boolean writeBehind) {
+        return newCache(name, writer, writeBehind, new Properties());
+    }
+
+    @Test
+    public void testPutRacingReplaceKeepsTheWriterConsistent() throws Exception {
+        CountDownLatch putWriting = new CountDownLatch(1);
+        CountDownLatch replacementWritten = new CountDownLatch(1);
+        MapWriter writer = new MapWriter() {
+            @Override
+            public void write(Cache.Entry<? extends Integer, ? extends String> entry) {
+                super.write(entry);
+                if ("put".equals(entry.getValue())) {
+                    // leave a replace the time to write through between the write and the store of the put
+                    putWriting.countDown();
+                    try {
+                        replacementWritten.await(200, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                } else if ("replaced".equals(entry.getValue())) {
+                    replacementWritten.countDown();
+                }
+            }
+        };
+        Cache<Integer, String> cache = newCache("write-through-race", writer, false);
+        cache.put(1, "base");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> put = executor.submit(() -> cache.put(1, "put"));
+            assertTrue(putWriting.await(5, TimeUnit.SECONDS));
+            Future<Boolean> replace = executor.submit(() -> cache.replace(1, "base", "replaced"));
+            put.get();
+            // the replace is ordered after the put, which fails its condition
+            assertFalse(replace.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("put", cache.get(1));
+        assertEquals("put", writer.written.get(1));
+    }
+
+    @Test
+    public void testWriteThrough() {
+        MapWriter writer = new MapWriter();
+        Cache<Integer, String> cache = newCache("write-through", writer, false);
+        cache.put(1, "one");
+        assertEquals("one", writer.written.get(1));
+        cache.remove(1);
+        assertFalse(writer.written.containsKey(1));
+
+        // the cache is not updated if the writer fails
+        writer.failingKey = 5;
+        try {
+            cache.put(7, "seven");
+            fail();
+        } catch (CacheWriterException e) {
+            assertNull(cache.get(7));
+        }
+        // only the entries written are stored
+        Map<Integer, String> values = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            values.put(i, "value-" + i);
+        }
+        try {
+            cache.putAll(values);
+            fail();
+        } catch (CacheWriterException e) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i < 5 ? "value-" + i : null, cache.get(i));
+                assertEquals(i < 5 ? "value-" + i : null, writer.written.get(i));
+            }
+        }
+        cache.removeAll(new HashSet<>(Arrays.asList(0, 1, 2)));
+        assertEquals(2, writer.written.size());
+    }
+
+    @Test
+    public void testWriteBehindCoalescesChanges() throws InterruptedException {
+        MapWriter writer = new MapWriter();
+        Cache<Integer, String> cache = newCache("write-behind", writer, true);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i % 3, "value-" + i);
+        }
+        cache.remove(0);
+        // the writes return at once, the changes are flushed after the delay
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.written.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        cache.close();
+        assertEquals("value-997", writer.written.get(1));
+        assertEquals("value-998", writer.written.get(2));
+        assertFalse(writer.written.containsKey(0));
+        // far fewer batches than writes
+        assertTrue(writer.batches.get() < 100);
+    }
+
+    @Test
+    public void testWriteBehindRetries() {
+        MapWriter writer = new MapWriter();
+        writer.failures.set(2);
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.write-behind-retries.write-behind-backoff", "10");
+        Cache<Integer, String> cache = newCache("write-behind-retries", writer, true, properties);
+        cache.put(1, "one");
+        cache.close();
+        assertEquals("one", writer.written.get(1));
+        assertEquals(3, writer.batches.get());
+    }
+
+    @Test
+    public void testWriteBehindBackpressure() throws Exception {
+        MapWriter writer = new MapWriter();
+        writer.entered = new CountDownLatch(1);
+        writer.released = new CountDownLatch(1);
+        Cache<Integer, String> cache = newCache("write-behind-backpressure", writer, true);
+        // a full batch is flushed at once, and blocks in the writer
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "value-" + i);
+        }
+        assertTrue(writer.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 10; i < 20; i++) {
+            cache.put(i, "value-" + i);
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> cache.put(20, "value-20"));
+            Thread.sleep(100);
+            assertFalse(blocked.isDone());
+            // the changes of the queued keys are still accepted
+            cache.put(15, "updated");
+            writer.released.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        cache.close();
+        assertEquals(21, writer.written.size());
+        assertEquals("updated", writer.written.get(15));
+    }
+}
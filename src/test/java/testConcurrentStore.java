@@ -0,0 +1,104 @@
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testConcurrentStore {
+
+    private static final int KEY_SPACE = 1 << 14;
+
+    private static final long RUN_MILLIS = 300;
+
+    private Cache<Integer, Integer> createCache(String cacheName) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        return cacheManager.createCache(cacheName, new MutableConfiguration<Integer, Integer>()
+                .setTypes(Integer.class, Integer.class));
+    }
+
+    @Test
+    public void testNonStringKeysFromManyThreads() throws Exception {
+        Cache<Integer, Integer> cache = createCache("concurrentStoreKeys");
+        int threads = 8;
+        int perThread = 2000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            workers.add(new Thread(() -> {
+                for (int i = offset; i < offset + perThread; i++) {
+                    cache.put(i, i * 2);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        for (int i = 0; i < threads * perThread; i++) {
+            assertEquals(Integer.valueOf(i * 2), cache.get(i));
+        }
+        assertTrue(cache.remove(0));
+        assertNull(cache.get(0));
+    }
+
+    @Test
+    public void testThroughputScalesWithThreads() throws Exception {
+        Cache<Integer, Integer> cache = createCache("concurrentStoreScaling");
+        for (int i = 0; i < KEY_SPACE; i++) {
+            cache.put(i, i);
+        }
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        double single = throughput(cache, 1);
+        double multi = throughput(cache, maxThreads);
+        Assume.assumeTrue("Scaling can only be observed on a multi-core machine",
+                Runtime.getRuntime().availableProcessors() > 1);
+        assertTrue(multi > single);
+    }
+
+    private double throughput(Cache<Integer, Integer> cache, int threads) throws InterruptedException {
+        AtomicLong operations = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        int key = random.nextInt(KEY_SPACE);
+                        // 90% reads, 10% writes
+                        if (random.nextInt(10) == 0) {
+                            cache.put(key, key);
+                        } else {
+                            cache.get(key);
+                        }
+                        count++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    operations.addAndGet(count);
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        return operations.get() * 1000.0 / RUN_MILLIS;
+    }
+}
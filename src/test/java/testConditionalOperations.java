@@ -0,0 +1,256 @@
+import com.mycache.CacheConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testConditionalOperations {
+
+    private static final int THREADS = 8;
+
+    /**
+     * The caches overriding the atomic operations by CAS, and those locking the keys
+     */
+    private static final String[] KINDS = {"in-memory", "offheap", "file", "tiered"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Cache<String, Integer> createCache(String cacheName, Properties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        CacheConfiguration<String, Integer> config = new CacheConfiguration<String, Integer>().setMaximumSize(10_000);
+        config.setTypes(String.class, Integer.class);
+        return cacheManager.createCache(cacheName, config);
+    }
+
+    private static Cache<String, Integer> createCache(String cacheName) {
+        return createCache(cacheName, new Properties());
+    }
+
+    private Cache<String, Integer> createCache(String cacheName, String kind) {
+        String name = cacheName + "-" + kind;
+        Properties properties = new Properties();
+        URI uri;
+        switch (kind) {
+            case "offheap":
+                properties.setProperty("com.mycache.cache.slab-size", "64k");
+                uri = URI.create("offheap://localhost/");
+                break;
+            case "file":
+                properties.setProperty("com.mycache.cache.segment-size", "64k");
+                uri = folder.getRoot().toURI();
+                break;
+            case "tiered":
+                // a small first tier, so that the keys move between the tiers
+                properties.setProperty("com.mycache.cache." + name + ".tiers", "in-memory,offheap,file");
+                properties.setProperty("com.mycache.cache." + name + ".in-memory.maximum-size", "2");
+                properties.setProperty("com.mycache.cache." + name + ".offheap.slab-size", "4k");
+                properties.setProperty("com.mycache.cache." + name + ".file.segment-size", "64k");
+                properties.setProperty("com.mycache.cache." + name + ".file.directory", folder.getRoot().getPath());
+                uri = URI.create("in-memory://localhost/");
+                break;
+            default:
+                return createCache(name);
+        }
+        return Caching.getCachingProvider().getCacheManager(uri, null, properties)
+                .createCache(name, new MutableConfiguration<String, Integer>().setTypes(String.class, Integer.class));
+    }
+
+    private static void assertSemantics(Cache<String, Integer> cache) {
+        assertFalse(cache.containsKey("key"));
+        assertNull(cache.getAndReplace("key", 1));
+        assertFalse(cache.replace("key", 1));
+        assertTrue(cache.putIfAbsent("key", 1));
+        assertFalse(cache.putIfAbsent("key", 2));
+        assertTrue(cache.containsKey("key"));
+        assertFalse(cache.replace("key", 2, 3));
+        assertTrue(cache.replace("key", 1, 3));
+        assertTrue(cache.replace("key", 4));
+        assertEquals(4, (int) cache.getAndReplace("key", 5));
+        assertEquals(5, (int) cache.getAndPut("key", 6));
+        assertFalse(cache.remove("key", 5));
+        assertTrue(cache.remove("key", 6));
+        assertNull(cache.getAndPut("key", 7));
+        assertEquals(7, (int) cache.getAndRemove("key"));
+        assertNull(cache.getAndRemove("key"));
+        assertFalse(cache.containsKey("key"));
+    }
+
+    @Test
+    public void testSemantics() {
+        for (String kind : KINDS) {
+            assertSemantics(createCache("conditional", kind));
+        }
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.conditional-tiered.tiers", "in-memory,offheap");
+        assertSemantics(Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties)
+                .createCache("conditional-tiered", new MutableConfiguration<String, Integer>()
+                        .setTypes(String.class, Integer.class)));
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompareAndSetIncrementsAreNotLost() throws Exception {
+        for (String kind : KINDS) {
+            assertIncrementsAreNotLost(createCache("conditional-increments", kind));
+        }
+    }
+
+    private static void assertIncrementsAreNotLost(Cache<String, Integer> cache) throws Exception {
+        AtomicInteger successes = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 2000; i++) {
+                String key = "counter-" + (i % 4);
+                for (; ; ) {
+                    Integer current = cache.get(key);
+                    if (current == null ? cache.putIfAbsent(key, 1) : cache.replace(key, current, current + 1)) {
+                        successes.incrementAndGet();
+                        break;
+                    }
+                }
+            }
+        });
+        int sum = 0;
+        for (int i = 0; i < 4; i++) {
+            sum += cache.get("counter-" + i);
+        }
+        assertEquals(THREADS * 2000, successes.get());
+        assertEquals(THREADS * 2000, sum);
+    }
+
+    @Test
+    public void testSwapsObserveEveryValueOnce() throws Exception {
+        for (String kind : KINDS) {
+            assertSwapsObserveEveryValueOnce(createCache("conditional-swaps", kind));
+        }
+    }
+
+    private static void assertSwapsObserveEveryValueOnce(Cache<String, Integer> cache) throws Exception {
+        AtomicInteger sequence = new AtomicInteger();
+        List<Integer> observed = new ArrayList<>();
+        runConcurrently(() -> {
+            List<Integer> previous = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                Integer value = sequence.incrementAndGet();
+                Integer replaced = i % 2 == 0 ? cache.getAndPut("swap", value) : cache.getAndReplace("swap", value);
+                if (replaced != null) {
+                    previous.add(replaced);
+                } else if (i % 2 == 1) {
+                    // nothing replaced, the value was not put
+                    previous.add(value);
+                }
+            }
+            synchronized (observed) {
+                observed.addAll(previous);
+            }
+        });
+        observed.add(cache.getAndRemove("swap"));
+        // in a linearizable history every value is replaced by exactly one swap, or is the last one
+        Set<Integer> distinct = new HashSet<>(observed);
+        assertEquals(observed.size(), distinct.size());
+        assertEquals(sequence.get(), distinct.size());
+    }
+
+    @Test
+    public void testOnlyOneRemoverWins() throws Exception {
+        for (String kind : KINDS) {
+            assertOnlyOneRemoverWins(createCache("conditional-removes", kind));
+        }
+    }
+
+    private static void assertOnlyOneRemoverWins(Cache<String, Integer> cache) throws Exception {
+        AtomicInteger wins = new AtomicInteger();
+        for (int round = 0; round < 200; round++) {
+            cache.put("key", round);
+            int value = round;
+            AtomicInteger roundWins = new AtomicInteger();
+            runConcurrently(() -> {
+                if (cache.remove("key", value)) {
+                    roundWins.incrementAndGet();
+                }
+                if (cache.putIfAbsent("key", -1)) {
+                    wins.incrementAndGet();
+                }
+            });
+            assertEquals(1, roundWins.get());
+            assertEquals(round + 1, wins.get());
+        }
+    }
+
+    @Test
+    public void testPutsAreNotLostByReplaces() throws Exception {
+        for (String kind : KINDS) {
+            assertPutsAreNotLostByReplaces(createCache("conditional-puts", kind));
+        }
+    }
+
+    private static void assertPutsAreNotLostByReplaces(Cache<String, Integer> cache) throws Exception {
+        AtomicInteger threads = new AtomicInteger();
+        AtomicBoolean putting = new AtomicBoolean(true);
+        List<Integer> lost = new ArrayList<>();
+        runConcurrently(() -> {
+            if (threads.getAndIncrement() == 0) {
+                // the only putter : its put is seen, or replaced by the negation of its value
+                for (int value = 1; value <= 5000; value++) {
+                    cache.put("key", value);
+                    int current = cache.get("key");
+                    if (current != value && current != -value) {
+                        lost.add(value);
+                    }
+                }
+                putting.set(false);
+            } else {
+                while (putting.get()) {
+                    Integer current = cache.get("key");
+                    if (current != null && current > 0) {
+                        cache.replace("key", current, -current);
+                    }
+                }
+            }
+        });
+        assertEquals(new ArrayList<Integer>(), lost);
+    }
+}
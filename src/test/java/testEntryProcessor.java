@@ -0,0 +1,170 @@
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class testEntryProcessor {
+
+    private static final EntryProcessor<String, Integer, Integer> INCREMENT = (entry, arguments) -> {
+        int value = entry.exists() ? entry.getValue() + 1 : 1;
+        entry.setValue(value);
+        return value;
+    };
+
+    private static <V> Cache<String, V> createCache(String cacheName, Class<V> valueType) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        return cacheManager.createCache(cacheName, new MutableConfiguration<String, V>().setTypes(String.class, valueType));
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        Cache<String, Integer> cache = createCache("processor-counter", Integer.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        cache.invoke("counter", INCREMENT);
+                        cache.invoke("other-" + (j % 10), INCREMENT);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4000, (int) cache.get("counter"));
+        assertEquals(400, (int) cache.get("other-3"));
+    }
+
+    @Test
+    public void testIncrementsConcurrentWithWrites() throws Exception {
+        Cache<String, Integer> cache = createCache("processor-written-counter", Integer.class);
+        cache.put("counter", 0);
+        // the processor yields between its read and its write, which the concurrent writes must not be lost in
+        EntryProcessor<String, Integer, Integer> yieldingIncrement = (entry, arguments) -> {
+            int value = entry.getValue() + 1;
+            Thread.yield();
+            entry.setValue(value);
+            return value;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 2000; j++) {
+                        cache.invoke("counter", yieldingIncrement);
+                    }
+                }));
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 2000; j++) {
+                        Integer value;
+                        do {
+                            value = cache.get("counter");
+                        } while (!cache.replace("counter", value, value + 1));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8000, (int) cache.get("counter"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOnlyFinalMutationIsApplied() {
+        Cache<String, ArrayList> cache = createCache("processor-mutations", ArrayList.class);
+        // created then removed : nothing happened
+        cache.invoke("absent", (entry, arguments) -> {
+            entry.setValue(new ArrayList<>(Arrays.asList(1)));
+            entry.remove();
+            return null;
+        });
+        assertNull(cache.get("absent"));
+
+        cache.put("list", new ArrayList<>(Arrays.asList(1)));
+        Object size = cache.invoke("list", (entry, arguments) -> {
+            ArrayList<Integer> list = entry.getValue();
+            list.add((Integer) arguments[0]);
+            entry.setValue(list);
+            return list.size();
+        }, 2);
+        assertEquals(2, size);
+        assertEquals(Arrays.asList(1, 2), cache.get("list"));
+
+        // a value read but not set is not changed in the cache
+        cache.invoke("list", (entry, arguments) -> entry.getValue().add(3));
+        assertEquals(Arrays.asList(1, 2), cache.get("list"));
+
+        try {
+            cache.invoke("list", (entry, arguments) -> {
+                entry.remove();
+                throw new IllegalStateException("abort");
+            });
+            fail();
+        } catch (EntryProcessorException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // the mutations of a failed processor are discarded
+        assertEquals(Arrays.asList(1, 2), cache.get("list"));
+    }
+
+    @Test
+    public void testInvokeAllCapturesExceptionsPerKey() {
+        Cache<String, Integer> cache = createCache("processor-all", Integer.class);
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            keys.add("key-" + i);
+        }
+        Map<String, EntryProcessorResult<Integer>> results = cache.invokeAll(keys, (entry, arguments) -> {
+            if (entry.getKey().equals("key-7")) {
+                throw new IllegalArgumentException("bad key");
+            }
+            if (entry.getKey().equals("key-8")) {
+                return null;
+            }
+            entry.setValue(entry.getKey().length());
+            return entry.getKey().length();
+        });
+        assertEquals(1999, results.size());
+        assertFalse(results.containsKey("key-8"));
+        assertEquals(8, (int) results.get("key-1999").get());
+        try {
+            results.get("key-7").get();
+            fail();
+        } catch (EntryProcessorException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertNull(cache.get("key-7"));
+        assertEquals(5, (int) cache.get("key-1"));
+    }
+}
@@ -0,0 +1,95 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import com.mycache.eviction.LruEvictionPolicy;
+import com.mycache.eviction.SampledLruEvictionPolicy;
+import com.mycache.eviction.TinyLfuEvictionPolicy;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testEviction {
+
+    private CacheManager cacheManager() {
+        return Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+    }
+
+    private InMemoryCache<Integer, Integer> createCache(String cacheName, long maximumSize, String policy) {
+        CacheConfiguration<Integer, Integer> config = new CacheConfiguration<Integer, Integer>()
+                .setMaximumSize(maximumSize)
+                .setEvictionPolicy(policy);
+        config.setTypes(Integer.class, Integer.class);
+        return cacheManager().createCache(cacheName, config).unwrap(InMemoryCache.class);
+    }
+
+    @Test
+    public void testSizeIsBoundedByEveryPolicy() {
+        String[] policies = {LruEvictionPolicy.NAME, SampledLruEvictionPolicy.NAME, TinyLfuEvictionPolicy.NAME};
+        for (String policy : policies) {
+            InMemoryCache<Integer, Integer> cache = createCache("bounded-" + policy, 100, policy);
+            for (int i = 0; i < 10_000; i++) {
+                cache.put(i, i);
+                assertTrue(policy, cache.size() <= 100);
+            }
+            assertEquals(policy, 100, cache.size());
+        }
+    }
+
+    @Test
+    public void testLruEvictsTheLeastRecentlyUsed() {
+        InMemoryCache<Integer, Integer> cache = createCache("bounded-lru-order", 3, LruEvictionPolicy.NAME);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        cache.get(1);
+        cache.put(4, 4);
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testTinyLfuKeepsHotKeysUnderScan() {
+        InMemoryCache<Integer, Integer> cache = createCache("bounded-tinylfu-scan", 1000, TinyLfuEvictionPolicy.NAME);
+        for (int round = 0; round < 20; round++) {
+            for (int hot = 0; hot < 500; hot++) {
+                cache.put(hot, hot);
+                cache.get(hot);
+            }
+        }
+        // a scan of one-hit wonders larger than the cache
+        for (int cold = 1_000_000; cold < 1_010_000; cold++) {
+            cache.put(cold, cold);
+        }
+        int hits = 0;
+        for (int hot = 0; hot < 500; hot++) {
+            if (cache.get(hot) != null) {
+                hits++;
+            }
+        }
+        assertTrue("hot keys retained : " + hits, hits > 400);
+    }
+
+    @Test
+    public void testMaximumSizeFromCacheProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.propertyBounded.maximum-size", "50");
+        properties.setProperty("com.mycache.cache.propertyBounded.eviction-policy", SampledLruEvictionPolicy.NAME);
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        Cache<String, String> cache = cacheManager.createCache("propertyBounded",
+                new MutableConfiguration<String, String>().setTypes(String.class, String.class));
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key-" + i, "value-" + i);
+        }
+        assertEquals(50, cache.unwrap(InMemoryCache.class).size());
+    }
+}
@@ -0,0 +1,108 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import org.junit.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.expiry.AccessedExpiryPolicy;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.expiry.ModifiedExpiryPolicy;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class testExpiry {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private InMemoryCache<String, String> createCache(String cacheName, ExpiryPolicy expiryPolicy) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        CacheConfiguration<String, String> config = new CacheConfiguration<String, String>().setTicker(nanos::get);
+        config.setTypes(String.class, String.class);
+        config.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(expiryPolicy));
+        return cacheManager.createCache(cacheName, config).unwrap(InMemoryCache.class);
+    }
+
+    private void advance(long duration, TimeUnit unit) {
+        nanos.addAndGet(unit.toNanos(duration));
+    }
+
+    @Test
+    public void testCreationDuration() {
+        InMemoryCache<String, String> cache = createCache("expiry-created",
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 10)));
+        cache.put("key", "value");
+        advance(5, TimeUnit.SECONDS);
+        assertEquals("value", cache.get("key"));
+        // a read does not extend the creation duration
+        advance(6, TimeUnit.SECONDS);
+        assertNull(cache.get("key"));
+        assertFalse(cache.remove("key"));
+    }
+
+    @Test
+    public void testAccessDuration() {
+        InMemoryCache<String, String> cache = createCache("expiry-accessed",
+                new AccessedExpiryPolicy(new Duration(TimeUnit.SECONDS, 10)));
+        cache.put("key", "value");
+        advance(8, TimeUnit.SECONDS);
+        assertEquals("value", cache.get("key"));
+        advance(8, TimeUnit.SECONDS);
+        assertEquals("value", cache.get("key"));
+        advance(11, TimeUnit.SECONDS);
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testUpdateDuration() {
+        InMemoryCache<String, String> cache = createCache("expiry-modified",
+                new ModifiedExpiryPolicy(new Duration(TimeUnit.SECONDS, 10)));
+        cache.put("key", "value");
+        advance(8, TimeUnit.SECONDS);
+        cache.put("key", "updated");
+        advance(7, TimeUnit.SECONDS);
+        assertEquals("updated", cache.get("key"));
+        advance(4, TimeUnit.SECONDS);
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testZeroDurationIsNotStored() {
+        InMemoryCache<String, String> cache = createCache("expiry-zero", new CreatedExpiryPolicy(Duration.ZERO));
+        cache.put("key", "value");
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTimingWheelReclaimsWithoutReads() {
+        InMemoryCache<String, String> cache = createCache("expiry-wheel",
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 1)));
+        for (int i = 0; i < 1000; i++) {
+            cache.put("short-" + i, "value");
+        }
+        advance(3, TimeUnit.SECONDS);
+        cache.cleanUp();
+        assertEquals(0, cache.size());
+
+        // the entries of the coarser wheels cascade down until they expire
+        InMemoryCache<String, String> hourly = createCache("expiry-wheel-hourly",
+                new CreatedExpiryPolicy(new Duration(TimeUnit.MINUTES, 90)));
+        hourly.put("key", "value");
+        for (int minute = 0; minute < 89; minute++) {
+            advance(1, TimeUnit.MINUTES);
+            hourly.cleanUp();
+        }
+        assertEquals(1, hourly.size());
+        advance(2, TimeUnit.MINUTES);
+        hourly.cleanUp();
+        assertEquals(0, hourly.size());
+    }
+}
@@ -0,0 +1,87 @@
+import com.InterceptorChain;
+import com.InterceptorEnhancer;
+import com.interceptor.AnnotatedInterceptor;
+import org.junit.Test;
+
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class testInterceptionPlan {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced {
+
+        String value();
+    }
+
+    public interface Greeter {
+
+        @Traced("hello")
+        String hello(String name);
+
+        String bye(String name);
+    }
+
+    public static class SimpleGreeter implements Greeter {
+
+        @Override
+        public String hello(String name) {
+            return "hello " + name;
+        }
+
+        @Override
+        public String bye(String name) {
+            return "bye " + name;
+        }
+    }
+
+    @Interceptor
+    public static class TracedInterceptor extends AnnotatedInterceptor<Traced> {
+
+        int binds;
+
+        int invocations;
+
+        @Override
+        protected Invocation bind(Method method, Traced traced) {
+            binds++;
+            String value = traced.value();
+            return context -> {
+                invocations++;
+                return value + ":" + context.proceed();
+            };
+        }
+
+        @Override
+        protected Object execute(InvocationContext context, Traced traced) throws Throwable {
+            return context.proceed();
+        }
+    }
+
+    @Test
+    public void testPlanOnlyAnnotatedMethods() throws Exception {
+        TracedInterceptor interceptor = new TracedInterceptor();
+        assertEquals(1, InterceptorChain.of(Greeter.class.getMethod("hello", String.class), interceptor).size());
+        assertTrue(InterceptorChain.of(Greeter.class.getMethod("bye", String.class), interceptor).isEmpty());
+    }
+
+    @Test
+    public void testBindOnceAtProxyCreation() {
+        TracedInterceptor interceptor = new TracedInterceptor();
+        Greeter greeter = (Greeter) new InterceptorEnhancer().enhanceJDKProxy(new SimpleGreeter(), interceptor);
+        assertEquals(1, interceptor.binds);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("hello:hello world", greeter.hello("world"));
+            assertEquals("bye world", greeter.bye("world"));
+        }
+        assertEquals(1, interceptor.binds);
+        assertEquals(3, interceptor.invocations);
+    }
+}
@@ -0,0 +1,100 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class testManagement {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private Cache<Integer, String> newCache(String name) {
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, new Properties());
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>()
+                .setMaximumSize(1000)
+                .setTicker(nanos::get);
+        config.setTypes(Integer.class, String.class);
+        config.setManagementEnabled(true);
+        return cacheManager.createCache(name, config);
+    }
+
+    private static ObjectName objectName(String cacheName) throws Exception {
+        return new ObjectName("javax.cache:type=CacheConfiguration,CacheManager=in-memory.//localhost/,Cache=" +
+                cacheName);
+    }
+
+    @Test
+    public void testResizeAndSwitchPolicy() throws Exception {
+        Cache<Integer, String> cache = newCache("managed");
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "value-" + i);
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName("managed");
+        assertEquals(Integer.class.getName(), server.getAttribute(name, "KeyType"));
+        assertEquals(1000L, server.getAttribute(name, "MaximumSize"));
+        assertEquals("tinylfu", server.getAttribute(name, "EvictionPolicy"));
+
+        // the policy is switched without dropping any entry
+        InMemoryCache<?, ?> inMemoryCache = cache.unwrap(InMemoryCache.class);
+        long size = inMemoryCache.size();
+        server.setAttribute(name, new Attribute("EvictionPolicy", "lru"));
+        assertEquals(size, inMemoryCache.size());
+        // the recently read entries survive the shrink
+        Set<Integer> recent = new HashSet<>();
+        for (int i = 900; i < 1000; i++) {
+            if (cache.get(i) != null) {
+                recent.add(i);
+            }
+        }
+        server.setAttribute(name, new Attribute("MaximumSize", 500L));
+        inMemoryCache.cleanUp();
+        assertEquals(500, inMemoryCache.size());
+        for (int i : recent) {
+            assertEquals("value-" + i, cache.get(i));
+        }
+        assertEquals(500L, cache.getConfiguration(CacheConfiguration.class).getMaximumSize());
+
+        cache.getCacheManager().enableManagement("managed", false);
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testTimeToLiveOfEternalCache() throws Exception {
+        Cache<Integer, String> cache = newCache("managed-ttl");
+        cache.put(1, "one");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName("managed-ttl");
+        assertEquals(-1L, server.getAttribute(name, "TimeToLive"));
+        server.setAttribute(name, new Attribute("TimeToLive", 60_000L));
+        cache.put(2, "two");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.unwrap(InMemoryCache.class).cleanUp();
+        // the entries present keep their expiration
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        cache.put(1, "updated");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertNotNull(cache.get(1));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertNull(cache.get(1));
+    }
+}
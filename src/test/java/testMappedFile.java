@@ -0,0 +1,132 @@
+import com.mycache.file.MappedFileCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testMappedFile {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CacheManager cacheManager(String name) {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.segment-size", "64k");
+        // a distinct property makes a distinct manager over the same directory
+        properties.setProperty("test.manager", name);
+        URI uri = folder.getRoot().toURI();
+        return Caching.getCachingProvider().getCacheManager(uri, null, properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MappedFileCache<String, String> createCache(CacheManager cacheManager, String cacheName) {
+        return cacheManager.createCache(cacheName, new MutableConfiguration<String, String>()
+                .setTypes(String.class, String.class)).unwrap(MappedFileCache.class);
+    }
+
+    @Test
+    public void testEntriesSurviveReopening() {
+        CacheManager cacheManager = cacheManager("reopen");
+        MappedFileCache<String, String> cache = createCache(cacheManager, "file-reopen");
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key-" + i, "value-" + i);
+        }
+        cache.put("key-1", "updated");
+        cache.remove("key-2");
+        cacheManager.destroyCache("file-reopen");
+
+        cache = createCache(cacheManager, "file-reopen");
+        assertEquals(999, cache.size());
+        assertEquals("updated", cache.get("key-1"));
+        assertNull(cache.get("key-2"));
+        assertEquals("value-999", cache.get("key-999"));
+    }
+
+    @Test
+    public void testOverwriteIsNotEvicted() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.segment-size", "64k");
+        properties.setProperty("com.mycache.cache.maximum-weight", "256k");
+        properties.setProperty("test.manager", "overwrite");
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(folder.getRoot().toURI(), null,
+                properties);
+        MappedFileCache<String, String> cache = createCache(cacheManager, "file-overwrite");
+        cache.setStatisticsEnabled(true);
+        for (int i = 0; i < 10000; i++) {
+            cache.put("key-" + i, "value-" + i);
+        }
+        // the oldest entries are overwritten first, the room made for them must not evict their former records
+        for (int i = 0; i < 10000; i++) {
+            if (cache.containsKey("key-" + i)) {
+                cache.put("key-" + i, "updated-" + i);
+            }
+        }
+        assertEquals(10000 - cache.size(), cache.getStatistics().getCacheEvictions());
+    }
+
+    @Test
+    public void testIndexRebuildsAfterCrash() throws Exception {
+        MappedFileCache<String, String> crashed = createCache(cacheManager("crashed"), "file-crash");
+        for (int i = 0; i < 100; i++) {
+            crashed.put("key-" + i, "value-" + i);
+        }
+        // simulate a record torn by the crash after the last complete one
+        File segment = new File(new File(folder.getRoot(), "file-crash"), "segment-0000000000.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() != 0) {
+                    break;
+                }
+                end--;
+            }
+            end = (end + 7) & ~7L;
+            file.seek(end);
+            file.writeInt(0xCAFE);
+            file.writeInt(64);
+            file.writeInt(10);
+            file.writeInt(22);
+        }
+
+        // the crashed cache is never closed, a new one maps the same files
+        MappedFileCache<String, String> recovered = createCache(cacheManager("recovered"), "file-crash");
+        assertEquals(100, recovered.size());
+        assertEquals("value-42", recovered.get("key-42"));
+        recovered.put("key-100", "value-100");
+        assertEquals("value-100", recovered.get("key-100"));
+    }
+
+    @Test
+    public void testCompactionReclaimsSegments() {
+        CacheManager cacheManager = cacheManager("compaction");
+        MappedFileCache<String, String> cache = createCache(cacheManager, "file-compaction");
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                cache.put("key-" + i, "value-" + round);
+            }
+        }
+        long before = cache.fileBytes();
+        cache.compact();
+        assertTrue(cache.fileBytes() < before);
+        assertEquals(100, cache.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value-49", cache.get("key-" + i));
+        }
+        cacheManager.destroyCache("file-compaction");
+        cache = createCache(cacheManager, "file-compaction");
+        assertEquals(100, cache.size());
+        assertEquals("value-49", cache.get("key-7"));
+    }
+}
@@ -0,0 +1,120 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.offheap.OffHeapCache;
+import org.junit.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testOffHeap {
+
+    private OffHeapCache<Integer, byte[]> createCache(String cacheName, long maximumWeight) {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.slab-size", "64k");
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("offheap://localhost/"), null, properties);
+        CacheConfiguration<Integer, byte[]> config = new CacheConfiguration<Integer, byte[]>()
+                .setMaximumWeight(maximumWeight);
+        config.setTypes(Integer.class, byte[].class);
+        return cacheManager.createCache(cacheName, config).unwrap(OffHeapCache.class);
+    }
+
+    private static byte[] value(int key, int length) {
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (byte) (key + i);
+        }
+        return value;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        OffHeapCache<Integer, byte[]> cache = createCache("offheap-basic", 1L << 20);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, value(i, 100));
+        }
+        assertEquals(1000, cache.size());
+        for (int i = 0; i < 1000; i++) {
+            assertArrayEquals(value(i, 100), cache.get(i));
+        }
+        cache.put(1, value(-1, 10));
+        assertArrayEquals(value(-1, 10), cache.get(1));
+        assertTrue(cache.remove(1));
+        assertFalse(cache.remove(1));
+        assertNull(cache.get(1));
+        assertEquals(999, cache.size());
+    }
+
+    @Test
+    public void testCompactionReclaimsReplacedRecords() {
+        OffHeapCache<Integer, byte[]> cache = createCache("offheap-compaction", 1L << 20);
+        // the live set fits in half of the capacity, rewriting it many times must not lose any entry
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 2000; i++) {
+                cache.put(i, value(i + round, 200));
+            }
+        }
+        assertEquals(2000, cache.size());
+        for (int i = 0; i < 2000; i++) {
+            assertArrayEquals(value(i + 19, 200), cache.get(i));
+        }
+        assertTrue(cache.allocatedBytes() <= 1L << 20);
+    }
+
+    @Test
+    public void testEvictionWhenFull() {
+        OffHeapCache<Integer, byte[]> cache = createCache("offheap-eviction", 1L << 20);
+        for (int i = 0; i < 20000; i++) {
+            cache.put(i, value(i, 200));
+        }
+        assertTrue(cache.allocatedBytes() <= 1L << 20);
+        assertTrue(cache.liveBytes() <= 1L << 20);
+        assertTrue(cache.size() < 20000);
+        // the latest entries survive the eviction of the oldest slabs
+        assertArrayEquals(value(19999, 200), cache.get(19999));
+    }
+
+    @Test
+    public void testOverwriteIsNotEvicted() {
+        OffHeapCache<Integer, byte[]> cache = createCache("offheap-overwrite", 1L << 20);
+        cache.setStatisticsEnabled(true);
+        for (int i = 0; i < 20000; i++) {
+            cache.put(i, value(i, 200));
+        }
+        // the oldest entries are overwritten first, the room made for them must not evict their former records
+        for (int i = 0; i < 20000; i++) {
+            if (cache.containsKey(i)) {
+                cache.put(i, value(-i, 200));
+            }
+        }
+        assertEquals(20000 - cache.size(), cache.getStatistics().getCacheEvictions());
+    }
+
+    @Test
+    public void testExpiry() {
+        AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("offheap://localhost/"), null);
+        CacheConfiguration<String, String> config = new CacheConfiguration<String, String>().setTicker(nanos::get);
+        config.setTypes(String.class, String.class);
+        config.setExpiryPolicyFactory(FactoryBuilder.factoryOf(new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 10))));
+        OffHeapCache<String, String> cache = cacheManager.createCache("offheap-expiry", config).unwrap(OffHeapCache.class);
+        cache.put("key", "value");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals("value", cache.get("key"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,300 @@
+import com.mycache.CacheConfiguration;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CompletionListenerFuture;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class testReadThrough {
+
+    /**
+     * Load "value-${key}" for the non-negative keys, nothing for the negative ones
+     */
+    static class CountingLoader implements CacheLoader<Integer, String> {
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        final AtomicInteger bulkLoads = new AtomicInteger();
+
+        @Override
+        public String load(Integer key) {
+            loads.incrementAndGet();
+            if (key == Integer.MIN_VALUE) {
+                throw new IllegalStateException("backend is down");
+            }
+            return key < 0 ? null : "value-" + key;
+        }
+
+        @Override
+        public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+            bulkLoads.incrementAndGet();
+            Map<Integer, String> values = new HashMap<>();
+            for (Integer key : keys) {
+                if (key >= 0) {
+                    values.put(key, "value-" + key);
+                }
+            }
+            return values;
+        }
+    }
+
+    private static CacheManager cacheManager() {
+        return Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+    }
+
+    private static Cache<Integer, String> newCache(String name, CountingLoader loader, boolean readThrough,
+                                                   ExecutorService executor) {
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>()
+                .setLoaderExecutor(executor)
+                .setLoadBatchSize(10);
+        config.setTypes(Integer.class, String.class);
+        config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(loader)).setReadThrough(readThrough);
+        return cacheManager().createCache(name, config);
+    }
+
+    @Test
+    public void testReadThroughOnMiss() {
+        CountingLoader loader = new CountingLoader();
+        Cache<Integer, String> cache = newCache("read-through", loader, true, null);
+        assertEquals("value-1", cache.get(1));
+        assertEquals("value-1", cache.get(1));
+        assertEquals(1, loader.loads.get());
+        // a null value is not stored, so it's loaded again
+        assertNull(cache.get(-1));
+        assertNull(cache.get(-1));
+        assertEquals(3, loader.loads.get());
+
+        Set<Integer> keys = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            keys.add(i);
+        }
+        keys.add(-2);
+        Map<Integer, String> values = cache.getAll(keys);
+        assertEquals(5, values.size());
+        assertEquals("value-4", values.get(4));
+        // the misses are loaded at once
+        assertEquals(1, loader.bulkLoads.get());
+        assertEquals(3, loader.loads.get());
+
+        try {
+            cache.get(Integer.MIN_VALUE);
+            fail();
+        } catch (CacheLoaderException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testNotReadThrough() {
+        CountingLoader loader = new CountingLoader();
+        Cache<Integer, String> cache = newCache("not-read-through", loader, false, null);
+        assertNull(cache.get(1));
+        assertTrue(cache.getAll(new HashSet<>(Arrays.asList(1, 2))).isEmpty());
+        assertEquals(0, loader.loads.get() + loader.bulkLoads.get());
+    }
+
+    @Test
+    public void testLoadAllInBatches() throws InterruptedException, ExecutionException {
+        CountingLoader loader = new CountingLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Cache<Integer, String> cache = newCache("load-all", loader, false, executor);
+            cache.put(0, "existing");
+            Set<Integer> keys = new HashSet<>();
+            for (int i = 0; i < 95; i++) {
+                keys.add(i);
+            }
+            CompletionListenerFuture future = new CompletionListenerFuture();
+            cache.loadAll(keys, false, future);
+            future.get();
+            // 94 missing keys in batches of 10
+            assertEquals(10, loader.bulkLoads.get());
+            assertEquals("existing", cache.get(0));
+            assertEquals("value-94", cache.get(94));
+
+            future = new CompletionListenerFuture();
+            cache.loadAll(keys, true, future);
+            future.get();
+            assertEquals(20, loader.bulkLoads.get());
+            assertEquals("value-0", cache.get(0));
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testLoadAllReportsException() throws InterruptedException {
+        CountingLoader loader = new CountingLoader() {
+            @Override
+            public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+                throw new IllegalStateException("backend is down");
+            }
+        };
+        Cache<Integer, String> cache = newCache("load-all-failure", loader, false, null);
+        CompletionListenerFuture future = new CompletionListenerFuture();
+        cache.loadAll(new HashSet<>(Arrays.asList(1, 2)), true, future);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CacheLoaderException);
+        }
+    }
+
+    /**
+     * Block the loads until released, and fail them if asked
+     */
+    static class BlockingLoader extends CountingLoader {
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch released = new CountDownLatch(1);
+
+        volatile RuntimeException failure;
+
+        private void block() {
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public String load(Integer key) {
+            block();
+            return super.load(key);
+        }
+
+        @Override
+        public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+            for (Integer key : keys) {
+                if (key == 1) {
+                    block();
+                }
+            }
+            return super.loadAll(keys);
+        }
+    }
+
+    private static Cache<Integer, String> newReadThroughCache(String name, CountingLoader loader, long loadTimeout) {
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>().setLoadTimeout(loadTimeout);
+        config.setTypes(Integer.class, String.class);
+        config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(loader)).setReadThrough(true);
+        return cacheManager().createCache(name, config);
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        BlockingLoader loader = new BlockingLoader();
+        Cache<Integer, String> cache = newReadThroughCache("single-flight", loader, CacheConfiguration.UNBOUNDED);
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            Future<String> first = executor.submit(() -> cache.get(1));
+            loader.started.await();
+            CountDownLatch waiting = new CountDownLatch(8);
+            Future<?>[] others = new Future<?>[8];
+            for (int i = 0; i < others.length; i++) {
+                boolean bulk = i % 2 == 1;
+                others[i] = executor.submit(() -> {
+                    waiting.countDown();
+                    return !bulk ? cache.get(1) : cache.getAll(new HashSet<>(Arrays.asList(1, 2))).get(1);
+                });
+            }
+            waiting.await();
+            Thread.sleep(100);
+            loader.released.countDown();
+            assertEquals("value-1", first.get());
+            for (Future<?> other : others) {
+                assertEquals("value-1", other.get());
+            }
+            // key 1 is loaded once, key 2 by the bulk misses
+            assertEquals(1, loader.loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLoadFailureIsShared() throws Exception {
+        BlockingLoader loader = new BlockingLoader();
+        loader.failure = new IllegalStateException("backend is down");
+        Cache<Integer, String> cache = newReadThroughCache("single-flight-failure", loader, CacheConfiguration.UNBOUNDED);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get(1));
+            loader.started.await();
+            Future<String> second = executor.submit(() -> cache.get(1));
+            Thread.sleep(100);
+            loader.released.countDown();
+            Throwable failure = null;
+            try {
+                first.get();
+                fail();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+                assertTrue(failure instanceof CacheLoaderException);
+            }
+            try {
+                second.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CacheLoaderException);
+                // the waiter fails by the exception of the load, unless it came too late and loaded again
+                assertTrue(e.getCause() == failure || loader.loads.get() == 2);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitingForLoadTimesOut() throws Exception {
+        BlockingLoader loader = new BlockingLoader();
+        Cache<Integer, String> cache = newReadThroughCache("single-flight-timeout", loader, 50);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> cache.get(1));
+            loader.started.await();
+            try {
+                cache.get(1);
+                fail();
+            } catch (CacheLoaderException e) {
+                assertTrue(e.getMessage().contains("Timed out"));
+            }
+            loader.released.countDown();
+            assertEquals("value-1", first.get());
+            assertEquals("value-1", cache.get(1));
+            assertEquals(1, loader.loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import com.mycache.CacheConfiguration;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.integration.CacheLoader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class testRefreshAhead {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Cache<String, String> createCache(String cacheName, Executor executor) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        CacheConfiguration<String, String> config = new CacheConfiguration<String, String>()
+                .setTicker(nanos::get)
+                .setLoaderExecutor(executor)
+                .setRefreshAfterWrite(TimeUnit.SECONDS.toMillis(30));
+        config.setTypes(String.class, String.class);
+        config.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 60))));
+        config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(new CacheLoader<String, String>() {
+            @Override
+            public String load(String key) {
+                return key + "-" + loads.incrementAndGet();
+            }
+
+            @Override
+            public Map<String, String> loadAll(Iterable<? extends String> keys) {
+                throw new UnsupportedOperationException();
+            }
+        }));
+        return cacheManager.createCache(cacheName, config);
+    }
+
+    private void advance(long duration, TimeUnit unit) {
+        nanos.addAndGet(unit.toNanos(duration));
+    }
+
+    @Test
+    public void testStaleReadReloadsInBackground() {
+        Cache<String, String> cache = createCache("refresh-ahead", Runnable::run);
+        cache.put("key", "value");
+        advance(20, TimeUnit.SECONDS);
+        assertEquals("value", cache.get("key"));
+        assertEquals(0, loads.get());
+        // the stale read still returns the current value, and reloads it
+        advance(20, TimeUnit.SECONDS);
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, loads.get());
+        assertEquals("key-1", cache.get("key"));
+        // the reloaded entry lives for a new period, long after the former one would have expired
+        advance(50, TimeUnit.SECONDS);
+        assertEquals("key-1", cache.getAll(Collections.singleton("key")).get("key"));
+        assertEquals(2, loads.get());
+        assertEquals("key-2", cache.get("key"));
+        advance(61, TimeUnit.SECONDS);
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testOneReloadPerPeriod() {
+        List<Runnable> tasks = new ArrayList<>();
+        Cache<String, String> cache = createCache("refresh-ahead-once", tasks::add);
+        cache.put("key", "value");
+        advance(40, TimeUnit.SECONDS);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value", cache.get("key"));
+        }
+        assertEquals(1, tasks.size());
+        // a write during the reload wins over the reloaded value
+        cache.put("key", "written");
+        tasks.get(0).run();
+        assertEquals(1, loads.get());
+        assertEquals("written", cache.get("key"));
+    }
+}
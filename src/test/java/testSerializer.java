@@ -0,0 +1,94 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.offheap.OffHeapCache;
+import com.mycache.serializer.JavaSerializer;
+import com.mycache.serializer.ObjectSerializer;
+import com.mycache.serializer.Serializer;
+import com.mycache.serializer.Serializers;
+import com.mycache.serializer.StringSerializer;
+import org.junit.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class testSerializer {
+
+    private static <T> T roundTrip(Serializer<T> serializer, T object) {
+        int size = serializer.sizeOf(object);
+        ByteBuffer buffer = ByteBuffer.allocate(size + 8);
+        buffer.position(3);
+        serializer.write(object, buffer);
+        assertEquals(3 + size, buffer.position());
+        buffer.flip().position(3);
+        return serializer.read(buffer);
+    }
+
+    @Test
+    public void testStringIsUtf8() {
+        Serializer<String> serializer = Serializers.getSerializer(String.class, null);
+        assertTrue(serializer instanceof StringSerializer);
+        for (String text : Arrays.asList("", "ascii", "caf\u00e9", "\u4e2d\u6587\u7f13\u5b58", "emoji \ud83d\ude00 end")) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, serializer.sizeOf(text));
+            assertEquals(text, roundTrip(serializer, text));
+        }
+        // an unpaired surrogate is written as '?', like String#getBytes
+        assertEquals("a?b", roundTrip(serializer, "a\ud800b"));
+    }
+
+    @Test
+    public void testBuiltInTypes() {
+        assertEquals(Integer.valueOf(-42), roundTrip(Serializers.getSerializer(Integer.class, null), -42));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), roundTrip(Serializers.getSerializer(Long.class, null), Long.MIN_VALUE));
+        assertEquals(Double.valueOf(Double.NaN), roundTrip(Serializers.getSerializer(Double.class, null), Double.NaN));
+        assertEquals(Character.valueOf('\u4e2d'), roundTrip(Serializers.getSerializer(Character.class, null), '\u4e2d'));
+        assertEquals(Boolean.TRUE, roundTrip(Serializers.getSerializer(Boolean.class, null), true));
+        assertEquals(4, Serializers.getSerializer(Integer.class, null).sizeOf(7));
+        byte[] bytes = {1, 2, 3};
+        assertArrayEquals(bytes, roundTrip(Serializers.getSerializer(byte[].class, null), bytes));
+
+        Serializer<Date> dates = Serializers.getSerializer(Date.class, null);
+        assertTrue(dates instanceof JavaSerializer);
+        Date date = new Date();
+        assertEquals(date, roundTrip(dates, date));
+
+        Serializer<Object> objects = Serializers.getSerializer(Object.class, null);
+        assertTrue(objects instanceof ObjectSerializer);
+        for (Object object : Arrays.asList("text", 1, 2L, 3.0f, (short) 4, date)) {
+            assertEquals(object, roundTrip(objects, object));
+        }
+        // a tag byte plus the UTF-8 bytes
+        assertEquals(5, objects.sizeOf("text"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConfiguredSerializerIsUsed() {
+        AtomicInteger writes = new AtomicInteger();
+        Serializer<String> counting = new StringSerializer() {
+            @Override
+            public void write(String object, ByteBuffer target) {
+                writes.incrementAndGet();
+                super.write(object, target);
+            }
+        };
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("offheap://localhost/serializer"), null);
+        OffHeapCache<String, String> cache = cacheManager.createCache("serializer-offheap",
+                new CacheConfiguration<String, String>().setValueSerializer(counting)
+                        .setTypes(String.class, String.class)).unwrap(OffHeapCache.class);
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, writes.get());
+        // the key and the value are stored as their UTF-8 bytes, after a header of 24 bytes and aligned to 8
+        assertEquals((24 + 3 + 5 + 7) & ~7, cache.liveBytes());
+    }
+}
@@ -0,0 +1,105 @@
+import com.mycache.AbstractCache;
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import com.mycache.management.CacheStatistics;
+import com.mycache.management.LatencyHistogram;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class testStatistics {
+
+    private static Cache<String, String> newCache(String name, boolean statisticsEnabled) {
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, new Properties());
+        CacheConfiguration<String, String> config = new CacheConfiguration<String, String>().setMaximumSize(10);
+        config.setTypes(String.class, String.class);
+        config.setStatisticsEnabled(statisticsEnabled);
+        return cacheManager.createCache(name, config);
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        Cache<String, String> cache = newCache("statistics", true);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.get("c");
+        cache.getAll(new HashSet<>(Arrays.asList("a", "b", "c")));
+        assertTrue(cache.replace("a", "1", "11"));
+        assertFalse(cache.replace("c", "3"));
+        cache.remove("b");
+        cache.remove("b");
+        for (int i = 0; i < 20; i++) {
+            cache.put("key-" + i, "value");
+        }
+        cache.unwrap(InMemoryCache.class).cleanUp();
+
+        CacheStatistics statistics = cache.unwrap(AbstractCache.class).getStatistics();
+        assertEquals(4, statistics.getCacheHits());
+        assertEquals(3, statistics.getCacheMisses());
+        assertEquals(7, statistics.getCacheGets());
+        assertEquals(23, statistics.getCachePuts());
+        assertEquals(1, statistics.getCacheRemovals());
+        assertTrue(statistics.getCacheEvictions() >= 10);
+        assertTrue(statistics.getAverageGetTime() > 0);
+        assertTrue(statistics.getGetTime99thPercentile() >= statistics.getGetTime50thPercentile());
+
+        // the statistics are exposed by the MXBean of JSR-107
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("javax.cache:type=CacheStatistics,CacheManager=in-memory.//localhost/," +
+                "Cache=statistics");
+        assertEquals(4L, server.getAttribute(name, "CacheHits"));
+        assertTrue((Float) server.getAttribute(name, "PutTime999thPercentile") > 0);
+
+        // nothing is recorded while disabled
+        cache.getCacheManager().enableStatistics("statistics", false);
+        assertFalse(server.isRegistered(name));
+        cache.get("a");
+        assertEquals(7, statistics.getCacheGets());
+        statistics.clear();
+        assertEquals(0, statistics.getCachePuts());
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Cache<String, String> cache = newCache("no-statistics", false);
+        cache.put("a", "1");
+        cache.get("a");
+        CacheStatistics statistics = cache.unwrap(AbstractCache.class).getStatistics();
+        assertEquals(0, statistics.getCacheGets());
+        cache.getCacheManager().enableStatistics("no-statistics", true);
+        cache.get("a");
+        assertEquals(1, statistics.getCacheHits());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        // within the precision of the buckets
+        assertEquals(5_000_000, histogram.getValueAtQuantile(0.5), 5_000_000 / 16.0);
+        assertEquals(9_900_000, histogram.getValueAtQuantile(0.99), 9_900_000 / 16.0);
+        assertEquals(9_990_000, histogram.getValueAtQuantile(0.999), 9_990_000 / 16.0);
+        histogram.record(Long.MAX_VALUE);
+        assertTrue(histogram.getValueAtQuantile(1) > 0);
+        histogram.reset();
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+    }
+}
@@ -0,0 +1,85 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.copier.Copiers;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class testStoreByValue {
+
+    private static CacheManager cacheManager() {
+        return Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMutableValuesAreIsolated() {
+        Cache<String, ArrayList> cache = cacheManager().createCache("by-value-mutable",
+                new MutableConfiguration<String, ArrayList>().setTypes(String.class, ArrayList.class));
+        ArrayList<Integer> value = new ArrayList<>(Arrays.asList(1, 2));
+        cache.put("key", value);
+        // a change after the put does not reach the cache
+        value.add(3);
+        List<Integer> read = cache.get("key");
+        assertEquals(Arrays.asList(1, 2), read);
+        // nor does a change of a read value
+        read.add(4);
+        assertEquals(Arrays.asList(1, 2), cache.get("key"));
+        assertNotSame(cache.get("key"), cache.get("key"));
+    }
+
+    @Test
+    public void testImmutableValuesAreNotCopied() {
+        Cache<Integer, Object> cache = cacheManager().createCache("by-value-immutable",
+                new MutableConfiguration<Integer, Object>().setTypes(Integer.class, Object.class));
+        String text = new String("text");
+        cache.put(1, text);
+        assertSame(text, cache.get(1));
+        LocalDate date = LocalDate.now();
+        cache.put(2, date);
+        assertSame(date, cache.get(2));
+        assertTrue(Copiers.isImmutable(TimeUnit.class));
+        assertFalse(Copiers.isImmutable(ArrayList.class));
+    }
+
+    @Test
+    public void testCopierIsCalledOncePerReadAndWrite() {
+        AtomicInteger copies = new AtomicInteger();
+        CacheConfiguration<Integer, int[]> config = new CacheConfiguration<Integer, int[]>()
+                .setValueCopier(array -> {
+                    copies.incrementAndGet();
+                    return array.clone();
+                });
+        config.setTypes(Integer.class, int[].class);
+        Cache<Integer, int[]> cache = cacheManager().createCache("by-value-copier", config);
+        cache.put(1, new int[]{1});
+        assertEquals(1, copies.get());
+        cache.get(1);
+        cache.get(1);
+        assertEquals(3, copies.get());
+    }
+
+    @Test
+    public void testStoreByReference() {
+        Cache<Integer, List> cache = cacheManager().createCache("by-reference",
+                new MutableConfiguration<Integer, List>().setTypes(Integer.class, List.class).setStoreByValue(false));
+        List<Integer> value = new ArrayList<>();
+        cache.put(1, value);
+        assertSame(value, cache.get(1));
+    }
+}
@@ -0,0 +1,237 @@
+import com.InterceptorEnhancer;
+import com.mycache.AbstractCache;
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import com.mycache.eviction.LruEvictionPolicy;
+import com.interceptor.CachePutIntercepter;
+import com.interceptor.CacheTags;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheValue;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testTagInvalidation {
+
+    public interface ProfileRepository {
+
+        @CachePut(cacheName = "testTagInvalidation.profiles")
+        @CacheTags({"user:{0}", "profiles"})
+        void save(String user, String section, @CacheValue String profile);
+    }
+
+    public static class NoopProfileRepository implements ProfileRepository {
+
+        @Override
+        public void save(String user, String section, String profile) {
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private CacheConfiguration<String, String> newConfiguration() {
+        CacheConfiguration<String, String> config = new CacheConfiguration<String, String>().setTicker(nanos::get);
+        config.setTypes(String.class, String.class);
+        config.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(
+                new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, 10))));
+        return config;
+    }
+
+    private InMemoryCache<String, String> createCache(String cacheName, long maximumSize) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"),
+                null, new Properties());
+        CacheConfiguration<String, String> config = newConfiguration()
+                .setMaximumSize(maximumSize)
+                .setEvictionPolicy(LruEvictionPolicy.NAME);
+        return cacheManager.createCache(cacheName, config).unwrap(InMemoryCache.class);
+    }
+
+    private AbstractCache<String, String> createCache(URI uri, Properties properties, String cacheName) {
+        return Caching.getCachingProvider().getCacheManager(uri, null, properties)
+                .createCache(cacheName, newConfiguration()).unwrap(AbstractCache.class);
+    }
+
+    /**
+     * Put the tagged entries "0" to "count - 1", then check that the tags of the entries evicted since are released.
+     *
+     * @return the number of entries evicted
+     */
+    private static int putEvicting(AbstractCache<String, String> cache, int count) {
+        for (int i = 0; i < count; i++) {
+            cache.put(String.valueOf(i), "value-" + i, tags("numbers"));
+        }
+        int evicted = 0;
+        for (int i = 0; i < count; i++) {
+            if (!cache.containsKey(String.valueOf(i))) {
+                assertEquals(Collections.emptySet(), cache.getTags(String.valueOf(i)));
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Expire the entries, then check that their tags are released once they are read.
+     */
+    private void assertTagsReleasedByExpiry(AbstractCache<String, String> cache, int count) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        for (int i = 0; i < count; i++) {
+            assertNull(cache.get(String.valueOf(i)));
+            assertEquals(Collections.emptySet(), cache.getTags(String.valueOf(i)));
+        }
+    }
+
+    private static HashSet<String> tags(String... tags) {
+        return new HashSet<>(Arrays.asList(tags));
+    }
+
+    @Test
+    public void testInvalidateTag() {
+        InMemoryCache<String, String> cache = createCache("tags-invalidate", CacheConfiguration.UNBOUNDED);
+        cache.put("alice/1", "a1", tags("user:alice", "orders"));
+        cache.put("alice/2", "a2", tags("user:alice"));
+        cache.put("bob/1", "b1", tags("user:bob", "orders"));
+        cache.put("carol/1", "c1");
+        assertEquals(tags("user:alice", "orders"), cache.getTags("alice/1"));
+
+        assertEquals(2, cache.invalidateTag("user:alice"));
+        assertNull(cache.get("alice/1"));
+        assertNull(cache.get("alice/2"));
+        assertEquals("b1", cache.get("bob/1"));
+        assertEquals("c1", cache.get("carol/1"));
+        // the other tags of the invalidated entries are released
+        assertEquals(1, cache.invalidateTag("orders"));
+        assertNull(cache.get("bob/1"));
+        assertEquals(0, cache.invalidateTag("user:alice"));
+
+        // the tags are replaced by a tagged write, and released by a removal
+        cache.put("dave/1", "d1", tags("user:dave", "orders"));
+        cache.put("dave/1", "d1'", tags("user:dave"));
+        assertEquals(0, cache.invalidateTag("orders"));
+        assertTrue(cache.remove("dave/1"));
+        assertEquals(Collections.emptySet(), cache.getTags("dave/1"));
+        assertEquals(0, cache.invalidateTag("user:dave"));
+    }
+
+    @Test
+    public void testTagsReleasedOnEvictionAndExpiry() {
+        InMemoryCache<String, String> cache = createCache("tags-released", 2);
+        cache.put("1", "one", tags("numbers"));
+        cache.put("2", "two", tags("numbers"));
+        cache.put("3", "three", tags("numbers"));
+        assertFalse(cache.containsKey("1"));
+        assertEquals(Collections.emptySet(), cache.getTags("1"));
+        assertEquals(tags("numbers"), cache.getTags("3"));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        cache.cleanUp();
+        assertEquals(Collections.emptySet(), cache.getTags("2"));
+        assertEquals(Collections.emptySet(), cache.getTags("3"));
+        assertEquals(0, cache.invalidateTag("numbers"));
+    }
+
+    @Test
+    public void testTagsOfEntryNotStored() {
+        InMemoryCache<String, String> cache = createCache("tags-not-stored", 10);
+        // the entries created expire at once, the write stores nothing to tag
+        cache.setTimeToLive(0);
+        cache.put("1", "one", tags("numbers"));
+        assertFalse(cache.containsKey("1"));
+        assertEquals(Collections.emptySet(), cache.getTags("1"));
+
+        // a later write without tags doesn't inherit any
+        cache.setTimeToLive(TimeUnit.SECONDS.toMillis(10));
+        cache.put("1", "uno");
+        assertEquals(Collections.emptySet(), cache.getTags("1"));
+        assertEquals(0, cache.invalidateTag("numbers"));
+        assertEquals("uno", cache.get("1"));
+    }
+
+    @Test
+    public void testTagsReleasedByOffHeapCache() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.tags-offheap.slab-size", "4k");
+        properties.setProperty("com.mycache.cache.tags-offheap.maximum-weight", "16k");
+        AbstractCache<String, String> cache = createCache(URI.create("offheap://localhost/"), properties,
+                "tags-offheap");
+        cache.put("read", "expired on read", tags("numbers"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertNull(cache.get("read"));
+        assertEquals(Collections.emptySet(), cache.getTags("read"));
+
+        // the expired entries are dropped without any read while making room
+        for (int i = 0; i < 100; i++) {
+            cache.put(String.valueOf(i), "value-" + i, tags("numbers"));
+        }
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        for (int i = 0; i < 500; i++) {
+            cache.put("untagged-" + i, "value-" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Collections.emptySet(), cache.getTags(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void testTagsReleasedByMappedFileCache() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.tags-file.segment-size", "4k");
+        properties.setProperty("com.mycache.cache.tags-file.maximum-weight", "8k");
+        AbstractCache<String, String> cache = createCache(folder.getRoot().toURI(), properties, "tags-file");
+        assertTrue(putEvicting(cache, 200) > 0);
+        assertTagsReleasedByExpiry(cache, 200);
+    }
+
+    @Test
+    public void testTagsReleasedByTieredCache() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.tags-tiered.tiers", "in-memory,file");
+        properties.setProperty("com.mycache.cache.tags-tiered.in-memory.maximum-size", "2");
+        properties.setProperty("com.mycache.cache.tags-tiered.file.segment-size", "4k");
+        properties.setProperty("com.mycache.cache.tags-tiered.file.maximum-weight", "8k");
+        properties.setProperty("com.mycache.cache.tags-tiered.file.directory", folder.getRoot().getPath());
+        AbstractCache<String, String> cache = createCache(URI.create("in-memory://localhost/"), properties,
+                "tags-tiered");
+        // the tags are held by the tiered cache, the entries evicted from the last tier or expired in any tier
+        // release them
+        assertTrue(putEvicting(cache, 200) > 0);
+        assertTagsReleasedByExpiry(cache, 200);
+    }
+
+    @Test
+    public void testCacheTagsAnnotation() {
+        ProfileRepository repository = (ProfileRepository) new InterceptorEnhancer().enhanceJDKProxy(
+                new NoopProfileRepository(), new CachePutIntercepter());
+        repository.save("alice", "home", "alice-home");
+        repository.save("alice", "work", "alice-work");
+        repository.save("bob", "home", "bob-home");
+
+        Cache<Object, Object> cache = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"),
+                null).getCache("testTagInvalidation.profiles");
+        AbstractCache<Object, Object> taggedCache = cache.unwrap(AbstractCache.class);
+        assertEquals(2, taggedCache.invalidateTag("user:alice"));
+        assertEquals(1, taggedCache.invalidateTag("profiles"));
+    }
+}
@@ -0,0 +1,140 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import com.mycache.TieredCache;
+import com.mycache.file.MappedFileCache;
+import com.mycache.offheap.OffHeapCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.net.URI;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class testTieredCache {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @SuppressWarnings("unchecked")
+    private TieredCache<Integer, String> createCache(String cacheName, Properties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        Cache<Integer, String> cache = cacheManager.createCache(cacheName, new MutableConfiguration<Integer, String>()
+                .setTypes(Integer.class, String.class));
+        return cache.unwrap(TieredCache.class);
+    }
+
+    @Test
+    public void testDemotionAndPromotion() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.two-tiers.tiers", "in-memory,offheap");
+        properties.setProperty("com.mycache.cache.two-tiers.in-memory.maximum-size", "100");
+        TieredCache<Integer, String> cache = createCache("two-tiers", properties);
+        List<Cache<Integer, String>> tiers = cache.getTiers();
+        InMemoryCache<Integer, String> heap = tiers.get(0).unwrap(InMemoryCache.class);
+        OffHeapCache<Integer, String> offHeap = tiers.get(1).unwrap(OffHeapCache.class);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "value-" + i);
+        }
+        assertTrue(heap.size() <= 100);
+        // nothing is lost, the evicted entries are demoted
+        assertEquals(1000, heap.size() + offHeap.size());
+
+        int cold = -1;
+        for (int i = 0; i < 1000 && cold < 0; i++) {
+            if (heap.get(i) == null) {
+                cold = i;
+            }
+        }
+        assertEquals("value-" + cold, cache.get(cold));
+        // the hit promoted the entry to the first tier
+        assertEquals("value-" + cold, heap.get(cold));
+        assertEquals(1000, heap.size() + offHeap.size());
+
+        cache.put(cold, "updated");
+        assertEquals("updated", cache.get(cold));
+        assertTrue(cache.remove(cold));
+        assertNull(cache.get(cold));
+        assertFalse(cache.remove(cold));
+        assertEquals(999, heap.size() + offHeap.size());
+    }
+
+    @Test
+    public void testEvictionsOfLastTier() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.evicting-tiers.tiers", "in-memory,offheap");
+        properties.setProperty("com.mycache.cache.evicting-tiers.in-memory.maximum-size", "64");
+        properties.setProperty("com.mycache.cache.evicting-tiers.offheap.maximum-weight", "64k");
+        properties.setProperty("com.mycache.cache.evicting-tiers.offheap.slab-size", "4k");
+        TieredCache<Integer, String> cache = createCache("evicting-tiers", properties);
+        cache.setStatisticsEnabled(true);
+        InMemoryCache<Integer, String> heap = cache.getTiers().get(0).unwrap(InMemoryCache.class);
+        OffHeapCache<Integer, String> offHeap = cache.getTiers().get(1).unwrap(OffHeapCache.class);
+
+        for (int i = 0; i < 5000; i++) {
+            cache.put(i, "value-" + i);
+        }
+        // the demotions are not evictions, only the entries dropped by the last tier are
+        long evictions = 5000 - heap.size() - offHeap.size();
+        assertTrue(evictions > 0);
+        assertEquals(evictions, cache.getStatistics().getCacheEvictions());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSetTimeToLiveOfEternalTiers() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.expiring-tiers.tiers", "in-memory,offheap,file");
+        properties.setProperty("com.mycache.cache.expiring-tiers.in-memory.maximum-size", "1");
+        properties.setProperty("com.mycache.cache.expiring-tiers.file.directory", folder.getRoot().getPath());
+        CacheManager cacheManager = Caching.getCachingProvider()
+                .getCacheManager(URI.create("in-memory://localhost/"), null, properties);
+        AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+        CacheConfiguration<Integer, String> config = new CacheConfiguration<Integer, String>().setTicker(nanos::get);
+        config.setTypes(Integer.class, String.class);
+        TieredCache<Integer, String> cache = cacheManager.createCache("expiring-tiers", config)
+                .unwrap(TieredCache.class);
+
+        // every tier starts expiring, none is left eternal
+        cache.setTimeToLive(TimeUnit.SECONDS.toMillis(10));
+        cache.put(1, "one");
+        cache.put(2, "two");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testThreeTiers() {
+        Properties properties = new Properties();
+        properties.setProperty("com.mycache.cache.three-tiers.tiers", "in-memory,offheap,file");
+        properties.setProperty("com.mycache.cache.three-tiers.in-memory.maximum-size", "64");
+        properties.setProperty("com.mycache.cache.three-tiers.offheap.maximum-weight", "64k");
+        properties.setProperty("com.mycache.cache.three-tiers.offheap.slab-size", "4k");
+        properties.setProperty("com.mycache.cache.three-tiers.file.segment-size", "64k");
+        properties.setProperty("com.mycache.cache.three-tiers.file.directory", folder.getRoot().getPath());
+        TieredCache<Integer, String> cache = createCache("three-tiers", properties);
+        MappedFileCache<Integer, String> file = cache.getTiers().get(2).unwrap(MappedFileCache.class);
+
+        for (int i = 0; i < 5000; i++) {
+            cache.put(i, "value-" + i);
+        }
+        assertTrue(file.size() > 0);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("value-" + i, cache.get(i));
+        }
+    }
+}
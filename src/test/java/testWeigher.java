@@ -0,0 +1,74 @@
+import com.mycache.CacheConfiguration;
+import com.mycache.InMemoryCache;
+import com.mycache.weigher.ObjectSizeEstimator;
+import com.mycache.weigher.Weighers;
+import org.junit.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class testWeigher {
+
+    private InMemoryCache<Integer, Object> createCache(String cacheName, long maximumWeight) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(URI.create("in-memory://localhost/"), null);
+        CacheConfiguration<Integer, Object> config = new CacheConfiguration<Integer, Object>()
+                .setMaximumWeight(maximumWeight);
+        config.setTypes(Integer.class, Object.class);
+        return cacheManager.createCache(cacheName, config).unwrap(InMemoryCache.class);
+    }
+
+    @Test
+    public void testBuiltInEstimators() {
+        assertEquals(16, ObjectSizeEstimator.sizeOf(1));
+        assertEquals(24, ObjectSizeEstimator.sizeOf(1L));
+        assertEquals(1040, ObjectSizeEstimator.sizeOf(new byte[1024]));
+        // 24 bytes of String and a compact byte[] of 16 + 5 bytes aligned to 24
+        assertEquals(48, ObjectSizeEstimator.sizeOf("hello"));
+        // UTF-16 needs two bytes per char
+        assertEquals(24 + 32, ObjectSizeEstimator.sizeOf("\u4f60\u597d\u4f60\u597d\u4f60"));
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 3));
+        assertTrue(ObjectSizeEstimator.sizeOf(list) >= 3 * 16 + 16 + 3 * 4);
+        assertEquals(Weighers.ENTRY_OVERHEAD + 16 + 1040, Weighers.estimating().weigh(1, new byte[1024]));
+    }
+
+    @Test
+    public void testParseBytes() {
+        assertEquals(1024, Weighers.parseBytes("1024"));
+        assertEquals(512 * 1024, Weighers.parseBytes("512k"));
+        assertEquals(64L << 20, Weighers.parseBytes("64MB"));
+        assertEquals(1L << 30, Weighers.parseBytes("1g"));
+    }
+
+    @Test
+    public void testWeightedSizeIsMaintainedIncrementally() {
+        InMemoryCache<Integer, Object> cache = createCache("weighted-accounting", 1L << 30);
+        long weight = Weighers.estimating().weigh(1, new byte[100]);
+        cache.put(1, new byte[100]);
+        cache.put(2, new byte[100]);
+        assertEquals(2 * weight, cache.weightedSize());
+        cache.put(2, "x");
+        assertEquals(weight + Weighers.estimating().weigh(2, "x"), cache.weightedSize());
+        cache.remove(1);
+        cache.remove(2);
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void testMixedSizeValuesStayUnderCeiling() {
+        long ceiling = 1L << 20;
+        InMemoryCache<Integer, Object> cache = createCache("weighted-ceiling", ceiling);
+        for (int i = 0; i < 5000; i++) {
+            Object value = i % 10 == 0 ? new byte[16 * 1024] : "value-" + i;
+            cache.put(i, value);
+            assertTrue(cache.weightedSize() <= ceiling);
+        }
+        assertTrue(cache.weightedSize() > ceiling / 2);
+    }
+}